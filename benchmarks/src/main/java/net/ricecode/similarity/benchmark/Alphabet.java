@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity.benchmark;
+
+import java.util.Random;
+
+/**
+ * The character sets used to generate benchmark inputs.
+ */
+public enum Alphabet {
+
+	/**
+	 * Upper and lower case ASCII letters.
+	 */
+	ASCII("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz"),
+
+	/**
+	 * ASCII letters mixed with the accented letters of ISO-8859-1.
+	 */
+	LATIN1("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz"
+			+ "ÀÁÂÃÄÅÇÈÉÊËÑÖÜ"
+			+ "àáâãäåçèéêëñöü"),
+
+	/**
+	 * A block of common CJK unified ideographs.
+	 */
+	CJK(range('一', 512));
+
+	private final String characters;
+
+	Alphabet(String characters) {
+		this.characters = characters;
+	}
+
+	/**
+	 * Picks a random character from this alphabet.
+	 * @param random The source of randomness.
+	 * @return A character.
+	 */
+	public char next(Random random) {
+		return characters.charAt(random.nextInt(characters.length()));
+	}
+
+	/**
+	 * Creates a random string from this alphabet.
+	 * @param random The source of randomness.
+	 * @param length The length of the string.
+	 * @return A string.
+	 */
+	public String randomString(Random random, int length) {
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = next(random);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Creates a copy of a string where roughly the given fraction of characters
+	 * has been substituted, deleted, inserted or transposed.
+	 * @param random The source of randomness.
+	 * @param s The string to mutate.
+	 * @param rate The fraction of positions to edit, between 0.0 and 1.0.
+	 * @return A string that resembles the original.
+	 */
+	public String mutate(Random random, String s, double rate) {
+		StringBuilder sb = new StringBuilder(s.length() + 4);
+		for (int i = 0; i < s.length(); i++) {
+			char ch = s.charAt(i);
+			if (random.nextDouble() >= rate) {
+				sb.append(ch);
+				continue;
+			}
+			switch (random.nextInt(4)) {
+				case 0:
+					sb.append(next(random));
+					break;
+				case 1:
+					break;
+				case 2:
+					sb.append(ch).append(next(random));
+					break;
+				default:
+					if (i + 1 < s.length()) {
+						sb.append(s.charAt(i + 1)).append(ch);
+						i++;
+					}
+					else {
+						sb.append(ch);
+					}
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String range(char first, int count) {
+		StringBuilder sb = new StringBuilder(count);
+		for (int i = 0; i < count; i++) {
+			sb.append((char) (first + i));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.ricecode.similarity.CachingSimilarityStrategy;
+import net.ricecode.similarity.SimilarityStrategy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares scoring a repeated set of pairs with and without a cache in front of the strategy.
+ * Every pair is scored once during setup, so the cached benchmarks measure the hit path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CachingBenchmark {
+
+	private static final int PAIRS = 1024;
+
+	@Param({"LEVENSHTEIN", "JARO_WINKLER"})
+	public StrategyKind strategy;
+
+	@Param({"40"})
+	public int length;
+
+	private SimilarityStrategy direct;
+	private CachingSimilarityStrategy cached;
+	private String[] firsts;
+	private String[] seconds;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		direct = strategy.create();
+		cached = new CachingSimilarityStrategy(direct, PAIRS * 2, true);
+		firsts = new String[PAIRS];
+		seconds = new String[PAIRS];
+		for (int i = 0; i < PAIRS; i++) {
+			firsts[i] = Alphabet.ASCII.randomString(random, length);
+			seconds[i] = Alphabet.ASCII.mutate(random, firsts[i], 0.2);
+			cached.score(firsts[i], seconds[i]);
+		}
+	}
+
+	/**
+	 * Walks through the generated pairs, one pair per invocation.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next;
+
+		int advance() {
+			int i = next;
+			next = (i + 1) & (PAIRS - 1);
+			return i;
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public double uncached(Cursor cursor) {
+		int i = cursor.advance();
+		return direct.score(firsts[i], seconds[i]);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public double cached(Cursor cursor) {
+		int i = cursor.advance();
+		return cached.score(firsts[i], seconds[i]);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public double cachedConcurrently(Cursor cursor) {
+		int i = cursor.advance();
+		return cached.score(firsts[i], seconds[i]);
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.ricecode.similarity.MappedFeatureSource;
+import net.ricecode.similarity.SimilarityScore;
+import net.ricecode.similarity.SimilarityStrategy;
+import net.ricecode.similarity.StringSimilarityService;
+import net.ricecode.similarity.StringSimilarityServiceImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a top ten query over a UTF-8 dictionary file read line by line through a Reader
+ * with the same query over the memory-mapped file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class MappedFeatureSourceBenchmark {
+
+	private static final int TARGETS = 64;
+
+	@Param({"JARO_WINKLER", "LEVENSHTEIN", "DICE"})
+	public StrategyKind strategy;
+
+	@Param({"100000"})
+	public int corpusSize;
+
+	@Param({"ASCII", "LATIN1"})
+	public Alphabet alphabet;
+
+	private Path file;
+	private StringSimilarityService service;
+	private MappedFeatureSource source;
+	private String[] targets;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		Random random = new Random(42);
+		SimilarityStrategy instance = strategy.create();
+		file = Files.createTempFile("features", ".txt");
+		targets = new String[TARGETS];
+		BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+		try {
+			for (int i = 0; i < corpusSize; i++) {
+				String feature = alphabet.randomString(random, 4 + random.nextInt(29));
+				if (i < TARGETS) {
+					targets[i] = alphabet.mutate(random, feature, 0.2);
+				}
+				writer.write(feature);
+				writer.newLine();
+			}
+		}
+		finally {
+			writer.close();
+		}
+		service = new StringSimilarityServiceImpl(instance);
+		source = new MappedFeatureSource(file, StandardCharsets.UTF_8, instance);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	/**
+	 * Walks through the generated targets, one target per invocation.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next;
+
+		int advance() {
+			int i = next;
+			next = (i + 1) % TARGETS;
+			return i;
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public List<SimilarityScore> reader(Cursor cursor) throws IOException {
+		Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+		try {
+			return service.findTopK(reader, targets[cursor.advance()], 10);
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public List<SimilarityScore> mapped(Cursor cursor) {
+		return source.findTopK(targets[cursor.advance()], 10);
+	}
+}
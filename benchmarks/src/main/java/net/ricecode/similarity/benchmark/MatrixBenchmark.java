@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.ricecode.similarity.ParallelStringSimilarityService;
+import net.ricecode.similarity.SimilarityScore;
+import net.ricecode.similarity.SimilarityStrategy;
+import net.ricecode.similarity.StringSimilarityService;
+import net.ricecode.similarity.StringSimilarityServiceImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures many-to-many top-k queries, answered one target at a time with findTopK
+ * and all at once with the tiled findTopPerTarget.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatrixBenchmark {
+
+	@Param({"JARO_WINKLER", "LEVENSHTEIN", "DAMERAU_OSA", "DICE"})
+	public StrategyKind strategy;
+
+	@Param({"20000"})
+	public int corpusSize;
+
+	@Param({"500"})
+	public int targetCount;
+
+	@Param({"ASCII"})
+	public Alphabet alphabet;
+
+	private StringSimilarityService sequential;
+	private StringSimilarityService parallel;
+	private List<String> features;
+	private List<String> targets;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		SimilarityStrategy instance = strategy.create();
+		sequential = new StringSimilarityServiceImpl(instance);
+		parallel = new ParallelStringSimilarityService(instance);
+		features = new ArrayList<String>(corpusSize);
+		for (int i = 0; i < corpusSize; i++) {
+			features.add(alphabet.randomString(random, 4 + random.nextInt(29)));
+		}
+		targets = new ArrayList<String>(targetCount);
+		for (int i = 0; i < targetCount; i++) {
+			targets.add(alphabet.mutate(random, features.get(random.nextInt(corpusSize)), 0.2));
+		}
+	}
+
+	@Benchmark
+	public List<List<SimilarityScore>> findTopKPerTarget() {
+		List<List<SimilarityScore>> result = new ArrayList<List<SimilarityScore>>(targets.size());
+		for (String target : targets) {
+			result.add(sequential.findTopK(features, target, 10));
+		}
+		return result;
+	}
+
+	@Benchmark
+	public List<List<SimilarityScore>> findTopPerTarget() {
+		return sequential.findTopPerTarget(features, targets, 10);
+	}
+
+	@Benchmark
+	public List<List<SimilarityScore>> findTopPerTargetParallel() {
+		return parallel.findTopPerTarget(features, targets, 10);
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.ricecode.similarity.SimilarityPair;
+import net.ricecode.similarity.StringSimilarityService;
+import net.ricecode.similarity.StringSimilarityServiceImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures finding the near-duplicate pairs of a list of names, with a double loop over
+ * {@link StringSimilarityService#score(String, String)} and with the blocked selfJoin.
+ * A tenth of the names are mutated copies of other names.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SelfJoinBenchmark {
+
+	@Param({"JARO_WINKLER", "LEVENSHTEIN", "DICE"})
+	public StrategyKind strategy;
+
+	@Param({"10000"})
+	public int corpusSize;
+
+	@Param({"0.9"})
+	public double minScore;
+
+	@Param({"ASCII"})
+	public Alphabet alphabet;
+
+	private StringSimilarityService service;
+	private List<String> features;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		service = new StringSimilarityServiceImpl(strategy.create());
+		features = new ArrayList<String>(corpusSize);
+		for (int i = 0; i < corpusSize; i++) {
+			if (i > 0 && random.nextInt(10) == 0) {
+				features.add(alphabet.mutate(random, features.get(random.nextInt(i)), 0.05));
+			}
+			else {
+				features.add(alphabet.randomString(random, 8 + random.nextInt(25)));
+			}
+		}
+	}
+
+	@Benchmark
+	public List<SimilarityPair> allPairs() {
+		List<SimilarityPair> pairs = new ArrayList<SimilarityPair>();
+		for (int i = 0; i < features.size(); i++) {
+			for (int j = i + 1; j < features.size(); j++) {
+				double score = service.score(features.get(i), features.get(j));
+				if (score >= minScore) {
+					pairs.add(new SimilarityPair(features.get(i), i, features.get(j), j, score));
+				}
+			}
+		}
+		return pairs;
+	}
+
+	@Benchmark
+	public List<SimilarityPair> selfJoin() {
+		return service.selfJoin(features, minScore);
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.ricecode.similarity.FeatureIndex;
+import net.ricecode.similarity.ScoreArray;
+import net.ricecode.similarity.SimilarityScore;
+import net.ricecode.similarity.SimilarityStrategy;
+import net.ricecode.similarity.StringSimilarityService;
+import net.ricecode.similarity.StringSimilarityServiceImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the bulk operations of StringSimilarityServiceImpl against corpora
+ * of name-like features between 4 and 32 characters long.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ServiceBenchmark {
+
+	private static final int TARGETS = 64;
+
+	@Param({"JARO", "JARO_WINKLER", "LEVENSHTEIN", "DAMERAU_OSA", "DICE"})
+	public StrategyKind strategy;
+
+	@Param({"1000", "100000"})
+	public int corpusSize;
+
+	@Param({"ASCII", "LATIN1", "CJK"})
+	public Alphabet alphabet;
+
+	private StringSimilarityService service;
+	private List<String> features;
+	private FeatureIndex index;
+	private String[] targets;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		SimilarityStrategy instance = strategy.create();
+		service = new StringSimilarityServiceImpl(instance);
+		features = new ArrayList<String>(corpusSize);
+		for (int i = 0; i < corpusSize; i++) {
+			features.add(alphabet.randomString(random, 4 + random.nextInt(29)));
+		}
+		index = new FeatureIndex(features, instance);
+		targets = new String[TARGETS];
+		for (int i = 0; i < TARGETS; i++) {
+			String feature = features.get(random.nextInt(corpusSize));
+			targets[i] = alphabet.mutate(random, feature, 0.2);
+		}
+	}
+
+	/**
+	 * Walks through the generated targets, one target per invocation.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next;
+
+		int advance() {
+			int i = next;
+			next = (i + 1) % TARGETS;
+			return i;
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public List<SimilarityScore> scoreAll(Cursor cursor) {
+		return service.scoreAll(features, targets[cursor.advance()]);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public ScoreArray scoreArray(Cursor cursor) {
+		return service.scoreArray(features, targets[cursor.advance()]);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public List<SimilarityScore> scoreAbove(Cursor cursor) {
+		return service.scoreAbove(features, targets[cursor.advance()], 0.8);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public SimilarityScore findTop(Cursor cursor) {
+		return service.findTop(features, targets[cursor.advance()]);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public SimilarityScore findTopIndexed(Cursor cursor) {
+		return service.findTop(index, targets[cursor.advance()]);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public List<SimilarityScore> findTopTen(Cursor cursor) {
+		return service.findTopK(features, targets[cursor.advance()], 10);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public SimilarityScore findTopConcurrently(Cursor cursor) {
+		return service.findTop(features, targets[cursor.advance()]);
+	}
+}
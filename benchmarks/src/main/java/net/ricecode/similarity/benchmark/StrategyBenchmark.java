@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity.benchmark;
+
+import java.nio.CharBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.ricecode.similarity.SimilarityStrategy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a single pairwise comparison for every strategy, over strings of
+ * several lengths and alphabets. The second string of every pair is a mutated
+ * copy of the first, so the kernels see realistic near matches rather than
+ * random noise. The slice benchmarks read the same pairs out of one large
+ * buffer, the way a parser hands them over, either copied into strings or
+ * read in place through reused CharBuffers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class StrategyBenchmark {
+
+	private static final int PAIRS = 1024;
+
+	@Param({"JARO", "JARO_WINKLER", "LEVENSHTEIN", "DAMERAU_OSA", "DICE"})
+	public StrategyKind strategy;
+
+	@Param({"8", "32", "64", "256"})
+	public int length;
+
+	@Param({"ASCII", "LATIN1", "CJK"})
+	public Alphabet alphabet;
+
+	private SimilarityStrategy instance;
+	private String[] firsts;
+	private String[] seconds;
+	private char[] buffer;
+	private int[] offsets;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		instance = strategy.create();
+		firsts = new String[PAIRS];
+		seconds = new String[PAIRS];
+		for (int i = 0; i < PAIRS; i++) {
+			firsts[i] = alphabet.randomString(random, length);
+			seconds[i] = alphabet.mutate(random, firsts[i], 0.2);
+		}
+		StringBuilder all = new StringBuilder();
+		offsets = new int[2 * PAIRS + 1];
+		for (int i = 0; i < PAIRS; i++) {
+			offsets[2 * i] = all.append(firsts[i]).length() - firsts[i].length();
+			offsets[2 * i + 1] = all.append(seconds[i]).length() - seconds[i].length();
+		}
+		offsets[2 * PAIRS] = all.length();
+		buffer = all.toString().toCharArray();
+	}
+
+	/**
+	 * Walks through the generated pairs, one pair per invocation.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next;
+
+		int advance() {
+			int i = next;
+			next = (i + 1) & (PAIRS - 1);
+			return i;
+		}
+	}
+
+	/**
+	 * Two views of the shared buffer, moved over each pair instead of being allocated for it.
+	 */
+	@State(Scope.Thread)
+	public static class Slices {
+		CharBuffer first;
+		CharBuffer second;
+
+		@Setup(Level.Trial)
+		public void setUp(StrategyBenchmark benchmark) {
+			first = CharBuffer.wrap(benchmark.buffer);
+			second = CharBuffer.wrap(benchmark.buffer);
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public double score(Cursor cursor) {
+		int i = cursor.advance();
+		return instance.score(firsts[i], seconds[i]);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public double scoreConcurrently(Cursor cursor) {
+		int i = cursor.advance();
+		return instance.score(firsts[i], seconds[i]);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public double scoreSliceCopied(Cursor cursor) {
+		int i = 2 * cursor.advance();
+		return instance.score(new String(buffer, offsets[i], offsets[i + 1] - offsets[i]),
+				new String(buffer, offsets[i + 1], offsets[i + 2] - offsets[i + 1]));
+	}
+
+	@Benchmark
+	@Threads(1)
+	public double scoreSlice(Cursor cursor, Slices slices) {
+		int i = 2 * cursor.advance();
+		slices.first.clear();
+		slices.first.position(offsets[i]).limit(offsets[i + 1]);
+		slices.second.clear();
+		slices.second.position(offsets[i + 1]).limit(offsets[i + 2]);
+		return instance.score(slices.first, slices.second);
+	}
+}
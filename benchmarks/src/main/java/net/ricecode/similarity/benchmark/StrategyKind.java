@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity.benchmark;
+
+import net.ricecode.similarity.DamerauOsaStrategy;
+import net.ricecode.similarity.DiceCoefficientStrategy;
+import net.ricecode.similarity.JaroStrategy;
+import net.ricecode.similarity.JaroWinklerStrategy;
+import net.ricecode.similarity.LevenshteinDistanceStrategy;
+import net.ricecode.similarity.SimilarityStrategy;
+
+/**
+ * The similarity strategies that can be selected by a benchmark parameter.
+ */
+public enum StrategyKind {
+
+	JARO {
+		public SimilarityStrategy create() {
+			return new JaroStrategy();
+		}
+	},
+
+	JARO_WINKLER {
+		public SimilarityStrategy create() {
+			return new JaroWinklerStrategy();
+		}
+	},
+
+	LEVENSHTEIN {
+		public SimilarityStrategy create() {
+			return new LevenshteinDistanceStrategy();
+		}
+	},
+
+	DAMERAU_OSA {
+		public SimilarityStrategy create() {
+			return new DamerauOsaStrategy();
+		}
+	},
+
+	DICE {
+		public SimilarityStrategy create() {
+			return new DiceCoefficientStrategy();
+		}
+	};
+
+	/**
+	 * Creates a new instance of the strategy.
+	 * @return A similarity strategy.
+	 */
+	public abstract SimilarityStrategy create();
+}
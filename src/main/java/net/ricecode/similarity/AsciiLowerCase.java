@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.nio.CharBuffer;
+import java.util.Locale;
+
+/**
+ * Lowercases ASCII strings without allocating.
+ * For a string of ASCII characters, {@link String#toLowerCase()} maps every character on its own,
+ * from 'A'-'Z' to 'a'-'z', except in the Turkish, Azerbaijani and Lithuanian locales, which
+ * have their own rules for the letter I. Strategies use this to skip the copy made by
+ * toLowerCase for the common case and fall back to it for everything else.
+ */
+final class AsciiLowerCase {
+
+	private AsciiLowerCase() {
+	}
+
+	/**
+	 * Determines whether ASCII strings are lowercased character by character in the default locale.
+	 * @return False if the default locale has special casing rules for ASCII letters.
+	 */
+	static boolean isSupported() {
+		String language = Locale.getDefault().getLanguage();
+		return !("tr".equals(language) || "az".equals(language) || "lt".equals(language));
+	}
+
+	/**
+	 * Writes the lower case form of a string into a buffer, if the string is pure ASCII.
+	 * @param s The string.
+	 * @param buffer A buffer with room for at least s.length() characters.
+	 * @return True if the string was lowercased; false if it holds a non-ASCII character,
+	 * in which case the contents of the buffer are undefined.
+	 */
+	static boolean toLowerCase(CharSequence s, char[] buffer) {
+		int length = s.length();
+		getChars(s, buffer);
+		for (int i = 0; i < length; i++) {
+			char ch = buffer[i];
+			if (ch >= 0x80) {
+				return false;
+			}
+			if (ch >= 'A' && ch <= 'Z') {
+				buffer[i] = (char) (ch + ('a' - 'A'));
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Copies the characters of a sequence into a buffer, in bulk for the sequences that
+	 * can copy themselves, and one at a time for any other.
+	 * @param s The sequence.
+	 * @param buffer A buffer with room for at least s.length() characters.
+	 */
+	static void getChars(CharSequence s, char[] buffer) {
+		int length = s.length();
+		if (s instanceof String) {
+			((String) s).getChars(0, length, buffer, 0);
+		}
+		else if (s instanceof CharBuffer && ((CharBuffer) s).hasArray()) {
+			CharBuffer b = (CharBuffer) s;
+			System.arraycopy(b.array(), b.arrayOffset() + b.position(), buffer, 0, length);
+		}
+		else if (s instanceof StringBuilder) {
+			((StringBuilder) s).getChars(0, length, buffer, 0);
+		}
+		else {
+			for (int i = 0; i < length; i++) {
+				buffer[i] = s.charAt(i);
+			}
+		}
+	}
+}
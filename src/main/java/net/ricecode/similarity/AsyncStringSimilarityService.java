@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A similarity service whose queries complete asynchronously, so that callers do not hold a
+ * thread while a query is scored. Each query runs on an executor as one task that calls another
+ * service, which returns the same results it would return if called directly.
+ * <p>
+ * At most a fixed number of queries run at once. Queries submitted beyond that wait in the order
+ * they were submitted, without holding a thread, so a burst of heavy queries delays later queries
+ * instead of crowding them out of the executor. A query that is cancelled before it starts is not
+ * scored.
+ * <p>
+ * By default queries run on virtual threads, where the runtime has them, and otherwise on the
+ * common fork/join pool.
+ */
+public class AsyncStringSimilarityService {
+
+	private static final Executor DEFAULT_EXECUTOR = createDefaultExecutor();
+
+	private final StringSimilarityService service;
+	private final Executor executor;
+	private final int maxConcurrency;
+	private final Semaphore permits;
+	private final Queue<Query<?>> waiting = new ConcurrentLinkedQueue<Query<?>>();
+
+	/**
+	 * Creates an asynchronous service that runs on the {@linkplain #defaultExecutor() default executor}
+	 * and runs as many queries at once as there are processors.
+	 * @param service The service that scores the queries.
+	 */
+	public AsyncStringSimilarityService(StringSimilarityService service) {
+		this(service, DEFAULT_EXECUTOR, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates an asynchronous service that runs on the supplied executor.
+	 * @param service The service that scores the queries.
+	 * @param executor The executor that runs the queries.
+	 * @param maxConcurrency The number of queries that may run at once.
+	 * @throws IllegalArgumentException if maxConcurrency is less than one.
+	 */
+	public AsyncStringSimilarityService(StringSimilarityService service, Executor executor, int maxConcurrency) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("The maximum concurrency must be at least one.");
+		}
+		this.service = service;
+		this.executor = executor;
+		this.maxConcurrency = maxConcurrency;
+		this.permits = new Semaphore(maxConcurrency);
+	}
+
+	/**
+	 * Gets the executor that is used when none is supplied: an executor that starts a virtual thread
+	 * per task if the runtime has virtual threads, or else the common fork/join pool.
+	 * @return The default executor.
+	 */
+	public static Executor defaultExecutor() {
+		return DEFAULT_EXECUTOR;
+	}
+
+	/**
+	 * Gets the service that scores the queries.
+	 * @return The wrapped service.
+	 */
+	public StringSimilarityService getService() {
+		return service;
+	}
+
+	/**
+	 * Gets the executor that runs the queries.
+	 * @return The executor.
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Gets the number of queries that may run at once.
+	 * @return The maximum concurrency.
+	 */
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	/**
+	 * Calculates all similarity scores for a given set of features.
+	 * @param features The list of features.
+	 * @param target The target string to compare against the features.
+	 * @return A future of the result of {@link StringSimilarityService#scoreAll(List, String)}.
+	 */
+	public CompletableFuture<List<SimilarityScore>> scoreAllAsync(final List<String> features, final String target) {
+		return submit(new Callable<List<SimilarityScore>>() {
+			public List<SimilarityScore> call() {
+				return service.scoreAll(features, target);
+			}
+		});
+	}
+
+	/**
+	 * Calculates all similarity scores for the features of an index.
+	 * @param index The index of features.
+	 * @param target The target string to compare against the features.
+	 * @return A future of the result of {@link StringSimilarityService#scoreAll(FeatureIndex, String)}.
+	 */
+	public CompletableFuture<List<SimilarityScore>> scoreAllAsync(final FeatureIndex index, final String target) {
+		return submit(new Callable<List<SimilarityScore>>() {
+			public List<SimilarityScore> call() {
+				return service.scoreAll(index, target);
+			}
+		});
+	}
+
+	/**
+	 * Finds the feature within a set of given features that best match the target string.
+	 * @param features A list of strings containing the features to compare.
+	 * @param target The target string to compare against the features.
+	 * @return A future of the result of {@link StringSimilarityService#findTop(List, String)}.
+	 */
+	public CompletableFuture<SimilarityScore> findTopAsync(final List<String> features, final String target) {
+		return submit(new Callable<SimilarityScore>() {
+			public SimilarityScore call() {
+				return service.findTop(features, target);
+			}
+		});
+	}
+
+	/**
+	 * Finds the feature within an index that best matches the target string.
+	 * @param index The index of features.
+	 * @param target The target string to compare against the features.
+	 * @return A future of the result of {@link StringSimilarityService#findTop(FeatureIndex, String)}.
+	 */
+	public CompletableFuture<SimilarityScore> findTopAsync(final FeatureIndex index, final String target) {
+		return submit(new Callable<SimilarityScore>() {
+			public SimilarityScore call() {
+				return service.findTop(index, target);
+			}
+		});
+	}
+
+	/**
+	 * Finds the k features within a set of given features that best match the target string.
+	 * @param features A list of strings containing the features to compare.
+	 * @param target The target string to compare against the features.
+	 * @param k The number of features to return.
+	 * @return A future of the result of {@link StringSimilarityService#findTopK(List, String, int)}.
+	 */
+	public CompletableFuture<List<SimilarityScore>> findTopKAsync(final List<String> features, final String target, final int k) {
+		return submit(new Callable<List<SimilarityScore>>() {
+			public List<SimilarityScore> call() {
+				return service.findTopK(features, target, k);
+			}
+		});
+	}
+
+	/**
+	 * Finds the k features within an index that best match the target string.
+	 * @param index The index of features.
+	 * @param target The target string to compare against the features.
+	 * @param k The number of features to return.
+	 * @return A future of the result of {@link StringSimilarityService#findTopK(FeatureIndex, String, int)}.
+	 */
+	public CompletableFuture<List<SimilarityScore>> findTopKAsync(final FeatureIndex index, final String target, final int k) {
+		return submit(new Callable<List<SimilarityScore>>() {
+			public List<SimilarityScore> call() {
+				return service.findTopK(index, target, k);
+			}
+		});
+	}
+
+	/**
+	 * Queues a query and starts as many waiting queries as there are free permits.
+	 */
+	private <R> CompletableFuture<R> submit(Callable<R> call) {
+		Query<R> query = new Query<R>(call);
+		waiting.add(query);
+		drain();
+		return query.future;
+	}
+
+	/**
+	 * Hands waiting queries to the executor while permits are free. A finished query releases its
+	 * permit before it drains the queue, and a new query is queued before it takes a permit, so a
+	 * queued query is always seen by one or the other.
+	 */
+	private void drain() {
+		while (!waiting.isEmpty() && permits.tryAcquire()) {
+			final Query<?> query = waiting.poll();
+			if (query == null) {
+				permits.release();
+				continue;
+			}
+			try {
+				executor.execute(new Runnable() {
+					public void run() {
+						try {
+							query.run();
+						}
+						finally {
+							permits.release();
+							drain();
+						}
+					}
+				});
+			}
+			catch (RuntimeException e) {
+				// The executor refused the query, so it fails without having run.
+				permits.release();
+				query.future.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * A query waiting for a permit, and the future it completes.
+	 */
+	private static final class Query<R> {
+		final Callable<R> call;
+		final CompletableFuture<R> future = new CompletableFuture<R>();
+
+		Query(Callable<R> call) {
+			this.call = call;
+		}
+
+		void run() {
+			if (future.isDone()) {
+				// Cancelled while it was waiting.
+				return;
+			}
+			try {
+				future.complete(call.call());
+			}
+			catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * Creates an executor that starts a virtual thread per task, by reflection so that the library
+	 * still runs on Java 8, or falls back to the common fork/join pool.
+	 */
+	private static Executor createDefaultExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (Executor) method.invoke(null);
+		}
+		catch (ReflectiveOperationException e) {
+			return ForkJoinPool.commonPool();
+		}
+		catch (RuntimeException e) {
+			return ForkJoinPool.commonPool();
+		}
+	}
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * A Burkhard-Keller tree of features, for searching them by Levenshtein distance.
+ * The edit distance is a metric, so every distance computed to a node of the tree bounds
+ * the distance to all features below it through the triangle inequality. Queries for
+ * close matches only visit a small part of the tree instead of comparing every feature.
+ * <p>
+ * Each feature is a node whose children are keyed by their edit distance to it. Features that
+ * are equal apart from case share a node. There is a separate tree for every length of feature:
+ * the edit distance is at least the difference of the lengths, so a query skips whole trees
+ * before comparing a single feature. The trees are kept in flat arrays indexed by the position
+ * of the feature, so they cost a few ints per feature on top of the prepared strings.
+ * <p>
+ * A tree is immutable and may be queried from several threads at once.
+ *
+ * @see <a href="https://doi.org/10.1145/362003.362025">Burkhard and Keller, Some approaches to best-match file searching</a>
+ */
+public class BKTreeIndex {
+
+	private static final int NONE = -1;
+
+	private final LevenshteinDistanceStrategy strategy;
+	private final String[] features;
+	private final LevenshteinDistanceStrategy.Prepared[] prepared;
+	private final int[] lengths;
+	private final int[] roots;
+	private final int[] edge;
+	private final int[] firstChild;
+	private final int[] nextSibling;
+	private final int[] nextDuplicate;
+
+	/**
+	 * Builds a tree of features, using the default Levenshtein distance.
+	 * @param features The features to index.
+	 */
+	public BKTreeIndex(Collection<String> features) {
+		this(features, new LevenshteinDistanceStrategy());
+	}
+
+	/**
+	 * Builds a tree of features.
+	 * The tree relies on the edit distance of the strategy being a metric, so it only accepts
+	 * a strategy of exactly the built-in class; a subclass may override its distance or scores.
+	 * @param features The features to index.
+	 * @param strategy The Levenshtein strategy whose edit distance orders the tree.
+	 * @throws IllegalArgumentException if the strategy is a subclass of LevenshteinDistanceStrategy.
+	 */
+	public BKTreeIndex(Collection<String> features, LevenshteinDistanceStrategy strategy) {
+		if (!StringSimilarityServiceImpl.usesKernels(strategy)) {
+			throw new IllegalArgumentException("The strategy must be a LevenshteinDistanceStrategy, not a subclass of it.");
+		}
+		this.strategy = strategy;
+		this.features = features.toArray(new String[features.size()]);
+		int n = this.features.length;
+		this.prepared = new LevenshteinDistanceStrategy.Prepared[n];
+		this.edge = new int[n];
+		this.firstChild = new int[n];
+		this.nextSibling = new int[n];
+		this.nextDuplicate = new int[n];
+		Arrays.fill(firstChild, NONE);
+		Arrays.fill(nextSibling, NONE);
+		Arrays.fill(nextDuplicate, NONE);
+		Map<Integer, Integer> rootsByLength = new TreeMap<Integer, Integer>();
+		for (int i = 0; i < n; i++) {
+			prepared[i] = (LevenshteinDistanceStrategy.Prepared) strategy.prepare(this.features[i]);
+			Integer length = Integer.valueOf(prepared[i].lowerCase().length());
+			Integer root = rootsByLength.get(length);
+			if (root == null) {
+				rootsByLength.put(length, Integer.valueOf(i));
+			}
+			else {
+				insert(root.intValue(), i);
+			}
+		}
+		this.lengths = new int[rootsByLength.size()];
+		this.roots = new int[rootsByLength.size()];
+		int tree = 0;
+		for (Map.Entry<Integer, Integer> entry : rootsByLength.entrySet()) {
+			lengths[tree] = entry.getKey().intValue();
+			roots[tree] = entry.getValue().intValue();
+			tree++;
+		}
+	}
+
+	/**
+	 * Gets the number of features in the tree.
+	 * @return The number of features.
+	 */
+	public int size() {
+		return features.length;
+	}
+
+	/**
+	 * Gets a feature by its position in the tree.
+	 * @param index The position of the feature, in the order the features were supplied.
+	 * @return The feature.
+	 */
+	public String getFeature(int index) {
+		return features[index];
+	}
+
+	/**
+	 * Gets the features of the tree.
+	 * @return An unmodifiable list of the features, in the order they were supplied.
+	 */
+	public List<String> getFeatures() {
+		return Collections.unmodifiableList(Arrays.asList(features));
+	}
+
+	/**
+	 * Finds the features within an edit distance of the target string.
+	 * @param target The target string.
+	 * @param maxDistance The largest edit distance of interest.
+	 * @return The Levenshtein similarity scores of the features within maxDistance, in the order of the features.
+	 * @throws IllegalArgumentException if maxDistance is negative.
+	 */
+	public List<SimilarityScore> findWithin(String target, int maxDistance) {
+		if (maxDistance < 0) {
+			throw new IllegalArgumentException("The distance must not be negative.");
+		}
+		LevenshteinDistanceStrategy.Prepared query = (LevenshteinDistanceStrategy.Prepared) strategy.prepare(target);
+		long[] matches = search(query, maxDistance, 0.0d);
+		List<SimilarityScore> scores = new ArrayList<SimilarityScore>(matches.length);
+		for (long match : matches) {
+			int position = (int) (match >>> 32);
+			scores.add(new SimilarityScore(features[position], score(position, query, (int) match)));
+		}
+		return scores;
+	}
+
+	/**
+	 * Finds the features whose Levenshtein similarity score with the target string reaches a minimum score.
+	 * For every length of feature, the minimum score is turned into the largest edit distance
+	 * a feature of that length can have while reaching it; the features within that distance
+	 * are then filtered by their exact score.
+	 * @param target The target string.
+	 * @param minScore The lowest score of interest.
+	 * @return The similarity scores that are at least minScore, in the order of the features.
+	 */
+	public List<SimilarityScore> findAbove(String target, double minScore) {
+		LevenshteinDistanceStrategy.Prepared query = (LevenshteinDistanceStrategy.Prepared) strategy.prepare(target);
+		long[] matches = search(query, Integer.MAX_VALUE, minScore);
+		List<SimilarityScore> scores = new ArrayList<SimilarityScore>();
+		for (long match : matches) {
+			int position = (int) (match >>> 32);
+			double score = score(position, query, (int) match);
+			if (score >= minScore) {
+				scores.add(new SimilarityScore(features[position], score));
+			}
+		}
+		return scores;
+	}
+
+	/**
+	 * Finds the feature with the smallest edit distance to the target string.
+	 * Among features at the same distance, the first one is returned.
+	 * @param target The target string.
+	 * @return The Levenshtein similarity score of the nearest feature, or null if the tree is empty.
+	 */
+	public SimilarityScore findNearest(String target) {
+		List<SimilarityScore> nearest = findNearest(target, 1);
+		return nearest.isEmpty() ? null : nearest.get(0);
+	}
+
+	/**
+	 * Finds the features with the smallest edit distances to the target string.
+	 * The tree is searched best first: nodes are visited in the order of the lower bound of
+	 * their distance, and the search stops once no unvisited node can beat the features found.
+	 * @param target The target string.
+	 * @param count The number of features to return.
+	 * @return Up to count Levenshtein similarity scores, nearest first; features at the same distance are in their original order.
+	 * @throws IllegalArgumentException if count is negative.
+	 */
+	public List<SimilarityScore> findNearest(String target, int count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("The number of features must not be negative.");
+		}
+		List<SimilarityScore> scores = new ArrayList<SimilarityScore>();
+		if (count == 0) {
+			return scores;
+		}
+		LevenshteinDistanceStrategy.Prepared query = (LevenshteinDistanceStrategy.Prepared) strategy.prepare(target);
+		TopScores nearest = new TopScores(Math.min(count, size()), true);
+
+		// Each entry packs the lower bound of a subtree above the node it starts at.
+		PriorityQueue<Long> queue = new PriorityQueue<Long>();
+		int length = query.lowerCase().length();
+		for (int tree = 0; tree < roots.length; tree++) {
+			queue.add(Long.valueOf(((long) Math.abs(lengths[tree] - length) << 32) | roots[tree]));
+		}
+		while (!queue.isEmpty()) {
+			long entry = queue.poll().longValue();
+			int bound = (int) (entry >>> 32);
+			if (nearest.size() == nearest.capacity() && bound > nearest.worst()) {
+				break;
+			}
+			int node = (int) entry;
+			int distance = distance(node, query);
+			for (int i = node; i != NONE; i = nextDuplicate[i]) {
+				nearest.offer(distance, i);
+			}
+			for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+				int childBound = Math.max(bound, Math.abs(distance - edge[child]));
+				if (nearest.size() < nearest.capacity() || childBound <= nearest.worst()) {
+					queue.add(Long.valueOf(((long) childBound << 32) | child));
+				}
+			}
+		}
+
+		double[] distances = new double[nearest.size()];
+		int[] positions = nearest.drain(distances);
+		for (int i = 0; i < positions.length; i++) {
+			scores.add(new SimilarityScore(features[positions[i]], score(positions[i], query, (int) distances[i])));
+		}
+		return scores;
+	}
+
+	/**
+	 * Adds a feature below the root of a tree.
+	 */
+	private void insert(int root, int position) {
+		// Compile the bit vectors of a copy, so the stored feature does not keep them.
+		LevenshteinDistanceStrategy.Prepared probe =
+				new LevenshteinDistanceStrategy.Prepared(features[position], prepared[position].lowerCase());
+		int node = root;
+		while (true) {
+			int distance = distance(node, probe);
+			if (distance == 0) {
+				int last = node;
+				while (nextDuplicate[last] != NONE) {
+					last = nextDuplicate[last];
+				}
+				nextDuplicate[last] = position;
+				return;
+			}
+			int child = firstChild[node];
+			while (child != NONE && edge[child] != distance) {
+				child = nextSibling[child];
+			}
+			if (child == NONE) {
+				edge[position] = distance;
+				nextSibling[position] = firstChild[node];
+				firstChild[node] = position;
+				return;
+			}
+			node = child;
+		}
+	}
+
+	/**
+	 * Finds every feature within a distance of the query that may reach a minimum score.
+	 * @return The matches, each packing the position of a feature above its distance, in the order of the features.
+	 */
+	private long[] search(LevenshteinDistanceStrategy.Prepared query, int maxDistance, double minScore) {
+		long[] matches = new long[16];
+		int found = 0;
+		int[] stack = new int[16];
+		int length = query.lowerCase().length();
+		int targetLength = Math.max(query.getSource().length(), length);
+		for (int tree = 0; tree < roots.length; tree++) {
+			int radius = Math.min(maxDistance, maxDistance(lengths[tree], targetLength, minScore));
+			if (Math.abs(lengths[tree] - length) > radius) {
+				continue;
+			}
+			int top = 0;
+			stack[top++] = roots[tree];
+			while (top > 0) {
+				int node = stack[--top];
+				int distance = distance(node, query);
+				if (distance <= radius) {
+					for (int i = node; i != NONE; i = nextDuplicate[i]) {
+						if (found == matches.length) {
+							matches = Arrays.copyOf(matches, 2 * found);
+						}
+						matches[found++] = ((long) i << 32) | distance;
+					}
+				}
+				for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+					if (Math.abs(distance - edge[child]) <= radius) {
+						if (top == stack.length) {
+							stack = Arrays.copyOf(stack, 2 * top);
+						}
+						stack[top++] = child;
+					}
+				}
+			}
+		}
+		matches = Arrays.copyOf(matches, found);
+		Arrays.sort(matches);
+		return matches;
+	}
+
+	/**
+	 * Calculates the edit distance between a node and a query, compiling only the query's bit vectors.
+	 */
+	private int distance(int node, LevenshteinDistanceStrategy.Prepared query) {
+		return strategy.computeEditDistance(prepared[node], query);
+	}
+
+	/**
+	 * Finds the largest edit distance at which a feature of some length can still reach the minimum score.
+	 * A feature of length f scores (m - d) / m against a target of length t, where m = max(f, t),
+	 * so a score of at least s requires d &le; m (1 - s).
+	 */
+	private static int maxDistance(int length, int targetLength, double minScore) {
+		if (minScore <= 0.0d) {
+			return Integer.MAX_VALUE;
+		}
+		// The exact score filter removes whatever the rounding lets through.
+		return (int) Math.floor(Math.max(length, targetLength) * (1.0d - minScore) + 1e-9);
+	}
+
+	/**
+	 * Turns an edit distance into the Levenshtein similarity score of a feature and the query.
+	 */
+	private double score(int position, LevenshteinDistanceStrategy.Prepared query, int distance) {
+		int maxLength = Math.max(features[position].length(), query.getSource().length());
+		//Can't divide by 0
+		if (maxLength == 0) return 1.0d;
+		return ((double) (maxLength - distance)) / (double) maxLength;
+	}
+}
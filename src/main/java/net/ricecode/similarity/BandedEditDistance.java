@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+/**
+ * Computes a Levenshtein distance bounded by a maximum, using Ukkonen's cut-off.
+ * When the distance may be at most <i>k</i>, only the cells within <i>k</i> diagonals
+ * of the main diagonal can contribute, so each row is a band of 2<i>k</i>+1 cells.
+ * The calculation stops as soon as every cell of a row exceeds <i>k</i>.
+ *
+ * @see <a href="https://doi.org/10.1016/S0019-9958(85)80046-2">Ukkonen, Algorithms for approximate string matching</a>
+ */
+final class BandedEditDistance {
+
+	private BandedEditDistance() {
+	}
+
+	/**
+	 * Calculates the edit distance between two strings if it is at most a maximum.
+	 * @param first The first string.
+	 * @param second The second string.
+	 * @param max The largest distance of interest.
+	 * @return The edit distance, or max + 1 if the distance is larger than max.
+	 */
+	static int distance(CharSequence first, CharSequence second, int max) {
+		int n = first.length();
+		int m = second.length();
+		if (Math.abs(n - m) > max) {
+			return max + 1;
+		}
+
+		// Cell (i, j) lives at index j - i + max of its row.
+		int width = 2 * max + 1;
+		int over = max + 1;
+		int[] previous = new int[width];
+		int[] current = new int[width];
+		for (int d = 0; d < width; d++) {
+			int j = d - max;
+			previous[d] = j < 0 || j > m ? over : j;
+		}
+
+		for (int i = 1; i <= n; i++) {
+			char ch = first.charAt(i - 1);
+			int rowMin = over;
+			for (int d = 0; d < width; d++) {
+				int j = i - max + d;
+				int value;
+				if (j < 0 || j > m) {
+					value = over;
+				}
+				else if (j == 0) {
+					value = i;
+				}
+				else {
+					value = previous[d] + (ch == second.charAt(j - 1) ? 0 : 1);
+					if (d + 1 < width && previous[d + 1] + 1 < value) {
+						value = previous[d + 1] + 1;
+					}
+					if (d > 0 && current[d - 1] + 1 < value) {
+						value = current[d - 1] + 1;
+					}
+					if (value > over) {
+						value = over;
+					}
+				}
+				current[d] = value;
+				if (value < rowMin) {
+					rowMin = value;
+				}
+			}
+			if (rowMin > max) {
+				return over;
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[m - n + max];
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.util.List;
+
+/**
+ * A similarity strategy that can score many features against one target in a single call.
+ * Whatever a strategy derives from the target, such as its lower case form, its bigrams or
+ * its bit vectors, is derived once per batch instead of once per feature, and the loop over
+ * the features writes straight into a primitive array.
+ */
+public interface BatchSimilarityStrategy extends SimilarityStrategy {
+
+	/**
+	 * Calculates the similarity scores of a list of features against a target.
+	 * Each score is exactly the value of {@link #score(String, String)} for the feature and the target.
+	 *
+	 * @param target The target string to compare against the features.
+	 * @param features The features to compare.
+	 * @param out The array to write the scores to, in the order of the features.
+	 * @throws ArrayIndexOutOfBoundsException if out has room for fewer scores than there are features.
+	 */
+	void scoreInto(String target, List<String> features, double[] out);
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.util.Arrays;
+
+/**
+ * Helpers for character bigrams packed into primitive integers.
+ * A bigram of two chars fits exactly into the 32 bits of an int, so sets of bigrams
+ * can be kept as sorted int arrays and intersected with a linear merge instead of
+ * building a String for every bigram.
+ */
+final class Bigrams {
+
+	private Bigrams() {
+	}
+
+	/**
+	 * Packs two characters into an int.
+	 * @param first The first character.
+	 * @param second The second character.
+	 * @return The packed bigram.
+	 */
+	static int pack(char first, char second) {
+		return (first << 16) | second;
+	}
+
+	/**
+	 * Writes the distinct bigrams of a string into a buffer, sorted in ascending order.
+	 * @param s A string of at least two characters.
+	 * @param buffer A buffer with room for at least s.length() - 1 bigrams.
+	 * @return The number of distinct bigrams written to the buffer.
+	 */
+	static int distinct(CharSequence s, int[] buffer) {
+		int count = s.length() - 1;
+		char previous = s.charAt(0);
+		for (int i = 1; i <= count; i++) {
+			char ch = s.charAt(i);
+			buffer[i - 1] = pack(previous, ch);
+			previous = ch;
+		}
+		Arrays.sort(buffer, 0, count);
+
+		int size = count > 0 ? 1 : 0;
+		for (int i = 1; i < count; i++) {
+			if (buffer[i] != buffer[size - 1]) {
+				buffer[size++] = buffer[i];
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Counts the bigrams two sorted, distinct bigram arrays have in common.
+	 * @param first The first bigram array.
+	 * @param firstSize The number of bigrams in the first array.
+	 * @param second The second bigram array.
+	 * @param secondSize The number of bigrams in the second array.
+	 * @return The size of the intersection.
+	 */
+	static int intersection(int[] first, int firstSize, int[] second, int secondSize) {
+		if (VectorKernels.AVAILABLE && Math.min(firstSize, secondSize) >= VectorKernels.MIN_INTERSECTION_SIZE) {
+			return VectorKernels.intersection(first, firstSize, second, secondSize);
+		}
+		int i = 0;
+		int j = 0;
+		int common = 0;
+		while (i < firstSize && j < secondSize) {
+			int a = first[i];
+			int b = second[j];
+			if (a == b) {
+				common++;
+				i++;
+				j++;
+			}
+			else if (a < b) {
+				i++;
+			}
+			else {
+				j++;
+			}
+		}
+		return common;
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+/**
+ * A prepared similarity strategy that can cheaply bound the score of two strings from above.
+ * The bound only looks at summary figures of the prepared strings, such as their lengths,
+ * so bulk queries with a minimum score can skip pairs that cannot reach it without scoring them.
+ */
+public interface BoundedSimilarityStrategy extends PreparedSimilarityStrategy {
+
+	/**
+	 * Calculates an upper bound of the similarity score of two prepared strings.
+	 * The bound is never lower than {@link #score(PreparedString, PreparedString)} for the same strings.
+	 *
+	 * @param first The first prepared string.
+	 * @param second The second prepared string.
+	 * @return A number that is at least the score of the two strings.
+	 * @throws IllegalArgumentException if a string was not prepared by this kind of strategy.
+	 */
+	double upperBound(PreparedString first, PreparedString second);
+}
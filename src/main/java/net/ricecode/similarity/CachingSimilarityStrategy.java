@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A similarity strategy that remembers the scores of another strategy.
+ * When the same pairs of strings are compared again and again, a cache hit only costs
+ * two string hash codes, which the strings cache themselves, and a lookup in a hash map.
+ * <p>
+ * The cache is split into segments, each a small least-recently-used map with its own lock,
+ * so that threads scoring different pairs rarely wait for each other. Entries are evicted when
+ * a segment is full and, optionally, once they have been in the cache for a fixed time.
+ * A strategy that is known to be symmetric can share one entry between a pair and its reverse.
+ * <p>
+ * The wrapped strategy is called without holding a lock, so two threads that miss on the same pair
+ * at the same time may both calculate its score.
+ */
+public class CachingSimilarityStrategy implements SimilarityStrategy {
+
+	/**
+	 * The largest number of segments a cache is split into.
+	 */
+	private static final int MAX_SEGMENTS = 16;
+
+	private final SimilarityStrategy strategy;
+	private final boolean symmetric;
+	private final long expireAfterNanos;
+	private final LongSupplier ticker;
+	private final Segment[] segments;
+	private final int segmentMask;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates a cache of scores for ordered pairs of strings, whose entries never expire.
+	 * @param strategy The strategy whose scores are cached.
+	 * @param maximumSize The largest number of pairs to remember.
+	 * @throws IllegalArgumentException if maximumSize is negative.
+	 */
+	public CachingSimilarityStrategy(SimilarityStrategy strategy, int maximumSize) {
+		this(strategy, maximumSize, false);
+	}
+
+	/**
+	 * Creates a cache of scores whose entries never expire.
+	 * @param strategy The strategy whose scores are cached.
+	 * @param maximumSize The largest number of pairs to remember.
+	 * @param symmetric True if the strategy scores a pair and its reverse the same, so that they can share an entry.
+	 * @throws IllegalArgumentException if maximumSize is negative.
+	 */
+	public CachingSimilarityStrategy(SimilarityStrategy strategy, int maximumSize, boolean symmetric) {
+		this(strategy, maximumSize, symmetric, 0, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Creates a cache of scores.
+	 * @param strategy The strategy whose scores are cached.
+	 * @param maximumSize The largest number of pairs to remember.
+	 * @param symmetric True if the strategy scores a pair and its reverse the same, so that they can share an entry.
+	 * @param expireAfter How long an entry stays in the cache after it was calculated, or 0 to keep entries until they are evicted.
+	 * @param unit The unit of expireAfter.
+	 * @throws IllegalArgumentException if maximumSize or expireAfter is negative.
+	 */
+	public CachingSimilarityStrategy(SimilarityStrategy strategy, int maximumSize, boolean symmetric, long expireAfter, TimeUnit unit) {
+		this(strategy, maximumSize, symmetric, unit.toNanos(expireAfter), new LongSupplier() {
+			public long getAsLong() {
+				return System.nanoTime();
+			}
+		});
+	}
+
+	/**
+	 * Creates a cache of scores that reads the time from a ticker.
+	 * @param strategy The strategy whose scores are cached.
+	 * @param maximumSize The largest number of pairs to remember.
+	 * @param symmetric True if a pair and its reverse share an entry.
+	 * @param expireAfterNanos How many nanoseconds an entry stays in the cache, or 0 to keep entries until they are evicted.
+	 * @param ticker The source of the current time in nanoseconds.
+	 */
+	CachingSimilarityStrategy(SimilarityStrategy strategy, int maximumSize, boolean symmetric, long expireAfterNanos, LongSupplier ticker) {
+		if (maximumSize < 0) {
+			throw new IllegalArgumentException("The maximum size must not be negative.");
+		}
+		if (expireAfterNanos < 0) {
+			throw new IllegalArgumentException("The expiry time must not be negative.");
+		}
+		this.strategy = strategy;
+		this.symmetric = symmetric;
+		this.expireAfterNanos = expireAfterNanos;
+		this.ticker = ticker;
+
+		// Every segment holds the same share of the maximum size, so the total never exceeds it.
+		int count = maximumSize == 0 ? 0 : Integer.highestOneBit(Math.min(MAX_SEGMENTS, maximumSize));
+		this.segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment(maximumSize / count, evictions);
+		}
+		this.segmentMask = count - 1;
+	}
+
+	/**
+	 * Calculates the similarity score of objects, where 0.0 implies absolutely no similarity
+	 * and 1.0 implies absolute similarity. The score is taken from the cache if the pair was
+	 * scored recently, and calculated by the wrapped strategy otherwise.
+	 *
+	 * @param first The first string to compare.
+	 * @param second The second string to compare.
+	 * @return A number between 0.0 and 1.0.
+	 */
+	public double score(String first, String second) {
+		if (segments.length == 0) {
+			misses.increment();
+			return strategy.score(first, second);
+		}
+
+		Key key = symmetric ? Key.unordered(first, second) : new Key(first, second);
+		Segment segment = segments[spread(key.hash) & segmentMask];
+		long now = expireAfterNanos > 0 ? ticker.getAsLong() : 0;
+		synchronized (segment) {
+			Value value = segment.get(key);
+			if (value != null) {
+				if (expireAfterNanos == 0 || now - value.expiresAt < 0) {
+					hits.increment();
+					return value.score;
+				}
+				segment.remove(key);
+				evictions.increment();
+			}
+		}
+
+		misses.increment();
+		double score = strategy.score(first, second);
+		Value value = new Value(score, now + expireAfterNanos);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+		return score;
+	}
+
+	/**
+	 * Gets the strategy whose scores are cached.
+	 * @return The wrapped strategy.
+	 */
+	public SimilarityStrategy getStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * Gets the number of scores that were taken from the cache.
+	 * @return The number of cache hits.
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Gets the number of scores that had to be calculated.
+	 * @return The number of cache misses.
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Gets the number of entries that were removed because a segment was full or the entry had expired.
+	 * @return The number of evictions.
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Gets the number of pairs in the cache, including any that have expired but were not looked up since.
+	 * @return The number of cached pairs.
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Removes every pair from the cache. The counters are left as they are.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * A pair of strings. The hash code is combined from the hash codes of the strings,
+	 * which every string caches, so no new string has to be built to look up a pair.
+	 */
+	static final class Key {
+		final String first;
+		final String second;
+		final int hash;
+
+		Key(String first, String second) {
+			this.first = first;
+			this.second = second;
+			this.hash = 31 * first.hashCode() + second.hashCode();
+		}
+
+		/**
+		 * Creates a key that is equal for a pair and its reverse.
+		 */
+		static Key unordered(String first, String second) {
+			int h1 = first.hashCode();
+			int h2 = second.hashCode();
+			if (h1 > h2 || (h1 == h2 && first.compareTo(second) > 0)) {
+				return new Key(second, first);
+			}
+			return new Key(first, second);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return hash == other.hash && first.equals(other.first) && second.equals(other.second);
+		}
+	}
+
+	private static final class Value {
+		final double score;
+		final long expiresAt;
+
+		Value(double score, long expiresAt) {
+			this.score = score;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * A least-recently-used map of a bounded size. Callers synchronize on the segment.
+	 */
+	private static final class Segment extends LinkedHashMap<Key, Value> {
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+		private final transient LongAdder evictions;
+
+		Segment(int capacity, LongAdder evictions) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+			this.evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Value> eldest) {
+			if (size() > capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+import java.util.List;
+
+/**
+ * A strategy that uses the optimal string alignment distance, a restricted Damerau-Levenshtein
+ * distance, to calculate the similarity of two strings. It works like {@link LevenshteinDistanceStrategy},
+ * with the same case-insensitive comparison and the same score of (m - d) / m for strings of at most m
+ * characters, but a transposition of two adjacent characters, as in "Jonh" and "John", counts as one
+ * edit instead of two.
+ * <p>
+ * The distance is not a metric, since it does not satisfy the triangle inequality, so it cannot be
+ * used with a {@link BKTreeIndex}.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Damerau%E2%80%93Levenshtein_distance#Optimal_string_alignment_distance">About the optimal string alignment distance</a>
+ */
+public class DamerauOsaStrategy implements ThresholdSimilarityStrategy, BoundedSimilarityStrategy, BatchSimilarityStrategy {
+
+    /**
+     * Lower case buffers, reused by every comparison made on the same thread.
+     */
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    /**
+     * Calculates the similarity score of objects, where 0.0 implies absolutely no similarity
+     * and 1.0 implies absolute similarity.
+     *
+     * @param first The first string to compare.
+     * @param second The second string to compare.
+     * @return A number between 0.0 and 1.0.
+     * @throws NullPointerException if one or both of the strings are null
+     */
+    public double score(String first, String second) {
+        return score((CharSequence) first, (CharSequence) second);
+    }
+
+    /**
+     * Calculates the similarity score of two character sequences, without copying them to strings.
+     *
+     * @param first The first character sequence to compare.
+     * @param second The second character sequence to compare.
+     * @return A number between 0.0 and 1.0.
+     * @throws NullPointerException if one or both of the sequences are null
+     */
+    public double score(CharSequence first, CharSequence second) {
+        int maxLength = Math.max(first.length(), second.length());
+        //Can't divide by 0
+        if (maxLength == 0) return 1.0d;
+        Object event = SimilarityEvents.beginPair();
+        int distance = computeDistance(first, second);
+        SimilarityEvents.endPair(event, this, first.length(), second.length());
+        return ((double) (maxLength - distance)) / (double) maxLength;
+    }
+
+    /**
+     * Calculates the similarity scores of a list of features against a target.
+     * The target is lowercased and compiled into bit vectors once, and every feature
+     * is then scanned against the same pattern.
+     *
+     * @param target The target string to compare against the features.
+     * @param features The features to compare.
+     * @param out The array to write the scores to, in the order of the features.
+     * @throws NullPointerException if the target or a feature is null
+     */
+    public void scoreInto(String target, List<String> features, double[] out) {
+        PatternBitVectors pattern = new PatternBitVectors(target.toLowerCase());
+        Scratch scratch = SCRATCH.get();
+        int size = features.size();
+        for (int i = 0; i < size; i++) {
+            String feature = features.get(i);
+            int maxLength = Math.max(feature.length(), target.length());
+            if (maxLength == 0) {
+                out[i] = 1.0d;
+                continue;
+            }
+            Object event = SimilarityEvents.beginPair();
+            int distance = OsaEditDistance.distance(pattern, scratch.first(feature));
+            SimilarityEvents.endPair(event, this, feature.length(), target.length());
+            out[i] = ((double) (maxLength - distance)) / (double) maxLength;
+        }
+    }
+
+    /**
+     * Calculates the similarity score of objects, as long as it is at least the minimum score.
+     * The minimum score is turned into a maximum distance, so pairs whose lengths differ too much
+     * are rejected without any work, and long strings only fill a band of the distance matrix.
+     *
+     * @param first The first string to compare.
+     * @param second The second string to compare.
+     * @param minScore The lowest score of interest.
+     * @return A number between 0.0 and 1.0, or 0.0 if the score is below minScore.
+     * @throws NullPointerException if one or both of the strings are null
+     */
+    public double score(String first, String second, double minScore) {
+        return score((CharSequence) first, (CharSequence) second, minScore);
+    }
+
+    /**
+     * Calculates the similarity score of two character sequences, as long as it is at least the minimum score.
+     *
+     * @param first The first character sequence to compare.
+     * @param second The second character sequence to compare.
+     * @param minScore The lowest score of interest.
+     * @return A number between 0.0 and 1.0, or 0.0 if the score is below minScore.
+     * @throws NullPointerException if one or both of the sequences are null
+     */
+    public double score(CharSequence first, CharSequence second, double minScore) {
+        int maxLength = Math.max(first.length(), second.length());
+        //Can't divide by 0
+        if (maxLength == 0) return 1.0d;
+        int maxDistance = LevenshteinDistanceStrategy.maxDistance(maxLength, minScore);
+        if (maxDistance < 0) return 0.0d;
+        Object event = SimilarityEvents.beginPair();
+        int distance = computeDistance(first, second, maxDistance);
+        SimilarityEvents.endPair(event, this, first.length(), second.length());
+        if (distance > maxDistance) return 0.0d;
+        return ((double) (maxLength - distance)) / (double) maxLength;
+    }
+
+    /**
+     * Preprocesses a string for comparisons made with this strategy.
+     * The string is lowercased right away; its bit vectors are only compiled
+     * the first time it is used as the pattern of a comparison.
+     *
+     * @param s The string to prepare.
+     * @return A prepared string.
+     * @throws NullPointerException if the string is null
+     */
+    public PreparedString prepare(String s) {
+        return new LevenshteinDistanceStrategy.Prepared(s);
+    }
+
+    /**
+     * Preprocesses a string that has already been normalized, for comparisons made with this strategy.
+     * The string is used as it is, without being lowercased.
+     *
+     * @param s The normalized string to prepare.
+     * @return A prepared string.
+     * @throws NullPointerException if the string is null
+     */
+    public PreparedString prepareNormalized(String s) {
+        return new LevenshteinDistanceStrategy.Prepared(s, s);
+    }
+
+    /**
+     * Calculates the similarity score of two prepared strings, where 0.0 implies absolutely no similarity
+     * and 1.0 implies absolute similarity. Strings prepared by this strategy and by a
+     * LevenshteinDistanceStrategy have the same form, so either can be scored.
+     *
+     * @param first The first prepared string to compare.
+     * @param second The second prepared string to compare.
+     * @return A number between 0.0 and 1.0.
+     * @throws IllegalArgumentException if a string was not prepared by a DamerauOsaStrategy.
+     */
+    public double score(PreparedString first, PreparedString second) {
+        LevenshteinDistanceStrategy.Prepared p1 = cast(first);
+        LevenshteinDistanceStrategy.Prepared p2 = cast(second);
+        int maxLength = Math.max(p1.getSource().length(), p2.getSource().length());
+        //Can't divide by 0
+        if (maxLength == 0) return 1.0d;
+        Object event = SimilarityEvents.beginPair();
+        int distance = p1.hasPattern() && !p2.hasPattern()
+                ? OsaEditDistance.distance(p1.pattern(), p2.lowerCase())
+                : OsaEditDistance.distance(p2.pattern(), p1.lowerCase());
+        SimilarityEvents.endPair(event, this, p1.getSource().length(), p2.getSource().length());
+        return ((double) (maxLength - distance)) / (double) maxLength;
+    }
+
+    /**
+     * Calculates an upper bound of the similarity score of two prepared strings.
+     * The distance is at least the difference of the lengths of the strings.
+     *
+     * @param first The first prepared string.
+     * @param second The second prepared string.
+     * @return A number that is at least the score of the two strings.
+     * @throws IllegalArgumentException if a string was not prepared by a DamerauOsaStrategy.
+     */
+    public double upperBound(PreparedString first, PreparedString second) {
+        LevenshteinDistanceStrategy.Prepared p1 = cast(first);
+        LevenshteinDistanceStrategy.Prepared p2 = cast(second);
+        int maxLength = Math.max(p1.getSource().length(), p2.getSource().length());
+        if (maxLength == 0) return 1.0d;
+        int minDistance = Math.abs(p1.lowerCase().length() - p2.lowerCase().length());
+        return ((double) (maxLength - minDistance)) / (double) maxLength;
+    }
+
+    /**
+     * Calculates the case-insensitive optimal string alignment distance between two character sequences.
+     *
+     * @param first The first character sequence.
+     * @param second The second character sequence.
+     * @return The number of insertions, deletions, substitutions and adjacent transpositions
+     * needed to turn one sequence into the other.
+     */
+    protected int computeDistance(CharSequence first, CharSequence second) {
+        Scratch scratch = SCRATCH.get();
+        return lowerCaseDistance(scratch.first(first), scratch.second(second));
+    }
+
+    /**
+     * Calculates the case-insensitive optimal string alignment distance between two character sequences,
+     * as long as it is at most a maximum. Long sequences only fill the cells of the matrix within
+     * maxDistance diagonals of the main diagonal.
+     *
+     * @param first The first character sequence.
+     * @param second The second character sequence.
+     * @param maxDistance The largest distance of interest.
+     * @return The distance, or a number larger than maxDistance if the distance is larger.
+     */
+    protected int computeDistance(CharSequence first, CharSequence second, int maxDistance) {
+        Scratch scratch = SCRATCH.get();
+        first = scratch.first(first);
+        second = scratch.second(second);
+
+        if (Math.abs(first.length() - second.length()) > maxDistance) {
+            return maxDistance + 1;
+        }
+        if (2 * maxDistance + 1 < Math.min(first.length(), second.length())) {
+            return OsaEditDistance.banded(first, second, maxDistance);
+        }
+        return lowerCaseDistance(first, second);
+    }
+
+    /**
+     * Calculates the distance between two lower case sequences, compiling the shorter one.
+     */
+    private static int lowerCaseDistance(CharSequence first, CharSequence second) {
+        if (first.length() < second.length()) {
+            CharSequence swap = first;
+            first = second;
+            second = swap;
+        }
+        if (second.length() == 0) {
+            return first.length();
+        }
+        return OsaEditDistance.distance(new PatternBitVectors(second), first);
+    }
+
+    private static LevenshteinDistanceStrategy.Prepared cast(PreparedString s) {
+        if (!(s instanceof LevenshteinDistanceStrategy.Prepared)) {
+            throw new IllegalArgumentException("The string was not prepared by a DamerauOsaStrategy.");
+        }
+        return (LevenshteinDistanceStrategy.Prepared) s;
+    }
+
+    /**
+     * Per-thread buffers holding the lower case forms of the sequences being compared.
+     */
+    private static final class Scratch {
+        private char[] first = new char[32];
+        private char[] second = new char[32];
+        private final CharView firstView = new CharView();
+        private final CharView secondView = new CharView();
+
+        /**
+         * Lowercases the first sequence, without a copy when it is ASCII.
+         */
+        CharSequence first(CharSequence s) {
+            if (first.length < s.length()) {
+                first = new char[Math.max(s.length(), 2 * first.length)];
+            }
+            return lowerCase(s, first, firstView);
+        }
+
+        /**
+         * Lowercases the second sequence, without a copy when it is ASCII.
+         */
+        CharSequence second(CharSequence s) {
+            if (second.length < s.length()) {
+                second = new char[Math.max(s.length(), 2 * second.length)];
+            }
+            return lowerCase(s, second, secondView);
+        }
+
+        private static CharSequence lowerCase(CharSequence s, char[] buffer, CharView view) {
+            if (AsciiLowerCase.isSupported() && AsciiLowerCase.toLowerCase(s, buffer)) {
+                return view.set(buffer, s.length());
+            }
+            return s.toString().toLowerCase();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.text.Normalizer;
+import java.util.regex.Pattern;
+
+/**
+ * A normalizer that can fold case, strip accents and collapse whitespace.
+ * Case folding uses {@link String#toLowerCase()}, the same as the strategies do on their own,
+ * so a service with the default normalizer scores Jaro, Jaro-Winkler and Levenshtein exactly
+ * as it would without one, and makes Dice's coefficient case-insensitive as well.
+ */
+public class DefaultStringNormalizer implements StringNormalizer {
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+	private final boolean foldCase;
+	private final boolean stripAccents;
+	private final boolean collapseWhitespace;
+
+	/**
+	 * Constructs a normalizer that only folds case.
+	 */
+	public DefaultStringNormalizer() {
+		this(true, false, false);
+	}
+
+	/**
+	 * Constructs a normalizer.
+	 * @param foldCase True to lowercase strings.
+	 * @param stripAccents True to remove accents and other combining marks, so that "é" becomes "e".
+	 * @param collapseWhitespace True to trim strings and turn every run of whitespace into a single space.
+	 */
+	public DefaultStringNormalizer(boolean foldCase, boolean stripAccents, boolean collapseWhitespace) {
+		this.foldCase = foldCase;
+		this.stripAccents = stripAccents;
+		this.collapseWhitespace = collapseWhitespace;
+	}
+
+	/**
+	 * Normalizes a string.
+	 * @param s The string to normalize.
+	 * @return The normalized form of the string.
+	 */
+	public String normalize(String s) {
+		if (stripAccents) {
+			// Decompose to separate the marks, then compose what is left again,
+			// so that scripts such as Hangul keep their precomposed characters.
+			String decomposed = Normalizer.normalize(s, Normalizer.Form.NFD);
+			s = Normalizer.normalize(MARKS.matcher(decomposed).replaceAll(""), Normalizer.Form.NFC);
+		}
+		if (collapseWhitespace) {
+			s = collapseWhitespace(s);
+		}
+		if (foldCase) {
+			s = s.toLowerCase();
+		}
+		return s;
+	}
+
+	private static String collapseWhitespace(String s) {
+		StringBuilder sb = new StringBuilder(s.length());
+		boolean space = false;
+		for (int i = 0; i < s.length(); i++) {
+			char ch = s.charAt(i);
+			if (Character.isWhitespace(ch)) {
+				space = sb.length() > 0;
+			}
+			else {
+				if (space) {
+					sb.append(' ');
+					space = false;
+				}
+				sb.append(ch);
+			}
+		}
+		return sb.toString();
+	}
+}
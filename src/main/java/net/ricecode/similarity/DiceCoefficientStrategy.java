@@ -23,16 +23,24 @@
 
 package net.ricecode.similarity;
 
-import java.util.ArrayList;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.List;
 
 /**
  * A strategy that uses the Dice's Coefficient to calculate the similarity of two strings.
  * @author Ralph Allan Rice <ralph.rice@gmail.com>
  * @see <a href="http://en.wikipedia.org/wiki/Dice%27s_coefficient">About Dice Coefficient</a>
  */
-public class DiceCoefficientStrategy implements SimilarityStrategy {
+public class DiceCoefficientStrategy implements BoundedSimilarityStrategy, BatchSimilarityStrategy {
+
+	/**
+	 * Bigram buffers, reused by every comparison made on the same thread.
+	 */
+	private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
 
 	/**
 	 * Calculates the similarity score of objects, where 0.0 implies absolutely no similarity
@@ -43,19 +51,42 @@ public class DiceCoefficientStrategy implements SimilarityStrategy {
 	 * @return A number between 0.0 and 1.0.
 	 */
 	public double score(String first, String second) {
+		return score((CharSequence) first, (CharSequence) second);
+	}
+
+	/**
+	 * Calculates the similarity score of two character sequences, where 0.0 implies absolutely no similarity
+	 * and 1.0 implies absolute similarity. The bigrams are read from the sequences in place.
+	 * 
+	 * @param first The first character sequence to compare.
+	 * @param second The second character sequence to compare.
+	 * @return A number between 0.0 and 1.0.
+	 */
+	public double score(CharSequence first, CharSequence second) {
+		Object event = SimilarityEvents.beginPair();
+		Scratch scratch = SCRATCH.get();
 	
-		// Create two sets of character bigrams, one for each string.
-		Set<String> s1 = splitIntoBigrams(first);
-		Set<String> s2 = splitIntoBigrams(second);
-	
-		// Get the number of elements in each set.
-		int n1 = s1.size();
-		int n2 = s2.size();
-		
-		// Find the intersection, and get the number of elements in that set.
-		s1.retainAll(s2);
-		int nt = s1.size();
-		
+		// Create two sets of character bigrams, one for each string, packed
+		// into sorted arrays of distinct ints. A string with fewer than two
+		// characters is a set of its own, containing just the string.
+		int n1;
+		int n2;
+		int nt;
+		if (first.length() < 2 || second.length() < 2) {
+			n1 = first.length() < 2 ? 1 : Bigrams.distinct(first, scratch.first(first.length()));
+			n2 = second.length() < 2 ? 1 : Bigrams.distinct(second, scratch.second(second.length()));
+			nt = first.length() == second.length()
+					&& (first.length() == 0 || first.charAt(0) == second.charAt(0)) ? 1 : 0;
+		}
+		else {
+			int[] s1 = scratch.first(first.length());
+			int[] s2 = scratch.second(second.length());
+			n1 = Bigrams.distinct(first, s1);
+			n2 = Bigrams.distinct(second, s2);
+
+			// Find the number of elements in the intersection.
+			nt = Bigrams.intersection(s1, n1, s2, n2);
+		}
 		
 		// The coefficient is:
 		// 
@@ -63,28 +94,168 @@ public class DiceCoefficientStrategy implements SimilarityStrategy {
 		// D = ----------------------
 		//        | s1 | + | s2 |
 		// 
+		SimilarityEvents.endPair(event, this, first.length(), second.length());
 		return (2.0 * (double)nt) / ((double)(n1 + n2));
 		
 	}
 
-	
-	private Set<String> splitIntoBigrams(String s) {
-		ArrayList<String> bigrams = new ArrayList<String>();
-	
-		if (s.length() < 2) {
-			bigrams.add(s);
+	/**
+	 * Calculates the similarity scores of a list of features against a target.
+	 * The bigrams of the target are collected once and intersected with those of every feature.
+	 * 
+	 * @param target The target string to compare against the features.
+	 * @param features The features to compare.
+	 * @param out The array to write the scores to, in the order of the features.
+	 */
+	public void scoreInto(String target, List<String> features, double[] out) {
+		Scratch scratch = SCRATCH.get();
+		boolean shortTarget = target.length() < 2;
+		int[] s2 = scratch.second(target.length());
+		int n2 = shortTarget ? 1 : Bigrams.distinct(target, s2);
+		int size = features.size();
+		for (int i = 0; i < size; i++) {
+			String feature = features.get(i);
+			Object event = SimilarityEvents.beginPair();
+			int n1;
+			int nt;
+			if (shortTarget || feature.length() < 2) {
+				n1 = feature.length() < 2 ? 1 : Bigrams.distinct(feature, scratch.first(feature.length()));
+				nt = feature.equals(target) ? 1 : 0;
+			}
+			else {
+				int[] s1 = scratch.first(feature.length());
+				n1 = Bigrams.distinct(feature, s1);
+				nt = Bigrams.intersection(s1, n1, s2, n2);
+			}
+			out[i] = (2.0 * (double)nt) / ((double)(n1 + n2));
+			SimilarityEvents.endPair(event, this, feature.length(), target.length());
+		}
+	}
+
+	/**
+	 * Preprocesses a string for comparisons made with this strategy.
+	 * 
+	 * @param s The string to prepare.
+	 * @return A prepared string holding the set of bigrams of the string.
+	 */
+	public PreparedString prepare(String s) {
+		return new Prepared(s);
+	}
+
+	/**
+	 * Preprocesses a string that has already been normalized, for comparisons made with this strategy.
+	 * Dice's coefficient compares strings as they are, so this is the same as {@link #prepare(String)}.
+	 * 
+	 * @param s The normalized string to prepare.
+	 * @return A prepared string holding the set of bigrams of the string.
+	 */
+	public PreparedString prepareNormalized(String s) {
+		return new Prepared(s);
+	}
+
+	/**
+	 * Calculates the similarity score of two prepared strings, where 0.0 implies absolutely no similarity
+	 * and 1.0 implies absolute similarity.
+	 * 
+	 * @param first The first prepared string to compare.
+	 * @param second The second prepared string to compare.
+	 * @return A number between 0.0 and 1.0.
+	 * @throws IllegalArgumentException if a string was not prepared by a DiceCoefficientStrategy.
+	 */
+	public double score(PreparedString first, PreparedString second) {
+		Prepared p1 = cast(first);
+		Prepared p2 = cast(second);
+		int n1 = p1.size();
+		int n2 = p2.size();
+		int nt;
+		if (p1.bigrams() == null || p2.bigrams() == null) {
+			nt = p1.getSource().equals(p2.getSource()) ? 1 : 0;
 		}
 		else {
-			for (int i = 1; i < s.length(); i++) {
-				StringBuilder sb = new StringBuilder();
-				sb.append(s.charAt(i-1));
-				sb.append(s.charAt(i));
-				bigrams.add(sb.toString());
+			Object event = SimilarityEvents.beginPair();
+			nt = Bigrams.intersection(p1.bigrams(), n1, p2.bigrams(), n2);
+			SimilarityEvents.endPair(event, this, p1.getSource().length(), p2.getSource().length());
+		}
+		return (2.0 * (double)nt) / ((double)(n1 + n2));
+	}
+
+	/**
+	 * Calculates an upper bound of the similarity score of two prepared strings.
+	 * The intersection of the bigram sets can be no larger than the smaller set.
+	 * 
+	 * @param first The first prepared string.
+	 * @param second The second prepared string.
+	 * @return A number that is at least the score of the two strings.
+	 * @throws IllegalArgumentException if a string was not prepared by a DiceCoefficientStrategy.
+	 */
+	public double upperBound(PreparedString first, PreparedString second) {
+		int n1 = cast(first).size();
+		int n2 = cast(second).size();
+		return (2.0 * (double)Math.min(n1, n2)) / ((double)(n1 + n2));
+	}
+
+	private static Prepared cast(PreparedString s) {
+		if (!(s instanceof Prepared)) {
+			throw new IllegalArgumentException("The string was not prepared by a DiceCoefficientStrategy.");
+		}
+		return (Prepared) s;
+	}
+
+	/**
+	 * A string prepared for Dice comparisons.
+	 */
+	static final class Prepared extends PreparedString {
+		private final int[] bigrams;
+
+		Prepared(String source) {
+			super(source);
+			if (source.length() < 2) {
+				this.bigrams = null;
 			}
+			else {
+				int[] buffer = new int[source.length() - 1];
+				int size = Bigrams.distinct(source, buffer);
+				int[] exact = new int[size];
+				System.arraycopy(buffer, 0, exact, 0, size);
+				this.bigrams = exact;
+			}
+		}
+
+		/**
+		 * Gets the sorted, distinct packed bigrams of the string.
+		 * @return The bigrams, or null if the string is shorter than two characters.
+		 */
+		int[] bigrams() {
+			return bigrams;
+		}
+
+		/**
+		 * Gets the number of elements in the bigram set of the string.
+		 */
+		int size() {
+			return bigrams == null ? 1 : bigrams.length;
+		}
+	}
+
+	/**
+	 * Per-thread buffers that grow to the longest string seen so far.
+	 */
+	private static final class Scratch {
+		private int[] first = new int[32];
+		private int[] second = new int[32];
+
+		int[] first(int length) {
+			if (first.length < length) {
+				first = new int[Math.max(length, 2 * first.length)];
+			}
+			return first;
+		}
+
+		int[] second(int length) {
+			if (second.length < length) {
+				second = new int[Math.max(length, 2 * second.length)];
+			}
+			return second;
 		}
-		return new TreeSet<String>(bigrams);
 	}
-	
-	
-	
 }
@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An inverted index of features by bigram, for finding features by Dice's coefficient.
+ * The coefficient of two strings only depends on the bigrams they share, so a query only needs
+ * to read the postings lists of its own bigrams: features that share no bigram with the target
+ * are never looked at.
+ * <p>
+ * With a minimum score, the size of the bigram set of the target bounds both the sizes of the
+ * sets that can reach the score and the number of bigrams they must share with the target.
+ * A feature that has to share <i>t</i> of the target's <i>n</i> bigrams appears in at least one
+ * of any <i>n</i> - <i>t</i> + 1 of its postings lists, so candidates are only taken from the
+ * shortest ones; the longer lists are then probed for those candidates alone, skipping ahead
+ * over the postings in between.
+ * <p>
+ * An index is immutable and may be queried from several threads at once.
+ *
+ * @see DiceCoefficientStrategy
+ */
+public class DiceIndex {
+
+	private static final double EPSILON = 1e-9;
+
+	private final String[] features;
+	private final int[] sizes;
+	private final Postings postings;
+	private final Map<String, int[]> shortFeatures;
+
+	/**
+	 * Builds an index of features.
+	 * @param features The features to index.
+	 */
+	public DiceIndex(Collection<String> features) {
+		this.features = features.toArray(new String[features.size()]);
+		this.sizes = new int[this.features.length];
+		Postings.Builder builder = new Postings.Builder();
+		Map<String, List<Integer>> shorts = new HashMap<String, List<Integer>>();
+		int[] buffer = new int[32];
+		for (int i = 0; i < this.features.length; i++) {
+			String feature = this.features[i];
+			if (feature.length() < 2) {
+				// A string with fewer than two characters is a set of its own.
+				List<Integer> positions = shorts.get(feature);
+				if (positions == null) {
+					positions = new ArrayList<Integer>();
+					shorts.put(feature, positions);
+				}
+				positions.add(Integer.valueOf(i));
+				sizes[i] = 1;
+				continue;
+			}
+			if (buffer.length < feature.length()) {
+				buffer = new int[Math.max(feature.length(), 2 * buffer.length)];
+			}
+			int size = Bigrams.distinct(feature, buffer);
+			for (int j = 0; j < size; j++) {
+				builder.add(buffer[j], i);
+			}
+			sizes[i] = size;
+		}
+		this.postings = builder.build();
+		this.shortFeatures = new HashMap<String, int[]>();
+		for (Map.Entry<String, List<Integer>> entry : shorts.entrySet()) {
+			int[] positions = new int[entry.getValue().size()];
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = entry.getValue().get(i).intValue();
+			}
+			shortFeatures.put(entry.getKey(), positions);
+		}
+	}
+
+	/**
+	 * Gets the number of features in the index.
+	 * @return The number of features.
+	 */
+	public int size() {
+		return features.length;
+	}
+
+	/**
+	 * Gets a feature by its position in the index.
+	 * @param index The position of the feature, in the order the features were supplied.
+	 * @return The feature.
+	 */
+	public String getFeature(int index) {
+		return features[index];
+	}
+
+	/**
+	 * Gets the features of the index.
+	 * @return An unmodifiable list of the features, in the order they were supplied.
+	 */
+	public List<String> getFeatures() {
+		return Collections.unmodifiableList(Arrays.asList(features));
+	}
+
+	/**
+	 * Finds the features whose Dice's coefficient with the target string reaches a minimum score.
+	 * @param target The target string.
+	 * @param minScore The lowest score of interest.
+	 * @return The similarity scores that are at least minScore, in the order of the features.
+	 */
+	public List<SimilarityScore> findAbove(String target, double minScore) {
+		List<SimilarityScore> scores = new ArrayList<SimilarityScore>();
+		if (minScore <= 0.0d) {
+			// Every feature reaches the minimum, including those that share nothing with the target.
+			int[] common = countAll(target);
+			int n1 = target.length() < 2 ? 1 : bigrams(target).length;
+			for (int i = 0; i < features.length; i++) {
+				scores.add(new SimilarityScore(features[i], score(n1, sizes[i], common[i])));
+			}
+			return scores;
+		}
+		if (target.length() < 2) {
+			int[] equal = shortFeatures.get(target);
+			if (equal != null && 1.0d >= minScore) {
+				for (int position : equal) {
+					scores.add(new SimilarityScore(features[position], 1.0d));
+				}
+			}
+			return scores;
+		}
+
+		int[] query = bigrams(target);
+		int n1 = query.length;
+		int minSize = Math.max(1, (int) Math.ceil(minScore * n1 / (2.0d - minScore) - EPSILON));
+		int maxSize = minScore >= 2.0d ? 0 : (int) Math.floor(n1 * (2.0d - minScore) / minScore + EPSILON);
+		int minOverlap = overlap(n1, minSize, minScore);
+		if (minOverlap > n1 || minSize > maxSize) {
+			return scores;
+		}
+
+		Postings.Cursor[] cursors = cursors(query);
+		int prefix = n1 - minOverlap + 1;
+		Merge candidates = new Merge(cursors, 0, prefix);
+		for (int position = candidates.next(); position != Postings.END; position = candidates.next()) {
+			int n2 = sizes[position];
+			if (n2 < minSize || n2 > maxSize) {
+				continue;
+			}
+			int needed = overlap(n1, n2, minScore);
+			int common = candidates.count();
+			for (int j = prefix; j < n1 && common + (n1 - j) >= needed; j++) {
+				if (cursors[j] != null && cursors[j].advance(position) == position) {
+					common++;
+				}
+			}
+			if (common >= needed) {
+				double score = score(n1, n2, common);
+				if (score >= minScore) {
+					scores.add(new SimilarityScore(features[position], score));
+				}
+			}
+		}
+		return scores;
+	}
+
+	/**
+	 * Finds the feature with the highest Dice's coefficient with the target string.
+	 * Among features with equal scores, the first one is returned.
+	 * @param target The target string.
+	 * @return The similarity score with the highest value, or null if the index is empty.
+	 */
+	public SimilarityScore findTop(String target) {
+		List<SimilarityScore> top = findTopK(target, 1);
+		return top.isEmpty() ? null : top.get(0);
+	}
+
+	/**
+	 * Finds the k features with the highest Dice's coefficients with the target string.
+	 * Only the features that share a bigram with the target are scored; when there are fewer
+	 * than k of them, the first features that share nothing make up the rest with a score of 0.0.
+	 * @param target The target string.
+	 * @param k The number of features to return.
+	 * @return Up to k similarity scores, highest first; features with equal scores are in their original order.
+	 * @throws IllegalArgumentException if k is negative.
+	 */
+	public List<SimilarityScore> findTopK(String target, int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("The number of scores must not be negative.");
+		}
+		TopScores top = new TopScores(Math.min(k, size()), false);
+		int zero = 0;
+		int zeros = 0;
+		if (target.length() < 2) {
+			int[] equal = shortFeatures.get(target);
+			if (equal == null) {
+				equal = new int[0];
+			}
+			for (int position : equal) {
+				top.offer(1.0d, position);
+			}
+			for (; zero < features.length && zeros < k; zero++) {
+				if (Arrays.binarySearch(equal, zero) < 0) {
+					top.offer(0.0d, zero);
+					zeros++;
+				}
+			}
+		}
+		else {
+			int[] query = bigrams(target);
+			Merge merge = new Merge(cursors(query), 0, query.length);
+			for (int position = merge.next(); position != Postings.END; position = merge.next()) {
+				for (; zero < position && zeros < k; zero++, zeros++) {
+					top.offer(0.0d, zero);
+				}
+				zero = Math.max(zero, position + 1);
+				top.offer(score(query.length, sizes[position], merge.count()), position);
+			}
+			for (; zero < features.length && zeros < k; zero++, zeros++) {
+				top.offer(0.0d, zero);
+			}
+		}
+
+		double[] scores = new double[top.size()];
+		int[] positions = top.drain(scores);
+		List<SimilarityScore> result = new ArrayList<SimilarityScore>(positions.length);
+		for (int i = 0; i < positions.length; i++) {
+			result.add(new SimilarityScore(features[positions[i]], scores[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * Counts the bigrams every feature shares with the target; a feature shorter than two
+	 * characters shares one if it equals the target.
+	 */
+	private int[] countAll(String target) {
+		int[] common = new int[features.length];
+		if (target.length() < 2) {
+			int[] equal = shortFeatures.get(target);
+			if (equal != null) {
+				for (int position : equal) {
+					common[position] = 1;
+				}
+			}
+			return common;
+		}
+		for (Postings.Cursor cursor : cursors(bigrams(target))) {
+			if (cursor != null) {
+				for (int position = cursor.next(); position != Postings.END; position = cursor.next()) {
+					common[position]++;
+				}
+			}
+		}
+		return common;
+	}
+
+	/**
+	 * Opens a cursor for each bigram, ordered from the shortest postings list to the longest.
+	 * A bigram that no feature has gets a null cursor, at the front.
+	 */
+	private Postings.Cursor[] cursors(int[] query) {
+		long[] order = new long[query.length];
+		int[] lists = new int[query.length];
+		for (int i = 0; i < query.length; i++) {
+			lists[i] = postings.find(query[i]);
+			int count = lists[i] < 0 ? 0 : postings.count(lists[i]);
+			order[i] = ((long) count << 32) | i;
+		}
+		Arrays.sort(order);
+		Postings.Cursor[] cursors = new Postings.Cursor[query.length];
+		for (int i = 0; i < order.length; i++) {
+			int list = lists[(int) order[i]];
+			cursors[i] = list < 0 ? null : postings.cursor(list);
+		}
+		return cursors;
+	}
+
+	/**
+	 * Gets the sorted, distinct bigrams of a string of at least two characters.
+	 */
+	private static int[] bigrams(String s) {
+		int[] buffer = new int[s.length() - 1];
+		return Arrays.copyOf(buffer, Bigrams.distinct(s, buffer));
+	}
+
+	/**
+	 * Finds the fewest bigrams two sets of the given sizes must share to reach the minimum score.
+	 * The rounding errs on the low side; the exact score is checked afterwards.
+	 */
+	private static int overlap(int n1, int n2, double minScore) {
+		return Math.max(1, (int) Math.ceil(minScore * (n1 + n2) / 2.0d - EPSILON));
+	}
+
+	private static double score(int n1, int n2, int common) {
+		return (2.0 * (double)common) / ((double)(n1 + n2));
+	}
+
+	/**
+	 * Merges postings lists into a single ascending stream of positions,
+	 * counting the lists each position appears in.
+	 */
+	private static final class Merge {
+		private final Postings.Cursor[] heap;
+		private int size;
+		private int count;
+
+		Merge(Postings.Cursor[] cursors, int from, int to) {
+			heap = new Postings.Cursor[to - from];
+			for (int i = from; i < to; i++) {
+				if (cursors[i] != null && cursors[i].next() != Postings.END) {
+					heap[size++] = cursors[i];
+				}
+			}
+			for (int i = size / 2 - 1; i >= 0; i--) {
+				siftDown(i);
+			}
+		}
+
+		/**
+		 * Moves to the next position.
+		 * @return The next position, or {@link Postings#END} if there is none.
+		 */
+		int next() {
+			if (size == 0) {
+				return Postings.END;
+			}
+			int position = heap[0].current();
+			count = 0;
+			while (size > 0 && heap[0].current() == position) {
+				count++;
+				if (heap[0].next() == Postings.END) {
+					heap[0] = heap[--size];
+				}
+				siftDown(0);
+			}
+			return position;
+		}
+
+		/**
+		 * Gets the number of lists the current position appears in.
+		 */
+		int count() {
+			return count;
+		}
+
+		private void siftDown(int i) {
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size) {
+					return;
+				}
+				if (child + 1 < size && heap[child + 1].current() < heap[child].current()) {
+					child++;
+				}
+				if (heap[i].current() <= heap[child].current()) {
+					return;
+				}
+				Postings.Cursor swap = heap[i];
+				heap[i] = heap[child];
+				heap[child] = swap;
+				i = child;
+			}
+		}
+	}
+}
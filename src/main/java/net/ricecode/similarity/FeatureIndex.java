@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A fixed set of features, preprocessed once for a similarity strategy.
+ * When the same corpus is queried many times, building an index up front means that each
+ * query only pays for the scoring kernel: the lower case forms and bigram sets of the features
+ * are computed when the index is built, not on every call.
+ * <p>
+ * An index is immutable and may be queried from several threads at once.
+ *
+ * @see StringSimilarityService#scoreAll(FeatureIndex, String)
+ * @see StringSimilarityService#findTop(FeatureIndex, String)
+ */
+public class FeatureIndex {
+
+	private final SimilarityStrategy strategy;
+	private final StringNormalizer normalizer;
+	private final String[] features;
+	private final PreparedString[] prepared;
+
+	/**
+	 * Builds an index of features for a similarity strategy.
+	 * If the strategy is a {@link PreparedSimilarityStrategy}, every feature is prepared right away,
+	 * unless the strategy extends a built-in strategy and may override its plain score;
+	 * otherwise the index only holds the features.
+	 * @param features The features to index.
+	 * @param strategy The similarity strategy the index will be queried with.
+	 */
+	public FeatureIndex(Collection<String> features, SimilarityStrategy strategy) {
+		this(features, strategy, null);
+	}
+
+	/**
+	 * Builds an index of normalized features for a similarity strategy.
+	 * The prepared features can only be used by a service that was created with the same normalizer;
+	 * any other service scores the features as they were supplied.
+	 * @param features The features to index.
+	 * @param strategy The similarity strategy the index will be queried with.
+	 * @param normalizer The normalizer to run on every feature before it is prepared, or null to prepare the features as they are.
+	 * @see StringSimilarityServiceImpl#StringSimilarityServiceImpl(SimilarityStrategy, StringNormalizer)
+	 */
+	public FeatureIndex(Collection<String> features, SimilarityStrategy strategy, StringNormalizer normalizer) {
+		this.strategy = strategy;
+		this.normalizer = normalizer;
+		this.features = features.toArray(new String[features.size()]);
+		if (strategy instanceof PreparedSimilarityStrategy && StringSimilarityServiceImpl.usesKernels(strategy)) {
+			PreparedSimilarityStrategy preparing = (PreparedSimilarityStrategy) strategy;
+			this.prepared = new PreparedString[this.features.length];
+			for (int i = 0; i < this.features.length; i++) {
+				this.prepared[i] = normalizer == null
+						? preparing.prepare(this.features[i])
+						: preparing.prepareNormalized(normalizer.normalize(this.features[i]));
+			}
+		}
+		else {
+			this.prepared = null;
+		}
+	}
+
+	/**
+	 * Gets the similarity strategy the features were prepared for.
+	 * @return The similarity strategy.
+	 */
+	public SimilarityStrategy getStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * Gets the normalizer the features were normalized with.
+	 * @return The normalizer, or null if the features were prepared as they are.
+	 */
+	public StringNormalizer getNormalizer() {
+		return normalizer;
+	}
+
+	/**
+	 * Gets the number of features in the index.
+	 * @return The number of features.
+	 */
+	public int size() {
+		return features.length;
+	}
+
+	/**
+	 * Gets a feature by its position in the index.
+	 * @param index The position of the feature, in the order the features were supplied.
+	 * @return The feature.
+	 */
+	public String getFeature(int index) {
+		return features[index];
+	}
+
+	/**
+	 * Gets the features of the index.
+	 * @return An unmodifiable list of the features, in the order they were supplied.
+	 */
+	public List<String> getFeatures() {
+		return Collections.unmodifiableList(Arrays.asList(features));
+	}
+
+	/**
+	 * Determines whether the features were prepared for a strategy.
+	 * @param strategy A similarity strategy.
+	 * @return True if the prepared features can be scored with the strategy.
+	 */
+	boolean isPreparedFor(SimilarityStrategy strategy) {
+		return isPreparedFor(strategy, null);
+	}
+
+	/**
+	 * Determines whether the features were prepared for a strategy and normalizer.
+	 * @param strategy A similarity strategy.
+	 * @param normalizer A normalizer, or null for none.
+	 * @return True if the prepared features can be scored with the strategy after normalizing the target.
+	 */
+	boolean isPreparedFor(SimilarityStrategy strategy, StringNormalizer normalizer) {
+		return prepared != null && this.strategy == strategy && this.normalizer == normalizer;
+	}
+
+	/**
+	 * Gets a prepared feature by its position in the index.
+	 * @param index The position of the feature.
+	 * @return The prepared feature.
+	 */
+	PreparedString getPrepared(int index) {
+		return prepared[index];
+	}
+}
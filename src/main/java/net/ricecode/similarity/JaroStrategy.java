@@ -23,12 +23,25 @@
 
 package net.ricecode.similarity;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * A strategy that uses the Jaro Distance to calculate the similarity of two strings.
  * @author Ralph Allan Rice <ralph.rice@gmail.com>
  * @see <a href="http://en.wikipedia.org/wiki/Jaro%E2%80%93Winkler_distance">About Jaro Distance</a>
  */
-public class JaroStrategy implements SimilarityStrategy {
+public class JaroStrategy implements BoundedSimilarityStrategy, BatchSimilarityStrategy {
+
+	/**
+	 * Character and match flag buffers, reused by every comparison made on the same thread.
+	 */
+	private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
 
 	/**
 	 * Calculates the similarity score of objects, where 0.0 implies absolutely no similarity
@@ -39,104 +52,364 @@ public class JaroStrategy implements SimilarityStrategy {
 	 * @return A number between 0.0 and 1.0.
 	 */
     public double score(String first, String second) {
-		String shorter;
-        String longer;
+        return score((CharSequence) first, (CharSequence) second);
+    }
 
-        // Determine which String is longer.
-        if (first.length() > second.length())
-        {
-            longer = first.toLowerCase();
-            shorter = second.toLowerCase();
-        }
-        else
-        {
-            longer = second.toLowerCase();
-            shorter = first.toLowerCase();
+	/**
+	 * Calculates the similarity score of two character sequences, where 0.0 implies absolutely no similarity
+	 * and 1.0 implies absolute similarity. ASCII sequences are lowercased straight into the scratch buffers,
+	 * so they are compared without being copied into strings.
+	 * 
+	 * @param first The first character sequence to compare.
+	 * @param second The second character sequence to compare.
+	 * @return A number between 0.0 and 1.0.
+	 */
+    public double score(CharSequence first, CharSequence second) {
+        Object event = SimilarityEvents.beginPair();
+        Scratch scratch = SCRATCH.get();
+        scratch.load(first, second);
+        double score = score(scratch);
+        SimilarityEvents.endPair(event, this, first.length(), second.length());
+        return score;
+    }
+
+	/**
+	 * Calculates the similarity scores of a list of features against a target,
+	 * reusing the same scratch buffers for the whole list.
+	 * 
+	 * @param target The target string to compare against the features.
+	 * @param features The features to compare.
+	 * @param out The array to write the scores to, in the order of the features.
+	 */
+    public void scoreInto(String target, List<String> features, double[] out) {
+        Scratch scratch = SCRATCH.get();
+        int size = features.size();
+        for (int i = 0; i < size; i++) {
+            Object event = SimilarityEvents.beginPair();
+            String feature = features.get(i);
+            scratch.load(feature, target);
+            out[i] = score(scratch);
+            SimilarityEvents.endPair(event, this, feature.length(), target.length());
         }
+    }
+
+	/**
+	 * Preprocesses a string for comparisons made with this strategy.
+	 * 
+	 * @param s The string to prepare.
+	 * @return A prepared string holding the lower case form of the string.
+	 */
+    public PreparedString prepare(String s) {
+        return new Prepared(s);
+    }
+
+	/**
+	 * Preprocesses a string that has already been normalized, for comparisons made with this strategy.
+	 * 
+	 * @param s The normalized string to prepare.
+	 * @return A prepared string that compares the string as it is, without lowercasing it.
+	 */
+    public PreparedString prepareNormalized(String s) {
+        return new Prepared(s, s);
+    }
+
+	/**
+	 * Calculates the similarity score of two prepared strings, where 0.0 implies absolutely no similarity
+	 * and 1.0 implies absolute similarity.
+	 * 
+	 * @param first The first prepared string to compare.
+	 * @param second The second prepared string to compare.
+	 * @return A number between 0.0 and 1.0.
+	 * @throws IllegalArgumentException if a string was not prepared by a JaroStrategy.
+	 */
+    public double score(PreparedString first, PreparedString second) {
+        Prepared p1 = cast(first);
+        Prepared p2 = cast(second);
+        Object event = SimilarityEvents.beginPair();
+        Scratch scratch = SCRATCH.get();
+        scratch.load(p1.getSource(), p1.lowerCase(), p2.getSource(), p2.lowerCase());
+        double score = score(scratch);
+        SimilarityEvents.endPair(event, this, p1.getSource().length(), p2.getSource().length());
+        return score;
+    }
+
+    /**
+     * Calculates the similarity score of the strings loaded into a scratch space.
+     * @param scratch The scratch space holding the shorter and the longer string.
+     * @return A number between 0.0 and 1.0.
+     */
+    double score(Scratch scratch) {
+        char[] shorter = scratch.shorter;
+        char[] longer = scratch.longer;
+        int shorterLength = scratch.shorterLength;
+        int longerLength = scratch.longerLength;
 
         // Calculate the half length() distance of the shorter String.
-        int halflength = (shorter.length() / 2) + 1;
+        int halflength = (shorterLength / 2) + 1;
 
         // Find the set of matching characters between the shorter and longer strings. Note that
         // the set of matching characters may be different depending on the order of the strings.
-        String m1 = getSetOfMatchingCharacterWithin(shorter, longer, halflength);
-        String m2 = getSetOfMatchingCharacterWithin(longer, shorter, halflength);
-
+        boolean[] shorterMatched = scratch.flags(0, shorterLength);
+        boolean[] longerMatched = scratch.flags(1, longerLength);
+        int m1 = matchCharactersWithin(shorter, shorterLength, longer, longerLength, halflength,
+                shorterMatched, scratch.flags(2, longerLength));
+        int m2 = matchCharactersWithin(longer, longerLength, shorter, shorterLength, halflength,
+                longerMatched, scratch.flags(3, shorterLength));
 
         // If one or both of the sets of common characters is empty, then 
         // there is no similarity between the two strings.
-        if (m1.length() == 0 || m2.length() == 0) return 0.0;
+        if (m1 == 0 || m2 == 0) return 0.0;
 
         // If the set of common characters is not the same size, then
         // there is no similarity between the two strings, either.
-        if (m1.length() != m2.length()) return 0.0;
+        if (m1 != m2) return 0.0;
 
         // Calculate the number of transpositions between the two sets
-        // of common characters.
-        int transpositions = transpositions(m1, m2);
+        // of common characters, walking both in order.
+        int transpositions = 0;
+        int j = 0;
+        for (int i = 0; i < shorterLength; i++)
+        {
+            if (shorterMatched[i])
+            {
+                while (!longerMatched[j])
+                {
+                    j++;
+                }
+                if (shorter[i] != longer[j])
+                {
+                    transpositions++;
+                }
+                j++;
+            }
+        }
+        transpositions /= 2;
 
         // Calculate the distance.
         double dist =
-                (m1.length() / ((double)shorter.length()) +
-                m2.length() / ((double)longer.length()) +
-                (m1.length() - transpositions) / ((double)m1.length())) / 3.0;
+                (m1 / ((double)shorterLength) +
+                m2 / ((double)longerLength) +
+                (m1 - transpositions) / ((double)m1)) / 3.0;
         return dist;
+    }
 
-	
-	}
-	
 	/**
-	 * Gets a set of matching characters between two strings.
+	 * Calculates an upper bound of the similarity score of two prepared strings.
+	 * The strings can have no more matching characters than the shorter one has characters,
+	 * and the matching characters contribute at most 1.0 for their transpositions.
 	 * 
-	 * @param first The first string.
-	 * @param second The second string.
-	 * @param limit The maximum distance to consider.
-	 * @return A string contain the set of common characters.
-	 * @remarks Two characters from the first string and the second string are considered matching if the character's
-     * respective positions are no farther than the limit value.
+	 * @param first The first prepared string.
+	 * @param second The second prepared string.
+	 * @return A number that is at least the score of the two strings.
+	 * @throws IllegalArgumentException if a string was not prepared by a JaroStrategy.
 	 */
-	private String getSetOfMatchingCharacterWithin(String first, String second, int limit)
+    public double upperBound(PreparedString first, PreparedString second) {
+        return jaroUpperBound(cast(first), cast(second));
+    }
+
+    /**
+     * Calculates the upper bound of the Jaro score of two prepared strings.
+     */
+    double jaroUpperBound(Prepared first, Prepared second)
     {
+        int shorter;
+        int longer;
+        if (first.getSource().length() > second.getSource().length())
+        {
+            longer = first.lowerCase().length();
+            shorter = second.lowerCase().length();
+        }
+        else
+        {
+            longer = second.lowerCase().length();
+            shorter = first.lowerCase().length();
+        }
+        int matches = Math.min(shorter, longer);
+        if (matches == 0) return 0.0;
+        return (matches / ((double)shorter) + matches / ((double)longer) + 1.0) / 3.0;
+    }
 
-        StringBuilder common = new StringBuilder();
-        StringBuilder copy = new StringBuilder(second);
-        for (int i = 0; i < first.length(); i++)
+	/**
+	 * Matches the characters of one string with characters of another string.
+	 * Two characters from the first string and the second string are considered matching if the characters
+	 * are equal and their respective positions are no farther than the limit value. Every character of the
+	 * second string matches at most one character of the first string.
+	 * 
+	 * @param first The characters of the first string.
+	 * @param firstLength The length of the first string.
+	 * @param second The characters of the second string.
+	 * @param secondLength The length of the second string.
+	 * @param limit The maximum distance to consider.
+	 * @param matched Flags set for the characters of the first string that found a match.
+	 * @param used Flags set for the characters of the second string that were matched.
+	 * @return The number of matching characters.
+	 */
+	static int matchCharactersWithin(char[] first, int firstLength, char[] second, int secondLength, int limit,
+			boolean[] matched, boolean[] used)
+    {
+        if (VectorKernels.AVAILABLE && 2 * limit >= VectorKernels.MIN_MATCH_WINDOW)
+        {
+            return VectorKernels.matchCharactersWithin(first, firstLength, second, secondLength, limit, matched, used);
+        }
+        int common = 0;
+        for (int i = 0; i < firstLength; i++)
         {
-            char ch = first.charAt(i);
-            boolean found = false;
+            char ch = first[i];
 
             // See if the character is within the limit positions away from the original position of that character.
-            for (int j = Math.max(0, i - limit); !found && j < Math.min(i + limit, second.length()); j++)
+            int end = Math.min(i + limit, secondLength);
+            for (int j = Math.max(0, i - limit); j < end; j++)
             {
-                if (copy.charAt(j) == ch)
+                if (second[j] == ch && !used[j])
                 {
-                    found = true;
-                    common.append(ch);
-                    copy.setCharAt(j,'*');
+                    used[j] = true;
+                    matched[i] = true;
+                    common++;
+                    break;
                 }
             }
         }
-        return common.toString();
+        return common;
     }
 
-	/**
-	 * Calculates the number of transpositions between two strings.
-	 * @param first The first string.
-	 * @param second The second string.
-	 * @return The number of transpositions between the two strings.
-	 */
-    private int transpositions(String first, String second)
+    /**
+     * Casts a prepared string to the form this strategy works with.
+     * @param s The prepared string.
+     * @return The prepared string.
+     * @throws IllegalArgumentException if the string was not prepared by a JaroStrategy.
+     */
+    static Prepared cast(PreparedString s)
     {
-        int transpositions = 0;
-        for (int i = 0; i < first.length(); i++)
+        if (!(s instanceof Prepared))
+        {
+            throw new IllegalArgumentException("The string was not prepared by a JaroStrategy.");
+        }
+        return (Prepared) s;
+    }
+
+    /**
+     * A string prepared for Jaro and Jaro-Winkler comparisons.
+     */
+    static final class Prepared extends PreparedString
+    {
+        private final String lowerCase;
+
+        Prepared(String source)
+        {
+            this(source, source.toLowerCase());
+        }
+
+        Prepared(String source, String lowerCase)
+        {
+            super(source);
+            this.lowerCase = lowerCase;
+        }
+
+        /**
+         * Gets the lower case form of the string.
+         */
+        String lowerCase()
+        {
+            return lowerCase;
+        }
+    }
+
+    /**
+     * Per-thread buffers holding the lower case forms of the strings being compared,
+     * ordered by the lengths of the original strings, and their match flags.
+     */
+    static final class Scratch
+    {
+        char[] shorter = new char[32];
+        char[] longer = new char[32];
+        int shorterLength;
+        int longerLength;
+        private final boolean[][] flags = new boolean[4][32];
+
+        /**
+         * Loads two strings, lowercasing them without a copy when they are ASCII.
+         */
+        void load(CharSequence first, CharSequence second)
         {
-            if (first.charAt(i) != second.charAt(i))
+            CharSequence s = first.length() > second.length() ? second : first;
+            CharSequence l = first.length() > second.length() ? first : second;
+            shorter = capacity(shorter, s.length());
+            longer = capacity(longer, l.length());
+            if (AsciiLowerCase.isSupported()
+                    && AsciiLowerCase.toLowerCase(s, shorter)
+                    && AsciiLowerCase.toLowerCase(l, longer))
+            {
+                shorterLength = s.length();
+                longerLength = l.length();
+            }
+            else
             {
-                transpositions++;
+                loadLowerCase(s.toString().toLowerCase(), l.toString().toLowerCase());
             }
         }
-        transpositions /= 2;
-        return transpositions;
-    }
 
+        /**
+         * Loads two strings whose lower case forms are already known.
+         */
+        void load(String first, String firstLowerCase, String second, String secondLowerCase)
+        {
+            if (first.length() > second.length())
+            {
+                loadLowerCase(secondLowerCase, firstLowerCase);
+            }
+            else
+            {
+                loadLowerCase(firstLowerCase, secondLowerCase);
+            }
+        }
+
+        /**
+         * Loads two strings whose lower case forms are already in character arrays,
+         * ordered by the lengths of the original strings.
+         */
+        void load(char[] s, int sLength, char[] l, int lLength)
+        {
+            shorter = capacity(shorter, sLength);
+            longer = capacity(longer, lLength);
+            System.arraycopy(s, 0, shorter, 0, sLength);
+            System.arraycopy(l, 0, longer, 0, lLength);
+            shorterLength = sLength;
+            longerLength = lLength;
+        }
+
+        /**
+         * Gets a cleared set of flags.
+         * @param set The number of the set, from 0 to 3.
+         * @param length The number of flags needed.
+         */
+        boolean[] flags(int set, int length)
+        {
+            boolean[] result = flags[set];
+            if (result.length < length)
+            {
+                result = new boolean[Math.max(length, 2 * result.length)];
+                flags[set] = result;
+            }
+            else
+            {
+                Arrays.fill(result, 0, length, false);
+            }
+            return result;
+        }
+
+        private void loadLowerCase(String s, String l)
+        {
+            shorter = capacity(shorter, s.length());
+            longer = capacity(longer, l.length());
+            s.getChars(0, s.length(), shorter, 0);
+            l.getChars(0, l.length(), longer, 0);
+            shorterLength = s.length();
+            longerLength = l.length();
+        }
+
+        private static char[] capacity(char[] buffer, int length)
+        {
+            return buffer.length < length ? new char[Math.max(length, 2 * buffer.length)] : buffer;
+        }
+    }
 }
@@ -31,6 +31,7 @@ package net.ricecode.similarity;
  */
 public class JaroWinklerStrategy extends JaroStrategy implements SimilarityStrategy {
 	final double DEFAULT_SCALING_FACTOR = 0.1;  // This is the default scaling factor Winkler used.
+	private static final double ROUNDING_MARGIN = 1e-12;
 
     private double scalingFactor;
     
@@ -56,18 +57,24 @@ public class JaroWinklerStrategy extends JaroStrategy implements SimilarityStrat
     }
 
     /**
-	 * Calculates the similarity score of objects, where 0.0 implies absolutely no similarity
-	 * and 1.0 implies absolute similarity.
-	 * 
-	 * @param first The first string to compare.
-	 * @param second The second string to compare.
-	 * @return A number between 0.0 and 1.0.
-	 */
-    public double score(String first, String second)
+     * Gets the weight of each character of the common prefix.
+     * @return The scaling factor, between 0.00 and 0.25.
+     */
+    double getScalingFactor()
+    {
+        return scalingFactor;
+    }
+
+    /**
+     * Calculates the similarity score of the strings loaded into a scratch space.
+     * @param scratch The scratch space holding the shorter and the longer string.
+     * @return A number between 0.0 and 1.0.
+     */
+    double score(Scratch scratch)
     {
-        double jaro = super.score(first, second);
+        double jaro = super.score(scratch);
 
-        int cl = commonPrefixLength(first, second);
+        int cl = commonPrefixLength(scratch.shorter, scratch.shorterLength, scratch.longer, scratch.longerLength);
 
         // The Jaro–Winkler distance uses a prefix scale which gives more favorable ratings
         // to strings that match from the beginning for a set prefix length.
@@ -77,6 +84,29 @@ public class JaroWinklerStrategy extends JaroStrategy implements SimilarityStrat
 
     }
 
+    /**
+	 * Calculates an upper bound of the similarity score of two prepared strings.
+	 * The Winkler adjustment grows with the Jaro score, so it is applied to the upper bound
+	 * of the Jaro score, using the exact common prefix length of the strings.
+	 * 
+	 * @param first The first prepared string.
+	 * @param second The second prepared string.
+	 * @return A number that is at least the score of the two strings.
+	 * @throws IllegalArgumentException if a string was not prepared by a JaroStrategy.
+	 */
+    public double upperBound(PreparedString first, PreparedString second)
+    {
+        Prepared p1 = cast(first);
+        Prepared p2 = cast(second);
+        double jaro = jaroUpperBound(p1, p2);
+        int cl = commonPrefixLength(p1, p2);
+        double winkler = jaro + (scalingFactor * cl * (1.0 - jaro));
+
+        // Floating point rounding does not keep the adjustment strictly monotonic,
+        // so leave a little room above the bound.
+        return winkler + ROUNDING_MARGIN;
+    }
+
     /**
      * Calculates the number of characters from the beginning of the strings that match exactly one-to-one, 
      * up to a maximum of four (4) characters.
@@ -84,37 +114,52 @@ public class JaroWinklerStrategy extends JaroStrategy implements SimilarityStrat
      * @param second The second string.
      * @return A number between 0 and 4.
      */
-    private int commonPrefixLength(String first, String second)
+    private int commonPrefixLength(Prepared first, Prepared second)
     {
         String shorter;
         String longer;
 
         // Determine which string is longer.
-        if (first.length() > second.length())
+        if (first.getSource().length() > second.getSource().length())
         {
-            longer = first.toLowerCase();
-            shorter = second.toLowerCase();
+            longer = first.lowerCase();
+            shorter = second.lowerCase();
         }
         else
         {
-            longer = second.toLowerCase();
-            shorter = first.toLowerCase();
+            longer = second.lowerCase();
+            shorter = first.lowerCase();
         }
 
+        // A lower case form can be longer than its string, so the shorter string
+        // does not always have the shorter lower case form.
+        int length = Math.min(4, Math.min(shorter.length(), longer.length()));
         int result = 0;
-
-        // Iterate through the shorter string.
-        for (int i = 0; i < shorter.length(); i++)
+        while (result < length && shorter.charAt(result) == longer.charAt(result))
         {
-            if (shorter.charAt(i) != longer.charAt(i))
-            {
-                break;
-            }
             result++;
         }
+        return result;
+    }
 
-        // Limit the result to 4.
-        return result > 4? 4: result;
+    /**
+     * Calculates the number of characters from the beginning of the strings that match exactly one-to-one, 
+     * up to a maximum of four (4) characters.
+     * @param shorter The characters of the shorter string.
+     * @param shorterLength The length of the shorter string.
+     * @param longer The characters of the longer string.
+     * @param longerLength The length of the longer string.
+     * @return A number between 0 and 4.
+     */
+    private static int commonPrefixLength(char[] shorter, int shorterLength, char[] longer, int longerLength)
+    {
+        int length = Math.min(4, Math.min(shorterLength, longerLength));
+        int result = 0;
+        while (result < length && shorter[result] == longer[result])
+        {
+            result++;
+        }
+        return result;
     }
 
 	
@@ -1,12 +1,26 @@
 package net.ricecode.similarity;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * A strategy that uses the Levenshtein's Distance to calculate the <i>edit distance</i> of two strings.
  * Then it converts this to a "score" to fit the framework.
  *
  * @see <a href="http://en.wikipedia.org/wiki/Levenshtein_distance">About Levenshtein Distance</a>
 */
-public class LevenshteinDistanceStrategy implements SimilarityStrategy {
+public class LevenshteinDistanceStrategy implements ThresholdSimilarityStrategy, BoundedSimilarityStrategy, BatchSimilarityStrategy {
+
+    /**
+     * Lower case buffers, reused by every comparison made on the same thread.
+     */
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
     /**
      * Calculates the similarity score of objects, where 0.0 implies absolutely no similarity
      * and 1.0 implies absolute similarity.
@@ -20,34 +34,427 @@ public class LevenshteinDistanceStrategy implements SimilarityStrategy {
         int maxLength = Math.max(first.length(), second.length());
         //Can't divide by 0
         if (maxLength == 0) return 1.0d;
-        return ((double) (maxLength - computeEditDistance(first, second))) / (double) maxLength;
+        Object event = SimilarityEvents.beginPair();
+        int distance = computeEditDistance(first, second);
+        SimilarityEvents.endPair(event, this, first.length(), second.length());
+        return ((double) (maxLength - distance)) / (double) maxLength;
     }
 
-    protected int computeEditDistance(String first, String second) {
-        first = first.toLowerCase();
-        second = second.toLowerCase();
-
-        int[] costs = new int[second.length() + 1];
-        for (int i = 0; i <= first.length(); i++) {
-            int previousValue = i;
-            for (int j = 0; j <= second.length(); j++) {
-                if (i == 0) {
-                    costs[j] = j;
-                }
-                else if (j > 0) {
-                    int useValue = costs[j - 1];
-                    if (first.charAt(i - 1) != second.charAt(j - 1)) {
-                        useValue = Math.min(Math.min(useValue, previousValue), costs[j]) + 1;
-                    }
-                    costs[j - 1] = previousValue;
-                    previousValue = useValue;
+    /**
+     * Calculates the similarity score of two character sequences, where 0.0 implies absolutely no similarity
+     * and 1.0 implies absolute similarity. ASCII sequences are lowercased into per-thread buffers, so they are
+     * compared without being copied into strings. Two strings are scored with {@link #score(String, String)}.
+     *
+     * @param first The first character sequence to compare.
+     * @param second The second character sequence to compare.
+     * @return A number between 0.0 and 1.0.
+     * @throws NullPointerException if one or both of the sequences are null
+     */
+    public double score(CharSequence first, CharSequence second) {
+        if (first instanceof String && second instanceof String) {
+            return score((String) first, (String) second);
+        }
+        int maxLength = Math.max(first.length(), second.length());
+        //Can't divide by 0
+        if (maxLength == 0) return 1.0d;
+        Object event = SimilarityEvents.beginPair();
+        int distance = computeEditDistance(first, second);
+        SimilarityEvents.endPair(event, this, first.length(), second.length());
+        return ((double) (maxLength - distance)) / (double) maxLength;
+    }
 
+    /**
+     * Calculates the similarity scores of a list of features against a target.
+     * A target of up to 64 characters is lowercased and compiled into bit vectors once,
+     * and every feature is then scanned against the same single word pattern. Where the
+     * Vector API is available, several features are scanned at once, one per vector lane.
+     *
+     * @param target The target string to compare against the features.
+     * @param features The features to compare.
+     * @param out The array to write the scores to, in the order of the features.
+     * @throws NullPointerException if the target or a feature is null
+     */
+    public void scoreInto(String target, List<String> features, double[] out) {
+        String lowerCase = target.toLowerCase();
+        PatternBitVectors pattern = lowerCase.length() > 0 && lowerCase.length() <= 64
+                ? new PatternBitVectors(lowerCase) : null;
+        Scratch scratch = SCRATCH.get();
+        int size = features.size();
+        if (pattern != null && VectorKernels.AVAILABLE && size > 1) {
+            scoreBatches(target, features, out, pattern, scratch);
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            String feature = features.get(i);
+            int maxLength = Math.max(feature.length(), target.length());
+            if (maxLength == 0) {
+                out[i] = 1.0d;
+                continue;
+            }
+            Object event = SimilarityEvents.beginPair();
+            int distance = pattern == null
+                    ? computeEditDistance(feature, target)
+                    : MyersEditDistance.distance(pattern, scratch.first(feature));
+            SimilarityEvents.endPair(event, this, feature.length(), target.length());
+            out[i] = ((double) (maxLength - distance)) / (double) maxLength;
+        }
+    }
+
+    /**
+     * Scores the features in batches, comparing the pattern of the target with one feature per
+     * vector lane. A batch is timed as one comparison of its longest feature.
+     */
+    private void scoreBatches(String target, List<String> features, double[] out, PatternBitVectors pattern, Scratch scratch) {
+        int lanes = VectorKernels.EDIT_DISTANCE_LANES;
+        long[] lengths = new long[lanes];
+        int[] distances = new int[lanes];
+        int size = features.size();
+        for (int from = 0; from < size; from += lanes) {
+            int count = Math.min(lanes, size - from);
+            Object event = SimilarityEvents.beginPair();
+            int columns = 0;
+            for (int l = 0; l < lanes; l++) {
+                if (l >= count) {
+                    lengths[l] = 0;
+                    continue;
+                }
+                // The match vectors are interleaved by column, so lane l of column j is at j * lanes + l.
+                CharSequence text = scratch.first(features.get(from + l));
+                int length = text.length();
+                long[] eqs = scratch.eqs(length * lanes);
+                for (int j = 0; j < length; j++) {
+                    eqs[j * lanes + l] = pattern.get(text.charAt(j));
                 }
+                lengths[l] = length;
+                columns = Math.max(columns, length);
+            }
+            VectorKernels.editDistances(scratch.eqs(columns * lanes), lengths, columns, pattern.length(), distances);
+            SimilarityEvents.endPair(event, this, columns, target.length());
+
+            for (int l = 0; l < count; l++) {
+                int maxLength = Math.max(features.get(from + l).length(), target.length());
+                out[from + l] = ((double) (maxLength - distances[l])) / (double) maxLength;
+            }
+        }
+    }
+
+    /**
+     * Calculates the similarity score of objects, as long as it is at least the minimum score.
+     * The minimum score is turned into a maximum edit distance, so pairs whose lengths differ too much
+     * are rejected without looking at their characters, and the remaining pairs only fill a band of the matrix.
+     *
+     * @param first The first string to compare.
+     * @param second The second string to compare.
+     * @param minScore The lowest score of interest.
+     * @return A number between 0.0 and 1.0, or 0.0 if the score is below minScore.
+     * @throws NullPointerException if one or both of the strings are null
+     */
+    public double score(String first, String second, double minScore) {
+        int maxLength = Math.max(first.length(), second.length());
+        //Can't divide by 0
+        if (maxLength == 0) return 1.0d;
+        int maxDistance = maxDistance(maxLength, minScore);
+        if (maxDistance < 0) return 0.0d;
+        Object event = SimilarityEvents.beginPair();
+        int distance = computeEditDistance(first, second, maxDistance);
+        SimilarityEvents.endPair(event, this, first.length(), second.length());
+        if (distance > maxDistance) return 0.0d;
+        return ((double) (maxLength - distance)) / (double) maxLength;
+    }
+
+    /**
+     * Calculates the similarity score of two character sequences, as long as it is at least the minimum score.
+     * Two strings are scored with {@link #score(String, String, double)}.
+     *
+     * @param first The first character sequence to compare.
+     * @param second The second character sequence to compare.
+     * @param minScore The lowest score of interest.
+     * @return A number between 0.0 and 1.0, or 0.0 if the score is below minScore.
+     * @throws NullPointerException if one or both of the sequences are null
+     */
+    public double score(CharSequence first, CharSequence second, double minScore) {
+        if (first instanceof String && second instanceof String) {
+            return score((String) first, (String) second, minScore);
+        }
+        int maxLength = Math.max(first.length(), second.length());
+        //Can't divide by 0
+        if (maxLength == 0) return 1.0d;
+        int maxDistance = maxDistance(maxLength, minScore);
+        if (maxDistance < 0) return 0.0d;
+        Object event = SimilarityEvents.beginPair();
+        int distance = computeEditDistance(first, second, maxDistance);
+        SimilarityEvents.endPair(event, this, first.length(), second.length());
+        if (distance > maxDistance) return 0.0d;
+        return ((double) (maxLength - distance)) / (double) maxLength;
+    }
+
+    /**
+     * Preprocesses a string for comparisons made with this strategy.
+     * The string is lowercased right away; its bit vectors are only compiled
+     * the first time it is used as the pattern of a comparison.
+     *
+     * @param s The string to prepare.
+     * @return A prepared string.
+     * @throws NullPointerException if the string is null
+     */
+    public PreparedString prepare(String s) {
+        return new Prepared(s);
+    }
+
+    /**
+     * Preprocesses a string that has already been normalized, for comparisons made with this strategy.
+     * The string is used as it is, without being lowercased.
+     *
+     * @param s The normalized string to prepare.
+     * @return A prepared string.
+     * @throws NullPointerException if the string is null
+     */
+    public PreparedString prepareNormalized(String s) {
+        return new Prepared(s, s);
+    }
+
+    /**
+     * Calculates the similarity score of two prepared strings, where 0.0 implies absolutely no similarity
+     * and 1.0 implies absolute similarity. A string whose bit vectors have already been compiled is used
+     * as the pattern; otherwise the second string is, so that a target passed second to many comparisons
+     * is compiled only once.
+     *
+     * @param first The first prepared string to compare.
+     * @param second The second prepared string to compare.
+     * @return A number between 0.0 and 1.0.
+     * @throws IllegalArgumentException if a string was not prepared by a LevenshteinDistanceStrategy.
+     */
+    public double score(PreparedString first, PreparedString second) {
+        Prepared p1 = cast(first);
+        Prepared p2 = cast(second);
+        int maxLength = Math.max(p1.getSource().length(), p2.getSource().length());
+        //Can't divide by 0
+        if (maxLength == 0) return 1.0d;
+        Object event = SimilarityEvents.beginPair();
+        int distance = computeEditDistance(p1, p2);
+        SimilarityEvents.endPair(event, this, p1.getSource().length(), p2.getSource().length());
+        return ((double) (maxLength - distance)) / (double) maxLength;
+    }
+
+    /**
+     * Calculates an upper bound of the similarity score of two prepared strings.
+     * The edit distance is at least the difference of the lengths of the strings.
+     *
+     * @param first The first prepared string.
+     * @param second The second prepared string.
+     * @return A number that is at least the score of the two strings.
+     * @throws IllegalArgumentException if a string was not prepared by a LevenshteinDistanceStrategy.
+     */
+    public double upperBound(PreparedString first, PreparedString second) {
+        Prepared p1 = cast(first);
+        Prepared p2 = cast(second);
+        int maxLength = Math.max(p1.getSource().length(), p2.getSource().length());
+        if (maxLength == 0) return 1.0d;
+        int minDistance = Math.abs(p1.lowerCase().length() - p2.lowerCase().length());
+        return ((double) (maxLength - minDistance)) / (double) maxLength;
+    }
+
+    /**
+     * Calculates the case-insensitive edit distance between two strings.
+     * The shorter string is compiled into bit vectors, so that the common case
+     * of strings up to 64 characters fits into a single machine word.
+     *
+     * @param first The first string.
+     * @param second The second string.
+     * @return The number of insertions, deletions and substitutions needed to turn one string into the other.
+     */
+    protected int computeEditDistance(String first, String second) {
+        return computeEditDistance((CharSequence) first, (CharSequence) second);
+    }
+
+    /**
+     * Calculates the case-insensitive edit distance between two character sequences.
+     *
+     * @param first The first character sequence.
+     * @param second The second character sequence.
+     * @return The number of insertions, deletions and substitutions needed to turn one sequence into the other.
+     */
+    protected int computeEditDistance(CharSequence first, CharSequence second) {
+        Scratch scratch = SCRATCH.get();
+        return lowerCaseEditDistance(scratch.first(first), scratch.second(second));
+    }
+
+    /**
+     * Calculates the edit distance between two character sequences that are already lowercased.
+     */
+    private static int lowerCaseEditDistance(CharSequence first, CharSequence second) {
+        if (first.length() < second.length()) {
+            CharSequence swap = first;
+            first = second;
+            second = swap;
+        }
+        if (second.length() == 0) {
+            return first.length();
+        }
+        return MyersEditDistance.distance(new PatternBitVectors(second), first);
+    }
+
+    /**
+     * Calculates the case-insensitive edit distance between two prepared strings.
+     */
+    int computeEditDistance(Prepared first, Prepared second) {
+        if (first.hasPattern() && !second.hasPattern()) {
+            return MyersEditDistance.distance(first.pattern(), second.lowerCase());
+        }
+        return MyersEditDistance.distance(second.pattern(), first.lowerCase());
+    }
+
+    /**
+     * Calculates the case-insensitive edit distance between two strings, giving up once it exceeds a maximum.
+     * When the band of 2 &middot; maxDistance + 1 cells is narrower than the strings, only the band is filled;
+     * otherwise the full bit-parallel calculation is cheaper.
+     *
+     * @param first The first string.
+     * @param second The second string.
+     * @param maxDistance The largest distance of interest.
+     * @return The edit distance, or a number larger than maxDistance if the distance exceeds it.
+     */
+    protected int computeEditDistance(String first, String second, int maxDistance) {
+        return computeEditDistance((CharSequence) first, (CharSequence) second, maxDistance);
+    }
+
+    /**
+     * Calculates the case-insensitive edit distance between two character sequences, giving up once it
+     * exceeds a maximum.
+     *
+     * @param first The first character sequence.
+     * @param second The second character sequence.
+     * @param maxDistance The largest distance of interest.
+     * @return The edit distance, or a number larger than maxDistance if the distance exceeds it.
+     */
+    protected int computeEditDistance(CharSequence first, CharSequence second, int maxDistance) {
+        Scratch scratch = SCRATCH.get();
+        first = scratch.first(first);
+        second = scratch.second(second);
+
+        if (Math.abs(first.length() - second.length()) > maxDistance) {
+            return maxDistance + 1;
+        }
+        if (2 * maxDistance + 1 < Math.min(first.length(), second.length())) {
+            return BandedEditDistance.distance(first, second, maxDistance);
+        }
+        return lowerCaseEditDistance(first, second);
+    }
+
+    /**
+     * Finds the largest edit distance whose score still reaches the minimum score.
+     * The estimate is corrected with the same arithmetic as score(), so that rounding
+     * can never make the two methods disagree.
+     */
+    static int maxDistance(int maxLength, double minScore) {
+        if (minScore <= 0.0d) return maxLength;
+        int distance = (int) Math.floor(maxLength * (1.0d - minScore));
+        distance = Math.max(-1, Math.min(maxLength, distance));
+        while (distance < maxLength && ((double) (maxLength - distance - 1)) / (double) maxLength >= minScore) {
+            distance++;
+        }
+        while (distance >= 0 && ((double) (maxLength - distance)) / (double) maxLength < minScore) {
+            distance--;
+        }
+        return distance;
+    }
+
+    private static Prepared cast(PreparedString s) {
+        if (!(s instanceof Prepared)) {
+            throw new IllegalArgumentException("The string was not prepared by a LevenshteinDistanceStrategy.");
+        }
+        return (Prepared) s;
+    }
+
+    /**
+     * Per-thread buffers holding the lower case forms of the sequences being compared.
+     */
+    private static final class Scratch {
+        private char[] first = new char[32];
+        private char[] second = new char[32];
+        private final CharView firstView = new CharView();
+        private final CharView secondView = new CharView();
+        private long[] eqs = new long[0];
+
+        /**
+         * Lowercases the first sequence, without a copy when it is ASCII.
+         */
+        CharSequence first(CharSequence s) {
+            if (first.length < s.length()) {
+                first = new char[Math.max(s.length(), 2 * first.length)];
             }
-            if (i > 0) {
-                costs[second.length()] = previousValue;
+            return lowerCase(s, first, firstView);
+        }
+
+        /**
+         * Lowercases the second sequence, without a copy when it is ASCII.
+         */
+        CharSequence second(CharSequence s) {
+            if (second.length < s.length()) {
+                second = new char[Math.max(s.length(), 2 * second.length)];
+            }
+            return lowerCase(s, second, secondView);
+        }
+
+        /**
+         * Gets the buffer of interleaved match vectors, grown to a size if needed and keeping its content.
+         */
+        long[] eqs(int size) {
+            if (eqs.length < size) {
+                eqs = Arrays.copyOf(eqs, Math.max(size, 2 * eqs.length));
+            }
+            return eqs;
+        }
+
+        private static CharSequence lowerCase(CharSequence s, char[] buffer, CharView view) {
+            if (AsciiLowerCase.isSupported() && AsciiLowerCase.toLowerCase(s, buffer)) {
+                return view.set(buffer, s.length());
+            }
+            return s.toString().toLowerCase();
+        }
+    }
+
+    /**
+     * A string prepared for Levenshtein comparisons.
+     */
+    static final class Prepared extends PreparedString {
+        private final String lowerCase;
+        private volatile PatternBitVectors pattern;
+
+        Prepared(String source) {
+            this(source, source.toLowerCase());
+        }
+
+        Prepared(String source, String lowerCase) {
+            super(source);
+            this.lowerCase = lowerCase;
+        }
+
+        /**
+         * Gets the lower case form of the string.
+         */
+        String lowerCase() {
+            return lowerCase;
+        }
+
+        /**
+         * Determines whether the bit vectors of this string have been compiled.
+         */
+        boolean hasPattern() {
+            return pattern != null;
+        }
+
+        /**
+         * Gets the bit vectors of this string, compiling them on first use.
+         * Concurrent callers may each compile them, but they all get equal vectors.
+         */
+        PatternBitVectors pattern() {
+            PatternBitVectors result = pattern;
+            if (result == null) {
+                result = new PatternBitVectors(lowerCase);
+                pattern = result;
             }
+            return result;
         }
-        return costs[second.length()];
     }
 }
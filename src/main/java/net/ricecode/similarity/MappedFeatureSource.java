@@ -0,0 +1,641 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A newline-delimited dictionary file of features, memory-mapped and scanned in place.
+ * Every query decodes the lines of the file one at a time into a reused character buffer and scores
+ * them without creating a String; only the features that make it into the result become Strings.
+ * The built-in strategies are run over the buffer directly; any other strategy is handed a String
+ * for every line.
+ * <p>
+ * A file larger than a single mapping is split into segments of whole lines, each mapped on its own.
+ * With an executor, the segments of a file are scanned in parallel.
+ * <p>
+ * The file must use a charset in which a newline is the single byte 0x0A and ASCII is encoded as is,
+ * such as UTF-8, ISO-8859-1 or US-ASCII. Lines end at "\n" or "\r\n", like the lines of a
+ * {@link java.io.BufferedReader}. The file should not change while it is mapped.
+ * <p>
+ * A source is immutable and may be queried from several threads at once.
+ *
+ * @see StringSimilarityService#findTopK(java.io.Reader, String, int)
+ */
+public class MappedFeatureSource {
+
+	private static final byte NEWLINE = '\n';
+	private static final byte CARRIAGE_RETURN = '\r';
+
+	private final SimilarityStrategy strategy;
+	private final Charset charset;
+	private final Executor executor;
+	private final MappedByteBuffer[] segments;
+
+	/**
+	 * Maps a dictionary file whose features are scanned on the calling thread.
+	 * @param file The file, with one feature per line.
+	 * @param charset The charset of the file.
+	 * @param strategy The similarity strategy to score the features with.
+	 * @throws IOException if the file cannot be mapped, or holds a line longer than a mapping.
+	 * @throws IllegalArgumentException if the charset does not encode newlines and ASCII as single bytes.
+	 */
+	public MappedFeatureSource(Path file, Charset charset, SimilarityStrategy strategy) throws IOException {
+		this(file, charset, strategy, null);
+	}
+
+	/**
+	 * Maps a dictionary file whose segments are scanned in parallel.
+	 * @param file The file, with one feature per line.
+	 * @param charset The charset of the file.
+	 * @param strategy The similarity strategy to score the features with.
+	 * @param executor The executor that scans the segments of the file, or null to scan them on the calling thread.
+	 * @throws IOException if the file cannot be mapped, or holds a line longer than a mapping.
+	 * @throws IllegalArgumentException if the charset does not encode newlines and ASCII as single bytes.
+	 */
+	public MappedFeatureSource(Path file, Charset charset, SimilarityStrategy strategy, Executor executor) throws IOException {
+		this(file, charset, strategy, executor, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Maps a dictionary file in segments of at most the given size.
+	 */
+	MappedFeatureSource(Path file, Charset charset, SimilarityStrategy strategy, Executor executor, int maxSegmentSize) throws IOException {
+		if (!Arrays.equals("\n\ra".getBytes(charset), new byte[] { NEWLINE, CARRIAGE_RETURN, 'a' })) {
+			throw new IllegalArgumentException("The charset " + charset + " does not encode newlines as single bytes.");
+		}
+		this.strategy = strategy;
+		this.charset = charset;
+		this.executor = executor;
+		this.segments = map(file, maxSegmentSize);
+	}
+
+	/**
+	 * Maps a file in segments that end after a newline, except for the last one.
+	 */
+	private static MappedByteBuffer[] map(Path file, int maxSegmentSize) throws IOException {
+		List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+		// The mappings stay valid after the channel is closed.
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			long start = 0;
+			while (start < size) {
+				long length = Math.min(maxSegmentSize, size - start);
+				MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+				if (start + length < size) {
+					int end = (int) length;
+					while (end > 0 && segment.get(end - 1) != NEWLINE) {
+						end--;
+					}
+					if (end == 0) {
+						throw new IOException("The line at byte " + start + " of " + file + " is longer than a mapping.");
+					}
+					if (end < length) {
+						segment = channel.map(FileChannel.MapMode.READ_ONLY, start, end);
+					}
+					length = end;
+				}
+				segments.add(segment);
+				start += length;
+			}
+		}
+		finally {
+			channel.close();
+		}
+		return segments.toArray(new MappedByteBuffer[segments.size()]);
+	}
+
+	/**
+	 * Gets the similarity strategy the features are scored with.
+	 * @return The similarity strategy.
+	 */
+	public SimilarityStrategy getStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * Gets the number of mappings the file was split into.
+	 */
+	int segments() {
+		return segments.length;
+	}
+
+	/**
+	 * Finds the lines whose similarity score with the target string reaches a minimum score.
+	 * @param target The target string.
+	 * @param minScore The lowest score of interest.
+	 * @return The similarity scores that are at least minScore, in the order of the lines.
+	 */
+	public List<SimilarityScore> findAbove(final String target, final double minScore) {
+		List<List<SimilarityScore>> parts = scan(new SegmentScan<List<SimilarityScore>>() {
+			List<SimilarityScore> scan(final ByteBuffer segment) {
+				final List<SimilarityScore> scores = new ArrayList<SimilarityScore>();
+				new LineReader(segment, kernel(target)) {
+					void accept(double score, int offset) {
+						if (score >= minScore) {
+							scores.add(new SimilarityScore(line(segment, offset), score));
+						}
+					}
+				}.run();
+				return scores;
+			}
+		});
+		List<SimilarityScore> result = new ArrayList<SimilarityScore>();
+		for (List<SimilarityScore> part : parts) {
+			result.addAll(part);
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the line that best matches the target string.
+	 * @param target The target string.
+	 * @return The similarity score with the highest value, or null if the file has no lines.
+	 * Of two equal scores, the earlier line wins.
+	 */
+	public SimilarityScore findTop(String target) {
+		List<SimilarityScore> top = findTopK(target, 1);
+		return top.isEmpty() ? null : top.get(0);
+	}
+
+	/**
+	 * Finds the k lines that best match the target string.
+	 * @param target The target string.
+	 * @param k The number of lines to return.
+	 * @return Up to k similarity scores, highest first. Of two equal scores, the earlier line comes first.
+	 * @throws IllegalArgumentException if k is negative.
+	 */
+	public List<SimilarityScore> findTopK(final String target, final int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("The number of scores must not be negative.");
+		}
+		// Every segment keeps its own top k by byte offset; the segments are merged in file order.
+		List<TopScores> parts = scan(new SegmentScan<TopScores>() {
+			TopScores scan(ByteBuffer segment) {
+				// A segment holds at most one more line than it has line breaks.
+				final TopScores top = new TopScores((int) Math.min(k, segment.limit() + 1L), false);
+				new LineReader(segment, kernel(target)) {
+					void accept(double score, int offset) {
+						top.offer(score, offset);
+					}
+				}.run();
+				return top;
+			}
+		});
+		List<Hit> hits = new ArrayList<Hit>();
+		for (int i = 0; i < parts.size(); i++) {
+			TopScores part = parts.get(i);
+			double[] scores = new double[part.size()];
+			int[] offsets = part.drain(scores);
+			for (int j = 0; j < offsets.length; j++) {
+				hits.add(new Hit(scores[j], i, offsets[j]));
+			}
+		}
+		Collections.sort(hits, new Comparator<Hit>() {
+			public int compare(Hit x, Hit y) {
+				int result = Double.compare(y.score, x.score);
+				if (result != 0) {
+					return result;
+				}
+				if (x.segment != y.segment) {
+					return x.segment < y.segment ? -1 : 1;
+				}
+				return x.offset < y.offset ? -1 : (x.offset == y.offset ? 0 : 1);
+			}
+		});
+		List<SimilarityScore> result = new ArrayList<SimilarityScore>(Math.min(k, hits.size()));
+		for (int i = 0; i < hits.size() && i < k; i++) {
+			Hit hit = hits.get(i);
+			result.add(new SimilarityScore(line(segments[hit.segment], hit.offset), hit.score));
+		}
+		return result;
+	}
+
+	/**
+	 * Runs a scan over every segment, on the executor if there is one and more than one segment.
+	 * @return The results of the segments, in file order.
+	 */
+	private <R> List<R> scan(final SegmentScan<R> scan) {
+		List<R> results = new ArrayList<R>(segments.length);
+		if (executor == null || segments.length < 2) {
+			// Duplicated as a ByteBuffer, since the covariant duplicate of later JDKs is missing on Java 8.
+			for (ByteBuffer segment : segments) {
+				results.add(scan.scan(segment.duplicate()));
+			}
+			return results;
+		}
+		List<FutureTask<R>> tasks = new ArrayList<FutureTask<R>>(segments.length);
+		for (final ByteBuffer segment : segments) {
+			FutureTask<R> task = new FutureTask<R>(new Callable<R>() {
+				public R call() {
+					return scan.scan(segment.duplicate());
+				}
+			});
+			executor.execute(task);
+			tasks.add(task);
+		}
+		for (FutureTask<R> task : tasks) {
+			results.add(await(task));
+		}
+		return results;
+	}
+
+	private static <R> R await(FutureTask<R> task) {
+		try {
+			return task.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while scanning a segment.", e);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Decodes the line that starts at an offset of a segment.
+	 */
+	private String line(ByteBuffer segment, int offset) {
+		int end = offset;
+		while (end < segment.limit() && segment.get(end) != NEWLINE) {
+			end++;
+		}
+		if (end > offset && segment.get(end - 1) == CARRIAGE_RETURN) {
+			end--;
+		}
+		byte[] bytes = new byte[end - offset];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = segment.get(offset + i);
+		}
+		return new String(bytes, charset);
+	}
+
+	/**
+	 * Creates the kernel that scores decoded lines against a target for the strategy of this source.
+	 * Each kernel holds its own buffers, so it must only be used by one thread.
+	 */
+	private Kernel kernel(final String target) {
+		Class<?> type = strategy.getClass();
+		if (type == LevenshteinDistanceStrategy.class) {
+			return new LevenshteinKernel(target);
+		}
+		if (type == JaroStrategy.class || type == JaroWinklerStrategy.class) {
+			return new JaroKernel((JaroStrategy) strategy, target);
+		}
+		if (type == DiceCoefficientStrategy.class) {
+			return new DiceKernel(target);
+		}
+		return new Kernel() {
+			double score(char[] line, int length) {
+				return strategy.score(new String(line, 0, length), target);
+			}
+		};
+	}
+
+	/**
+	 * A computation over the lines of one segment.
+	 */
+	private abstract static class SegmentScan<R> {
+		abstract R scan(ByteBuffer segment);
+	}
+
+	/**
+	 * A line of a top k query, identified by its segment and byte offset.
+	 */
+	private static final class Hit {
+		final double score;
+		final int segment;
+		final int offset;
+
+		Hit(double score, int segment, int offset) {
+			this.score = score;
+			this.segment = segment;
+			this.offset = offset;
+		}
+	}
+
+	/**
+	 * Reads the lines of a segment into a reused character buffer and scores each of them.
+	 * Lines of ASCII bytes, and every line of an ISO-8859-1 file, are decoded byte by byte,
+	 * and well-formed UTF-8 outside the supplementary planes is decoded in place. Any other
+	 * line goes through a decoder of the charset, which replaces malformed input the same
+	 * way {@link String#String(byte[], Charset)} does.
+	 */
+	private abstract class LineReader {
+		private final ByteBuffer segment;
+		private final Kernel kernel;
+		private final boolean singleByte;
+		private final boolean utf8;
+		private CharsetDecoder decoder;
+		private char[] chars = new char[64];
+
+		LineReader(ByteBuffer segment, Kernel kernel) {
+			this.segment = segment;
+			this.kernel = kernel;
+			this.singleByte = charset.equals(StandardCharsets.ISO_8859_1);
+			this.utf8 = charset.equals(StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Receives the score of a line.
+		 * @param score The similarity score of the line.
+		 * @param offset The byte offset of the line within the segment.
+		 */
+		abstract void accept(double score, int offset);
+
+		void run() {
+			int limit = segment.limit();
+			int start = 0;
+			while (start < limit) {
+				int end = start;
+				int length = 0;
+				boolean decoded = true;
+				for (; end < limit; end++) {
+					byte b = segment.get(end);
+					if (b == NEWLINE) {
+						break;
+					}
+					if (b < 0 && !singleByte) {
+						decoded = false;
+					}
+					if (length == chars.length) {
+						chars = Arrays.copyOf(chars, 2 * length);
+					}
+					chars[length++] = (char) (b & 0xFF);
+				}
+				int lineEnd = end;
+				if (lineEnd > start && segment.get(lineEnd - 1) == CARRIAGE_RETURN) {
+					lineEnd--;
+					length--;
+				}
+				if (!decoded) {
+					length = utf8 ? decodeUtf8(start, lineEnd) : -1;
+					if (length < 0) {
+						length = decode(start, lineEnd);
+					}
+				}
+				accept(kernel.score(chars, length), start);
+				start = end + 1;
+			}
+		}
+
+		/**
+		 * Decodes a line of one to three byte UTF-8 sequences. The buffer already has room
+		 * for one character per byte, which is all UTF-8 can need.
+		 * @return The number of characters, or -1 if the line needs the charset's decoder.
+		 */
+		private int decodeUtf8(int start, int end) {
+			int length = 0;
+			int i = start;
+			while (i < end) {
+				int b = segment.get(i) & 0xFF;
+				if (b < 0x80) {
+					chars[length++] = (char) b;
+					i++;
+				}
+				else if (b >= 0xC2 && b < 0xE0 && i + 1 < end) {
+					int b1 = segment.get(i + 1);
+					if ((b1 & 0xC0) != 0x80) {
+						return -1;
+					}
+					chars[length++] = (char) (((b & 0x1F) << 6) | (b1 & 0x3F));
+					i += 2;
+				}
+				else if (b >= 0xE0 && b < 0xF0 && i + 2 < end) {
+					int b1 = segment.get(i + 1);
+					int b2 = segment.get(i + 2);
+					if ((b1 & 0xC0) != 0x80 || (b2 & 0xC0) != 0x80) {
+						return -1;
+					}
+					char ch = (char) (((b & 0x0F) << 12) | ((b1 & 0x3F) << 6) | (b2 & 0x3F));
+					// Overlong forms and encoded surrogates are malformed.
+					if (ch < 0x800 || Character.isSurrogate(ch)) {
+						return -1;
+					}
+					chars[length++] = ch;
+					i += 3;
+				}
+				else {
+					return -1;
+				}
+			}
+			return length;
+		}
+
+		private int decode(int start, int end) {
+			if (decoder == null) {
+				decoder = charset.newDecoder()
+						.onMalformedInput(CodingErrorAction.REPLACE)
+						.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			}
+			int capacity = (int) Math.ceil((end - start) * (double) decoder.maxCharsPerByte());
+			if (chars.length < capacity) {
+				chars = new char[capacity];
+			}
+			ByteBuffer in = segment.duplicate();
+			((Buffer) in).limit(end);
+			((Buffer) in).position(start);
+			CharBuffer out = CharBuffer.wrap(chars);
+			decoder.reset();
+			decoder.decode(in, out, true);
+			decoder.flush(out);
+			return out.position();
+		}
+	}
+
+	/**
+	 * Scores decoded lines against one target.
+	 */
+	abstract static class Kernel {
+		/**
+		 * Scores a line as the feature of a comparison with the target.
+		 * @param line The characters of the line.
+		 * @param length The number of characters in the line.
+		 * @return The same score as the strategy gives the line and the target.
+		 */
+		abstract double score(char[] line, int length);
+	}
+
+	/**
+	 * Lowercases characters one at a time, when that gives the same result as {@link String#toLowerCase()}.
+	 * @param chars The characters.
+	 * @param length The number of characters.
+	 * @param buffer A buffer with room for length characters.
+	 * @return False if a character needs the context-sensitive or locale-specific rules of
+	 * toLowerCase, or lowercases to more than one character.
+	 */
+	static boolean toLowerCase(char[] chars, int length, char[] buffer) {
+		if (!AsciiLowerCase.isSupported()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			char ch = chars[i];
+			if (ch < 0x80) {
+				buffer[i] = ch >= 'A' && ch <= 'Z' ? (char) (ch + ('a' - 'A')) : ch;
+			}
+			else if (ch == '\u0130' || ch == '\u03A3' || Character.isSurrogate(ch)) {
+				return false;
+			}
+			else {
+				buffer[i] = Character.toLowerCase(ch);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Runs the bit-parallel edit distance with the lower case target compiled once as the pattern.
+	 */
+	private final class LevenshteinKernel extends Kernel {
+		private final String target;
+		private final PatternBitVectors pattern;
+		private final CharView view = new CharView();
+		private char[] lowerCase = new char[64];
+
+		LevenshteinKernel(String target) {
+			this.target = target;
+			String lower = target.toLowerCase();
+			this.pattern = new PatternBitVectors(lower);
+		}
+
+		double score(char[] line, int length) {
+			int maxLength = Math.max(length, target.length());
+			if (maxLength == 0) {
+				return 1.0d;
+			}
+			if (lowerCase.length < length) {
+				lowerCase = new char[Math.max(length, 2 * lowerCase.length)];
+			}
+			if (!toLowerCase(line, length, lowerCase)) {
+				return strategy.score(new String(line, 0, length), target);
+			}
+			int distance = MyersEditDistance.distance(pattern, view.set(lowerCase, length));
+			return ((double) (maxLength - distance)) / (double) maxLength;
+		}
+	}
+
+	/**
+	 * Loads the lower case line and target into the strategy's scratch space, ordered the
+	 * same way {@link JaroStrategy#score(String, String)} orders a feature and a target.
+	 */
+	private final class JaroKernel extends Kernel {
+		private final JaroStrategy jaro;
+		private final String target;
+		private final char[] lowerTarget;
+		private final JaroStrategy.Scratch scratch = new JaroStrategy.Scratch();
+		private char[] lowerCase = new char[64];
+
+		JaroKernel(JaroStrategy jaro, String target) {
+			this.jaro = jaro;
+			this.target = target;
+			this.lowerTarget = target.toLowerCase().toCharArray();
+		}
+
+		double score(char[] line, int length) {
+			if (lowerCase.length < length) {
+				lowerCase = new char[Math.max(length, 2 * lowerCase.length)];
+			}
+			if (!toLowerCase(line, length, lowerCase)) {
+				return jaro.score(new String(line, 0, length), target);
+			}
+			if (length > target.length()) {
+				scratch.load(lowerTarget, lowerTarget.length, lowerCase, length);
+			}
+			else {
+				scratch.load(lowerCase, length, lowerTarget, lowerTarget.length);
+			}
+			return jaro.score(scratch);
+		}
+	}
+
+	/**
+	 * Intersects the bigrams of every line with the bigrams of the target, collected once.
+	 */
+	private static final class DiceKernel extends Kernel {
+		private final String target;
+		private final int[] targetBigrams;
+		private final int targetSize;
+		private final CharView view = new CharView();
+		private int[] bigrams = new int[64];
+
+		DiceKernel(String target) {
+			this.target = target;
+			this.targetBigrams = new int[Math.max(1, target.length() - 1)];
+			this.targetSize = target.length() < 2 ? 1 : Bigrams.distinct(target, targetBigrams);
+		}
+
+		double score(char[] line, int length) {
+			int n1;
+			int nt;
+			if (length < 2 || target.length() < 2) {
+				n1 = 1;
+				if (length >= 2) {
+					n1 = Bigrams.distinct(view.set(line, length), buffer(length));
+				}
+				nt = length == target.length() && target.contentEquals(view.set(line, length)) ? 1 : 0;
+			}
+			else {
+				n1 = Bigrams.distinct(view.set(line, length), buffer(length));
+				nt = Bigrams.intersection(bigrams, n1, targetBigrams, targetSize);
+			}
+			return (2.0 * (double)nt) / ((double)(n1 + targetSize));
+		}
+
+		private int[] buffer(int length) {
+			if (bigrams.length < length) {
+				bigrams = new int[Math.max(length, 2 * bigrams.length)];
+			}
+			return bigrams;
+		}
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+import java.util.List;
+
+/**
+ * A similarity strategy that records metrics about the comparisons of another strategy.
+ * Every comparison is counted, along with the cells of its comparison matrix; sampled comparisons
+ * also record their latency and the lengths of both strings. The metrics can be published over JMX
+ * with {@link SimilarityMetrics#register(String)}.
+ * <p>
+ * The decorator passes threshold, prepared, bounded and batch comparisons through to the wrapped
+ * strategy, so that a service scores with the same kernels it would use without it. When the wrapped
+ * strategy lacks one of these abilities, or extends a built-in strategy whose plain score it may override,
+ * the decorator falls back to plain comparisons: a prepared string then just holds the string, and every
+ * upper bound is 1.0. The built-in indexes and blocked joins that recognize a strategy by its class do not
+ * recognize a wrapped one; meter the service with {@link MeteredStringSimilarityService} to keep them.
+ */
+public class MeteredSimilarityStrategy implements ThresholdSimilarityStrategy, BoundedSimilarityStrategy, BatchSimilarityStrategy {
+
+	private final SimilarityStrategy strategy;
+	private final SimilarityMetrics metrics;
+	private final boolean kernels;
+
+	/**
+	 * Creates a metered strategy that samples one comparison in {@link SimilarityMetrics#DEFAULT_SAMPLING_INTERVAL}.
+	 * @param strategy The strategy to meter.
+	 */
+	public MeteredSimilarityStrategy(SimilarityStrategy strategy) {
+		this(strategy, new SimilarityMetrics(SimilarityMetrics.DEFAULT_SAMPLING_INTERVAL));
+	}
+
+	/**
+	 * Creates a metered strategy that records into the given metrics, which may be shared with other decorators.
+	 * @param strategy The strategy to meter.
+	 * @param metrics The metrics to record into.
+	 */
+	public MeteredSimilarityStrategy(SimilarityStrategy strategy, SimilarityMetrics metrics) {
+		this.strategy = strategy;
+		this.metrics = metrics;
+		this.kernels = StringSimilarityServiceImpl.usesKernels(strategy);
+	}
+
+	/**
+	 * Calculates the similarity score of objects with the wrapped strategy.
+	 *
+	 * @param first The first string to compare.
+	 * @param second The second string to compare.
+	 * @return A number between 0.0 and 1.0.
+	 */
+	public double score(String first, String second) {
+		long start = metrics.start(1);
+		double score = strategy.score(first, second);
+		finish(start, first.length(), second.length());
+		return score;
+	}
+
+	/**
+	 * Calculates the similarity score of two character sequences with the wrapped strategy.
+	 *
+	 * @param first The first character sequence to compare.
+	 * @param second The second character sequence to compare.
+	 * @return A number between 0.0 and 1.0.
+	 */
+	public double score(CharSequence first, CharSequence second) {
+		long start = metrics.start(1);
+		double score = strategy.score(first, second);
+		finish(start, first.length(), second.length());
+		return score;
+	}
+
+	/**
+	 * Calculates the similarity score of two strings with the wrapped strategy, as long as it is at least
+	 * the minimum score. A pair below the minimum score is counted as pruned.
+	 *
+	 * @param first The first string to compare.
+	 * @param second The second string to compare.
+	 * @param minScore The lowest score of interest.
+	 * @return A number between 0.0 and 1.0, or 0.0 if the score is below minScore.
+	 */
+	public double score(String first, String second, double minScore) {
+		long start = metrics.start(1);
+		double score;
+		if (strategy instanceof ThresholdSimilarityStrategy && kernels) {
+			score = ((ThresholdSimilarityStrategy) strategy).score(first, second, minScore);
+		}
+		else {
+			score = strategy.score(first, second);
+		}
+		finish(start, first.length(), second.length());
+		if (score < minScore) {
+			metrics.addPruned();
+			return 0.0d;
+		}
+		return score;
+	}
+
+	/**
+	 * Calculates the similarity scores of a list of features against a target with the wrapped strategy.
+	 * The latency of a sampled batch is spread evenly over its comparisons.
+	 *
+	 * @param target The target string to compare against the features.
+	 * @param features The features to compare.
+	 * @param out The array to write the scores to, in the order of the features.
+	 */
+	public void scoreInto(String target, List<String> features, double[] out) {
+		int size = features.size();
+		long start = metrics.start(size);
+		if (strategy instanceof BatchSimilarityStrategy && kernels) {
+			((BatchSimilarityStrategy) strategy).scoreInto(target, features, out);
+		}
+		else {
+			for (int i = 0; i < size; i++) {
+				out[i] = strategy.score(features.get(i), target);
+			}
+		}
+		metrics.stop(start, size);
+		long characters = 0;
+		for (int i = 0; i < size; i++) {
+			int length = features.get(i).length();
+			characters += length;
+			metrics.recordInputSize(start, length);
+		}
+		metrics.recordInputSize(start, target.length());
+		metrics.addCells(characters * target.length());
+	}
+
+	/**
+	 * Preprocesses a string with the wrapped strategy, if it prepares strings.
+	 *
+	 * @param s The string to prepare.
+	 * @return A prepared string.
+	 */
+	public PreparedString prepare(String s) {
+		if (strategy instanceof PreparedSimilarityStrategy && kernels) {
+			return ((PreparedSimilarityStrategy) strategy).prepare(s);
+		}
+		return new Unprepared(s);
+	}
+
+	/**
+	 * Preprocesses a string that has already been normalized with the wrapped strategy, if it prepares strings.
+	 *
+	 * @param s The normalized string to prepare.
+	 * @return A prepared string.
+	 */
+	public PreparedString prepareNormalized(String s) {
+		if (strategy instanceof PreparedSimilarityStrategy && kernels) {
+			return ((PreparedSimilarityStrategy) strategy).prepareNormalized(s);
+		}
+		return new Unprepared(s);
+	}
+
+	/**
+	 * Calculates the similarity score of two prepared strings with the wrapped strategy.
+	 *
+	 * @param first The first prepared string to compare.
+	 * @param second The second prepared string to compare.
+	 * @return A number between 0.0 and 1.0.
+	 */
+	public double score(PreparedString first, PreparedString second) {
+		long start = metrics.start(1);
+		double score;
+		if (strategy instanceof PreparedSimilarityStrategy && kernels) {
+			score = ((PreparedSimilarityStrategy) strategy).score(first, second);
+		}
+		else {
+			score = strategy.score(first.getSource(), second.getSource());
+		}
+		finish(start, first.getSource().length(), second.getSource().length());
+		return score;
+	}
+
+	/**
+	 * Calculates an upper bound of the similarity score of two prepared strings with the wrapped strategy.
+	 * Bounds are not counted as comparisons.
+	 *
+	 * @param first The first prepared string.
+	 * @param second The second prepared string.
+	 * @return A number that is at least the score of the two strings, or 1.0 if the wrapped strategy has no bound.
+	 */
+	public double upperBound(PreparedString first, PreparedString second) {
+		if (strategy instanceof BoundedSimilarityStrategy && kernels) {
+			return ((BoundedSimilarityStrategy) strategy).upperBound(first, second);
+		}
+		return 1.0d;
+	}
+
+	/**
+	 * Gets the strategy that is metered.
+	 * @return The wrapped strategy.
+	 */
+	public SimilarityStrategy getStrategy() {
+		return strategy;
+	}
+
+	/**
+	 * Gets the metrics this strategy records into.
+	 * @return The metrics.
+	 */
+	public SimilarityMetrics getMetrics() {
+		return metrics;
+	}
+
+	private void finish(long start, int firstLength, int secondLength) {
+		metrics.stop(start, 1);
+		metrics.recordInputSize(start, firstLength);
+		metrics.recordInputSize(start, secondLength);
+		metrics.addCells((long) firstLength * secondLength);
+	}
+
+	/**
+	 * A string prepared for a strategy that does not prepare strings.
+	 */
+	private static final class Unprepared extends PreparedString {
+		Unprepared(String source) {
+			super(source);
+		}
+	}
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * A similarity service that records metrics about the calls made to another service.
+ * Every call is counted; sampled calls also record their latency and the number of features they
+ * score, or of pairs for the methods that score several targets. Calls over iterables, streams and
+ * readers record no input size, since it is only known once they are consumed.
+ * <p>
+ * Only the calls are seen, not the comparisons inside them, so the wrapped service keeps every
+ * kernel, index and blocked join it would use on its own. The metrics can be published over JMX
+ * with {@link SimilarityMetrics#register(String)}.
+ */
+public class MeteredStringSimilarityService implements StringSimilarityService {
+
+	private final StringSimilarityService service;
+	private final SimilarityMetrics metrics;
+
+	/**
+	 * Creates a metered service that samples one call in {@link SimilarityMetrics#DEFAULT_SAMPLING_INTERVAL}.
+	 * @param service The service to meter.
+	 */
+	public MeteredStringSimilarityService(StringSimilarityService service) {
+		this(service, new SimilarityMetrics(SimilarityMetrics.DEFAULT_SAMPLING_INTERVAL));
+	}
+
+	/**
+	 * Creates a metered service that records into the given metrics, which may be shared with other decorators.
+	 * @param service The service to meter.
+	 * @param metrics The metrics to record into.
+	 */
+	public MeteredStringSimilarityService(StringSimilarityService service, SimilarityMetrics metrics) {
+		this.service = service;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Gets the service that is metered.
+	 * @return The wrapped service.
+	 */
+	public StringSimilarityService getService() {
+		return service;
+	}
+
+	/**
+	 * Gets the metrics this service records into.
+	 * @return The metrics.
+	 */
+	public SimilarityMetrics getMetrics() {
+		return metrics;
+	}
+
+	public List<SimilarityScore> scoreAll(List<String> features, String target) {
+		long start = metrics.start(1);
+		List<SimilarityScore> result = service.scoreAll(features, target);
+		finish(start, features.size());
+		return result;
+	}
+
+	public ScoreArray scoreArray(List<String> features, String target) {
+		long start = metrics.start(1);
+		ScoreArray result = service.scoreArray(features, target);
+		finish(start, features.size());
+		return result;
+	}
+
+	public List<SimilarityScore> scoreAbove(List<String> features, String target, double minScore) {
+		long start = metrics.start(1);
+		List<SimilarityScore> result = service.scoreAbove(features, target, minScore);
+		finish(start, features.size());
+		return result;
+	}
+
+	public double score(String feature, String target) {
+		long start = metrics.start(1);
+		double result = service.score(feature, target);
+		finish(start, 1);
+		return result;
+	}
+
+	public SimilarityScore findTop(List<String> features, String target) {
+		long start = metrics.start(1);
+		SimilarityScore result = service.findTop(features, target);
+		finish(start, features.size());
+		return result;
+	}
+
+	public SimilarityScore findTop(List<String> features, String target, Comparator<SimilarityScore> comparator) {
+		long start = metrics.start(1);
+		SimilarityScore result = service.findTop(features, target, comparator);
+		finish(start, features.size());
+		return result;
+	}
+
+	public List<SimilarityScore> findTopK(List<String> features, String target, int k) {
+		long start = metrics.start(1);
+		List<SimilarityScore> result = service.findTopK(features, target, k);
+		finish(start, features.size());
+		return result;
+	}
+
+	public List<SimilarityScore> findTopK(List<String> features, String target, int k, Comparator<SimilarityScore> comparator) {
+		long start = metrics.start(1);
+		List<SimilarityScore> result = service.findTopK(features, target, k, comparator);
+		finish(start, features.size());
+		return result;
+	}
+
+	public List<SimilarityScore> scoreAll(FeatureIndex index, String target) {
+		long start = metrics.start(1);
+		List<SimilarityScore> result = service.scoreAll(index, target);
+		finish(start, index.size());
+		return result;
+	}
+
+	public ScoreArray scoreArray(FeatureIndex index, String target) {
+		long start = metrics.start(1);
+		ScoreArray result = service.scoreArray(index, target);
+		finish(start, index.size());
+		return result;
+	}
+
+	public List<SimilarityScore> scoreAbove(FeatureIndex index, String target, double minScore) {
+		long start = metrics.start(1);
+		List<SimilarityScore> result = service.scoreAbove(index, target, minScore);
+		finish(start, index.size());
+		return result;
+	}
+
+	public SimilarityScore findTop(FeatureIndex index, String target) {
+		long start = metrics.start(1);
+		SimilarityScore result = service.findTop(index, target);
+		finish(start, index.size());
+		return result;
+	}
+
+	public SimilarityScore findTop(FeatureIndex index, String target, Comparator<SimilarityScore> comparator) {
+		long start = metrics.start(1);
+		SimilarityScore result = service.findTop(index, target, comparator);
+		finish(start, index.size());
+		return result;
+	}
+
+	public List<SimilarityScore> findTopK(FeatureIndex index, String target, int k) {
+		long start = metrics.start(1);
+		List<SimilarityScore> result = service.findTopK(index, target, k);
+		finish(start, index.size());
+		return result;
+	}
+
+	public List<SimilarityScore> findTopK(Iterable<String> features, String target, int k) {
+		long start = metrics.start(1);
+		List<SimilarityScore> result = service.findTopK(features, target, k);
+		metrics.stop(start, 1);
+		return result;
+	}
+
+	public List<SimilarityScore> findTopK(Stream<String> features, String target, int k) {
+		long start = metrics.start(1);
+		List<SimilarityScore> result = service.findTopK(features, target, k);
+		metrics.stop(start, 1);
+		return result;
+	}
+
+	public List<SimilarityScore> findTopK(Reader features, String target, int k) throws IOException {
+		long start = metrics.start(1);
+		List<SimilarityScore> result = service.findTopK(features, target, k);
+		metrics.stop(start, 1);
+		return result;
+	}
+
+	public void scoreAbove(Iterable<String> features, String target, double minScore, Consumer<SimilarityScore> hits) {
+		long start = metrics.start(1);
+		service.scoreAbove(features, target, minScore, hits);
+		metrics.stop(start, 1);
+	}
+
+	public void scoreAbove(Stream<String> features, String target, double minScore, Consumer<SimilarityScore> hits) {
+		long start = metrics.start(1);
+		service.scoreAbove(features, target, minScore, hits);
+		metrics.stop(start, 1);
+	}
+
+	public void scoreAbove(Reader features, String target, double minScore, Consumer<SimilarityScore> hits) throws IOException {
+		long start = metrics.start(1);
+		service.scoreAbove(features, target, minScore, hits);
+		metrics.stop(start, 1);
+	}
+
+	public List<List<SimilarityScore>> findTopPerTarget(List<String> features, List<String> targets, int k) {
+		long start = metrics.start(1);
+		List<List<SimilarityScore>> result = service.findTopPerTarget(features, targets, k);
+		finish(start, (long) features.size() * targets.size());
+		return result;
+	}
+
+	public List<List<SimilarityScore>> findTopPerTarget(FeatureIndex index, List<String> targets, int k) {
+		long start = metrics.start(1);
+		List<List<SimilarityScore>> result = service.findTopPerTarget(index, targets, k);
+		finish(start, (long) index.size() * targets.size());
+		return result;
+	}
+
+	public List<List<SimilarityScore>> scoreMatrix(List<String> features, List<String> targets, double minScore) {
+		long start = metrics.start(1);
+		List<List<SimilarityScore>> result = service.scoreMatrix(features, targets, minScore);
+		finish(start, (long) features.size() * targets.size());
+		return result;
+	}
+
+	public List<List<SimilarityScore>> scoreMatrix(FeatureIndex index, List<String> targets, double minScore) {
+		long start = metrics.start(1);
+		List<List<SimilarityScore>> result = service.scoreMatrix(index, targets, minScore);
+		finish(start, (long) index.size() * targets.size());
+		return result;
+	}
+
+	public List<SimilarityPair> selfJoin(List<String> features, double minScore) {
+		long start = metrics.start(1);
+		List<SimilarityPair> result = service.selfJoin(features, minScore);
+		finish(start, features.size());
+		return result;
+	}
+
+	public List<List<String>> cluster(List<String> features, double minScore) {
+		long start = metrics.start(1);
+		List<List<String>> result = service.cluster(features, minScore);
+		finish(start, features.size());
+		return result;
+	}
+
+	private void finish(long start, long size) {
+		metrics.stop(start, 1);
+		metrics.recordInputSize(start, size);
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+/**
+ * Computes the Levenshtein distance with Myers' bit-vector algorithm, which processes
+ * up to 64 cells of a dynamic programming column in a handful of word operations.
+ * Patterns longer than 64 characters use Hyyrö's blocked variant, carrying the
+ * horizontal delta from one block to the next.
+ *
+ * @see <a href="https://doi.org/10.1145/316542.316550">Myers, A fast bit-vector algorithm for approximate string matching based on dynamic programming</a>
+ */
+final class MyersEditDistance {
+
+	private static final long HIGH_BIT = 1L << 63;
+
+	private MyersEditDistance() {
+	}
+
+	/**
+	 * Calculates the edit distance between a compiled pattern and a text.
+	 * @param pattern The compiled pattern.
+	 * @param text The text.
+	 * @return The number of insertions, deletions and substitutions needed to turn one into the other.
+	 */
+	static int distance(PatternBitVectors pattern, CharSequence text) {
+		if (pattern.length() == 0) {
+			return text.length();
+		}
+		if (pattern.blocks() == 1) {
+			return singleWord(pattern, text);
+		}
+		return blocked(pattern, text);
+	}
+
+	private static int singleWord(PatternBitVectors pattern, CharSequence text) {
+		long last = 1L << (pattern.length() - 1);
+		long pv = -1L;
+		long mv = 0L;
+		int score = pattern.length();
+
+		for (int j = 0; j < text.length(); j++) {
+			long eq = pattern.get(text.charAt(j));
+			long xv = eq | mv;
+			long xh = (((eq & pv) + pv) ^ pv) | eq;
+			long ph = mv | ~(xh | pv);
+			long mh = pv & xh;
+			if ((ph & last) != 0) {
+				score++;
+			}
+			else if ((mh & last) != 0) {
+				score--;
+			}
+			// The first row of the matrix grows by one in every column.
+			ph = (ph << 1) | 1L;
+			mh = mh << 1;
+			pv = mh | ~(xv | ph);
+			mv = ph & xv;
+		}
+		return score;
+	}
+
+	/**
+	 * Calculates the edit distance between a pattern of at most 64 characters and a text, given the
+	 * match vectors of the pattern for the characters of the text.
+	 * @param eqs The match vectors; the one for position j of the text is at offset + j * stride.
+	 * @param offset The index of the match vector of the first character of the text.
+	 * @param stride The distance between the match vectors of consecutive characters.
+	 * @param textLength The length of the text.
+	 * @param patternLength The length of the pattern, between 1 and 64.
+	 * @return The number of insertions, deletions and substitutions needed to turn one into the other.
+	 */
+	static int distance(long[] eqs, int offset, int stride, int textLength, int patternLength) {
+		long last = 1L << (patternLength - 1);
+		long pv = -1L;
+		long mv = 0L;
+		int score = patternLength;
+
+		for (int j = 0; j < textLength; j++) {
+			long eq = eqs[offset + j * stride];
+			long xv = eq | mv;
+			long xh = (((eq & pv) + pv) ^ pv) | eq;
+			long ph = mv | ~(xh | pv);
+			long mh = pv & xh;
+			if ((ph & last) != 0) {
+				score++;
+			}
+			else if ((mh & last) != 0) {
+				score--;
+			}
+			ph = (ph << 1) | 1L;
+			mh = mh << 1;
+			pv = mh | ~(xv | ph);
+			mv = ph & xv;
+		}
+		return score;
+	}
+
+	private static int blocked(PatternBitVectors pattern, CharSequence text) {
+		int blocks = pattern.blocks();
+		long[] vectors = pattern.vectors();
+		long[] pvs = new long[blocks];
+		long[] mvs = new long[blocks];
+		for (int b = 0; b < blocks; b++) {
+			pvs[b] = -1L;
+		}
+		long last = 1L << ((pattern.length() - 1) & 63);
+		int score = pattern.length();
+
+		for (int j = 0; j < text.length(); j++) {
+			int offset = pattern.offset(text.charAt(j));
+			int carry = 1;
+			for (int b = 0; b < blocks; b++) {
+				long eq = offset < 0 ? 0L : vectors[offset + b];
+				long pv = pvs[b];
+				long mv = mvs[b];
+				long xv = eq | mv;
+				if (carry < 0) {
+					eq |= 1L;
+				}
+				long xh = (((eq & pv) + pv) ^ pv) | eq;
+				long ph = mv | ~(xh | pv);
+				long mh = pv & xh;
+
+				// Only the row of the last pattern character counts in the final block;
+				// the bits above it never influence the rows below.
+				long out = b == blocks - 1 ? last : HIGH_BIT;
+				int hout = (ph & out) != 0 ? 1 : ((mh & out) != 0 ? -1 : 0);
+
+				ph <<= 1;
+				mh <<= 1;
+				if (carry < 0) {
+					mh |= 1L;
+				}
+				else if (carry > 0) {
+					ph |= 1L;
+				}
+				pvs[b] = mh | ~(xv | ph);
+				mvs[b] = ph & xv;
+				carry = hout;
+			}
+			score += carry;
+		}
+		return score;
+	}
+}
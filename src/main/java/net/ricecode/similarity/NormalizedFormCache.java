@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A bounded, thread-safe cache of the normalized forms of strings.
+ * Features are usually compared against many targets, so a service remembers their normalized
+ * forms instead of running the normalizer on every query. When the cache is full it is
+ * emptied and starts over, which costs nothing on lookups and keeps memory bounded.
+ */
+final class NormalizedFormCache {
+
+	private final StringNormalizer normalizer;
+	private final int capacity;
+	private final ConcurrentHashMap<String, String> forms;
+
+	/**
+	 * Creates an empty cache.
+	 * @param normalizer The normalizer.
+	 * @param capacity The largest number of strings to remember.
+	 */
+	NormalizedFormCache(StringNormalizer normalizer, int capacity) {
+		this.normalizer = normalizer;
+		this.capacity = capacity;
+		this.forms = new ConcurrentHashMap<String, String>();
+	}
+
+	/**
+	 * Gets the normalizer of this cache.
+	 * @return The normalizer.
+	 */
+	StringNormalizer getNormalizer() {
+		return normalizer;
+	}
+
+	/**
+	 * Gets the normalized form of a string, normalizing it if it is not cached yet.
+	 * @param s The string.
+	 * @return The normalized form of the string.
+	 */
+	String normalize(String s) {
+		String form = forms.get(s);
+		if (form == null) {
+			form = normalizer.normalize(s);
+			if (capacity == 0) {
+				return form;
+			}
+			if (forms.size() >= capacity) {
+				forms.clear();
+			}
+			forms.put(s, form);
+		}
+		return form;
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+/**
+ * Computes the optimal string alignment distance, a restricted Damerau-Levenshtein distance that
+ * counts a transposition of two adjacent characters as a single edit, as long as no substring is
+ * edited more than once. It uses Hyyrö's extension of Myers' bit-vector algorithm, which adds one
+ * transposition vector to each column and otherwise runs like {@link MyersEditDistance}.
+ * For a distance bounded by a maximum, a banded dynamic programming variant only fills the cells
+ * within that many diagonals of the main diagonal, like {@link BandedEditDistance}.
+ *
+ * @see <a href="https://doi.org/10.1007/978-3-540-44888-8_2">Hyyrö, A bit-vector algorithm for computing Levenshtein and Damerau edit distances</a>
+ */
+final class OsaEditDistance {
+
+	private OsaEditDistance() {
+	}
+
+	/**
+	 * Calculates the optimal string alignment distance between a compiled pattern and a text.
+	 * @param pattern The compiled pattern.
+	 * @param text The text.
+	 * @return The number of insertions, deletions, substitutions and adjacent transpositions needed
+	 * to turn one into the other.
+	 */
+	static int distance(PatternBitVectors pattern, CharSequence text) {
+		if (pattern.length() == 0) {
+			return text.length();
+		}
+		if (pattern.blocks() == 1) {
+			return singleWord(pattern, text);
+		}
+		return blocked(pattern, text);
+	}
+
+	private static int singleWord(PatternBitVectors pattern, CharSequence text) {
+		long last = 1L << (pattern.length() - 1);
+		long pv = -1L;
+		long mv = 0L;
+		long d0 = 0L;
+		long previousEq = 0L;
+		int score = pattern.length();
+
+		for (int j = 0; j < text.length(); j++) {
+			long eq = pattern.get(text.charAt(j));
+			// A diagonal step that was not a match in the previous column can be
+			// a transposition if the characters match the other way around.
+			long tr = (((~d0) & eq) << 1) & previousEq;
+			d0 = (((eq & pv) + pv) ^ pv) | eq | mv | tr;
+			long ph = mv | ~(d0 | pv);
+			long mh = d0 & pv;
+			if ((ph & last) != 0) {
+				score++;
+			}
+			else if ((mh & last) != 0) {
+				score--;
+			}
+			// The first row of the matrix grows by one in every column.
+			ph = (ph << 1) | 1L;
+			mh = mh << 1;
+			pv = mh | ~(d0 | ph);
+			mv = ph & d0;
+			previousEq = eq;
+		}
+		return score;
+	}
+
+	private static int blocked(PatternBitVectors pattern, CharSequence text) {
+		int blocks = pattern.blocks();
+		long[] vectors = pattern.vectors();
+		long[] pvs = new long[blocks];
+		long[] mvs = new long[blocks];
+		long[] d0s = new long[blocks];
+		long[] previousEqs = new long[blocks];
+		for (int b = 0; b < blocks; b++) {
+			pvs[b] = -1L;
+		}
+		long last = 1L << ((pattern.length() - 1) & 63);
+		int score = pattern.length();
+
+		for (int j = 0; j < text.length(); j++) {
+			int offset = pattern.offset(text.charAt(j));
+			long phCarry = 1L;
+			long mhCarry = 0L;
+			// The transposition vector of a block takes its lowest bit from the top of the block below.
+			long trCarry = 0L;
+			for (int b = 0; b < blocks; b++) {
+				long eq = offset < 0 ? 0L : vectors[offset + b];
+				long pv = pvs[b];
+				long mv = mvs[b];
+				long d0 = d0s[b];
+				long tr = ((((~d0) & eq) << 1) | trCarry) & previousEqs[b];
+				trCarry = ((~d0) & eq) >>> 63;
+
+				long x = eq | mhCarry;
+				d0 = (((x & pv) + pv) ^ pv) | x | mv | tr;
+				long ph = mv | ~(d0 | pv);
+				long mh = d0 & pv;
+
+				if (b == blocks - 1) {
+					// Only the row of the last pattern character counts in the final block.
+					if ((ph & last) != 0) {
+						score++;
+					}
+					else if ((mh & last) != 0) {
+						score--;
+					}
+				}
+
+				long phOut = ph >>> 63;
+				long mhOut = mh >>> 63;
+				ph = (ph << 1) | phCarry;
+				mh = (mh << 1) | mhCarry;
+				phCarry = phOut;
+				mhCarry = mhOut;
+
+				pvs[b] = mh | ~(d0 | ph);
+				mvs[b] = ph & d0;
+				d0s[b] = d0;
+				previousEqs[b] = eq;
+			}
+		}
+		return score;
+	}
+
+	/**
+	 * Calculates the optimal string alignment distance between two strings if it is at most a maximum.
+	 * Cell (i, j) of a row lives at index j - i + max, so a transposition reaches back to the same
+	 * index two rows up. Every path to a cell of a row passes through the row above it or leaves the
+	 * row two above with a transposition whose cell in between is no cheaper, so the calculation
+	 * still stops as soon as every cell of a row exceeds the maximum.
+	 * @param first The first string.
+	 * @param second The second string.
+	 * @param max The largest distance of interest.
+	 * @return The distance, or max + 1 if the distance is larger than max.
+	 */
+	static int banded(CharSequence first, CharSequence second, int max) {
+		int n = first.length();
+		int m = second.length();
+		if (Math.abs(n - m) > max) {
+			return max + 1;
+		}
+
+		int width = 2 * max + 1;
+		int over = max + 1;
+		int[] older = new int[width];
+		int[] previous = new int[width];
+		int[] current = new int[width];
+		for (int d = 0; d < width; d++) {
+			int j = d - max;
+			previous[d] = j < 0 || j > m ? over : j;
+		}
+
+		for (int i = 1; i <= n; i++) {
+			char ch = first.charAt(i - 1);
+			int rowMin = over;
+			for (int d = 0; d < width; d++) {
+				int j = i - max + d;
+				int value;
+				if (j < 0 || j > m) {
+					value = over;
+				}
+				else if (j == 0) {
+					value = i;
+				}
+				else {
+					char other = second.charAt(j - 1);
+					value = previous[d] + (ch == other ? 0 : 1);
+					if (d + 1 < width && previous[d + 1] + 1 < value) {
+						value = previous[d + 1] + 1;
+					}
+					if (d > 0 && current[d - 1] + 1 < value) {
+						value = current[d - 1] + 1;
+					}
+					if (i > 1 && j > 1 && ch != other && ch == second.charAt(j - 2)
+							&& first.charAt(i - 2) == other && older[d] + 1 < value) {
+						value = older[d] + 1;
+					}
+					if (value > over) {
+						value = over;
+					}
+				}
+				current[d] = value;
+				if (value < rowMin) {
+					rowMin = value;
+				}
+			}
+			if (rowMin > max) {
+				return over;
+			}
+			int[] swap = older;
+			older = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[m - n + max];
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+
+/**
+ * An implementation of StringSimilarityService that splits large feature lists into chunks
+ * and scores the chunks concurrently. Results are merged in feature order, so every method
+ * returns the same result as {@link StringSimilarityServiceImpl}. Lists shorter than two chunks
+ * are scored on the calling thread, where the cost of handing work to other threads would
+ * outweigh the gain.
+ * <p>
+ * The strategy must be safe to use from several threads at once, which all strategies in this
+ * library are.
+ *
+ * @see StringSimilarityServiceImpl
+ */
+public class ParallelStringSimilarityService extends StringSimilarityServiceImpl {
+
+	/**
+	 * The default number of features below which a chunk is not split any further.
+	 */
+	public static final int DEFAULT_MIN_CHUNK_SIZE = 2048;
+
+	/**
+	 * The number of chunks created per thread of the executor, so that threads that
+	 * finish early can pick up some of the remaining work.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private final Executor executor;
+	private final int minChunkSize;
+	private final int parallelism;
+
+	/**
+	 * Creates a similarity calculator that runs on the common fork/join pool.
+	 * @param strategy The similarity strategy to use when calculating similarity scores.
+	 */
+	public ParallelStringSimilarityService(SimilarityStrategy strategy) {
+		this(strategy, ForkJoinPool.commonPool(), DEFAULT_MIN_CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a similarity calculator that runs on the supplied executor.
+	 * @param strategy The similarity strategy to use when calculating similarity scores.
+	 * @param executor The executor that scores the chunks of a feature list.
+	 */
+	public ParallelStringSimilarityService(SimilarityStrategy strategy, Executor executor) {
+		this(strategy, executor, DEFAULT_MIN_CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a similarity calculator that runs on the supplied executor.
+	 * @param strategy The similarity strategy to use when calculating similarity scores.
+	 * @param executor The executor that scores the chunks of a feature list.
+	 * @param minChunkSize The number of features below which a chunk is not split any further.
+	 * @throws IllegalArgumentException if minChunkSize is less than one.
+	 */
+	public ParallelStringSimilarityService(SimilarityStrategy strategy, Executor executor, int minChunkSize) {
+		this(strategy, null, executor, minChunkSize);
+	}
+
+	/**
+	 * Creates a similarity calculator that normalizes every string and runs on the supplied executor.
+	 * @param strategy The similarity strategy to use when calculating similarity scores.
+	 * @param normalizer The normalizer to run on every string, or null to compare strings as they are.
+	 * @param executor The executor that scores the chunks of a feature list.
+	 * @param minChunkSize The number of features below which a chunk is not split any further.
+	 * @throws IllegalArgumentException if minChunkSize is less than one.
+	 */
+	public ParallelStringSimilarityService(SimilarityStrategy strategy, StringNormalizer normalizer, Executor executor, int minChunkSize) {
+		super(strategy, normalizer);
+		if (minChunkSize < 1) {
+			throw new IllegalArgumentException("The minimum chunk size must be at least one.");
+		}
+		this.executor = executor;
+		this.minChunkSize = minChunkSize;
+		this.parallelism = executor instanceof ForkJoinPool
+				? ((ForkJoinPool) executor).getParallelism()
+				: Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Splits the positions into chunks and scans them on the executor. The first chunk
+	 * is scanned on the calling thread while the others are running. A chunk scores at
+	 * least the minimum chunk size of features, unless it is a single position.
+	 */
+	@Override
+	<R> R scan(int size, int cost, final Scan<R> scan) {
+		long work = (long) size * cost;
+		int chunks = (int) Math.min(Math.min(work / minChunkSize, size), parallelism * CHUNKS_PER_THREAD);
+		if (chunks <= 1) {
+			return scan.scan(0, size);
+		}
+
+		List<FutureTask<R>> tasks = new ArrayList<FutureTask<R>>(chunks - 1);
+		try {
+			for (int c = 1; c < chunks; c++) {
+				final int from = bound(c, chunks, size);
+				final int to = bound(c + 1, chunks, size);
+				FutureTask<R> task = new FutureTask<R>(new Callable<R>() {
+					public R call() {
+						return scan.scan(from, to);
+					}
+				});
+				tasks.add(task);
+				executor.execute(task);
+			}
+
+			R result = scan.scan(0, bound(1, chunks, size));
+			for (FutureTask<R> task : tasks) {
+				result = scan.merge(result, await(task));
+			}
+			return result;
+		}
+		finally {
+			// Chunks that have not started yet are not needed once a chunk has failed.
+			for (FutureTask<R> task : tasks) {
+				task.cancel(false);
+			}
+		}
+	}
+
+	private static int bound(int chunk, int chunks, int size) {
+		return (int) ((long) chunk * size / chunks);
+	}
+
+	private static <R> R await(FutureTask<R> task) {
+		try {
+			return task.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for features to be scored.", e);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.util.Arrays;
+
+/**
+ * The pattern-equality bit vectors used by the bit-parallel edit distance kernels.
+ * For every character of the pattern there is a vector with bit <i>i</i> set when the pattern
+ * has that character at position <i>i</i>. Patterns longer than 64 characters are split into
+ * blocks of 64 positions each, and the vectors of one character are stored next to each other.
+ * <p>
+ * ASCII patterns use a table indexed by character. Any other pattern uses a small open-addressing
+ * hash map, so that a CJK or Latin-1 pattern does not need a table covering the whole alphabet.
+ */
+final class PatternBitVectors {
+
+	private static final int ASCII_SIZE = 128;
+
+	private final int length;
+	private final int blocks;
+	private final boolean direct;
+	private final int[] keys;
+	private final int shift;
+	private final long[] vectors;
+
+	/**
+	 * Compiles the bit vectors of a pattern.
+	 * @param pattern The pattern.
+	 */
+	PatternBitVectors(CharSequence pattern) {
+		this.length = pattern.length();
+		this.blocks = Math.max(1, (length + 63) >>> 6);
+
+		boolean ascii = true;
+		for (int i = 0; i < length; i++) {
+			if (pattern.charAt(i) >= ASCII_SIZE) {
+				ascii = false;
+				break;
+			}
+		}
+		this.direct = ascii;
+
+		if (ascii) {
+			this.keys = null;
+			this.shift = 0;
+			this.vectors = new long[ASCII_SIZE * blocks];
+			for (int i = 0; i < length; i++) {
+				vectors[pattern.charAt(i) * blocks + (i >>> 6)] |= 1L << i;
+			}
+		}
+		else {
+			// Size the table for a load factor of at most one half.
+			int capacity = 2;
+			while (capacity < 2 * length) {
+				capacity <<= 1;
+			}
+			this.keys = new int[capacity];
+			this.shift = 32 - Integer.numberOfTrailingZeros(capacity);
+			this.vectors = new long[capacity * blocks];
+			Arrays.fill(keys, -1);
+			for (int i = 0; i < length; i++) {
+				char ch = pattern.charAt(i);
+				int index = indexOf(ch);
+				if (keys[index] < 0) {
+					keys[index] = ch;
+				}
+				vectors[index * blocks + (i >>> 6)] |= 1L << i;
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of characters in the pattern.
+	 * @return The pattern length.
+	 */
+	int length() {
+		return length;
+	}
+
+	/**
+	 * Gets the number of 64 bit blocks each vector spans.
+	 * @return A number of at least one.
+	 */
+	int blocks() {
+		return blocks;
+	}
+
+	/**
+	 * Gets the raw vector storage. The vectors of a character start at the offset returned by {@link #offset(char)}.
+	 * @return The vector array; it must not be modified.
+	 */
+	long[] vectors() {
+		return vectors;
+	}
+
+	/**
+	 * Finds where the vectors of a character are stored.
+	 * @param ch The character.
+	 * @return The offset into {@link #vectors()}, or -1 if the character does not occur in the pattern.
+	 */
+	int offset(char ch) {
+		if (direct) {
+			return ch < ASCII_SIZE ? ch * blocks : -1;
+		}
+		int index = indexOf(ch);
+		return keys[index] < 0 ? -1 : index * blocks;
+	}
+
+	/**
+	 * Gets the vector of the first block for a character.
+	 * @param ch The character.
+	 * @return The vector, or zero if the character does not occur in the pattern.
+	 */
+	long get(char ch) {
+		int offset = offset(ch);
+		return offset < 0 ? 0L : vectors[offset];
+	}
+
+	private int indexOf(char ch) {
+		int mask = keys.length - 1;
+		int index = (ch * 0x9E3779B1) >>> shift;
+		while (keys[index] >= 0 && keys[index] != ch) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Postings lists of feature positions, keyed by packed bigram.
+ * Each list holds ascending positions, stored as the variable-length byte encoding of the
+ * gaps between them, so that the positions of common bigrams take about a byte each.
+ * Every {@link #SKIP_INTERVAL} postings, a skip entry records the position reached and the
+ * offset of the next posting, so a cursor can jump over long runs without decoding them.
+ */
+final class Postings {
+
+	/**
+	 * The position returned by a cursor that has run out of postings.
+	 */
+	static final int END = Integer.MAX_VALUE;
+
+	/**
+	 * The number of postings between two skip entries.
+	 */
+	static final int SKIP_INTERVAL = 64;
+
+	private final int[] keys;
+	private final int[] counts;
+	private final int[] starts;
+	private final int[] skipStarts;
+	private final int[] skipPositions;
+	private final int[] skipOffsets;
+	private final byte[] data;
+
+	private Postings(int[] keys, int[] counts, int[] starts, int[] skipStarts, int[] skipPositions, int[] skipOffsets, byte[] data) {
+		this.keys = keys;
+		this.counts = counts;
+		this.starts = starts;
+		this.skipStarts = skipStarts;
+		this.skipPositions = skipPositions;
+		this.skipOffsets = skipOffsets;
+		this.data = data;
+	}
+
+	/**
+	 * Finds the list of a key.
+	 * @param key The key.
+	 * @return The number of the list, or -1 if no position was added for the key.
+	 */
+	int find(int key) {
+		int list = Arrays.binarySearch(keys, key);
+		return list < 0 ? -1 : list;
+	}
+
+	/**
+	 * Gets the number of positions in a list.
+	 * @param list The number of the list.
+	 * @return The number of positions.
+	 */
+	int count(int list) {
+		return counts[list];
+	}
+
+	/**
+	 * Creates a cursor positioned before the first posting of a list.
+	 * @param list The number of the list.
+	 * @return A new cursor.
+	 */
+	Cursor cursor(int list) {
+		return new Cursor(list);
+	}
+
+	/**
+	 * Reads through one postings list in ascending order.
+	 */
+	final class Cursor {
+		private int offset;
+		private final int end;
+		private int skip;
+		private final int skipEnd;
+		private int current = -1;
+
+		private Cursor(int list) {
+			this.offset = starts[list];
+			this.end = starts[list + 1];
+			this.skip = skipStarts[list];
+			this.skipEnd = skipStarts[list + 1];
+		}
+
+		/**
+		 * Gets the position the cursor is at.
+		 * @return The position, -1 before the first posting, or {@link Postings#END} after the last one.
+		 */
+		int current() {
+			return current;
+		}
+
+		/**
+		 * Moves to the next posting.
+		 * @return The next position, or {@link Postings#END} if there is none.
+		 */
+		int next() {
+			if (offset >= end) {
+				current = END;
+				return END;
+			}
+			int gap = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = data[offset++];
+				gap |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			current += gap;
+			return current;
+		}
+
+		/**
+		 * Moves to the first posting at or after a position.
+		 * @param position The position to look for.
+		 * @return The first position that is at least the given one, or {@link Postings#END} if there is none.
+		 */
+		int advance(int position) {
+			if (current >= position) {
+				return current;
+			}
+			while (skip < skipEnd && skipPositions[skip] < position) {
+				if (skipOffsets[skip] > offset) {
+					offset = skipOffsets[skip];
+					current = skipPositions[skip];
+				}
+				skip++;
+			}
+			while (current < position) {
+				next();
+			}
+			return current;
+		}
+	}
+
+	/**
+	 * Collects postings and packs them into lists.
+	 */
+	static final class Builder {
+		private final Map<Integer, PendingList> lists = new HashMap<Integer, PendingList>();
+
+		/**
+		 * Adds a position to the list of a key. Positions must be added to each list in ascending order.
+		 * @param key The key.
+		 * @param position The position.
+		 */
+		void add(int key, int position) {
+			Integer boxed = Integer.valueOf(key);
+			PendingList list = lists.get(boxed);
+			if (list == null) {
+				list = new PendingList();
+				lists.put(boxed, list);
+			}
+			list.add(position);
+		}
+
+		/**
+		 * Packs the collected postings.
+		 * @return The postings lists.
+		 */
+		Postings build() {
+			int[] keys = new int[lists.size()];
+			int i = 0;
+			for (Integer key : lists.keySet()) {
+				keys[i++] = key.intValue();
+			}
+			Arrays.sort(keys);
+
+			int[] counts = new int[keys.length];
+			int[] starts = new int[keys.length + 1];
+			int[] skipStarts = new int[keys.length + 1];
+			int bytes = 0;
+			int skips = 0;
+			for (i = 0; i < keys.length; i++) {
+				PendingList list = lists.get(Integer.valueOf(keys[i]));
+				bytes += list.length;
+				skips += list.skips;
+			}
+			byte[] data = new byte[bytes];
+			int[] skipPositions = new int[skips];
+			int[] skipOffsets = new int[skips];
+			bytes = 0;
+			skips = 0;
+			for (i = 0; i < keys.length; i++) {
+				PendingList list = lists.get(Integer.valueOf(keys[i]));
+				counts[i] = list.count;
+				starts[i] = bytes;
+				skipStarts[i] = skips;
+				System.arraycopy(list.bytes, 0, data, bytes, list.length);
+				for (int s = 0; s < list.skips; s++) {
+					skipPositions[skips] = list.skipPositions[s];
+					skipOffsets[skips] = bytes + list.skipOffsets[s];
+					skips++;
+				}
+				bytes += list.length;
+			}
+			starts[keys.length] = bytes;
+			skipStarts[keys.length] = skips;
+			return new Postings(keys, counts, starts, skipStarts, skipPositions, skipOffsets, data);
+		}
+	}
+
+	/**
+	 * A postings list under construction.
+	 */
+	private static final class PendingList {
+		byte[] bytes = new byte[8];
+		int length;
+		int count;
+		int last = -1;
+		int[] skipPositions = new int[0];
+		int[] skipOffsets = new int[0];
+		int skips;
+
+		void add(int position) {
+			if (count > 0 && count % SKIP_INTERVAL == 0) {
+				if (skips == skipPositions.length) {
+					skipPositions = Arrays.copyOf(skipPositions, Math.max(4, 2 * skips));
+					skipOffsets = Arrays.copyOf(skipOffsets, Math.max(4, 2 * skips));
+				}
+				skipPositions[skips] = last;
+				skipOffsets[skips] = length;
+				skips++;
+			}
+			if (length + 5 > bytes.length) {
+				bytes = Arrays.copyOf(bytes, 2 * bytes.length + 5);
+			}
+			int gap = position - last;
+			while ((gap & ~0x7F) != 0) {
+				bytes[length++] = (byte) ((gap & 0x7F) | 0x80);
+				gap >>>= 7;
+			}
+			bytes[length++] = (byte) gap;
+			last = position;
+			count++;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+/**
+ * A similarity strategy that can preprocess a string once and then compare it many times.
+ * Bulk operations such as {@link StringSimilarityService#scoreAll(java.util.List, String)}
+ * prepare the target a single time, instead of once for every feature.
+ */
+public interface PreparedSimilarityStrategy extends SimilarityStrategy {
+
+	/**
+	 * Preprocesses a string for comparisons made with this strategy.
+	 *
+	 * @param s The string to prepare.
+	 * @return A prepared string that can be passed to {@link #score(PreparedString, PreparedString)}.
+	 */
+	PreparedString prepare(String s);
+
+	/**
+	 * Preprocesses a string that has already been normalized, for comparisons made with this strategy.
+	 * The string is compared exactly as it is: the strategy skips any case folding of its own.
+	 *
+	 * @param s The normalized string to prepare.
+	 * @return A prepared string that can be passed to {@link #score(PreparedString, PreparedString)}.
+	 * @see StringNormalizer
+	 */
+	PreparedString prepareNormalized(String s);
+
+	/**
+	 * Calculates the similarity score of two prepared strings, where 0.0 implies absolutely no similarity
+	 * and 1.0 implies absolute similarity. The result is the same as the score of the two source strings.
+	 *
+	 * @param first The first prepared string to compare.
+	 * @param second The second prepared string to compare.
+	 * @return A number between 0.0 and 1.0.
+	 * @throws IllegalArgumentException if a string was not prepared by this kind of strategy.
+	 */
+	double score(PreparedString first, PreparedString second);
+}
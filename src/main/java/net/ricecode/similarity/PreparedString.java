@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+/**
+ * A string that has been preprocessed by a {@link PreparedSimilarityStrategy}.
+ * Whatever the strategy derives from a string before comparing it, such as a
+ * lower case copy or a set of bigrams, is computed once and kept here, so that
+ * the same string can be compared many times without repeating that work.
+ * A prepared string is immutable and may be shared between threads.
+ *
+ * @see PreparedSimilarityStrategy#prepare(String)
+ */
+public abstract class PreparedString {
+
+	private final String source;
+
+	/**
+	 * Constructs a prepared string.
+	 * @param source The string that was prepared.
+	 */
+	protected PreparedString(String source) {
+		this.source = source;
+	}
+
+	/**
+	 * Gets the string that was prepared.
+	 * @return The original string.
+	 */
+	public String getSource() {
+		return source;
+	}
+}
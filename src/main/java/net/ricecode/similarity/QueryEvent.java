@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for a call to a similarity service. Only loaded through {@link SimilarityEvents}.
+ */
+@Name("net.ricecode.similarity.Query")
+@Label("Similarity Query")
+@Category("String Similarity")
+@Description("A call to a string similarity service, with the size of its input and output")
+class QueryEvent extends Event {
+
+	/**
+	 * An instance that is never committed, used to ask whether the event type is enabled.
+	 */
+	private static final QueryEvent PROBE = new QueryEvent();
+
+	@Label("Operation")
+	@Description("The service method that was called")
+	String operation;
+
+	@Label("Strategy")
+	@Description("The class of the similarity strategy")
+	String strategy;
+
+	@Label("Features")
+	@Description("The number of features scored against each target")
+	int features;
+
+	@Label("Targets")
+	@Description("The number of targets, or 0 for a self join, whose features are their own targets")
+	int targets;
+
+	@Label("Target Length")
+	@Description("The length of the target, or the total length of all targets")
+	int targetLength;
+
+	@Label("Results")
+	@Description("The number of scores, pairs or groups returned")
+	int results;
+
+	static Object start() {
+		if (!PROBE.isEnabled()) {
+			return null;
+		}
+		QueryEvent event = new QueryEvent();
+		event.begin();
+		return event;
+	}
+
+	static void finish(Object o, String operation, SimilarityStrategy strategy, int features, int targets, int targetLength, int results) {
+		QueryEvent event = (QueryEvent) o;
+		event.end();
+		if (event.shouldCommit()) {
+			event.operation = operation;
+			event.strategy = strategy.getClass().getName();
+			event.features = features;
+			event.targets = targets;
+			event.targetLength = targetLength;
+			event.results = results;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The similarity scores of a set of features, held in parallel primitive arrays.
+ * Scoring a large corpus into a list of {@link SimilarityScore} objects creates one object per feature;
+ * a score array holds the same results in three arrays, and sorts, selects and filters them without
+ * creating any objects per feature. Every entry keeps the position of its feature in the list or index
+ * that was scored, so results can be joined back to other data about the features.
+ * <p>
+ * A score array is immutable; the methods that reorder or filter entries return a new array.
+ *
+ * @see StringSimilarityService#scoreArray(List, String)
+ */
+public class ScoreArray {
+
+	private final String[] features;
+	private final double[] scores;
+	private final int[] positions;
+
+	/**
+	 * Creates a score array from parallel arrays, which it takes ownership of.
+	 * @param features The features.
+	 * @param scores The scores of the features.
+	 * @param positions The positions of the features in the scored list or index.
+	 */
+	ScoreArray(String[] features, double[] scores, int[] positions) {
+		this.features = features;
+		this.scores = scores;
+		this.positions = positions;
+	}
+
+	/**
+	 * Gets the number of entries.
+	 * @return The number of entries.
+	 */
+	public int size() {
+		return scores.length;
+	}
+
+	/**
+	 * Gets the feature of an entry.
+	 * @param i The index of the entry.
+	 * @return The feature.
+	 */
+	public String getFeature(int i) {
+		return features[i];
+	}
+
+	/**
+	 * Gets the score of an entry.
+	 * @param i The index of the entry.
+	 * @return The similarity score of the feature.
+	 */
+	public double getScore(int i) {
+		return scores[i];
+	}
+
+	/**
+	 * Gets the position of the feature of an entry in the list or index that was scored.
+	 * @param i The index of the entry.
+	 * @return The position of the feature.
+	 */
+	public int getPosition(int i) {
+		return positions[i];
+	}
+
+	/**
+	 * Gets the scores of all entries.
+	 * @return A copy of the scores, in the order of the entries.
+	 */
+	public double[] getScores() {
+		return scores.clone();
+	}
+
+	/**
+	 * Keeps the entries whose score reaches a minimum.
+	 * @param minScore The lowest score of interest.
+	 * @return A score array of the entries with a score of at least minScore, in their current order.
+	 */
+	public ScoreArray above(double minScore) {
+		int[] selected = new int[scores.length];
+		int count = 0;
+		for (int i = 0; i < scores.length; i++) {
+			if (scores[i] >= minScore) {
+				selected[count++] = i;
+			}
+		}
+		return select(selected, count);
+	}
+
+	/**
+	 * Keeps the k entries with the highest scores. Of two equal scores, the earlier entry is kept.
+	 * @param k The number of entries to keep.
+	 * @return A score array of up to k entries, highest score first.
+	 * @throws IllegalArgumentException if k is negative.
+	 */
+	public ScoreArray top(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("The number of scores must not be negative.");
+		}
+		TopScores top = new TopScores(Math.min(k, scores.length), false);
+		for (int i = 0; i < scores.length; i++) {
+			top.offer(scores[i], i);
+		}
+		int[] selected = top.drain(new double[top.size()]);
+		return select(selected, selected.length);
+	}
+
+	/**
+	 * Sorts the entries by score, highest first. Entries with equal scores keep their order.
+	 * @return A sorted score array.
+	 */
+	public ScoreArray sortDescending() {
+		return sort(false);
+	}
+
+	/**
+	 * Sorts the entries by score, lowest first. Entries with equal scores keep their order.
+	 * @return A sorted score array.
+	 */
+	public ScoreArray sortAscending() {
+		return sort(true);
+	}
+
+	/**
+	 * Converts the entries to similarity scores.
+	 * @return A list of similarity scores, in the order of the entries.
+	 */
+	public List<SimilarityScore> toList() {
+		List<SimilarityScore> list = new ArrayList<SimilarityScore>(scores.length);
+		for (int i = 0; i < scores.length; i++) {
+			list.add(new SimilarityScore(features[i], scores[i]));
+		}
+		return list;
+	}
+
+	/**
+	 * Sorts the indexes of the entries with a bottom-up merge sort, which is stable
+	 * and compares the primitive scores directly.
+	 */
+	private ScoreArray sort(boolean ascending) {
+		int n = scores.length;
+		int[] order = new int[n];
+		int[] buffer = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		for (int width = 1; width < n; width *= 2) {
+			for (int from = 0; from < n; from += 2 * width) {
+				int middle = Math.min(from + width, n);
+				int to = Math.min(from + 2 * width, n);
+				merge(order, buffer, from, middle, to, ascending);
+			}
+			int[] swap = order;
+			order = buffer;
+			buffer = swap;
+		}
+		return select(order, n);
+	}
+
+	private void merge(int[] source, int[] target, int from, int middle, int to, boolean ascending) {
+		int i = from;
+		int j = middle;
+		for (int k = from; k < to; k++) {
+			// Only take from the right run when it is strictly better, so that ties keep their order.
+			if (j < to && (i >= middle || (ascending ? scores[source[j]] < scores[source[i]] : scores[source[j]] > scores[source[i]]))) {
+				target[k] = source[j++];
+			}
+			else {
+				target[k] = source[i++];
+			}
+		}
+	}
+
+	private ScoreArray select(int[] selected, int count) {
+		String[] f = new String[count];
+		double[] s = new double[count];
+		int[] p = new int[count];
+		for (int i = 0; i < count; i++) {
+			int index = selected[i];
+			f[i] = features[index];
+			s[i] = scores[index];
+			p[i] = positions[index];
+		}
+		return new ScoreArray(f, s, p);
+	}
+}
@@ -0,0 +1,670 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds the pairs of features of one list whose similarity scores reach a minimum score,
+ * without scoring every pair.
+ * <p>
+ * The built-in strategies only reach a minimum score for strings of similar sizes that share
+ * enough tokens: characters for the Jaro strategies, and bigrams for Levenshtein and Dice. A
+ * token that occurs twice in a string counts as two tokens, so for Levenshtein the bound is the
+ * q-gram lemma: every edit destroys at most two bigrams. The tokens are ranked from the rarest
+ * to the most common, and only a prefix of the ranked tokens of each string is indexed. Two
+ * strings that share <i>t</i> tokens always share one among the first <i>n</i> - <i>t</i> + 1
+ * of each, so a string only has to be scored against the strings its prefix leads to, and those
+ * are usually few because rare tokens come first. Before a candidate is scored, the tokens the
+ * two strings share are counted in full.
+ * <p>
+ * Strings that are too short to need any shared token, or whose minimum is too low, are compared
+ * with every string in their window of sizes instead. Strategies without a known bound, including
+ * subclasses of the built-in ones, are compared pair by pair. Either way the result is the same as
+ * scoring every pair.
+ *
+ * @see <a href="https://doi.org/10.1145/1242572.1242591">Bayardo, Ma and Srikant, Scaling up all pairs similarity search</a>
+ */
+final class SelfJoin {
+
+	private static final double EPSILON = 1e-9;
+
+	/**
+	 * The number of features a feature is assumed to be scored against, when splitting
+	 * the features into chunks.
+	 */
+	private static final int PROBE_COST = 64;
+
+	/** A feature found through the prefixes of other features, and its own. */
+	private static final byte INDEXED = 0;
+	/** A feature scored against every feature in its window of sizes. */
+	private static final byte WINDOWED = 1;
+	/** A feature whose size says nothing, scored against every feature. */
+	private static final byte WILD = 2;
+	/** A feature that cannot reach the minimum score with any feature of a known size. */
+	private static final byte NONE = 3;
+
+	private final StringSimilarityServiceImpl service;
+	private final SimilarityStrategy strategy;
+	private final StringNormalizer normalizer;
+	private final double minScore;
+	private final Blocking blocking;
+	private final boolean kernels;
+
+	/**
+	 * Creates a join for the strategy and normalizer of a service, which also splits the work.
+	 * @param service The service.
+	 * @param minScore The lowest score of interest.
+	 */
+	SelfJoin(StringSimilarityServiceImpl service, double minScore) {
+		this.service = service;
+		this.strategy = service.getStrategy();
+		this.normalizer = service.getNormalizer();
+		this.minScore = minScore;
+		this.blocking = Blocking.of(strategy, minScore);
+		this.kernels = StringSimilarityServiceImpl.usesKernels(strategy);
+	}
+
+	/**
+	 * Finds the pairs of features whose scores reach the minimum score.
+	 * @param list The features.
+	 * @return The pairs, ordered by the position of their first and then their second feature.
+	 */
+	List<SimilarityPair> join(List<String> list) {
+		final String[] features = list.toArray(new String[list.size()]);
+		final int n = features.length;
+		final String[] normalized = normalizer == null ? features : new String[n];
+		final PreparedString[] prepared = strategy instanceof PreparedSimilarityStrategy && kernels ? new PreparedString[n] : null;
+		final int[] sizes = new int[n];
+		final byte[] classes = new byte[n];
+		final int[][] ranks = new int[n][];
+		final int[] prefixes = new int[n];
+
+		// Normalize and prepare every feature once, and count how often each token occurs.
+		final TokenTable tokens = service.scan(n, new StringSimilarityServiceImpl.Scan<TokenTable>() {
+			TokenTable scan(int from, int to) {
+				TokenTable table = new TokenTable();
+				for (int i = from; i < to; i++) {
+					if (normalizer != null) {
+						normalized[i] = normalizer.normalize(features[i]);
+					}
+					if (prepared != null) {
+						PreparedSimilarityStrategy s = (PreparedSimilarityStrategy) strategy;
+						prepared[i] = normalizer == null ? s.prepare(features[i]) : s.prepareNormalized(normalized[i]);
+					}
+					if (blocking != null) {
+						sizes[i] = blocking.size(prepared[i]);
+						for (long token : blocking.tokens(prepared[i])) {
+							table.add(token, 1);
+						}
+					}
+				}
+				return table;
+			}
+			TokenTable merge(TokenTable first, TokenTable second) {
+				first.addAll(second);
+				return first;
+			}
+		});
+
+		if (blocking == null) {
+			Arrays.fill(classes, WILD);
+			return probe(features, normalized, prepared, sizes, classes, ranks, prefixes, null, null, null, null, n);
+		}
+
+		tokens.rank();
+
+		// Sort the features by size, so that a window of sizes is a range of the order.
+		int maxSize = 0;
+		for (int size : sizes) {
+			maxSize = Math.max(maxSize, size);
+		}
+		final int[] sizeStarts = new int[maxSize + 2];
+		for (int i = 0; i < n; i++) {
+			if (sizes[i] >= 0) {
+				sizeStarts[sizes[i] + 1]++;
+			}
+		}
+		int distinct = 0;
+		for (int s = 0; s <= maxSize; s++) {
+			if (sizeStarts[s + 1] > 0) {
+				distinct++;
+			}
+			sizeStarts[s + 1] += sizeStarts[s];
+		}
+		int[] bySize = new int[sizeStarts[maxSize + 1]];
+		int[] next = Arrays.copyOf(sizeStarts, maxSize + 1);
+		for (int i = 0; i < n; i++) {
+			if (sizes[i] >= 0) {
+				bySize[next[sizes[i]]++] = i;
+			}
+		}
+		final int[] present = new int[distinct];
+		for (int s = 0, k = 0; s <= maxSize; s++) {
+			if (sizeStarts[s + 1] > sizeStarts[s]) {
+				present[k++] = s;
+			}
+		}
+
+		// Only the sizes that occur matter for the fewest tokens a string of each size must share.
+		final int[] minOverlaps = new int[maxSize + 1];
+		for (int s : present) {
+			int min = Integer.MAX_VALUE;
+			for (int m : present) {
+				if (blocking.compatible(s, m)) {
+					min = Math.min(min, blocking.overlap(s, m));
+				}
+			}
+			minOverlaps[s] = min;
+		}
+
+		// Classify the features and rank their tokens.
+		service.scan(n, new StringSimilarityServiceImpl.Scan<Void>() {
+			Void scan(int from, int to) {
+				for (int i = from; i < to; i++) {
+					if (sizes[i] < 0) {
+						classes[i] = WILD;
+						continue;
+					}
+					int overlap = minOverlaps[sizes[i]];
+					if (overlap <= 0) {
+						classes[i] = WINDOWED;
+						continue;
+					}
+					long[] own = blocking.tokens(prepared[i]);
+					if (overlap > own.length) {
+						classes[i] = NONE;
+						continue;
+					}
+					int[] ranked = new int[own.length];
+					for (int k = 0; k < own.length; k++) {
+						ranked[k] = tokens.get(own[k]);
+					}
+					Arrays.sort(ranked);
+					classes[i] = INDEXED;
+					ranks[i] = ranked;
+					prefixes[i] = own.length - overlap + 1;
+				}
+				return null;
+			}
+			Void merge(Void first, Void second) {
+				return null;
+			}
+		});
+
+		Postings.Builder builder = new Postings.Builder();
+		for (int i = 0; i < n; i++) {
+			if (classes[i] == INDEXED) {
+				for (int k = 0; k < prefixes[i]; k++) {
+					builder.add(ranks[i][k], i);
+				}
+			}
+		}
+
+		return probe(features, normalized, prepared, sizes, classes, ranks, prefixes, builder.build(), bySize, sizeStarts, present, PROBE_COST);
+	}
+
+	/**
+	 * Finds the groups of features that are connected by pairs whose scores reach the minimum score.
+	 * @param list The features.
+	 * @return The groups of at least two features, each in the order of the list, ordered by their first feature.
+	 */
+	List<List<String>> cluster(List<String> list) {
+		return cluster(list, join(list));
+	}
+
+	/**
+	 * Finds the groups of features that are connected by pairs.
+	 * @param list The features.
+	 * @param pairs The pairs of features, by their positions in the list.
+	 * @return The groups of at least two features, each in the order of the list, ordered by their first feature.
+	 */
+	static List<List<String>> cluster(List<String> list, List<SimilarityPair> pairs) {
+		String[] features = list.toArray(new String[list.size()]);
+		int n = features.length;
+		int[] parents = new int[n];
+		for (int i = 0; i < n; i++) {
+			parents[i] = i;
+		}
+		for (SimilarityPair pair : pairs) {
+			int a = root(parents, pair.getFirstPosition());
+			int b = root(parents, pair.getSecondPosition());
+			// The smaller position becomes the root, so that every group is rooted at its first feature.
+			if (a < b) {
+				parents[b] = a;
+			}
+			else if (b < a) {
+				parents[a] = b;
+			}
+		}
+
+		int[] counts = new int[n];
+		for (int i = 0; i < n; i++) {
+			counts[root(parents, i)]++;
+		}
+		int[] groups = new int[n];
+		List<List<String>> clusters = new ArrayList<List<String>>();
+		for (int i = 0; i < n; i++) {
+			int root = root(parents, i);
+			if (counts[root] < 2) {
+				continue;
+			}
+			if (root == i) {
+				groups[i] = clusters.size();
+				clusters.add(new ArrayList<String>(counts[i]));
+			}
+			clusters.get(groups[root]).add(features[i]);
+		}
+		return clusters;
+	}
+
+	private static int root(int[] parents, int i) {
+		while (parents[i] != i) {
+			parents[i] = parents[parents[i]];
+			i = parents[i];
+		}
+		return i;
+	}
+
+	/**
+	 * Scores every feature against the features that can reach the minimum score with it.
+	 * A pair is scored by exactly one of its features: the one of the higher class, or the
+	 * earlier one if both are of the same class.
+	 */
+	private List<SimilarityPair> probe(final String[] features, final String[] normalized, final PreparedString[] prepared,
+			final int[] sizes, final byte[] classes, final int[][] ranks, final int[] prefixes,
+			final Postings postings, final int[] bySize, final int[] sizeStarts, final int[] present, int cost) {
+		final int n = features.length;
+		List<SimilarityPair> pairs = service.scan(n, cost, new StringSimilarityServiceImpl.Scan<List<SimilarityPair>>() {
+			List<SimilarityPair> scan(int from, int to) {
+				List<SimilarityPair> pairs = new ArrayList<SimilarityPair>();
+				int[] candidates = new int[16];
+				for (int i = from; i < to; i++) {
+					switch (classes[i]) {
+					case INDEXED:
+						int count = 0;
+						for (int k = 0; k < prefixes[i]; k++) {
+							Postings.Cursor cursor = postings.cursor(postings.find(ranks[i][k]));
+							for (int j = cursor.advance(i + 1); j != Postings.END; j = cursor.next()) {
+								if (blocking.compatible(sizes[i], sizes[j])) {
+									if (count == candidates.length) {
+										candidates = Arrays.copyOf(candidates, 2 * count);
+									}
+									candidates[count++] = j;
+								}
+							}
+						}
+						Arrays.sort(candidates, 0, count);
+						for (int k = 0; k < count; k++) {
+							int j = candidates[k];
+							// Sharing a token of the prefixes is necessary, sharing enough tokens is what counts.
+							if ((k == 0 || j != candidates[k - 1])
+									&& Bigrams.intersection(ranks[i], ranks[i].length, ranks[j], ranks[j].length)
+											>= blocking.overlap(sizes[i], sizes[j])) {
+								score(features, normalized, prepared, i, j, pairs);
+							}
+						}
+						break;
+					case WINDOWED:
+						for (int m : present) {
+							if (!blocking.compatible(sizes[i], m)) {
+								continue;
+							}
+							for (int k = sizeStarts[m]; k < sizeStarts[m + 1]; k++) {
+								int j = bySize[k];
+								if (classes[j] == INDEXED || (classes[j] == WINDOWED && j > i)) {
+									score(features, normalized, prepared, i, j, pairs);
+								}
+							}
+						}
+						break;
+					case WILD:
+						for (int j = 0; j < n; j++) {
+							if (j != i && (classes[j] != WILD || j > i)) {
+								score(features, normalized, prepared, i, j, pairs);
+							}
+						}
+						break;
+					default:
+						break;
+					}
+				}
+				return pairs;
+			}
+			List<SimilarityPair> merge(List<SimilarityPair> first, List<SimilarityPair> second) {
+				first.addAll(second);
+				return first;
+			}
+		});
+		Collections.sort(pairs, new Comparator<SimilarityPair>() {
+			public int compare(SimilarityPair x, SimilarityPair y) {
+				if (x.getFirstPosition() != y.getFirstPosition()) {
+					return x.getFirstPosition() < y.getFirstPosition() ? -1 : 1;
+				}
+				return x.getSecondPosition() < y.getSecondPosition() ? -1 : (x.getSecondPosition() == y.getSecondPosition() ? 0 : 1);
+			}
+		});
+		return pairs;
+	}
+
+	/**
+	 * Scores two features the way the service does, the earlier one first, and keeps the pair
+	 * if it reaches the minimum score.
+	 */
+	private void score(String[] features, String[] normalized, PreparedString[] prepared, int i, int j, List<SimilarityPair> pairs) {
+		int first = Math.min(i, j);
+		int second = Math.max(i, j);
+		double score;
+		if (prepared != null) {
+			if (strategy instanceof BoundedSimilarityStrategy
+					&& ((BoundedSimilarityStrategy) strategy).upperBound(prepared[first], prepared[second]) < minScore) {
+				return;
+			}
+			score = ((PreparedSimilarityStrategy) strategy).score(prepared[first], prepared[second]);
+		}
+		else if (strategy instanceof ThresholdSimilarityStrategy && kernels) {
+			score = ((ThresholdSimilarityStrategy) strategy).score(normalized[first], normalized[second], minScore);
+		}
+		else {
+			score = strategy.score(normalized[first], normalized[second]);
+		}
+		if (score >= minScore) {
+			pairs.add(new SimilarityPair(features[first], first, features[second], second, score));
+		}
+	}
+
+	/**
+	 * The tokens and bounds of one of the built-in strategies, for one minimum score.
+	 */
+	abstract static class Blocking {
+
+		/**
+		 * Gets the blocking of a strategy.
+		 * @return The blocking, or null if the strategy is not exactly one of the built-in ones.
+		 */
+		static Blocking of(SimilarityStrategy strategy, double minScore) {
+			Class<?> type = strategy.getClass();
+			if (type == LevenshteinDistanceStrategy.class) {
+				return new LevenshteinBlocking(minScore);
+			}
+			if (type == DiceCoefficientStrategy.class) {
+				return new DiceBlocking(minScore);
+			}
+			if (type == JaroStrategy.class) {
+				return new JaroBlocking(minScore);
+			}
+			if (type == JaroWinklerStrategy.class) {
+				// The prefix adds at most four times the scaling factor of what the Jaro score lacks of 1.0.
+				double boost = 4.0 * Math.max(0.0, ((JaroWinklerStrategy) strategy).getScalingFactor());
+				return new JaroBlocking(boost >= 1.0 ? Double.NEGATIVE_INFINITY : (minScore - boost) / (1.0 - boost) - EPSILON);
+			}
+			return null;
+		}
+
+		/**
+		 * Gets the size of a prepared string that the bounds are based on.
+		 * @return The size, or -1 if the bounds do not hold for the string.
+		 */
+		abstract int size(PreparedString s);
+
+		/**
+		 * Gets the distinct tokens of a prepared string.
+		 */
+		abstract long[] tokens(PreparedString s);
+
+		/**
+		 * Determines whether strings of two sizes can reach the minimum score.
+		 */
+		abstract boolean compatible(int n, int m);
+
+		/**
+		 * Gets the fewest tokens strings of two compatible sizes must share to reach the minimum score.
+		 * @return The number of tokens, or zero or less if they need not share any.
+		 */
+		abstract int overlap(int n, int m);
+
+		/**
+		 * Sorts values and tags each with the number of equal values before it,
+		 * so that repeated values become distinct tokens.
+		 */
+		static long[] tagged(int[] values) {
+			Arrays.sort(values);
+			long[] tokens = new long[values.length];
+			int occurrence = 0;
+			for (int i = 0; i < values.length; i++) {
+				occurrence = i > 0 && values[i] == values[i - 1] ? occurrence + 1 : 0;
+				tokens[i] = ((long) occurrence << 32) | (values[i] & 0xFFFFFFFFL);
+			}
+			return tokens;
+		}
+	}
+
+	/**
+	 * Blocks Levenshtein scores on bigrams. For strings of lengths <i>n</i> and <i>m</i> within
+	 * distance <i>d</i>, at least max(<i>n</i>, <i>m</i>) - 1 - 2<i>d</i> bigrams are shared.
+	 */
+	private static final class LevenshteinBlocking extends Blocking {
+		private final double minScore;
+
+		LevenshteinBlocking(double minScore) {
+			this.minScore = minScore;
+		}
+
+		int size(PreparedString s) {
+			LevenshteinDistanceStrategy.Prepared p = (LevenshteinDistanceStrategy.Prepared) s;
+			// The score divides by the length of the string, but the distance is measured on
+			// its lower case form, so the bounds only hold where the two have the same length.
+			return p.lowerCase().length() == p.getSource().length() ? p.getSource().length() : -1;
+		}
+
+		long[] tokens(PreparedString s) {
+			String lowerCase = ((LevenshteinDistanceStrategy.Prepared) s).lowerCase();
+			int[] bigrams = new int[Math.max(0, lowerCase.length() - 1)];
+			for (int i = 0; i < bigrams.length; i++) {
+				bigrams[i] = Bigrams.pack(lowerCase.charAt(i), lowerCase.charAt(i + 1));
+			}
+			return tagged(bigrams);
+		}
+
+		boolean compatible(int n, int m) {
+			int max = Math.max(n, m);
+			return max == 0 || (double) (max - Math.abs(n - m)) / max >= minScore - EPSILON;
+		}
+
+		int overlap(int n, int m) {
+			int max = Math.max(n, m);
+			if (max == 0) {
+				return 0;
+			}
+			int distance = (int) Math.min(max, Math.floor(max * (1.0d - minScore) + EPSILON));
+			return distance < 0 ? Integer.MAX_VALUE : max - 1 - 2 * distance;
+		}
+	}
+
+	/**
+	 * Blocks Dice's coefficients on the bigram sets the strategy compares, where a string shorter
+	 * than two characters is a set of its own.
+	 */
+	private static final class DiceBlocking extends Blocking {
+		private final double minScore;
+
+		DiceBlocking(double minScore) {
+			this.minScore = minScore;
+		}
+
+		int size(PreparedString s) {
+			return ((DiceCoefficientStrategy.Prepared) s).size();
+		}
+
+		long[] tokens(PreparedString s) {
+			int[] bigrams = ((DiceCoefficientStrategy.Prepared) s).bigrams();
+			if (bigrams == null) {
+				// Tag a short string so that it never equals a bigram.
+				String source = s.getSource();
+				return new long[] { source.isEmpty() ? 3L << 32 : (2L << 32) | source.charAt(0) };
+			}
+			long[] tokens = new long[bigrams.length];
+			for (int i = 0; i < bigrams.length; i++) {
+				tokens[i] = bigrams[i] & 0xFFFFFFFFL;
+			}
+			return tokens;
+		}
+
+		boolean compatible(int n, int m) {
+			return 2.0d * Math.min(n, m) / (n + m) >= minScore - EPSILON;
+		}
+
+		int overlap(int n, int m) {
+			return (int) Math.ceil(minScore * (n + m) / 2.0d - EPSILON);
+		}
+	}
+
+	/**
+	 * Blocks Jaro scores on the characters of the lower case forms. A Jaro score with <i>c</i>
+	 * matching characters is at most (<i>c</i>/<i>n</i> + <i>c</i>/<i>m</i> + 1) / 3.
+	 */
+	private static final class JaroBlocking extends Blocking {
+		private final double minJaro;
+
+		/**
+		 * @param minJaro The lowest Jaro score that can reach the minimum score.
+		 */
+		JaroBlocking(double minJaro) {
+			this.minJaro = minJaro;
+		}
+
+		int size(PreparedString s) {
+			return ((JaroStrategy.Prepared) s).lowerCase().length();
+		}
+
+		long[] tokens(PreparedString s) {
+			String lowerCase = ((JaroStrategy.Prepared) s).lowerCase();
+			int[] chars = new int[lowerCase.length()];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = lowerCase.charAt(i);
+			}
+			return tagged(chars);
+		}
+
+		boolean compatible(int n, int m) {
+			if (minJaro <= 0.0d) {
+				return true;
+			}
+			if (n == 0 || m == 0) {
+				return false;
+			}
+			double matches = Math.min(n, m);
+			return (matches / n + matches / m + 1.0d) / 3.0d >= minJaro - EPSILON;
+		}
+
+		int overlap(int n, int m) {
+			if (minJaro <= 0.0d) {
+				return 0;
+			}
+			double matches = (3.0d * minJaro - 1.0d) * n * m / (n + m);
+			return Math.max(1, (int) Math.ceil(matches - EPSILON));
+		}
+	}
+
+	/**
+	 * Counts tokens, and later ranks them, in a hash table of primitive keys.
+	 */
+	private static final class TokenTable {
+		private long[] keys = new long[64];
+		private int[] values = new int[64];
+		private boolean[] used = new boolean[64];
+		private int size;
+
+		void add(long key, int count) {
+			int slot = slot(key);
+			if (used[slot]) {
+				values[slot] += count;
+				return;
+			}
+			used[slot] = true;
+			keys[slot] = key;
+			values[slot] = count;
+			if (++size * 2 > keys.length) {
+				grow();
+			}
+		}
+
+		void addAll(TokenTable other) {
+			for (int i = 0; i < other.keys.length; i++) {
+				if (other.used[i]) {
+					add(other.keys[i], other.values[i]);
+				}
+			}
+		}
+
+		/**
+		 * Replaces the count of every token with its rank, from 0 for the rarest token.
+		 */
+		void rank() {
+			long[] order = new long[size];
+			int k = 0;
+			for (int i = 0; i < keys.length; i++) {
+				if (used[i]) {
+					order[k++] = ((long) values[i] << 32) | i;
+				}
+			}
+			Arrays.sort(order);
+			for (int rank = 0; rank < order.length; rank++) {
+				values[(int) order[rank]] = rank;
+			}
+		}
+
+		int get(long key) {
+			return values[slot(key)];
+		}
+
+		private int slot(long key) {
+			int mask = keys.length - 1;
+			int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+			while (used[slot] && keys[slot] != key) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		private void grow() {
+			long[] oldKeys = keys;
+			int[] oldValues = values;
+			boolean[] oldUsed = used;
+			keys = new long[2 * oldKeys.length];
+			values = new int[2 * oldKeys.length];
+			used = new boolean[2 * oldKeys.length];
+			size = 0;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldUsed[i]) {
+					add(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+	}
+}
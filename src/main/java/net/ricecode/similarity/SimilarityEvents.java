@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+/**
+ * Emits the Flight Recorder events of this library, if the running JVM has the Flight Recorder API.
+ * The event classes extend jdk.jfr.Event and are only loaded once the API is known to be there, so
+ * that the library still runs on JVMs without it. While no recording has the events enabled, a call
+ * costs a check of a flag and allocates nothing.
+ * <p>
+ * An event is begun before the work it measures and ended after it. The object returned by a begin
+ * method is null when the event is not recorded, and is passed back to the matching end method.
+ */
+final class SimilarityEvents {
+
+	/** Whether the running JVM has the Flight Recorder API. */
+	static final boolean AVAILABLE = isAvailable();
+
+	private SimilarityEvents() {
+	}
+
+	/**
+	 * Begins a query event, if queries are being recorded.
+	 * @return The event, or null.
+	 */
+	static Object beginQuery() {
+		return AVAILABLE ? QueryEvent.start() : null;
+	}
+
+	/**
+	 * Ends a query event and commits it, if it lasted longer than its threshold.
+	 * @param event The object returned by {@link #beginQuery()}.
+	 * @param operation The name of the service method.
+	 * @param strategy The strategy that scored the query.
+	 * @param features The number of features.
+	 * @param targets The number of targets, or 0 for a self join.
+	 * @param targetLength The length of the target, or the total length of the targets.
+	 * @param results The number of results returned.
+	 */
+	static void endQuery(Object event, String operation, SimilarityStrategy strategy, int features, int targets, int targetLength, int results) {
+		if (event != null) {
+			QueryEvent.finish(event, operation, strategy, features, targets, targetLength, results);
+		}
+	}
+
+	/**
+	 * Begins a comparison event, if slow comparisons are being recorded.
+	 * @return The event, or null.
+	 */
+	static Object beginPair() {
+		return AVAILABLE ? SlowPairEvent.start() : null;
+	}
+
+	/**
+	 * Ends a comparison event and commits it, if it lasted longer than its threshold.
+	 * @param event The object returned by {@link #beginPair()}.
+	 * @param strategy The strategy that compared the pair.
+	 * @param firstLength The length of the first string.
+	 * @param secondLength The length of the second string.
+	 */
+	static void endPair(Object event, SimilarityStrategy strategy, int firstLength, int secondLength) {
+		if (event != null) {
+			SlowPairEvent.finish(event, strategy, firstLength, secondLength);
+		}
+	}
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, SimilarityEvents.class.getClassLoader());
+			return true;
+		}
+		catch (ClassNotFoundException e) {
+			return false;
+		}
+		catch (LinkageError e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The metrics recorded by a {@link MeteredSimilarityStrategy} or a {@link MeteredStringSimilarityService},
+ * which can be published as a JMX MBean.
+ * <p>
+ * Every call is counted. Only sampled calls have their latency and input size recorded, so that the two
+ * reads of the clock are skipped for the others; with a sampling interval of 0 the cost of a call is
+ * a counter increment and a volatile read. The histograms are lock-free and report percentiles with
+ * a relative error of at most 1/16.
+ */
+public class SimilarityMetrics implements SimilarityMetricsMBean {
+
+	/**
+	 * The default sampling interval, one call in 64.
+	 */
+	public static final int DEFAULT_SAMPLING_INTERVAL = 64;
+
+	/**
+	 * The start time given to calls that are not sampled.
+	 */
+	static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder cells = new LongAdder();
+	private final LongAdder pruned = new LongAdder();
+	private final Histogram latencies = new Histogram();
+	private final Histogram inputSizes = new Histogram();
+	private volatile int samplingInterval;
+	private volatile ObjectName objectName;
+
+	/**
+	 * Creates metrics that sample calls at a given interval.
+	 * @param samplingInterval One in how many calls to sample, on average, or 0 to sample none.
+	 * @throws IllegalArgumentException if samplingInterval is negative.
+	 */
+	public SimilarityMetrics(int samplingInterval) {
+		setSamplingInterval(samplingInterval);
+	}
+
+	/**
+	 * Counts a number of calls and decides whether to sample them.
+	 * @param count The number of calls.
+	 * @return The current time in nanoseconds if the calls are sampled, or {@link #NOT_SAMPLED}.
+	 */
+	long start(int count) {
+		calls.add(count);
+		int interval = samplingInterval;
+		if (interval == 0 || (interval > 1 && ThreadLocalRandom.current().nextInt(interval) != 0)) {
+			return NOT_SAMPLED;
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * Records the latency of sampled calls.
+	 * @param start The time returned by {@link #start(int)}.
+	 * @param count The number of calls, over which the latency is spread evenly.
+	 */
+	void stop(long start, int count) {
+		if (start != NOT_SAMPLED) {
+			latencies.record((System.nanoTime() - start) / Math.max(1, count));
+		}
+	}
+
+	/**
+	 * Records the input size of a sampled call.
+	 * @param start The time returned by {@link #start(int)}.
+	 * @param size The input size.
+	 */
+	void recordInputSize(long start, long size) {
+		if (start != NOT_SAMPLED) {
+			inputSizes.record(size);
+		}
+	}
+
+	/**
+	 * Counts cells of comparison matrices.
+	 */
+	void addCells(long count) {
+		cells.add(count);
+	}
+
+	/**
+	 * Counts a pair that was rejected as below the minimum score.
+	 */
+	void addPruned() {
+		pruned.increment();
+	}
+
+	/**
+	 * Publishes the metrics as an MBean of the platform MBean server, under the domain of this library.
+	 * @param name The name of the MBean, unique among the metrics of this library.
+	 * @return The object name the MBean was registered under.
+	 * @throws JMException if the name is taken or the MBean cannot be registered.
+	 */
+	public ObjectName register(String name) throws JMException {
+		ObjectName objectName = new ObjectName("net.ricecode.similarity:type=SimilarityMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		this.objectName = objectName;
+		return objectName;
+	}
+
+	/**
+	 * Removes the MBean published by {@link #register(String)}, if there is one.
+	 * @throws JMException if the MBean cannot be unregistered.
+	 */
+	public void unregister() throws JMException {
+		ObjectName objectName = this.objectName;
+		if (objectName != null) {
+			this.objectName = null;
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		}
+	}
+
+	public long getCallCount() {
+		return calls.sum();
+	}
+
+	public long getSampleCount() {
+		return latencies.count();
+	}
+
+	public int getSamplingInterval() {
+		return samplingInterval;
+	}
+
+	public void setSamplingInterval(int samplingInterval) {
+		if (samplingInterval < 0) {
+			throw new IllegalArgumentException("The sampling interval must not be negative.");
+		}
+		this.samplingInterval = samplingInterval;
+	}
+
+	public double getLatencyMeanNanos() {
+		return latencies.mean();
+	}
+
+	public long getLatencyP50Nanos() {
+		return latencies.percentile(50.0d);
+	}
+
+	public long getLatencyP99Nanos() {
+		return latencies.percentile(99.0d);
+	}
+
+	public long getLatencyP999Nanos() {
+		return latencies.percentile(99.9d);
+	}
+
+	public long getLatencyMaxNanos() {
+		return latencies.max();
+	}
+
+	public long getInputSizeP50() {
+		return inputSizes.percentile(50.0d);
+	}
+
+	public long getInputSizeP99() {
+		return inputSizes.percentile(99.0d);
+	}
+
+	public long getInputSizeP999() {
+		return inputSizes.percentile(99.9d);
+	}
+
+	public long getInputSizeMax() {
+		return inputSizes.max();
+	}
+
+	public long getMatrixCells() {
+		return cells.sum();
+	}
+
+	public long getPrunedCount() {
+		return pruned.sum();
+	}
+
+	public void reset() {
+		calls.reset();
+		cells.reset();
+		pruned.reset();
+		latencies.reset();
+		inputSizes.reset();
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+/**
+ * The management interface of {@link SimilarityMetrics}, as seen through JMX.
+ * Latencies are in nanoseconds. Input sizes are the lengths of the compared strings for a
+ * {@link MeteredSimilarityStrategy}, and the numbers of features per call for a
+ * {@link MeteredStringSimilarityService}. Latencies and input sizes are sampled; counts are exact.
+ */
+public interface SimilarityMetricsMBean {
+
+	/**
+	 * Gets the number of calls made, whether they were sampled or not.
+	 * @return The number of calls.
+	 */
+	long getCallCount();
+
+	/**
+	 * Gets the number of calls whose latency and input size were recorded.
+	 * @return The number of sampled calls.
+	 */
+	long getSampleCount();
+
+	/**
+	 * Gets how often calls are sampled.
+	 * @return One in how many calls is sampled, on average, or 0 if none are.
+	 */
+	int getSamplingInterval();
+
+	/**
+	 * Sets how often calls are sampled.
+	 * @param samplingInterval One in how many calls to sample, on average, or 0 to sample none.
+	 * @throws IllegalArgumentException if samplingInterval is negative.
+	 */
+	void setSamplingInterval(int samplingInterval);
+
+	/**
+	 * Gets the mean latency of the sampled calls.
+	 * @return The mean latency in nanoseconds.
+	 */
+	double getLatencyMeanNanos();
+
+	/**
+	 * Gets the median latency of the sampled calls.
+	 * @return The 50th percentile in nanoseconds.
+	 */
+	long getLatencyP50Nanos();
+
+	/**
+	 * Gets the 99th percentile latency of the sampled calls.
+	 * @return The 99th percentile in nanoseconds.
+	 */
+	long getLatencyP99Nanos();
+
+	/**
+	 * Gets the 99.9th percentile latency of the sampled calls.
+	 * @return The 99.9th percentile in nanoseconds.
+	 */
+	long getLatencyP999Nanos();
+
+	/**
+	 * Gets the highest latency of the sampled calls.
+	 * @return The highest latency in nanoseconds.
+	 */
+	long getLatencyMaxNanos();
+
+	/**
+	 * Gets the median input size of the sampled calls.
+	 * @return The 50th percentile.
+	 */
+	long getInputSizeP50();
+
+	/**
+	 * Gets the 99th percentile input size of the sampled calls.
+	 * @return The 99th percentile.
+	 */
+	long getInputSizeP99();
+
+	/**
+	 * Gets the 99.9th percentile input size of the sampled calls.
+	 * @return The 99.9th percentile.
+	 */
+	long getInputSizeP999();
+
+	/**
+	 * Gets the largest input size of the sampled calls.
+	 * @return The largest input size.
+	 */
+	long getInputSizeMax();
+
+	/**
+	 * Gets the number of cells of the comparison matrices of all pairs compared, the product of the
+	 * lengths of the two strings of each pair. This is the work a dynamic programming kernel does
+	 * without pruning; bit-parallel and banded kernels do less.
+	 * @return The number of cells, or 0 for a service.
+	 */
+	long getMatrixCells();
+
+	/**
+	 * Gets the number of pairs that a threshold comparison rejected as below the minimum score.
+	 * @return The number of rejected pairs, or 0 for a service.
+	 */
+	long getPrunedCount();
+
+	/**
+	 * Resets every count and histogram to zero. The sampling interval is left as it is.
+	 */
+	void reset();
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+/**
+ * A value object that holds the similarity score of two features of the same list.
+ * The first feature is always the one that comes earlier in the list.
+ */
+public class SimilarityPair {
+
+	private final String first;
+	private final String second;
+	private final int firstPosition;
+	private final int secondPosition;
+	private final double score;
+
+	/**
+	 * Constructs a similarity pair.
+	 * @param first The earlier feature.
+	 * @param firstPosition The position of the earlier feature in its list.
+	 * @param second The later feature.
+	 * @param secondPosition The position of the later feature in its list.
+	 * @param score The score value.
+	 */
+	public SimilarityPair(String first, int firstPosition, String second, int secondPosition, double score) {
+		this.first = first;
+		this.second = second;
+		this.firstPosition = firstPosition;
+		this.secondPosition = secondPosition;
+		this.score = score;
+	}
+
+	/**
+	 * Gets the earlier feature of the pair.
+	 * @return A string.
+	 */
+	public String getFirst() {
+		return first;
+	}
+
+	/**
+	 * Gets the position of the earlier feature in its list.
+	 * @return A position, starting at 0.
+	 */
+	public int getFirstPosition() {
+		return firstPosition;
+	}
+
+	/**
+	 * Gets the later feature of the pair.
+	 * @return A string.
+	 */
+	public String getSecond() {
+		return second;
+	}
+
+	/**
+	 * Gets the position of the later feature in its list.
+	 * @return A position, greater than {@link #getFirstPosition()}.
+	 */
+	public int getSecondPosition() {
+		return secondPosition;
+	}
+
+	/**
+	 * Gets the value of the score.
+	 * @return A double.
+	 */
+	public double getScore() {
+		return score;
+	}
+
+	/**
+	 * Returns the hash code for this object.
+	 * @return An integer representing the hash code.
+	 */
+	@Override
+	public int hashCode() {
+		int hash = 11;
+		hash = 23 * hash + firstPosition;
+		hash = 23 * hash + secondPosition;
+		hash = 23 * hash + (int)(score * 1000000);
+		return hash;
+	}
+
+	/**
+	 * Determines if the supplied object equals this object.
+	 * @return True if the features, positions and scores match between the two objects. Otherwise false.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if ((o == null) || (o.getClass() != this.getClass())) {
+			return false;
+		}
+		SimilarityPair other = (SimilarityPair)o;
+		return this.firstPosition == other.firstPosition
+				&& this.secondPosition == other.secondPosition
+				&& this.first.equals(other.first)
+				&& this.second.equals(other.second)
+				&& this.score == other.score;
+	}
+}
@@ -38,4 +38,19 @@ public interface SimilarityStrategy {
 	 * @return A number between 0.0 and 1.0.
 	 */
     double score(String first, String second);
+
+	/**
+	 * Calculates the similarity score of two character sequences, such as slices of a larger buffer.
+	 * A slice of a char array can be passed as {@link java.nio.CharBuffer#wrap(char[], int, int)},
+	 * which does not copy the characters. The result is the same as that of {@link #score(String, String)}
+	 * for the strings holding the same characters. The built-in strategies read the characters in place;
+	 * by default, the sequences are copied into strings.
+	 * 
+	 * @param first The first character sequence to compare.
+	 * @param second The second character sequence to compare.
+	 * @return A number between 0.0 and 1.0.
+	 */
+    default double score(CharSequence first, CharSequence second) {
+        return score(first.toString(), second.toString());
+    }
 }
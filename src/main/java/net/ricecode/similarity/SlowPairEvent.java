@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event for a single comparison that took longer than the threshold of the recording,
+ * one millisecond unless the recording's settings change it. Only loaded through {@link SimilarityEvents}.
+ */
+@Name("net.ricecode.similarity.SlowPair")
+@Label("Slow Similarity Comparison")
+@Category("String Similarity")
+@Description("A comparison of two strings by a similarity strategy that took longer than the threshold")
+@Threshold("1 ms")
+class SlowPairEvent extends Event {
+
+	/**
+	 * An instance that is never committed, used to ask whether the event type is enabled.
+	 */
+	private static final SlowPairEvent PROBE = new SlowPairEvent();
+
+	@Label("Strategy")
+	@Description("The class of the similarity strategy")
+	String strategy;
+
+	@Label("First Length")
+	@Description("The length of the first string")
+	int firstLength;
+
+	@Label("Second Length")
+	@Description("The length of the second string")
+	int secondLength;
+
+	static Object start() {
+		if (!PROBE.isEnabled()) {
+			return null;
+		}
+		SlowPairEvent event = new SlowPairEvent();
+		event.begin();
+		return event;
+	}
+
+	static void finish(Object o, SimilarityStrategy strategy, int firstLength, int secondLength) {
+		SlowPairEvent event = (SlowPairEvent) o;
+		event.end();
+		if (event.shouldCommit()) {
+			event.strategy = strategy.getClass().getName();
+			event.firstLength = firstLength;
+			event.secondLength = secondLength;
+			event.commit();
+		}
+	}
+}
@@ -23,8 +23,17 @@
 
 package net.ricecode.similarity;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A service that performs string similarity calculations.
@@ -40,7 +49,45 @@ public interface StringSimilarityService {
      * @return A list of similarity scores.
      */
     List<SimilarityScore> scoreAll(List<String> features, String target);
+
+    /**
+     * Calculates all similarity scores for a given set of features, into parallel primitive arrays.
+     * The default implementation copies the scores of {@link #scoreAll(List, String)}.
+     * @param features The list of features.
+     * @param target The target string to compare against the features.
+     * @return The similarity scores, in the order of the features.
+     */
+    default ScoreArray scoreArray(List<String> features, String target) {
+    	List<SimilarityScore> scores = scoreAll(features, target);
+    	String[] keys = new String[scores.size()];
+    	double[] values = new double[scores.size()];
+    	int[] positions = new int[scores.size()];
+    	for (int i = 0; i < positions.length; i++) {
+    		keys[i] = scores.get(i).getKey();
+    		values[i] = scores.get(i).getScore();
+    		positions[i] = i;
+    	}
+    	return new ScoreArray(keys, values, positions);
+    }
 	
+    /**
+     * Calculates the similarity scores of the features that reach a minimum score.
+     * The default implementation filters the scores of {@link #scoreAll(List, String)}.
+     * @param features The list of features.
+     * @param target The target string to compare against the features.
+     * @param minScore The lowest score of interest.
+     * @return The similarity scores that are at least minScore, in the order of the features.
+     */
+    default List<SimilarityScore> scoreAbove(List<String> features, String target, double minScore) {
+    	List<SimilarityScore> result = new ArrayList<SimilarityScore>();
+    	for (SimilarityScore score : scoreAll(features, target)) {
+    		if (score.getScore() >= minScore) {
+    			result.add(score);
+    		}
+    	}
+    	return result;
+    }
+
     /**
      * Calculates the similarity score of a single feature.
      * @param feature The feature string to compare.
@@ -66,4 +113,323 @@ public interface StringSimilarityService {
      * @return A SimilarityScore that has the top value amongst the features, according to the comparator.
      */
     SimilarityScore findTop(List<String> features, String target, Comparator<SimilarityScore> comparator);
+
+    /**
+     * Finds the k features within a set of given features that best match the target string.
+     * The default implementation sorts the scores with a {@link DescendingSimilarityScoreComparator}.
+     * @param features A list of strings containing the features to compare.
+     * @param target The target string to compare against the features.
+     * @param k The number of features to return.
+     * @return Up to k similarity scores, highest first.
+     */
+    default List<SimilarityScore> findTopK(List<String> features, String target, int k) {
+    	return findTopK(features, target, k, new DescendingSimilarityScoreComparator());
+    }
+
+    /**
+     * Finds the k features within a set of given features that best match the target string.
+     * The default implementation sorts all the scores of {@link #scoreAll(List, String)}.
+     * @param features A list of strings containing the features to compare.
+     * @param target The target string to compare against the features.
+     * @param k The number of features to return.
+     * @param comparator A comparator that is used sort the scores.
+     * @return Up to k similarity scores, in the order of the comparator.
+     */
+    default List<SimilarityScore> findTopK(List<String> features, String target, int k, Comparator<SimilarityScore> comparator) {
+    	if (k < 0) {
+    		throw new IllegalArgumentException("The number of scores must not be negative.");
+    	}
+    	List<SimilarityScore> scores = new ArrayList<SimilarityScore>(scoreAll(features, target));
+    	Collections.sort(scores, comparator);
+    	return new ArrayList<SimilarityScore>(scores.subList(0, Math.min(k, scores.size())));
+    }
+
+    /**
+     * Calculates all similarity scores for the features of an index.
+     * The default implementation queries the list of indexed features.
+     * @param index The index of features.
+     * @param target The target string to compare against the features.
+     * @return A list of similarity scores, in the order of the features in the index.
+     */
+    default List<SimilarityScore> scoreAll(FeatureIndex index, String target) {
+    	return scoreAll(index.getFeatures(), target);
+    }
+
+    /**
+     * Calculates all similarity scores for the features of an index, into parallel primitive arrays.
+     * The default implementation queries the list of indexed features.
+     * @param index The index of features.
+     * @param target The target string to compare against the features.
+     * @return The similarity scores, in the order of the features in the index.
+     */
+    default ScoreArray scoreArray(FeatureIndex index, String target) {
+    	return scoreArray(index.getFeatures(), target);
+    }
+
+    /**
+     * Calculates the similarity scores of the features of an index that reach a minimum score.
+     * The default implementation queries the list of indexed features.
+     * @param index The index of features.
+     * @param target The target string to compare against the features.
+     * @param minScore The lowest score of interest.
+     * @return The similarity scores that are at least minScore, in the order of the features in the index.
+     */
+    default List<SimilarityScore> scoreAbove(FeatureIndex index, String target, double minScore) {
+    	return scoreAbove(index.getFeatures(), target, minScore);
+    }
+
+    /**
+     * Finds the feature within an index that best matches the target string.
+     * The default implementation queries the list of indexed features.
+     * @param index The index of features.
+     * @param target The target string to compare against the features.
+     * @return A SimilarityScore that has the highest score value amongst the features.
+     */
+    default SimilarityScore findTop(FeatureIndex index, String target) {
+    	return findTop(index.getFeatures(), target);
+    }
+
+    /**
+     * Finds the feature within an index that best matches the target string.
+     * The default implementation queries the list of indexed features.
+     * @param index The index of features.
+     * @param target The target string to compare against the features.
+     * @param comparator A comparator that is used sort the scores.
+     * @return A SimilarityScore that has the top value amongst the features, according to the comparator.
+     */
+    default SimilarityScore findTop(FeatureIndex index, String target, Comparator<SimilarityScore> comparator) {
+    	return findTop(index.getFeatures(), target, comparator);
+    }
+
+    /**
+     * Finds the k features within an index that best match the target string.
+     * The default implementation queries the list of indexed features.
+     * @param index The index of features.
+     * @param target The target string to compare against the features.
+     * @param k The number of features to return.
+     * @return Up to k similarity scores, highest first.
+     */
+    default List<SimilarityScore> findTopK(FeatureIndex index, String target, int k) {
+    	return findTopK(index.getFeatures(), target, k);
+    }
+
+    /**
+     * Finds the k features of a sequence that best match the target string, reading each feature once.
+     * Only the k best features seen so far are kept, so the sequence never has to be held in memory.
+     * The default implementation collects the features into a list first.
+     * @param features The features to compare.
+     * @param target The target string to compare against the features.
+     * @param k The number of features to return.
+     * @return Up to k similarity scores, highest first. Of two equal scores, the earlier feature comes first.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    default List<SimilarityScore> findTopK(Iterable<String> features, String target, int k) {
+    	List<String> list = new ArrayList<String>();
+    	for (String feature : features) {
+    		list.add(feature);
+    	}
+    	return findTopK(list, target, k);
+    }
+
+    /**
+     * Finds the k features of a stream that best match the target string, consuming the stream.
+     * The default implementation collects the features into a list first.
+     * @param features The features to compare.
+     * @param target The target string to compare against the features.
+     * @param k The number of features to return.
+     * @return Up to k similarity scores, highest first. Of two equal scores, the earlier feature comes first.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    default List<SimilarityScore> findTopK(Stream<String> features, String target, int k) {
+    	return findTopK(features.collect(Collectors.<String>toList()), target, k);
+    }
+
+    /**
+     * Finds the k lines of a reader that best match the target string, reading the lines one at a time.
+     * The reader is read to its end but not closed.
+     * The default implementation collects the lines into a list first.
+     * @param features A reader with one feature per line.
+     * @param target The target string to compare against the features.
+     * @param k The number of features to return.
+     * @return Up to k similarity scores, highest first. Of two equal scores, the earlier line comes first.
+     * @throws IOException if the reader fails.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    default List<SimilarityScore> findTopK(Reader features, String target, int k) throws IOException {
+    	BufferedReader reader = features instanceof BufferedReader ? (BufferedReader) features : new BufferedReader(features);
+    	List<String> list = new ArrayList<String>();
+    	for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+    		list.add(line);
+    	}
+    	return findTopK(list, target, k);
+    }
+
+    /**
+     * Passes the features of a sequence that reach a minimum score to a consumer, as they are found.
+     * The default implementation scores one feature at a time with {@link #score(String, String)}.
+     * @param features The features to compare.
+     * @param target The target string to compare against the features.
+     * @param minScore The lowest score of interest.
+     * @param hits The consumer of the similarity scores that are at least minScore, in the order of the features.
+     */
+    default void scoreAbove(Iterable<String> features, String target, double minScore, Consumer<SimilarityScore> hits) {
+    	for (String feature : features) {
+    		double score = score(feature, target);
+    		if (score >= minScore) {
+    			hits.accept(new SimilarityScore(feature, score));
+    		}
+    	}
+    }
+
+    /**
+     * Passes the features of a stream that reach a minimum score to a consumer, consuming the stream.
+     * The default implementation scores one feature at a time with {@link #score(String, String)}.
+     * @param features The features to compare.
+     * @param target The target string to compare against the features.
+     * @param minScore The lowest score of interest.
+     * @param hits The consumer of the similarity scores that are at least minScore, in the order of the features.
+     */
+    default void scoreAbove(Stream<String> features, String target, double minScore, Consumer<SimilarityScore> hits) {
+    	Iterator<String> iterator = features.iterator();
+    	while (iterator.hasNext()) {
+    		String feature = iterator.next();
+    		double score = score(feature, target);
+    		if (score >= minScore) {
+    			hits.accept(new SimilarityScore(feature, score));
+    		}
+    	}
+    }
+
+    /**
+     * Passes the lines of a reader that reach a minimum score to a consumer, reading the lines one at a time.
+     * The reader is read to its end but not closed.
+     * The default implementation scores one line at a time with {@link #score(String, String)}.
+     * @param features A reader with one feature per line.
+     * @param target The target string to compare against the features.
+     * @param minScore The lowest score of interest.
+     * @param hits The consumer of the similarity scores that are at least minScore, in the order of the lines.
+     * @throws IOException if the reader fails.
+     */
+    default void scoreAbove(Reader features, String target, double minScore, Consumer<SimilarityScore> hits) throws IOException {
+    	BufferedReader reader = features instanceof BufferedReader ? (BufferedReader) features : new BufferedReader(features);
+    	for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+    		double score = score(line, target);
+    		if (score >= minScore) {
+    			hits.accept(new SimilarityScore(line, score));
+    		}
+    	}
+    }
+
+    /**
+     * Finds the k features that best match each of several targets.
+     * The result for a target is the same as that of {@link #findTopK(List, String, int)}.
+     * The default implementation queries one target at a time.
+     * @param features The list of features.
+     * @param targets The target strings to compare against the features.
+     * @param k The number of features to return per target.
+     * @return One list of up to k similarity scores per target, in the order of the targets.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    default List<List<SimilarityScore>> findTopPerTarget(List<String> features, List<String> targets, int k) {
+    	if (k < 0) {
+    		throw new IllegalArgumentException("The number of scores must not be negative.");
+    	}
+    	List<List<SimilarityScore>> result = new ArrayList<List<SimilarityScore>>(targets.size());
+    	for (String target : targets) {
+    		result.add(findTopK(features, target, k));
+    	}
+    	return result;
+    }
+
+    /**
+     * Finds the k features of an index that best match each of several targets.
+     * The result for a target is the same as that of {@link #findTopK(FeatureIndex, String, int)}.
+     * The default implementation queries one target at a time.
+     * @param index The index of features.
+     * @param targets The target strings to compare against the features.
+     * @param k The number of features to return per target.
+     * @return One list of up to k similarity scores per target, in the order of the targets.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    default List<List<SimilarityScore>> findTopPerTarget(FeatureIndex index, List<String> targets, int k) {
+    	if (k < 0) {
+    		throw new IllegalArgumentException("The number of scores must not be negative.");
+    	}
+    	List<List<SimilarityScore>> result = new ArrayList<List<SimilarityScore>>(targets.size());
+    	for (String target : targets) {
+    		result.add(findTopK(index, target, k));
+    	}
+    	return result;
+    }
+
+    /**
+     * Calculates the similarity scores of every target against every feature, keeping only
+     * the scores that reach a minimum score. The result for a target is the same as that of
+     * {@link #scoreAbove(List, String, double)}.
+     * The default implementation queries one target at a time.
+     * @param features The list of features.
+     * @param targets The target strings to compare against the features.
+     * @param minScore The lowest score of interest.
+     * @return One list of similarity scores per target, in the order of the targets.
+     */
+    default List<List<SimilarityScore>> scoreMatrix(List<String> features, List<String> targets, double minScore) {
+    	List<List<SimilarityScore>> result = new ArrayList<List<SimilarityScore>>(targets.size());
+    	for (String target : targets) {
+    		result.add(scoreAbove(features, target, minScore));
+    	}
+    	return result;
+    }
+
+    /**
+     * Calculates the similarity scores of every target against every feature of an index,
+     * keeping only the scores that reach a minimum score. The result for a target is the same
+     * as that of {@link #scoreAbove(FeatureIndex, String, double)}.
+     * The default implementation queries one target at a time.
+     * @param index The index of features.
+     * @param targets The target strings to compare against the features.
+     * @param minScore The lowest score of interest.
+     * @return One list of similarity scores per target, in the order of the targets.
+     */
+    default List<List<SimilarityScore>> scoreMatrix(FeatureIndex index, List<String> targets, double minScore) {
+    	List<List<SimilarityScore>> result = new ArrayList<List<SimilarityScore>>(targets.size());
+    	for (String target : targets) {
+    		result.add(scoreAbove(index, target, minScore));
+    	}
+    	return result;
+    }
+
+    /**
+     * Finds the pairs of features of a list whose similarity scores reach a minimum score.
+     * The result is the same as scoring every feature against every later feature, with
+     * {@link #score(String, String)} and the earlier feature first.
+     * The default implementation scores every pair.
+     * @param features The list of features.
+     * @param minScore The lowest score of interest.
+     * @return The pairs that score at least minScore, ordered by the positions of their first and second features.
+     */
+    default List<SimilarityPair> selfJoin(List<String> features, double minScore) {
+    	List<String> list = new ArrayList<String>(features);
+    	List<SimilarityPair> pairs = new ArrayList<SimilarityPair>();
+    	for (int i = 0; i < list.size(); i++) {
+    		for (int j = i + 1; j < list.size(); j++) {
+    			double score = score(list.get(i), list.get(j));
+    			if (score >= minScore) {
+    				pairs.add(new SimilarityPair(list.get(i), i, list.get(j), j, score));
+    			}
+    		}
+    	}
+    	return pairs;
+    }
+
+    /**
+     * Groups the features of a list that are connected by pairs whose similarity scores reach
+     * a minimum score, directly or through other features of the group.
+     * The default implementation groups the pairs of {@link #selfJoin(List, double)}.
+     * @param features The list of features.
+     * @param minScore The lowest score of interest.
+     * @return The groups of at least two features, each in the order of the list, ordered by their first features.
+     */
+    default List<List<String>> cluster(List<String> features, double minScore) {
+    	return SelfJoin.cluster(features, selfJoin(features, minScore));
+    }
 }
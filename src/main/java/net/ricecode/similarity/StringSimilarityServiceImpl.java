@@ -23,10 +23,20 @@
 
 package net.ricecode.similarity;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 
 /**
@@ -36,7 +46,32 @@ import java.util.Collections;
  */
 public class StringSimilarityServiceImpl implements StringSimilarityService {
 
+	/**
+	 * The number of normalized features a service remembers by default.
+	 */
+	public static final int DEFAULT_NORMALIZED_CACHE_SIZE = 65536;
+
+	/**
+	 * The number of targets a many-to-many query scores against a tile of features at a time.
+	 */
+	private static final int TARGET_TILE_SIZE = 64;
+
+	/**
+	 * The number of features in a tile, few enough for their prepared forms to stay in the cache
+	 * while every target of a tile is scored against them.
+	 */
+	private static final int FEATURE_TILE_SIZE = 256;
+
+	/**
+	 * The built-in strategies, whose plain scores agree with their other comparisons.
+	 */
+	private static final Class<?>[] BUILT_IN_STRATEGIES = {
+		LevenshteinDistanceStrategy.class, DamerauOsaStrategy.class, DiceCoefficientStrategy.class,
+		JaroStrategy.class, JaroWinklerStrategy.class
+	};
+
 	private SimilarityStrategy strategy;
+	private NormalizedFormCache normalized;
 
 
     /**
@@ -47,6 +82,33 @@ public class StringSimilarityServiceImpl implements StringSimilarityService {
         this.strategy = strategy;
     }
 
+    /**
+     * Creates a similarity calculator instance that normalizes every string before comparing it.
+     * The target of each call is normalized once, and the normalized forms of features are cached.
+     * Prepared strategies are handed the normalized forms with {@link PreparedSimilarityStrategy#prepareNormalized(String)},
+     * so they skip their own lowercasing.
+     * @param strategy The similarity strategy to use when calculating similarity scores.
+     * @param normalizer The normalizer to run on every string, or null to compare strings as they are.
+     */
+    public StringSimilarityServiceImpl(SimilarityStrategy strategy, StringNormalizer normalizer) {
+        this(strategy, normalizer, DEFAULT_NORMALIZED_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a similarity calculator instance that normalizes every string before comparing it.
+     * @param strategy The similarity strategy to use when calculating similarity scores.
+     * @param normalizer The normalizer to run on every string, or null to compare strings as they are.
+     * @param cacheSize The number of normalized features to remember.
+     * @throws IllegalArgumentException if cacheSize is negative.
+     */
+    public StringSimilarityServiceImpl(SimilarityStrategy strategy, StringNormalizer normalizer, int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("The cache size must not be negative.");
+        }
+        this.strategy = strategy;
+        this.normalized = normalizer == null ? null : new NormalizedFormCache(normalizer, cacheSize);
+    }
+
     /**
      * Calculates all similarity scores for a given set of features.
      * @param features The list of features.
@@ -55,16 +117,36 @@ public class StringSimilarityServiceImpl implements StringSimilarityService {
      */
     public List<SimilarityScore> scoreAll(List<String> features, String target)
     {
-        ArrayList<SimilarityScore> scores = new ArrayList<SimilarityScore>();
-        
-        for(String feature: features) {
-        	double score = strategy.score(feature, target);
-        	scores.add(new SimilarityScore(feature, score));
-        }
-        
-        return scores;
+        return scoreAll(candidates(features, target));
+    }
+
+
+    /**
+     * Calculates all similarity scores for a given set of features, into parallel primitive arrays.
+     * If the strategy is a {@link BatchSimilarityStrategy} and no normalizer is set, the features
+     * are handed to the strategy in batches.
+     * @param features The list of features.
+     * @param target The target string to compare against the features.
+     * @return The similarity scores, in the order of the features.
+     */
+    public ScoreArray scoreArray(List<String> features, String target)
+    {
+        return scoreArray(candidates(features, target));
     }
 
+    /**
+     * Calculates the similarity scores of the features that reach a minimum score.
+     * If the strategy can bound its scores from above, features whose bound is below
+     * the minimum score are skipped without being scored.
+     * @param features The list of features.
+     * @param target The target string to compare against the features.
+     * @param minScore The lowest score of interest.
+     * @return The similarity scores that are at least minScore, in the order of the features.
+     */
+    public List<SimilarityScore> scoreAbove(List<String> features, String target, double minScore)
+    {
+        return scoreAbove(candidates(features, target), minScore);
+    }
 
     /**
      * Calculates the similarity score of a single feature.
@@ -74,7 +156,10 @@ public class StringSimilarityServiceImpl implements StringSimilarityService {
      */
     public double score(String feature, String target)
     {
-        return strategy.score(feature, target);
+        if (normalized == null) {
+            return strategy.score(feature, target);
+        }
+        return strategy.score(normalized.normalize(feature), normalized.getNormalizer().normalize(target));
     }
 
     /**
@@ -90,6 +175,8 @@ public class StringSimilarityServiceImpl implements StringSimilarityService {
     
     /**
      * Finds the feature within a set of given features that best match the target string.
+     * The features are scanned once, keeping only the best score seen so far.
+     * Among features with equal scores, the first one in the list is returned.
      * @param features A list of strings containing the features to compare.
      * @param target The target string to compare against the features.
      * @param comparator A comparator that is used sort the scores.  
@@ -100,8 +187,1126 @@ public class StringSimilarityServiceImpl implements StringSimilarityService {
     	if (features.size() == 0) {
     		return null;
     	}
-    	List<SimilarityScore> scores= scoreAll(features, target);
-    	Collections.sort(scores, comparator);
-    	return scores.get(0);
+    	return findTop(candidates(features, target), comparator);
+    }
+
+    /**
+     * Finds the k features within a set of given features that best match the target string.
+     * @param features A list of strings containing the features to compare.
+     * @param target The target string to compare against the features.
+     * @param k The number of features to return.
+     * @return Up to k similarity scores, highest first.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    public List<SimilarityScore> findTopK(List<String> features, String target, int k)
+    {
+    	return findTopK(features, target, k, new DescendingSimilarityScoreComparator());
+    }
+
+    /**
+     * Finds the k features within a set of given features that best match the target string.
+     * Only the best k scores seen so far are kept while the features are scanned.
+     * Among features with equal scores, the ones earlier in the list come first.
+     * @param features A list of strings containing the features to compare.
+     * @param target The target string to compare against the features.
+     * @param k The number of features to return.
+     * @param comparator A comparator that is used sort the scores.
+     * @return Up to k similarity scores, in the order of the comparator.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    public List<SimilarityScore> findTopK(List<String> features, String target, int k, Comparator<SimilarityScore> comparator)
+    {
+    	return findTopK(candidates(features, target), k, comparator);
+    }
+
+    /**
+     * Calculates all similarity scores for the features of an index.
+     * If the index was built for this service's strategy, the prepared features are scored directly;
+     * otherwise the features are scored as if they had been passed as a list.
+     * @param index The index of features.
+     * @param target The target string to compare against the features.
+     * @return A list of similarity scores, in the order of the features in the index.
+     */
+    public List<SimilarityScore> scoreAll(FeatureIndex index, String target)
+    {
+        return scoreAll(candidates(index, target));
+    }
+
+    /**
+     * Calculates all similarity scores for the features of an index, into parallel primitive arrays.
+     * @param index The index of features.
+     * @param target The target string to compare against the features.
+     * @return The similarity scores, in the order of the features in the index.
+     */
+    public ScoreArray scoreArray(FeatureIndex index, String target)
+    {
+        return scoreArray(candidates(index, target));
+    }
+
+    /**
+     * Calculates the similarity scores of the features of an index that reach a minimum score.
+     * @param index The index of features.
+     * @param target The target string to compare against the features.
+     * @param minScore The lowest score of interest.
+     * @return The similarity scores that are at least minScore, in the order of the features in the index.
+     */
+    public List<SimilarityScore> scoreAbove(FeatureIndex index, String target, double minScore)
+    {
+        return scoreAbove(candidates(index, target), minScore);
+    }
+
+    /**
+     * Finds the feature within an index that best matches the target string.
+     * @param index The index of features.
+     * @param target The target string to compare against the features.
+     * @return The similarity score with the highest value.
+     */
+    public SimilarityScore findTop(FeatureIndex index, String target)
+    {
+    	return findTop(index, target, new DescendingSimilarityScoreComparator());
+    }
+
+    /**
+     * Finds the feature within an index that best matches the target string.
+     * @param index The index of features.
+     * @param target The target string to compare against the features.
+     * @param comparator A comparator that is used sort the scores.
+     * @return A SimilarityScore that has the top value amongst the features, according to the comparator.
+     */
+    public SimilarityScore findTop(FeatureIndex index, String target, Comparator<SimilarityScore> comparator)
+    {
+    	if (index.size() == 0) {
+    		return null;
+    	}
+    	return findTop(candidates(index, target), comparator);
+    }
+
+    /**
+     * Finds the k features within an index that best match the target string.
+     * @param index The index of features.
+     * @param target The target string to compare against the features.
+     * @param k The number of features to return.
+     * @return Up to k similarity scores, highest first.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    public List<SimilarityScore> findTopK(FeatureIndex index, String target, int k)
+    {
+    	return findTopK(candidates(index, target), k, new DescendingSimilarityScoreComparator());
+    }
+
+    /**
+     * Finds the k features of a sequence that best match the target string, reading each feature once.
+     * Only the k best features seen so far are kept, so the sequence never has to be held in memory.
+     * The features are scored on the calling thread.
+     * @param features The features to compare.
+     * @param target The target string to compare against the features.
+     * @param k The number of features to return.
+     * @return Up to k similarity scores, highest first. Of two equal scores, the earlier feature comes first.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    public List<SimilarityScore> findTopK(Iterable<String> features, String target, int k)
+    {
+    	return findTopK(features.iterator(), target, k);
+    }
+
+    /**
+     * Finds the k features of a stream that best match the target string, consuming the stream.
+     * @param features The features to compare.
+     * @param target The target string to compare against the features.
+     * @param k The number of features to return.
+     * @return Up to k similarity scores, highest first. Of two equal scores, the earlier feature comes first.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    public List<SimilarityScore> findTopK(Stream<String> features, String target, int k)
+    {
+    	return findTopK(features.iterator(), target, k);
+    }
+
+    /**
+     * Finds the k lines of a reader that best match the target string, reading the lines one at a time.
+     * The reader is read to its end but not closed.
+     * @param features A reader with one feature per line.
+     * @param target The target string to compare against the features.
+     * @param k The number of features to return.
+     * @return Up to k similarity scores, highest first. Of two equal scores, the earlier line comes first.
+     * @throws IOException if the reader fails.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    public List<SimilarityScore> findTopK(Reader features, String target, int k) throws IOException
+    {
+    	try {
+    		return findTopK(new Lines(features), target, k);
+    	}
+    	catch (UncheckedIOException e) {
+    		throw e.getCause();
+    	}
+    }
+
+    /**
+     * Passes the features of a sequence that reach a minimum score to a consumer, as they are found.
+     * The features are scored on the calling thread.
+     * @param features The features to compare.
+     * @param target The target string to compare against the features.
+     * @param minScore The lowest score of interest.
+     * @param hits The consumer of the similarity scores that are at least minScore, in the order of the features.
+     */
+    public void scoreAbove(Iterable<String> features, String target, double minScore, Consumer<SimilarityScore> hits)
+    {
+    	scoreAbove(features.iterator(), target, minScore, hits);
+    }
+
+    /**
+     * Passes the features of a stream that reach a minimum score to a consumer, consuming the stream.
+     * @param features The features to compare.
+     * @param target The target string to compare against the features.
+     * @param minScore The lowest score of interest.
+     * @param hits The consumer of the similarity scores that are at least minScore, in the order of the features.
+     */
+    public void scoreAbove(Stream<String> features, String target, double minScore, Consumer<SimilarityScore> hits)
+    {
+    	scoreAbove(features.iterator(), target, minScore, hits);
+    }
+
+    /**
+     * Passes the lines of a reader that reach a minimum score to a consumer, reading the lines one at a time.
+     * The reader is read to its end but not closed.
+     * @param features A reader with one feature per line.
+     * @param target The target string to compare against the features.
+     * @param minScore The lowest score of interest.
+     * @param hits The consumer of the similarity scores that are at least minScore, in the order of the lines.
+     * @throws IOException if the reader fails.
+     */
+    public void scoreAbove(Reader features, String target, double minScore, Consumer<SimilarityScore> hits) throws IOException
+    {
+    	try {
+    		scoreAbove(new Lines(features), target, minScore, hits);
+    	}
+    	catch (UncheckedIOException e) {
+    		throw e.getCause();
+    	}
+    }
+
+    /**
+     * Finds the k features that best match each of several targets.
+     * Targets are scored in tiles against tiles of features, so the prepared form of a feature
+     * is made once per tile of targets and is still in the cache while the other targets of the
+     * tile are scored against it. Once k scores are kept for a target, the worst of them is used
+     * as the minimum score of the remaining features. Only k scores per target are held, never
+     * the whole matrix.
+     * @param features The list of features.
+     * @param targets The target strings to compare against the features.
+     * @param k The number of features to return per target.
+     * @return One list of up to k similarity scores per target, highest first, in the order of the targets.
+     * @throws IllegalArgumentException if k is negative.
+     */
+    public List<List<SimilarityScore>> findTopPerTarget(List<String> features, List<String> targets, int k)
+    {
+    	MatrixFeatures matrix = matrixFeatures(features);
+    	return scoreMatrix("findTopPerTarget", matrix, targets, new TopRow(k, matrix.size()));
+    }
+
+    /**
+     * Finds the k features of an index that best match each of several targets.
+     * @param index The index of features.
+     * @param targets The target strings to compare against the features.
+     * @param k The number of features to return per target.
+     * @return One list of up to k similarity scores per target, highest first, in the order of the targets.
+     * @throws IllegalArgumentException if k is negative.
+     * @see #findTopPerTarget(List, List, int)
+     */
+    public List<List<SimilarityScore>> findTopPerTarget(FeatureIndex index, List<String> targets, int k)
+    {
+    	MatrixFeatures matrix = matrixFeatures(index);
+    	return scoreMatrix("findTopPerTarget", matrix, targets, new TopRow(k, matrix.size()));
+    }
+
+    /**
+     * Calculates the similarity scores of every target against every feature, keeping only
+     * the scores that reach a minimum score. Targets are scored in tiles against tiles of features,
+     * and the scores below the minimum are never stored.
+     * @param features The list of features.
+     * @param targets The target strings to compare against the features.
+     * @param minScore The lowest score of interest.
+     * @return One list of similarity scores per target, in the order of the features, in the order of the targets.
+     */
+    public List<List<SimilarityScore>> scoreMatrix(List<String> features, List<String> targets, double minScore)
+    {
+    	return scoreMatrix("scoreMatrix", matrixFeatures(features), targets, new AboveRow(minScore));
+    }
+
+    /**
+     * Calculates the similarity scores of every target against every feature of an index,
+     * keeping only the scores that reach a minimum score.
+     * @param index The index of features.
+     * @param targets The target strings to compare against the features.
+     * @param minScore The lowest score of interest.
+     * @return One list of similarity scores per target, in the order of the features, in the order of the targets.
+     * @see #scoreMatrix(List, List, double)
+     */
+    public List<List<SimilarityScore>> scoreMatrix(FeatureIndex index, List<String> targets, double minScore)
+    {
+    	return scoreMatrix("scoreMatrix", matrixFeatures(index), targets, new AboveRow(minScore));
+    }
+
+    /**
+     * Finds the pairs of features of a list whose similarity scores reach a minimum score.
+     * For the built-in strategies, features are only scored against features of similar size
+     * that share enough characters or bigrams to reach the minimum score; other strategies
+     * score every pair.
+     * @param features The list of features.
+     * @param minScore The lowest score of interest.
+     * @return The pairs that score at least minScore, ordered by the positions of their first and second features.
+     */
+    public List<SimilarityPair> selfJoin(List<String> features, double minScore)
+    {
+    	Object event = SimilarityEvents.beginQuery();
+    	List<SimilarityPair> result = new SelfJoin(this, minScore).join(features);
+    	SimilarityEvents.endQuery(event, "selfJoin", strategy, features.size(), 0, 0, result.size());
+    	return result;
+    }
+
+    /**
+     * Groups the features of a list that are connected by pairs whose similarity scores reach
+     * a minimum score, directly or through other features of the group.
+     * @param features The list of features.
+     * @param minScore The lowest score of interest.
+     * @return The groups of at least two features, each in the order of the list, ordered by their first features.
+     * @see #selfJoin(List, double)
+     */
+    public List<List<String>> cluster(List<String> features, double minScore)
+    {
+    	Object event = SimilarityEvents.beginQuery();
+    	List<List<String>> result = new SelfJoin(this, minScore).cluster(features);
+    	SimilarityEvents.endQuery(event, "cluster", strategy, features.size(), 0, 0, result.size());
+    	return result;
+    }
+
+    /**
+     * Gets the similarity strategy of this service.
+     * @return The similarity strategy.
+     */
+    SimilarityStrategy getStrategy()
+    {
+    	return strategy;
+    }
+
+    /**
+     * Gets the normalizer of this service.
+     * @return The normalizer, or null if strings are compared as they are.
+     */
+    StringNormalizer getNormalizer()
+    {
+    	return normalized == null ? null : normalized.getNormalizer();
+    }
+
+    /**
+     * Runs a scan over the positions 0 to size - 1. This implementation scans
+     * all positions at once on the calling thread; subclasses may split them into
+     * chunks, as long as the results are merged in position order.
+     * @param size The number of positions.
+     * @param scan The scan to run.
+     * @return The result of the scan.
+     */
+    <R> R scan(int size, Scan<R> scan)
+    {
+    	return scan(size, 1, scan);
+    }
+
+    /**
+     * Runs a scan over the positions 0 to size - 1, where each position costs about as much
+     * as scoring a number of features. This implementation scans all positions at once on the
+     * calling thread; subclasses may split them into chunks, as long as the results are merged
+     * in position order.
+     * @param size The number of positions.
+     * @param cost The number of features scored per position.
+     * @param scan The scan to run.
+     * @return The result of the scan.
+     */
+    <R> R scan(int size, int cost, Scan<R> scan)
+    {
+    	return scan.scan(0, size);
+    }
+
+    /**
+     * Gets the features of a list, scored against a target.
+     */
+    Candidates candidates(List<String> features, final String target)
+    {
+    	final List<String> list = features instanceof RandomAccess ? features : new ArrayList<String>(features);
+    	final TargetScorer scorer = new TargetScorer(strategy, normalized, target);
+    	final BatchSimilarityStrategy batch = strategy instanceof BatchSimilarityStrategy && normalized == null && usesKernels(strategy)
+    			? (BatchSimilarityStrategy) strategy : null;
+    	return new Candidates(target) {
+    		int size() {
+    			return list.size();
+    		}
+    		String feature(int position) {
+    			return list.get(position);
+    		}
+    		double score(int position) {
+    			return scorer.score(list.get(position));
+    		}
+    		double score(int position, double minScore) {
+    			return scorer.score(list.get(position), minScore);
+    		}
+    		void scoreInto(int from, int to, double[] out) {
+    			if (batch == null) {
+    				super.scoreInto(from, to, out);
+    				return;
+    			}
+    			double[] scores = new double[to - from];
+    			batch.scoreInto(target, list.subList(from, to), scores);
+    			System.arraycopy(scores, 0, out, from, scores.length);
+    		}
+    	};
+    }
+
+    /**
+     * Gets the features of an index, scored against a target.
+     */
+    Candidates candidates(final FeatureIndex index, String target)
+    {
+    	final TargetScorer scorer = new TargetScorer(strategy, normalized, target);
+    	return new Candidates(target) {
+    		int size() {
+    			return index.size();
+    		}
+    		String feature(int position) {
+    			return index.getFeature(position);
+    		}
+    		double score(int position) {
+    			return scorer.score(index, position);
+    		}
+    		double score(int position, double minScore) {
+    			return scorer.score(index, position, minScore);
+    		}
+    	};
+    }
+
+    private List<SimilarityScore> scoreAll(final Candidates candidates)
+    {
+    	Object event = SimilarityEvents.beginQuery();
+    	List<SimilarityScore> result = scan(candidates.size(), new Scan<List<SimilarityScore>>() {
+    		List<SimilarityScore> scan(int from, int to) {
+    			ArrayList<SimilarityScore> scores = new ArrayList<SimilarityScore>(to - from);
+    			for (int i = from; i < to; i++) {
+    				scores.add(new SimilarityScore(candidates.feature(i), candidates.score(i)));
+    			}
+    			return scores;
+    		}
+    		List<SimilarityScore> merge(List<SimilarityScore> first, List<SimilarityScore> second) {
+    			first.addAll(second);
+    			return first;
+    		}
+    	});
+    	SimilarityEvents.endQuery(event, "scoreAll", strategy, candidates.size(), 1, candidates.targetLength(), result.size());
+    	return result;
+    }
+
+    private ScoreArray scoreArray(final Candidates candidates)
+    {
+    	Object event = SimilarityEvents.beginQuery();
+    	int size = candidates.size();
+    	final double[] scores = new double[size];
+    	// Every range writes its own part of the array, so there is nothing to merge.
+    	scan(size, new Scan<double[]>() {
+    		double[] scan(int from, int to) {
+    			candidates.scoreInto(from, to, scores);
+    			return scores;
+    		}
+    		double[] merge(double[] first, double[] second) {
+    			return first;
+    		}
+    	});
+    	String[] features = new String[size];
+    	int[] positions = new int[size];
+    	for (int i = 0; i < size; i++) {
+    		features[i] = candidates.feature(i);
+    		positions[i] = i;
+    	}
+    	SimilarityEvents.endQuery(event, "scoreArray", strategy, size, 1, candidates.targetLength(), size);
+    	return new ScoreArray(features, scores, positions);
+    }
+
+    private List<SimilarityScore> scoreAbove(final Candidates candidates, final double minScore)
+    {
+    	Object event = SimilarityEvents.beginQuery();
+    	List<SimilarityScore> result = scan(candidates.size(), new Scan<List<SimilarityScore>>() {
+    		List<SimilarityScore> scan(int from, int to) {
+    			ArrayList<SimilarityScore> scores = new ArrayList<SimilarityScore>();
+    			for (int i = from; i < to; i++) {
+    				double score = candidates.score(i, minScore);
+    				if (score >= minScore) {
+    					scores.add(new SimilarityScore(candidates.feature(i), score));
+    				}
+    			}
+    			return scores;
+    		}
+    		List<SimilarityScore> merge(List<SimilarityScore> first, List<SimilarityScore> second) {
+    			first.addAll(second);
+    			return first;
+    		}
+    	});
+    	SimilarityEvents.endQuery(event, "scoreAbove", strategy, candidates.size(), 1, candidates.targetLength(), result.size());
+    	return result;
+    }
+
+    private SimilarityScore findTop(final Candidates candidates, final Comparator<SimilarityScore> comparator)
+    {
+    	Object event = SimilarityEvents.beginQuery();
+    	final int order = order(comparator);
+    	SimilarityScore result = scan(candidates.size(), new Scan<SimilarityScore>() {
+    		SimilarityScore scan(int from, int to) {
+    			if (order == 0) {
+    				SimilarityScore top = null;
+    				for (int i = from; i < to; i++) {
+    					SimilarityScore score = new SimilarityScore(candidates.feature(i), candidates.score(i));
+    					if (top == null || comparator.compare(score, top) < 0) {
+    						top = score;
+    					}
+    				}
+    				return top;
+    			}
+    			// The built-in comparators only look at the score, so there is
+    			// no need to create a SimilarityScore for every feature.
+    			int top = -1;
+    			double topScore = 0.0;
+    			for (int i = from; i < to; i++) {
+    				double score = candidates.score(i);
+    				if (top < 0 || (order > 0 ? score > topScore : score < topScore)) {
+    					top = i;
+    					topScore = score;
+    				}
+    			}
+    			return top < 0 ? null : new SimilarityScore(candidates.feature(top), topScore);
+    		}
+    		SimilarityScore merge(SimilarityScore first, SimilarityScore second) {
+    			if (first == null) {
+    				return second;
+    			}
+    			if (second == null || comparator.compare(second, first) >= 0) {
+    				return first;
+    			}
+    			return second;
+    		}
+    	});
+    	SimilarityEvents.endQuery(event, "findTop", strategy, candidates.size(), 1, candidates.targetLength(), result == null ? 0 : 1);
+    	return result;
+    }
+
+    private List<SimilarityScore> findTopK(final Candidates candidates, final int k, final Comparator<SimilarityScore> comparator)
+    {
+    	if (k < 0) {
+    		throw new IllegalArgumentException("The number of scores must not be negative.");
+    	}
+    	Object event = SimilarityEvents.beginQuery();
+    	int order = order(comparator);
+    	if (order == 0) {
+    		List<SimilarityScore> result = findTopKSorted(candidates, k, comparator);
+    		SimilarityEvents.endQuery(event, "findTopK", strategy, candidates.size(), 1, candidates.targetLength(), result.size());
+    		return result;
+    	}
+    	final boolean ascending = order < 0;
+    	TopScores top = scan(candidates.size(), new Scan<TopScores>() {
+    		TopScores scan(int from, int to) {
+    			TopScores scores = new TopScores(Math.min(k, to - from), ascending);
+    			for (int i = from; i < to; i++) {
+    				scores.offer(candidates.score(i), i);
+    			}
+    			return scores;
+    		}
+    		TopScores merge(TopScores first, TopScores second) {
+    			// The heap of a chunk only has room for the scores of the chunk.
+    			int size = first.size() + second.size();
+    			if (size > first.capacity() && first.capacity() < k) {
+    				TopScores merged = new TopScores(Math.min(k, size), ascending);
+    				merged.offerAll(first);
+    				first = merged;
+    			}
+    			first.offerAll(second);
+    			return first;
+    		}
+    	});
+    	double[] scores = new double[top.size()];
+    	int[] positions = top.drain(scores);
+    	List<SimilarityScore> result = new ArrayList<SimilarityScore>(positions.length);
+    	for (int i = 0; i < positions.length; i++) {
+    		result.add(new SimilarityScore(candidates.feature(positions[i]), scores[i]));
+    	}
+    	SimilarityEvents.endQuery(event, "findTopK", strategy, candidates.size(), 1, candidates.targetLength(), result.size());
+    	return result;
+    }
+
+    /**
+     * Finds the top k scores for a comparator that is not one of the built-in ones,
+     * using a bounded heap of SimilarityScore objects.
+     */
+    private List<SimilarityScore> findTopKSorted(final Candidates candidates, final int k, final Comparator<SimilarityScore> comparator)
+    {
+    	// Order the heap worst first; of two equal scores, the later feature is worse.
+    	final Comparator<Ranked> worstFirst = new Comparator<Ranked>() {
+    		public int compare(Ranked x, Ranked y) {
+    			int result = comparator.compare(y.score, x.score);
+    			if (result != 0) {
+    				return result;
+    			}
+    			return x.position < y.position ? 1 : (x.position == y.position ? 0 : -1);
+    		}
+    	};
+    	PriorityQueue<Ranked> top = scan(candidates.size(), new Scan<PriorityQueue<Ranked>>() {
+    		PriorityQueue<Ranked> scan(int from, int to) {
+    			PriorityQueue<Ranked> heap = new PriorityQueue<Ranked>(Math.max(1, Math.min(k, to - from)), worstFirst);
+    			for (int i = from; i < to; i++) {
+    				offer(heap, new Ranked(new SimilarityScore(candidates.feature(i), candidates.score(i)), i));
+    			}
+    			return heap;
+    		}
+    		PriorityQueue<Ranked> merge(PriorityQueue<Ranked> first, PriorityQueue<Ranked> second) {
+    			for (Ranked ranked : second) {
+    				offer(first, ranked);
+    			}
+    			return first;
+    		}
+    		private void offer(PriorityQueue<Ranked> heap, Ranked ranked) {
+    			if (heap.size() < k) {
+    				heap.add(ranked);
+    			}
+    			else if (k > 0 && worstFirst.compare(heap.peek(), ranked) < 0) {
+    				heap.poll();
+    				heap.add(ranked);
+    			}
+    		}
+    	});
+    	SimilarityScore[] result = new SimilarityScore[top.size()];
+    	for (int i = result.length - 1; i >= 0; i--) {
+    		result[i] = top.poll().score;
+    	}
+    	List<SimilarityScore> list = new ArrayList<SimilarityScore>(result.length);
+    	for (SimilarityScore score : result) {
+    		list.add(score);
+    	}
+    	return list;
+    }
+
+    private MatrixFeatures matrixFeatures(List<String> features)
+    {
+    	return new MatrixFeatures(features instanceof RandomAccess ? features : new ArrayList<String>(features), null);
+    }
+
+    private MatrixFeatures matrixFeatures(FeatureIndex index)
+    {
+    	boolean prepared = strategy instanceof PreparedSimilarityStrategy && index.isPreparedFor(strategy, getNormalizer());
+    	return new MatrixFeatures(index.getFeatures(), prepared ? index : null);
+    }
+
+    /**
+     * Scores every target against every feature, one tile of targets and features at a time,
+     * and collects the scores of each target in a row made from a prototype.
+     */
+    private List<List<SimilarityScore>> scoreMatrix(String operation, final MatrixFeatures features, List<String> targets, final MatrixRow prototype)
+    {
+    	Object event = SimilarityEvents.beginQuery();
+    	final List<String> list = targets instanceof RandomAccess ? targets : new ArrayList<String>(targets);
+    	List<List<SimilarityScore>> result = scan(list.size(), Math.max(1, features.size()), new Scan<List<List<SimilarityScore>>>() {
+    		List<List<SimilarityScore>> scan(int from, int to) {
+    			List<List<SimilarityScore>> result = new ArrayList<List<SimilarityScore>>(to - from);
+    			PreparedString[] prepared = new PreparedString[FEATURE_TILE_SIZE];
+    			for (int tile = from; tile < to; tile += TARGET_TILE_SIZE) {
+    				int count = Math.min(TARGET_TILE_SIZE, to - tile);
+    				TargetScorer[] scorers = new TargetScorer[count];
+    				MatrixRow[] rows = new MatrixRow[count];
+    				for (int t = 0; t < count; t++) {
+    					scorers[t] = new TargetScorer(strategy, normalized, list.get(tile + t));
+    					rows[t] = prototype.newRow();
+    				}
+    				for (int start = 0; start < features.size(); start += FEATURE_TILE_SIZE) {
+    					int end = Math.min(start + FEATURE_TILE_SIZE, features.size());
+    					features.prepare(scorers[0], start, end, prepared);
+    					for (int t = 0; t < count; t++) {
+    						TargetScorer scorer = scorers[t];
+    						MatrixRow row = rows[t];
+    						for (int i = start; i < end; i++) {
+    							row.add(i, scorer.score(features.feature(i), prepared[i - start], row.minScore()));
+    						}
+    					}
+    				}
+    				for (MatrixRow row : rows) {
+    					result.add(row.toList(features));
+    				}
+    			}
+    			return result;
+    		}
+    		List<List<SimilarityScore>> merge(List<List<SimilarityScore>> first, List<List<SimilarityScore>> second) {
+    			first.addAll(second);
+    			return first;
+    		}
+    	});
+    	if (event != null) {
+    		int targetLength = 0;
+    		for (String target : list) {
+    			targetLength += target.length();
+    		}
+    		int results = 0;
+    		for (List<SimilarityScore> row : result) {
+    			results += row.size();
+    		}
+    		SimilarityEvents.endQuery(event, operation, strategy, features.size(), list.size(), targetLength, results);
+    	}
+    	return result;
+    }
+
+    private List<SimilarityScore> findTopK(Iterator<String> features, String target, int k)
+    {
+    	if (k < 0) {
+    		throw new IllegalArgumentException("The number of scores must not be negative.");
+    	}
+    	Object event = SimilarityEvents.beginQuery();
+    	TargetScorer scorer = new TargetScorer(strategy, normalized, target);
+    	// The number of features is unknown, so the heap starts small and grows up to k.
+    	PriorityQueue<Ranked> top = new PriorityQueue<Ranked>(new Comparator<Ranked>() {
+    		public int compare(Ranked x, Ranked y) {
+    			int result = Double.compare(x.score.getScore(), y.score.getScore());
+    			if (result != 0) {
+    				return result;
+    			}
+    			return x.position < y.position ? 1 : (x.position == y.position ? 0 : -1);
+    		}
+    	});
+    	long position = 0;
+    	while (features.hasNext()) {
+    		String feature = features.next();
+    		double score = scorer.score(feature);
+    		// A later feature only displaces the worst one kept if it scores strictly higher,
+    		// so nothing is allocated for the features that do not make it.
+    		if (top.size() < k) {
+    			top.add(new Ranked(new SimilarityScore(feature, score), position));
+    		}
+    		else if (k > 0 && score > top.peek().score.getScore()) {
+    			top.poll();
+    			top.add(new Ranked(new SimilarityScore(feature, score), position));
+    		}
+    		position++;
+    	}
+    	SimilarityScore[] result = new SimilarityScore[top.size()];
+    	for (int i = result.length - 1; i >= 0; i--) {
+    		result[i] = top.poll().score;
+    	}
+    	List<SimilarityScore> list = new ArrayList<SimilarityScore>(result.length);
+    	for (SimilarityScore score : result) {
+    		list.add(score);
+    	}
+    	SimilarityEvents.endQuery(event, "findTopK", strategy, (int) Math.min(position, Integer.MAX_VALUE), 1, target.length(), list.size());
+    	return list;
+    }
+
+    private void scoreAbove(Iterator<String> features, String target, double minScore, Consumer<SimilarityScore> hits)
+    {
+    	Object event = SimilarityEvents.beginQuery();
+    	TargetScorer scorer = new TargetScorer(strategy, normalized, target);
+    	int count = 0;
+    	int results = 0;
+    	while (features.hasNext()) {
+    		String feature = features.next();
+    		double score = scorer.score(feature, minScore);
+    		if (score >= minScore) {
+    			hits.accept(new SimilarityScore(feature, score));
+    			results++;
+    		}
+    		count++;
+    	}
+    	SimilarityEvents.endQuery(event, "scoreAbove", strategy, count, 1, target.length(), results);
+    }
+
+    /**
+     * Determines whether a strategy may be scored with its threshold, prepared, bounded and batch
+     * comparisons instead of its plain score. A subclass of a built-in strategy may override the
+     * plain score while inheriting the other comparisons, so it is only ever scored with the plain score.
+     * @param strategy A similarity strategy.
+     * @return True if the strategy is exactly a built-in strategy or does not extend one.
+     */
+    static boolean usesKernels(SimilarityStrategy strategy)
+    {
+    	Class<?> type = strategy.getClass();
+    	for (Class<?> builtIn : BUILT_IN_STRATEGIES) {
+    		if (type == builtIn) {
+    			return true;
+    		}
+    	}
+    	for (Class<?> builtIn : BUILT_IN_STRATEGIES) {
+    		if (builtIn.isAssignableFrom(type)) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+
+    /**
+     * Determines whether a comparator is one of the built-in ones, which only compare scores.
+     * @return 1 for a descending comparator, -1 for an ascending one, and 0 for any other.
+     */
+    private static int order(Comparator<SimilarityScore> comparator)
+    {
+    	if (comparator.getClass() == DescendingSimilarityScoreComparator.class) {
+    		return 1;
+    	}
+    	if (comparator.getClass() == AscendingSimilarityScoreComparator.class) {
+    		return -1;
+    	}
+    	return 0;
+    }
+
+    /**
+     * The features of one query, each scored against the query's target.
+     */
+    abstract static class Candidates {
+    	private final int targetLength;
+
+    	Candidates(String target) {
+    		this.targetLength = target.length();
+    	}
+
+    	/**
+    	 * Gets the length of the target the features are scored against.
+    	 */
+    	int targetLength() {
+    		return targetLength;
+    	}
+
+    	abstract int size();
+
+    	abstract String feature(int position);
+
+    	abstract double score(int position);
+
+    	/**
+    	 * Scores a feature, as long as the score is at least the minimum score.
+    	 * @return The score, or a value below minScore if the score is below minScore.
+    	 */
+    	abstract double score(int position, double minScore);
+
+    	/**
+    	 * Scores a range of features into an array, at the positions of the features.
+    	 * @param from The first position, inclusive.
+    	 * @param to The last position, exclusive.
+    	 * @param out The array to write the scores to.
+    	 */
+    	void scoreInto(int from, int to, double[] out) {
+    		for (int i = from; i < to; i++) {
+    			out[i] = score(i);
+    		}
+    	}
+    }
+
+    /**
+     * A computation over a range of feature positions, whose partial results can be merged.
+     */
+    abstract static class Scan<R> {
+
+    	/**
+    	 * Computes the result for a range of positions.
+    	 * @param from The first position, inclusive.
+    	 * @param to The last position, exclusive.
+    	 * @return The partial result.
+    	 */
+    	abstract R scan(int from, int to);
+
+    	/**
+    	 * Merges the results of two adjacent ranges.
+    	 * @param first The result of the earlier range.
+    	 * @param second The result of the later range.
+    	 * @return The result of both ranges.
+    	 */
+    	abstract R merge(R first, R second);
+    }
+
+    /**
+     * The features of a many-to-many query. Their prepared forms are made one tile at a time,
+     * unless they come from an index that holds them already.
+     */
+    private static final class MatrixFeatures {
+    	private final List<String> features;
+    	private final FeatureIndex prepared;
+
+    	MatrixFeatures(List<String> features, FeatureIndex prepared) {
+    		this.features = features;
+    		this.prepared = prepared;
+    	}
+
+    	int size() {
+    		return features.size();
+    	}
+
+    	String feature(int position) {
+    		return features.get(position);
+    	}
+
+    	/**
+    	 * Writes the prepared forms of a range of features to a buffer, or nulls if the strategy
+    	 * does not prepare strings.
+    	 */
+    	void prepare(TargetScorer scorer, int from, int to, PreparedString[] out) {
+    		for (int i = from; i < to; i++) {
+    			out[i - from] = prepared != null ? prepared.getPrepared(i) : scorer.prepareFeature(features.get(i));
+    		}
+    	}
+    }
+
+    /**
+     * The scores of one target in a many-to-many query.
+     */
+    private abstract static class MatrixRow {
+
+    	/**
+    	 * Creates an empty row that collects scores the same way as this one.
+    	 */
+    	abstract MatrixRow newRow();
+
+    	/**
+    	 * Gets the lowest score the row still has use for.
+    	 */
+    	abstract double minScore();
+
+    	/**
+    	 * Adds the score of a feature, which may be below {@link #minScore()}.
+    	 */
+    	abstract void add(int position, double score);
+
+    	abstract List<SimilarityScore> toList(MatrixFeatures features);
+    }
+
+    /**
+     * A row that keeps the k best scores, or every score if there are no more than k features.
+     */
+    private static final class TopRow extends MatrixRow {
+    	private final TopScores top;
+
+    	TopRow(int k, int features) {
+    		if (k < 0) {
+    			throw new IllegalArgumentException("The number of scores must not be negative.");
+    		}
+    		this.top = new TopScores(Math.min(k, features), false);
+    	}
+
+    	MatrixRow newRow() {
+    		return new TopRow(top.capacity(), top.capacity());
+    	}
+
+    	double minScore() {
+    		if (top.capacity() == 0) {
+    			return Double.POSITIVE_INFINITY;
+    		}
+    		return top.size() < top.capacity() ? Double.NEGATIVE_INFINITY : top.worst();
+    	}
+
+    	void add(int position, double score) {
+    		top.offer(score, position);
+    	}
+
+    	List<SimilarityScore> toList(MatrixFeatures features) {
+    		double[] scores = new double[top.size()];
+    		int[] positions = top.drain(scores);
+    		List<SimilarityScore> result = new ArrayList<SimilarityScore>(positions.length);
+    		for (int i = 0; i < positions.length; i++) {
+    			result.add(new SimilarityScore(features.feature(positions[i]), scores[i]));
+    		}
+    		return result;
+    	}
+    }
+
+    /**
+     * A row that keeps the scores that reach a minimum score, in the order of the features.
+     */
+    private static final class AboveRow extends MatrixRow {
+    	private final double minScore;
+    	private int[] positions = new int[8];
+    	private double[] scores = new double[8];
+    	private int size;
+
+    	AboveRow(double minScore) {
+    		this.minScore = minScore;
+    	}
+
+    	MatrixRow newRow() {
+    		return new AboveRow(minScore);
+    	}
+
+    	double minScore() {
+    		return minScore;
+    	}
+
+    	void add(int position, double score) {
+    		if (score < minScore) {
+    			return;
+    		}
+    		if (size == positions.length) {
+    			positions = Arrays.copyOf(positions, size * 2);
+    			scores = Arrays.copyOf(scores, size * 2);
+    		}
+    		positions[size] = position;
+    		scores[size++] = score;
+    	}
+
+    	List<SimilarityScore> toList(MatrixFeatures features) {
+    		List<SimilarityScore> result = new ArrayList<SimilarityScore>(size);
+    		for (int i = 0; i < size; i++) {
+    			result.add(new SimilarityScore(features.feature(positions[i]), scores[i]));
+    		}
+    		return result;
+    	}
+    }
+
+    /**
+     * A similarity score together with the position of its feature.
+     */
+    private static final class Ranked {
+    	final SimilarityScore score;
+    	final long position;
+
+    	Ranked(SimilarityScore score, long position) {
+    		this.score = score;
+    		this.position = position;
+    	}
+    }
+
+    /**
+     * The lines of a reader, read one at a time. A failure of the reader is thrown
+     * as an UncheckedIOException, which the public methods unwrap again.
+     */
+    private static final class Lines implements Iterator<String> {
+    	private final BufferedReader reader;
+    	private String next;
+
+    	Lines(Reader reader) {
+    		this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    	}
+
+    	public boolean hasNext() {
+    		if (next == null) {
+    			try {
+    				next = reader.readLine();
+    			}
+    			catch (IOException e) {
+    				throw new UncheckedIOException(e);
+    			}
+    		}
+    		return next != null;
+    	}
+
+    	public String next() {
+    		if (!hasNext()) {
+    			throw new NoSuchElementException();
+    		}
+    		String line = next;
+    		next = null;
+    		return line;
+    	}
+
+    	public void remove() {
+    		throw new UnsupportedOperationException();
+    	}
+    }
+
+    /**
+     * Scores features against a single target, which is normalized and preprocessed
+     * only once when the service and strategy support it.
+     */
+    static final class TargetScorer {
+    	private final SimilarityStrategy strategy;
+    	private final NormalizedFormCache normalized;
+    	private final String target;
+    	private final PreparedString preparedTarget;
+    	private final boolean threshold;
+
+    	TargetScorer(SimilarityStrategy strategy, NormalizedFormCache normalized, String target) {
+    		boolean kernels = usesKernels(strategy);
+    		this.strategy = strategy;
+    		this.normalized = normalized;
+    		this.target = normalized == null ? target : normalized.getNormalizer().normalize(target);
+    		this.preparedTarget = kernels && strategy instanceof PreparedSimilarityStrategy ? prepare(this.target) : null;
+    		this.threshold = kernels && strategy instanceof ThresholdSimilarityStrategy;
+    	}
+
+    	double score(String feature) {
+    		feature = normalize(feature);
+    		if (preparedTarget == null) {
+    			return strategy.score(feature, target);
+    		}
+    		return ((PreparedSimilarityStrategy) strategy).score(prepare(feature), preparedTarget);
+    	}
+
+    	double score(FeatureIndex index, int position) {
+    		if (preparedTarget == null || !index.isPreparedFor(strategy, getNormalizer())) {
+    			return score(index.getFeature(position));
+    		}
+    		return ((PreparedSimilarityStrategy) strategy).score(index.getPrepared(position), preparedTarget);
+    	}
+
+    	/**
+    	 * Scores a feature, as long as the score is at least the minimum score.
+    	 * @return The score, or a value below minScore if the score is below minScore.
+    	 */
+    	double score(String feature, double minScore) {
+    		feature = normalize(feature);
+    		if (preparedTarget != null) {
+    			return score(prepare(feature), minScore);
+    		}
+    		if (threshold) {
+    			return ((ThresholdSimilarityStrategy) strategy).score(feature, target, minScore);
+    		}
+    		return strategy.score(feature, target);
+    	}
+
+    	/**
+    	 * Scores a feature of an index, as long as the score is at least the minimum score.
+    	 * @return The score, or a value below minScore if the score is below minScore.
+    	 */
+    	double score(FeatureIndex index, int position, double minScore) {
+    		if (preparedTarget == null || !index.isPreparedFor(strategy, getNormalizer())) {
+    			return score(index.getFeature(position), minScore);
+    		}
+    		return score(index.getPrepared(position), minScore);
+    	}
+
+    	/**
+    	 * Prepares a feature the same way as the target, so that it can be scored against
+    	 * any scorer of the same service.
+    	 * @return The prepared feature, or null if the strategy does not prepare strings.
+    	 */
+    	PreparedString prepareFeature(String feature) {
+    		return preparedTarget == null ? null : prepare(normalize(feature));
+    	}
+
+    	/**
+    	 * Scores a feature, given the form {@link #prepareFeature(String)} made of it,
+    	 * as long as the score is at least the minimum score.
+    	 * @return The score, or a value below minScore if the score is below minScore.
+    	 */
+    	double score(String feature, PreparedString prepared, double minScore) {
+    		if (prepared == null) {
+    			return score(feature, minScore);
+    		}
+    		return score(prepared, minScore);
+    	}
+
+    	private double score(PreparedString feature, double minScore) {
+    		if (strategy instanceof BoundedSimilarityStrategy
+    				&& ((BoundedSimilarityStrategy) strategy).upperBound(feature, preparedTarget) < minScore) {
+    			return Double.NEGATIVE_INFINITY;
+    		}
+    		return ((PreparedSimilarityStrategy) strategy).score(feature, preparedTarget);
+    	}
+
+    	private StringNormalizer getNormalizer() {
+    		return normalized == null ? null : normalized.getNormalizer();
+    	}
+
+    	private String normalize(String feature) {
+    		return normalized == null ? feature : normalized.normalize(feature);
+    	}
+
+    	private PreparedString prepare(String s) {
+    		PreparedSimilarityStrategy prepared = (PreparedSimilarityStrategy) strategy;
+    		return normalized == null ? prepared.prepare(s) : prepared.prepareNormalized(s);
+    	}
     }
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+/**
+ * A similarity strategy that can stop early when two strings cannot reach a minimum score.
+ * Most bulk queries only care whether a score passes a cutoff, so a strategy that knows the
+ * cutoff can skip the part of the calculation that would only prove a pair dissimilar.
+ */
+public interface ThresholdSimilarityStrategy extends SimilarityStrategy {
+
+	/**
+	 * Calculates the similarity score of two strings, as long as it is at least the minimum score.
+	 * Whenever the score reaches the minimum, the result is exactly the value of {@link #score(String, String)}.
+	 *
+	 * @param first The first string to compare.
+	 * @param second The second string to compare.
+	 * @param minScore The lowest score of interest.
+	 * @return A number between 0.0 and 1.0, or 0.0 if the score is below minScore.
+	 */
+	double score(String first, String second, double minScore);
+
+	/**
+	 * Calculates the similarity score of two character sequences, as long as it is at least the minimum score.
+	 * The result is the same as that of {@link #score(String, String, double)} for the strings holding
+	 * the same characters. By default, the sequences are copied into strings.
+	 *
+	 * @param first The first character sequence to compare.
+	 * @param second The second character sequence to compare.
+	 * @param minScore The lowest score of interest.
+	 * @return A number between 0.0 and 1.0, or 0.0 if the score is below minScore.
+	 */
+	default double score(CharSequence first, CharSequence second, double minScore) {
+		return score(first.toString(), second.toString(), minScore);
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+/**
+ * A bounded heap that keeps the k best scores seen so far, together with the positions of
+ * their features. Scores are kept as primitives, so offering a score that does not make it
+ * into the top k costs one comparison and no allocation. Among equal scores the lower
+ * position wins, which matches the order of a stable sort over the features.
+ */
+final class TopScores {
+
+	private final int capacity;
+	private final boolean ascending;
+	private final double[] keys;
+	private final int[] positions;
+	private int size;
+
+	/**
+	 * Creates an empty heap.
+	 * @param capacity The number of scores to keep.
+	 * @param ascending True if lower scores are better, false if higher scores are better.
+	 */
+	TopScores(int capacity, boolean ascending) {
+		this.capacity = capacity;
+		this.ascending = ascending;
+		this.keys = new double[capacity];
+		this.positions = new int[capacity];
+	}
+
+	/**
+	 * Gets the number of scores the heap keeps at most.
+	 * @return The capacity.
+	 */
+	int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the number of scores kept.
+	 * @return A number no larger than the capacity.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the worst score kept.
+	 * @return The score that the next offered score has to beat once the heap is full.
+	 * @throws ArrayIndexOutOfBoundsException if the heap is empty.
+	 */
+	double worst() {
+		if (size == 0) {
+			throw new ArrayIndexOutOfBoundsException(0);
+		}
+		return score(0);
+	}
+
+	/**
+	 * Offers a score to the heap.
+	 * @param score The score.
+	 * @param position The position of the scored feature.
+	 */
+	void offer(double score, int position) {
+		double key = ascending ? -score : score;
+		if (size < capacity) {
+			keys[size] = key;
+			positions[size] = position;
+			siftUp(size++);
+		}
+		else if (capacity > 0 && isWorse(keys[0], positions[0], key, position)) {
+			keys[0] = key;
+			positions[0] = position;
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * Offers every score of another heap to this heap.
+	 * @param other The other heap.
+	 */
+	void offerAll(TopScores other) {
+		for (int i = 0; i < other.size; i++) {
+			offer(other.score(i), other.positions[i]);
+		}
+	}
+
+	/**
+	 * Removes every score from the heap and returns their positions, best first.
+	 * The scores are written to the supplied array in the same order.
+	 * @param scores An array with room for {@link #size()} scores.
+	 * @return The positions of the kept scores, best first.
+	 */
+	int[] drain(double[] scores) {
+		int[] result = new int[size];
+		while (size > 0) {
+			int last = size - 1;
+			result[last] = positions[0];
+			scores[last] = score(0);
+			keys[0] = keys[last];
+			positions[0] = positions[last];
+			size = last;
+			siftDown(0);
+		}
+		return result;
+	}
+
+	private double score(int i) {
+		return ascending ? -keys[i] : keys[i];
+	}
+
+	/**
+	 * Determines whether the first entry ranks below the second one.
+	 */
+	private static boolean isWorse(double key, int position, double otherKey, int otherPosition) {
+		return key < otherKey || (key == otherKey && position > otherPosition);
+	}
+
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!isWorse(keys[i], positions[i], keys[parent], positions[parent])) {
+				break;
+			}
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i) {
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && isWorse(keys[child + 1], positions[child + 1], keys[child], positions[child])) {
+				child++;
+			}
+			if (!isWorse(keys[child], positions[child], keys[i], positions[i])) {
+				break;
+			}
+			swap(i, child);
+			i = child;
+		}
+	}
+
+	private void swap(int i, int j) {
+		double key = keys[i];
+		keys[i] = keys[j];
+		keys[j] = key;
+		int position = positions[i];
+		positions[i] = positions[j];
+		positions[j] = position;
+	}
+}
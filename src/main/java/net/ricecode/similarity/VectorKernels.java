@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+/**
+ * Kernels that use the Vector API of Java 21 and later. This is the version for older runtimes,
+ * which has no vector kernels: the multi-release layer of the jar replaces this class on Java 21,
+ * where the kernels are available if the jdk.incubator.vector module was added to the runtime.
+ * <p>
+ * Callers test {@link #AVAILABLE} before calling a kernel, and otherwise run their scalar code.
+ * Since the flag is a constant, the test costs nothing once the calling code is compiled. A kernel
+ * called while the flag is false still gives the right result, by running the scalar code itself.
+ */
+final class VectorKernels {
+
+	/**
+	 * Whether the kernels of this class may be called.
+	 */
+	static final boolean AVAILABLE;
+
+	/**
+	 * The number of texts {@link #editDistances(long[], long[], int, int, int[])} compares at once.
+	 */
+	static final int EDIT_DISTANCE_LANES;
+
+	/**
+	 * The shortest match window of {@link #matchCharactersWithin} that is worth scanning with vectors.
+	 */
+	static final int MIN_MATCH_WINDOW;
+
+	/**
+	 * The smallest set of {@link #intersection} that is worth intersecting with vectors.
+	 */
+	static final int MIN_INTERSECTION_SIZE;
+
+	// The fields are assigned here rather than where they are declared, so that they are not
+	// compile-time constants that javac would copy into the callers of this version of the class.
+	static {
+		AVAILABLE = false;
+		EDIT_DISTANCE_LANES = 1;
+		MIN_MATCH_WINDOW = Integer.MAX_VALUE;
+		MIN_INTERSECTION_SIZE = Integer.MAX_VALUE;
+	}
+
+	private VectorKernels() {
+	}
+
+	/**
+	 * Calculates the edit distances between a pattern of at most 64 characters and several texts at once,
+	 * using the bit-parallel algorithm of {@link MyersEditDistance} with one text per lane.
+	 * @param eqs The match vectors of the texts, interleaved by column: eqs[j * EDIT_DISTANCE_LANES + l] is
+	 * the match vector of the pattern for the character at position j of text l.
+	 * @param lengths The lengths of the texts; a lane without a text has length 0.
+	 * @param columns The length of the longest text.
+	 * @param patternLength The length of the pattern, between 1 and 64.
+	 * @param out The array that receives the distance of each text.
+	 */
+	static void editDistances(long[] eqs, long[] lengths, int columns, int patternLength, int[] out) {
+		// Without vectors, every lane is scanned on its own.
+		for (int l = 0; l < lengths.length; l++) {
+			out[l] = MyersEditDistance.distance(eqs, l, lengths.length, (int) lengths[l], patternLength);
+		}
+	}
+
+	/**
+	 * Matches the characters of one string with the unused equal characters of another within a window.
+	 * This gives the same result as the scalar scan of {@link JaroStrategy}.
+	 * @return The number of matched characters.
+	 */
+	static int matchCharactersWithin(char[] first, int firstLength, char[] second, int secondLength, int limit,
+			boolean[] matched, boolean[] used) {
+		// Runs the scalar scan, since AVAILABLE is false in this version.
+		return JaroStrategy.matchCharactersWithin(first, firstLength, second, secondLength, limit, matched, used);
+	}
+
+	/**
+	 * Counts the bigrams two sorted, distinct bigram arrays have in common, like
+	 * {@link Bigrams#intersection(int[], int, int[], int)}.
+	 * @return The size of the intersection.
+	 */
+	static int intersection(int[] first, int firstSize, int[] second, int secondSize) {
+		// Runs the scalar merge, since AVAILABLE is false in this version.
+		return Bigrams.intersection(first, firstSize, second, secondSize);
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The kernels of {@link VectorKernels}, written with the incubating Vector API.
+ * This class is only loaded once the jdk.incubator.vector module is known to be present.
+ */
+final class VectorApiKernels {
+
+	static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+	static final VectorSpecies<Short> CHARS = ShortVector.SPECIES_256;
+	static final VectorSpecies<Integer> INTS = IntVector.SPECIES_256;
+
+	private VectorApiKernels() {
+	}
+
+	/**
+	 * Tells whether the hardware runs the species of this class as vector instructions.
+	 * On narrower hardware the Vector API falls back to much slower scalar code.
+	 */
+	static boolean isSupported() {
+		return LONGS.vectorBitSize() >= 256 && ShortVector.SPECIES_PREFERRED.vectorBitSize() >= 256;
+	}
+
+	static void editDistances(long[] eqs, long[] lengths, int columns, int patternLength, int[] out) {
+		int lanes = LONGS.length();
+		LongVector last = LongVector.broadcast(LONGS, 1L << (patternLength - 1));
+		LongVector one = LongVector.broadcast(LONGS, 1L);
+		LongVector length = LongVector.fromArray(LONGS, lengths, 0);
+		LongVector pv = LongVector.broadcast(LONGS, -1L);
+		LongVector mv = LongVector.zero(LONGS);
+		LongVector score = LongVector.broadcast(LONGS, patternLength);
+
+		for (int j = 0; j < columns; j++) {
+			// A text that has ended keeps its score; the other lanes run on.
+			VectorMask<Long> active = length.compare(VectorOperators.GT, j);
+			LongVector eq = LongVector.fromArray(LONGS, eqs, j * lanes);
+			LongVector xv = eq.or(mv);
+			LongVector xh = eq.and(pv).add(pv).lanewise(VectorOperators.XOR, pv).or(eq);
+			LongVector ph = mv.or(xh.or(pv).not());
+			LongVector mh = pv.and(xh);
+			score = score.add(one, ph.and(last).compare(VectorOperators.NE, 0L).and(active));
+			score = score.sub(one, mh.and(last).compare(VectorOperators.NE, 0L).and(active));
+			ph = ph.lanewise(VectorOperators.LSHL, 1).or(one);
+			mh = mh.lanewise(VectorOperators.LSHL, 1);
+			pv = mh.or(xv.or(ph).not());
+			mv = ph.and(xv);
+		}
+
+		for (int l = 0; l < lanes; l++) {
+			out[l] = (int) score.lane(l);
+		}
+	}
+
+	static int matchCharactersWithin(char[] first, int firstLength, char[] second, int secondLength, int limit,
+			boolean[] matched, boolean[] used) {
+		int lanes = CHARS.length();
+		int common = 0;
+		for (int i = 0; i < firstLength; i++) {
+			char ch = first[i];
+			int end = Math.min(i + limit, secondLength);
+			int j = Math.max(0, i - limit);
+
+			ShortVector key = ShortVector.broadcast(CHARS, (short) ch);
+			int found = -1;
+			for (; j <= end - lanes; j += lanes) {
+				VectorMask<Short> hits = ShortVector.fromCharArray(CHARS, second, j).compare(VectorOperators.EQ, key)
+						.andNot(VectorMask.fromArray(CHARS, used, j));
+				if (hits.anyTrue()) {
+					found = j + hits.firstTrue();
+					break;
+				}
+			}
+			if (found < 0) {
+				for (; j < end; j++) {
+					if (second[j] == ch && !used[j]) {
+						found = j;
+						break;
+					}
+				}
+			}
+			if (found >= 0) {
+				used[found] = true;
+				matched[i] = true;
+				common++;
+			}
+		}
+		return common;
+	}
+
+	static int intersection(int[] first, int firstSize, int[] second, int secondSize) {
+		if (firstSize > secondSize) {
+			return intersection(second, secondSize, first, firstSize);
+		}
+		// Each bigram of the smaller set is compared with a block of the larger set at once.
+		// The sets are sorted, so the block only moves forward, and they are distinct, so a
+		// bigram matches at most one lane.
+		int lanes = INTS.length();
+		int common = 0;
+		int j = 0;
+		int i = 0;
+		for (; i < firstSize; i++) {
+			int a = first[i];
+			while (j <= secondSize - lanes && second[j + lanes - 1] < a) {
+				j += lanes;
+			}
+			if (j > secondSize - lanes) {
+				break;
+			}
+			common += IntVector.fromArray(INTS, second, j).compare(VectorOperators.EQ, a).trueCount();
+		}
+
+		// Merge what is left of the smaller set with the tail of the larger one.
+		for (; i < firstSize && j < secondSize; ) {
+			int a = first[i];
+			int b = second[j];
+			if (a == b) {
+				common++;
+				i++;
+				j++;
+			}
+			else if (a < b) {
+				i++;
+			}
+			else {
+				j++;
+			}
+		}
+		return common;
+	}
+}
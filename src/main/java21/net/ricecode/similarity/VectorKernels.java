@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+/**
+ * Kernels that use the Vector API of Java 21 and later. This is the version of the multi-release
+ * layer of the jar. The kernels are available if the jdk.incubator.vector module was added to the
+ * runtime, with {@code --add-modules jdk.incubator.vector}, and the hardware has vectors of at least
+ * 256 bits. Otherwise callers keep running their scalar code, which is also what a kernel runs
+ * if it is called anyway.
+ */
+final class VectorKernels {
+
+	/**
+	 * Whether the kernels of this class may be called.
+	 */
+	static final boolean AVAILABLE;
+
+	/**
+	 * The number of texts {@link #editDistances(long[], long[], int, int, int[])} compares at once.
+	 */
+	static final int EDIT_DISTANCE_LANES;
+
+	/**
+	 * The shortest match window of {@link #matchCharactersWithin} that is worth scanning with vectors.
+	 */
+	static final int MIN_MATCH_WINDOW;
+
+	/**
+	 * The smallest set of {@link #intersection} that is worth intersecting with vectors.
+	 */
+	static final int MIN_INTERSECTION_SIZE;
+
+	static {
+		boolean available = isAvailable();
+		AVAILABLE = available;
+		EDIT_DISTANCE_LANES = available ? VectorApiKernels.LONGS.length() : 1;
+		MIN_MATCH_WINDOW = available ? VectorApiKernels.CHARS.length() : Integer.MAX_VALUE;
+		MIN_INTERSECTION_SIZE = available ? VectorApiKernels.INTS.length() : Integer.MAX_VALUE;
+	}
+
+	private VectorKernels() {
+	}
+
+	private static boolean isAvailable() {
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+			return false;
+		}
+		try {
+			return VectorApiKernels.isSupported();
+		}
+		catch (LinkageError e) {
+			return false;
+		}
+	}
+
+	static void editDistances(long[] eqs, long[] lengths, int columns, int patternLength, int[] out) {
+		if (!AVAILABLE) {
+			for (int l = 0; l < lengths.length; l++) {
+				out[l] = MyersEditDistance.distance(eqs, l, lengths.length, (int) lengths[l], patternLength);
+			}
+			return;
+		}
+		VectorApiKernels.editDistances(eqs, lengths, columns, patternLength, out);
+	}
+
+	static int matchCharactersWithin(char[] first, int firstLength, char[] second, int secondLength, int limit,
+			boolean[] matched, boolean[] used) {
+		if (!AVAILABLE) {
+			return JaroStrategy.matchCharactersWithin(first, firstLength, second, secondLength, limit, matched, used);
+		}
+		return VectorApiKernels.matchCharactersWithin(first, firstLength, second, secondLength, limit, matched, used);
+	}
+
+	static int intersection(int[] first, int firstSize, int[] second, int secondSize) {
+		if (!AVAILABLE) {
+			return Bigrams.intersection(first, firstSize, second, secondSize);
+		}
+		return VectorApiKernels.intersection(first, firstSize, second, secondSize);
+	}
+}
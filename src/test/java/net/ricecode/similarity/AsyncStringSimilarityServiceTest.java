@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class AsyncStringSimilarityServiceTest {
+
+	@Test
+	public void testResultsMatchWrappedService() throws Exception {
+		StringSimilarityService plain = new StringSimilarityServiceImpl(new JaroWinklerStrategy());
+		AsyncStringSimilarityService service = new AsyncStringSimilarityService(plain);
+		FeatureIndex index = new FeatureIndex(TestStrings.NAMES, new JaroWinklerStrategy());
+		assertEquals(plain.scoreAll(TestStrings.NAMES, "Marta"), service.scoreAllAsync(TestStrings.NAMES, "Marta").get());
+		assertEquals(plain.scoreAll(index, "Marta"), service.scoreAllAsync(index, "Marta").get());
+		assertEquals(plain.findTop(TestStrings.NAMES, "Marta"), service.findTopAsync(TestStrings.NAMES, "Marta").get());
+		assertEquals(plain.findTop(index, "Marta"), service.findTopAsync(index, "Marta").get());
+		assertEquals(plain.findTopK(TestStrings.NAMES, "Marta", 3), service.findTopKAsync(TestStrings.NAMES, "Marta", 3).get());
+		assertEquals(plain.findTopK(index, "Marta", 3), service.findTopKAsync(index, "Marta", 3).get());
+		assertSame(AsyncStringSimilarityService.defaultExecutor(), service.getExecutor());
+	}
+
+	@Test
+	public void testConcurrencyIsBounded() throws Exception {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger peak = new AtomicInteger();
+		final CountDownLatch release = new CountDownLatch(1);
+		SimilarityStrategy slow = new SimilarityStrategy() {
+			public double score(String first, String second) {
+				int now = running.incrementAndGet();
+				int before = peak.get();
+				while (now > before && !peak.compareAndSet(before, now)) {
+					before = peak.get();
+				}
+				try {
+					release.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+				return 1.0;
+			}
+		};
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			AsyncStringSimilarityService service = new AsyncStringSimilarityService(
+					new StringSimilarityServiceImpl(slow), executor, 2);
+			List<CompletableFuture<SimilarityScore>> futures = new ArrayList<CompletableFuture<SimilarityScore>>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(service.findTopAsync(Arrays.asList("a"), "a"));
+			}
+			while (running.get() < 2) {
+				Thread.sleep(1);
+			}
+			Thread.sleep(20);
+			assertEquals(2, running.get());
+			release.countDown();
+			for (CompletableFuture<SimilarityScore> future : futures) {
+				assertEquals(1.0, future.get(10, TimeUnit.SECONDS).getScore(), 0.0);
+			}
+			assertEquals(2, peak.get());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testCancelledQueryIsNotScored() throws Exception {
+		final AtomicInteger calls = new AtomicInteger();
+		SimilarityStrategy counting = new SimilarityStrategy() {
+			public double score(String first, String second) {
+				calls.incrementAndGet();
+				return 1.0;
+			}
+		};
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		Executor manual = new Executor() {
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		};
+		AsyncStringSimilarityService service = new AsyncStringSimilarityService(
+				new StringSimilarityServiceImpl(counting), manual, 1);
+		CompletableFuture<SimilarityScore> first = service.findTopAsync(Arrays.asList("a"), "a");
+		CompletableFuture<SimilarityScore> second = service.findTopAsync(Arrays.asList("b"), "b");
+		assertEquals(1, tasks.size());
+		second.cancel(false);
+		tasks.remove(0).run();
+		assertEquals(1, tasks.size());
+		tasks.remove(0).run();
+		assertEquals(1.0, first.get().getScore(), 0.0);
+		assertTrue(second.isCancelled());
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void testFailures() throws Exception {
+		SimilarityStrategy failing = new SimilarityStrategy() {
+			public double score(String first, String second) {
+				throw new IllegalStateException("failed");
+			}
+		};
+		AsyncStringSimilarityService service = new AsyncStringSimilarityService(new StringSimilarityServiceImpl(failing));
+		try {
+			service.findTopAsync(TestStrings.NAMES, "Marta").get();
+			fail();
+		}
+		catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+
+		Executor rejecting = new Executor() {
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException();
+			}
+		};
+		service = new AsyncStringSimilarityService(new StringSimilarityServiceImpl(new JaroWinklerStrategy()), rejecting, 1);
+		for (int i = 0; i < 2; i++) {
+			try {
+				service.findTopAsync(TestStrings.NAMES, "Marta").get();
+				fail();
+			}
+			catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof RejectedExecutionException);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMaxConcurrencyMustBePositive() {
+		new AsyncStringSimilarityService(new StringSimilarityServiceImpl(new JaroWinklerStrategy()), AsyncStringSimilarityService.defaultExecutor(), 0);
+	}
+
+}
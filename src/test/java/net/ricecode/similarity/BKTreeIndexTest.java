@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BKTreeIndexTest {
+
+	private static final LevenshteinDistanceStrategy STRATEGY = new LevenshteinDistanceStrategy();
+
+	@Test
+	public void testFindWithin() {
+		BKTreeIndex tree = new BKTreeIndex(Arrays.asList("book", "books", "cake", "boo", "cape", "cart", "boon"));
+		assertEquals(Arrays.asList(
+				new SimilarityScore("book", 1.0),
+				new SimilarityScore("books", 0.8),
+				new SimilarityScore("boo", 0.75),
+				new SimilarityScore("boon", 0.75)), tree.findWithin("Book", 1));
+		assertEquals(0, tree.findWithin("xyzzy", 2).size());
+	}
+
+	@Test
+	public void testFindWithinMatchesBruteForce() {
+		List<String> features = randomFeatures(new Random(11), 2000);
+		BKTreeIndex tree = new BKTreeIndex(features);
+		Random random = new Random(12);
+		for (int i = 0; i < 50; i++) {
+			String target = features.get(random.nextInt(features.size())) + "ab".charAt(random.nextInt(2));
+			for (int k = 0; k <= 3; k++) {
+				List<SimilarityScore> expected = new ArrayList<SimilarityScore>();
+				for (String feature : features) {
+					if (STRATEGY.computeEditDistance(feature, target) <= k) {
+						expected.add(new SimilarityScore(feature, STRATEGY.score(feature, target)));
+					}
+				}
+				assertEquals(target + " / " + k, expected, tree.findWithin(target, k));
+			}
+		}
+	}
+
+	@Test
+	public void testFindAboveMatchesScoreAbove() {
+		List<String> features = randomFeatures(new Random(13), 2000);
+		BKTreeIndex tree = new BKTreeIndex(features);
+		StringSimilarityService service = new StringSimilarityServiceImpl(STRATEGY);
+		Random random = new Random(14);
+		for (int i = 0; i < 50; i++) {
+			String target = features.get(random.nextInt(features.size())).substring(1);
+			for (double minScore : new double[] { 0.0, 0.5, 0.7, 0.8, 0.9, 1.0 }) {
+				assertEquals(target + " / " + minScore,
+						service.scoreAbove(features, target, minScore), tree.findAbove(target, minScore));
+			}
+		}
+	}
+
+	@Test
+	public void testFindNearestMatchesBruteForce() {
+		List<String> features = randomFeatures(new Random(15), 2000);
+		BKTreeIndex tree = new BKTreeIndex(features);
+		Random random = new Random(16);
+		for (int i = 0; i < 50; i++) {
+			String target = randomFeatures(random, 1).get(0);
+			List<SimilarityScore> nearest = tree.findNearest(target, 5);
+			assertEquals(5, nearest.size());
+
+			// Rank every feature by distance, keeping the original order among equal distances.
+			int[] distances = new int[features.size()];
+			for (int j = 0; j < distances.length; j++) {
+				distances[j] = STRATEGY.computeEditDistance(features.get(j), target);
+			}
+			int last = -1;
+			int found = 0;
+			for (int d = 0; found < 5; d++) {
+				for (int j = 0; j < distances.length && found < 5; j++) {
+					if (distances[j] == d) {
+						assertEquals(target, features.get(j), nearest.get(found).getKey());
+						last = d;
+						found++;
+					}
+				}
+			}
+			assertTrue(last >= 0);
+			assertEquals(nearest.get(0), tree.findNearest(target));
+		}
+	}
+
+	@Test
+	public void testDuplicates() {
+		BKTreeIndex tree = new BKTreeIndex(Arrays.asList("Smith", "Smyth", "smith", "SMITH"));
+		assertEquals(Arrays.asList(
+				new SimilarityScore("Smith", 1.0),
+				new SimilarityScore("smith", 1.0),
+				new SimilarityScore("SMITH", 1.0)), tree.findWithin("smith", 0));
+		assertEquals(Arrays.asList(
+				new SimilarityScore("Smith", 1.0),
+				new SimilarityScore("smith", 1.0)), tree.findNearest("smith", 2));
+		assertEquals(4, tree.findNearest("smith", Integer.MAX_VALUE).size());
+	}
+
+	@Test
+	public void testEmptyTree() {
+		BKTreeIndex tree = new BKTreeIndex(new ArrayList<String>());
+		assertEquals(0, tree.size());
+		assertNull(tree.findNearest("smith"));
+		assertEquals(0, tree.findNearest("smith", Integer.MAX_VALUE).size());
+		assertEquals(0, tree.findWithin("smith", 3).size());
+		assertEquals(0, tree.findAbove("smith", 0.5).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeDistance() {
+		new BKTreeIndex(Arrays.asList("smith")).findWithin("smith", -1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSubclassRejected() {
+		new BKTreeIndex(Arrays.asList("smith"), new LevenshteinDistanceStrategy() {
+			@Override
+			protected int computeEditDistance(CharSequence first, CharSequence second) {
+				return 0;
+			}
+		});
+	}
+
+	private static List<String> randomFeatures(Random random, int count) {
+		return TestStrings.randomStrings(random, "abcdeMS", 3, 10, count);
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.junit.Test;
+
+public class CachingSimilarityStrategyTest {
+
+	@Test
+	public void testScoresOnce() {
+		SimilarityStrategy strategy = mock(SimilarityStrategy.class);
+		when(strategy.score("MacMahons", "McDonalds")).thenReturn(0.9);
+
+		CachingSimilarityStrategy cache = new CachingSimilarityStrategy(strategy, 100);
+		assertEquals(0.9, cache.score("MacMahons", "McDonalds"), 0.0);
+		assertEquals(0.9, cache.score(new String("MacMahons"), "McDonalds"), 0.0);
+		verify(strategy, times(1)).score("MacMahons", "McDonalds");
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testOrderedPairs() {
+		SimilarityStrategy strategy = mock(SimilarityStrategy.class);
+		when(strategy.score("MacMahons", "McDonalds")).thenReturn(0.9);
+		when(strategy.score("McDonalds", "MacMahons")).thenReturn(0.8);
+
+		CachingSimilarityStrategy cache = new CachingSimilarityStrategy(strategy, 100);
+		assertEquals(0.9, cache.score("MacMahons", "McDonalds"), 0.0);
+		assertEquals(0.8, cache.score("McDonalds", "MacMahons"), 0.0);
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testSymmetricPairsShareEntry() {
+		SimilarityStrategy strategy = mock(SimilarityStrategy.class);
+		when(strategy.score(anyString(), anyString())).thenReturn(0.9);
+
+		CachingSimilarityStrategy cache = new CachingSimilarityStrategy(strategy, 100, true);
+		cache.score("MacMahons", "McDonalds");
+		cache.score("McDonalds", "MacMahons");
+		verify(strategy, times(1)).score(anyString(), anyString());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() {
+		SimilarityStrategy strategy = mock(SimilarityStrategy.class);
+		when(strategy.score(anyString(), anyString())).thenReturn(0.5);
+
+		// A single segment, so the order of use decides what is evicted.
+		CachingSimilarityStrategy cache = new CachingSimilarityStrategy(strategy, 1);
+		cache.score("a", "b");
+		cache.score("c", "d");
+		cache.score("a", "b");
+		verify(strategy, times(2)).score("a", "b");
+		assertEquals(2, cache.getEvictionCount());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testSizeIsBounded() {
+		CachingSimilarityStrategy cache = new CachingSimilarityStrategy(new LevenshteinDistanceStrategy(), 100);
+		for (int i = 0; i < 1000; i++) {
+			cache.score("feature" + i, "target");
+		}
+		assertTrue(cache.size() <= 100);
+		assertEquals(1000, cache.getMissCount());
+	}
+
+	@Test
+	public void testExpiry() {
+		SimilarityStrategy strategy = mock(SimilarityStrategy.class);
+		when(strategy.score(anyString(), anyString())).thenReturn(0.5);
+		final long[] now = { 0 };
+		LongSupplier ticker = new LongSupplier() {
+			public long getAsLong() {
+				return now[0];
+			}
+		};
+
+		CachingSimilarityStrategy cache = new CachingSimilarityStrategy(strategy, 100, false, 1000, ticker);
+		cache.score("MacMahons", "McDonalds");
+		now[0] = 999;
+		cache.score("MacMahons", "McDonalds");
+		now[0] = 1000;
+		cache.score("MacMahons", "McDonalds");
+		verify(strategy, times(2)).score("MacMahons", "McDonalds");
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getEvictionCount());
+	}
+
+	@Test
+	public void testZeroSize() {
+		SimilarityStrategy strategy = mock(SimilarityStrategy.class);
+		CachingSimilarityStrategy cache = new CachingSimilarityStrategy(strategy, 0);
+		cache.score("MacMahons", "McDonalds");
+		cache.score("MacMahons", "McDonalds");
+		verify(strategy, times(2)).score("MacMahons", "McDonalds");
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testClear() {
+		CachingSimilarityStrategy cache = new CachingSimilarityStrategy(new JaroStrategy(), 100);
+		cache.score("MacMahons", "McDonalds");
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeSize() {
+		new CachingSimilarityStrategy(new JaroStrategy(), -1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeExpiry() {
+		new CachingSimilarityStrategy(new JaroStrategy(), 100, false, -1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testConcurrentScoresMatchStrategy() throws Exception {
+		final SimilarityStrategy strategy = new JaroWinklerStrategy();
+		final CachingSimilarityStrategy cache = new CachingSimilarityStrategy(strategy, 64, true);
+		final String[] words = { "MacMahons", "McPherson", "McDonalds", "Donald", "McDonald's", "Mack", "Dalton", "Dixon" };
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 4; t++) {
+				results.add(executor.submit(new Callable<Boolean>() {
+					public Boolean call() {
+						for (int i = 0; i < 10000; i++) {
+							String first = words[i % words.length];
+							String second = words[(i / words.length) % words.length];
+							if (cache.score(first, second) != strategy.score(first, second)) {
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertEquals(40000, cache.getHitCount() + cache.getMissCount());
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DamerauOsaStrategyTest {
+
+    private static final String[] WORDS = { "kitten", "sitting", "Saturday", "Sunday", "John", "Jonh", "he", "HEAD", "", "Crème Brûlée", "İstanbul" };
+
+    @Test (expected = NullPointerException.class)
+    public void testNullThrows() {
+        new DamerauOsaStrategy().score(null, "foo");
+    }
+
+    @Test
+    public void emptyStringTest() {
+        assertEquals(1.0d, new DamerauOsaStrategy().score("", ""), 0.0d);
+    }
+
+    @Test
+    public void testTranspositionIsOneEdit() {
+        DamerauOsaStrategy s = new DamerauOsaStrategy();
+        assertEquals(0.75d, s.score("Jonh", "JOHN"), 0.0d);
+        assertEquals(0.5d, new LevenshteinDistanceStrategy().score("Jonh", "JOHN"), 0.0d);
+    }
+
+    @Test
+    public void testMatchesLevenshteinWithoutTranspositions() {
+        DamerauOsaStrategy s = new DamerauOsaStrategy();
+        LevenshteinDistanceStrategy lds = new LevenshteinDistanceStrategy();
+        assertEquals(lds.score("kitten", "sitting"), s.score("kitten", "sitting"), 0.0d);
+        assertEquals(lds.score("Saturday", "Sunday"), s.score("Saturday", "Sunday"), 0.0d);
+        for (String first : WORDS) {
+            for (String second : WORDS) {
+                assertTrue(first + " / " + second, s.score(first, second) >= lds.score(first, second));
+            }
+        }
+    }
+
+    @Test
+    public void thresholdScoreAgreesWithScore() {
+        DamerauOsaStrategy s = new DamerauOsaStrategy();
+        Random random = new Random(11);
+        double[] minScores = { 0.0d, 0.5d, 0.8d, 0.85d, 0.95d, 1.0d };
+        for (int i = 0; i < 2000; i++) {
+            String first = TestStrings.randomString(random, "abcAB", 1 + random.nextInt(150));
+            String second = random.nextBoolean() ? TestStrings.randomString(random, "abcAB", 1 + random.nextInt(150)) : TestStrings.swapSome(random, first, 8);
+            double expected = s.score(first, second);
+            for (double minScore : minScores) {
+                double response = s.score(first, second, minScore);
+                assertEquals(first + " / " + second, expected >= minScore ? expected : 0.0d, response, 0.0d);
+            }
+        }
+    }
+
+    @Test
+    public void preparedScoreMatchesScore() {
+        DamerauOsaStrategy s = new DamerauOsaStrategy();
+        for (String first : WORDS) {
+            for (String second : WORDS) {
+                PreparedString p1 = s.prepare(first);
+                PreparedString p2 = s.prepare(second);
+                assertEquals(first + " / " + second, s.score(first, second), s.score(p1, p2), 0.0d);
+                assertTrue(first + " / " + second, s.upperBound(p1, p2) >= s.score(p1, p2));
+            }
+        }
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void preparedByOtherStrategyThrows() {
+        DamerauOsaStrategy s = new DamerauOsaStrategy();
+        s.score(s.prepare("John"), new JaroStrategy().prepare("Jonh"));
+    }
+
+    @Test
+    public void scoreIntoMatchesScore() {
+        DamerauOsaStrategy s = new DamerauOsaStrategy();
+        List<String> features = Arrays.asList(WORDS);
+        for (String target : WORDS) {
+            double[] scores = new double[features.size()];
+            s.scoreInto(target, features, scores);
+            for (int i = 0; i < features.size(); i++) {
+                assertEquals(features.get(i) + " / " + target, s.score(features.get(i), target), scores[i], 0.0d);
+            }
+        }
+    }
+
+    @Test
+    public void scoreCharSequenceMatchesScore() {
+        DamerauOsaStrategy s = new DamerauOsaStrategy();
+        for (String first : WORDS) {
+            char[] buffer = ("<" + first + ">").toCharArray();
+            CharSequence slice = CharBuffer.wrap(buffer, 1, first.length());
+            for (String second : WORDS) {
+                assertEquals(first + " / " + second, s.score(first, second), s.score(slice, new StringBuilder(second)), 0.0d);
+                assertEquals(first + " / " + second, s.score(first, second, 0.5d), s.score(slice, new StringBuilder(second), 0.5d), 0.0d);
+            }
+        }
+    }
+
+    @Test
+    public void serviceFindsTransposedName() {
+        StringSimilarityService service = new StringSimilarityServiceImpl(new DamerauOsaStrategy());
+        List<String> features = Arrays.asList("Joan", "John", "Jonas");
+        SimilarityScore top = service.findTop(features, "Jonh");
+        assertEquals("John", top.getKey());
+        assertEquals(Arrays.asList(new SimilarityScore("John", 0.75d)), service.scoreAbove(features, "Jonh", 0.75d));
+    }
+}
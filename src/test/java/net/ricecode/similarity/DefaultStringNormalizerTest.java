@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class DefaultStringNormalizerTest {
+
+	@Test
+	public void testFoldsCaseByDefault() {
+		StringNormalizer normalizer = new DefaultStringNormalizer();
+		assertEquals("crème  brûlée", normalizer.normalize("Crème  Brûlée"));
+	}
+
+	@Test
+	public void testStripAccents() {
+		StringNormalizer normalizer = new DefaultStringNormalizer(false, true, false);
+		assertEquals("Creme Brulee", normalizer.normalize("Crème Brûlée"));
+		assertEquals("Creme Brulee", normalizer.normalize("Crème Brûlée"));
+	}
+
+	@Test
+	public void testStripAccentsKeepsPrecomposedHangul() {
+		StringNormalizer normalizer = new DefaultStringNormalizer(false, true, false);
+		assertEquals("한국어", normalizer.normalize("한국어"));
+	}
+
+	@Test
+	public void testCollapseWhitespace() {
+		StringNormalizer normalizer = new DefaultStringNormalizer(false, false, true);
+		assertEquals("Mc Donalds Corp", normalizer.normalize(" \tMc  Donalds\n Corp  "));
+		assertEquals("", normalizer.normalize("   "));
+	}
+
+	@Test
+	public void testAllSteps() {
+		StringNormalizer normalizer = new DefaultStringNormalizer(true, true, true);
+		assertEquals("creme brulee", normalizer.normalize("  Crème   BRÛLÉE "));
+	}
+}
@@ -25,6 +25,14 @@ package net.ricecode.similarity;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
 import org.junit.Test;
 
 public class DiceCoefficientStrategyTest {
@@ -86,4 +94,103 @@ public class DiceCoefficientStrategyTest {
 		assertEquals(expected, actual, delta);
 	}
 
+	@Test
+	public void testSingleCharacterStrings() {
+		SimilarityStrategy s = new DiceCoefficientStrategy();
+		assertEquals(1.000, s.score("a", "a"), 0.000);
+		assertEquals(0.000, s.score("a", "b"), 0.000);
+		assertEquals(0.000, s.score("a", "ab"), 0.000);
+		assertEquals(0.000, s.score("abab", "a"), 0.000);
+		assertEquals(1.000, s.score("", ""), 0.000);
+		assertEquals(0.000, s.score("", "a"), 0.000);
+	}
+
+	@Test
+	public void testMatchesStringBigramSets() {
+		SimilarityStrategy s = new DiceCoefficientStrategy();
+		Random random = new Random(3);
+		String alphabet = "abcAB\u00e9\u4e00\uffff";
+		for (int i = 0; i < 2000; i++) {
+			String first = TestStrings.randomString(random, alphabet, random.nextInt(40));
+			String second = TestStrings.randomString(random, alphabet, random.nextInt(40));
+			assertEquals(first + " / " + second, referenceScore(first, second), s.score(first, second), 0.000);
+		}
+	}
+
+	private static double referenceScore(String first, String second) {
+		Set<String> s1 = splitIntoBigrams(first);
+		Set<String> s2 = splitIntoBigrams(second);
+		int n1 = s1.size();
+		int n2 = s2.size();
+		s1.retainAll(s2);
+		return (2.0 * (double)s1.size()) / ((double)(n1 + n2));
+	}
+
+	private static Set<String> splitIntoBigrams(String s) {
+		ArrayList<String> bigrams = new ArrayList<String>();
+		if (s.length() < 2) {
+			bigrams.add(s);
+		}
+		else {
+			for (int i = 1; i < s.length(); i++) {
+				bigrams.add(s.substring(i - 1, i + 1));
+			}
+		}
+		return new TreeSet<String>(bigrams);
+	}
+
+	@Test
+	public void testPreparedScoreMatchesScore() {
+		DiceCoefficientStrategy s = new DiceCoefficientStrategy();
+		String[] words = { "Martha", "Marhta", "Dwayne", "Duane", "Dixon", "Dicksonx", "Mississippi", "Oklahoma", "a", "" };
+		for (String first : words) {
+			for (String second : words) {
+				double expected = s.score(first, second);
+				double actual = s.score(s.prepare(first), s.prepare(second));
+				assertEquals(first + " / " + second, expected, actual, 0.000);
+			}
+		}
+	}
+
+	@Test
+	public void testUpperBound() {
+		DiceCoefficientStrategy s = new DiceCoefficientStrategy();
+		String[] words = { "Martha", "Marhta", "Dwayne", "Duane", "Dixon", "Dicksonx", "Mississippi", "Oklahoma", "a", "" };
+		for (String first : words) {
+			for (String second : words) {
+				PreparedString p1 = s.prepare(first);
+				PreparedString p2 = s.prepare(second);
+				assertTrue(first + " / " + second, s.upperBound(p1, p2) >= s.score(p1, p2));
+			}
+		}
+		assertEquals(2.0 * 2 / 7.0, s.upperBound(s.prepare("abc"), s.prepare("abcdef")), 0.000);
+	}
+
+	@Test
+	public void testScoreInto() {
+		DiceCoefficientStrategy s = new DiceCoefficientStrategy();
+		List<String> words = Arrays.asList("Martha", "Marhta", "Dwayne", "DUANE", "Dixon", "Dicksonx", "Mississippi", "a", "", "Crème Brûlée");
+		for (String target : words) {
+			double[] scores = new double[words.size()];
+			s.scoreInto(target, words, scores);
+			for (int i = 0; i < words.size(); i++) {
+				assertEquals(words.get(i) + " / " + target, s.score(words.get(i), target), scores[i], 0.000);
+			}
+		}
+	}
+
+	@Test
+	public void testScoreCharSequence() {
+		DiceCoefficientStrategy s = new DiceCoefficientStrategy();
+		List<String> words = Arrays.asList("Martha", "Marhta", "Dwayne", "DUANE", "Dixon", "Dicksonx", "Mississippi", "a", "", "Crème Brûlée", "İstanbul");
+		for (String first : words) {
+			char[] buffer = ("<" + first + ">").toCharArray();
+			CharSequence slice = CharBuffer.wrap(buffer, 1, first.length());
+			for (String second : words) {
+				assertEquals(first + " / " + second, s.score(first, second), s.score(slice, new StringBuilder(second)), 0.000);
+				assertEquals(second + " / " + first, s.score(second, first), s.score(new StringBuilder(second), slice), 0.000);
+			}
+		}
+	}
+
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DiceIndexTest {
+
+	@Test
+	public void testFindAbove() {
+		DiceIndex index = new DiceIndex(Arrays.asList("night", "nacht", "nightly", "day", "knight"));
+		List<SimilarityScore> scores = index.findAbove("night", 0.7);
+		assertEquals(Arrays.asList(
+				new SimilarityScore("night", 1.0),
+				new SimilarityScore("nightly", 0.8),
+				new SimilarityScore("knight", 2.0 * 4 / 9)), scores);
+	}
+
+	@Test
+	public void testFindAboveMatchesScoreAbove() {
+		List<String> features = randomFeatures(new Random(31), 3000);
+		DiceIndex index = new DiceIndex(features);
+		StringSimilarityService service = new StringSimilarityServiceImpl(new DiceCoefficientStrategy());
+		Random random = new Random(32);
+		for (int i = 0; i < 40; i++) {
+			String target = i % 10 == 0 ? "a" : randomFeatures(random, 1).get(0);
+			for (double minScore : new double[] { 0.0, 0.1, 0.3, 0.5, 0.7, 0.9, 1.0 }) {
+				assertEquals(target + " / " + minScore,
+						service.scoreAbove(features, target, minScore), index.findAbove(target, minScore));
+			}
+		}
+	}
+
+	@Test
+	public void testFindTopKMatchesService() {
+		List<String> features = randomFeatures(new Random(33), 3000);
+		DiceIndex index = new DiceIndex(features);
+		StringSimilarityService service = new StringSimilarityServiceImpl(new DiceCoefficientStrategy());
+		Random random = new Random(34);
+		for (int i = 0; i < 40; i++) {
+			String target = i % 10 == 0 ? "b" : randomFeatures(random, 1).get(0);
+			for (int k : new int[] { 0, 1, 10, 3000, Integer.MAX_VALUE }) {
+				assertEquals(target + " / " + k, service.findTopK(features, target, k), index.findTopK(target, k));
+			}
+			assertEquals(service.findTop(features, target), index.findTop(target));
+		}
+	}
+
+	@Test
+	public void testFewOverlappingFeatures() {
+		DiceIndex index = new DiceIndex(Arrays.asList("xyz", "night", "abc", "", "nightly"));
+		assertEquals(Arrays.asList(
+				new SimilarityScore("night", 1.0),
+				new SimilarityScore("nightly", 0.8),
+				new SimilarityScore("xyz", 0.0),
+				new SimilarityScore("abc", 0.0)), index.findTopK("night", 4));
+		assertEquals(Arrays.asList(
+				new SimilarityScore("", 1.0),
+				new SimilarityScore("xyz", 0.0)), index.findTopK("", 2));
+	}
+
+	@Test
+	public void testEmptyIndex() {
+		DiceIndex index = new DiceIndex(new ArrayList<String>());
+		assertNull(index.findTop("night"));
+		assertEquals(0, index.findAbove("night", 0.5).size());
+		assertEquals(0, index.findAbove("night", 0.0).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeK() {
+		new DiceIndex(Arrays.asList("night")).findTopK("night", -1);
+	}
+
+	private static List<String> randomFeatures(Random random, int count) {
+		return TestStrings.randomStrings(random, "abcdeAB", 0, 11, count);
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class FeatureIndexTest {
+
+	@Test
+	public void testFeatures() {
+		List<String> features = Arrays.asList("MacMahons", "McPherson", "McDonalds");
+		FeatureIndex index = new FeatureIndex(features, new JaroWinklerStrategy());
+		assertEquals(3, index.size());
+		assertEquals("McPherson", index.getFeature(1));
+		assertEquals(features, index.getFeatures());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testFeaturesAreUnmodifiable() {
+		FeatureIndex index = new FeatureIndex(Arrays.asList("MacMahons"), new JaroWinklerStrategy());
+		index.getFeatures().set(0, "McDonalds");
+	}
+
+	@Test
+	public void testPreparedForStrategy() {
+		SimilarityStrategy strategy = new DiceCoefficientStrategy();
+		FeatureIndex index = new FeatureIndex(Arrays.asList("MacMahons", "McDonalds"), strategy);
+		assertTrue(index.isPreparedFor(strategy));
+		assertFalse(index.isPreparedFor(new DiceCoefficientStrategy()));
+		assertEquals("McDonalds", index.getPrepared(1).getSource());
+	}
+
+	@Test
+	public void testNotPreparedForPlainStrategy() {
+		SimilarityStrategy strategy = new SimilarityStrategy() {
+			public double score(String first, String second) {
+				return first.equals(second) ? 1.0 : 0.0;
+			}
+		};
+		FeatureIndex index = new FeatureIndex(Arrays.asList("MacMahons", "McDonalds"), strategy);
+		assertFalse(index.isPreparedFor(strategy));
+		assertEquals(2, index.size());
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+	@Test
+	public void testBucketsCoverValues() {
+		Random random = new Random(3);
+		for (int i = 0; i < 100000; i++) {
+			long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+			int index = Histogram.index(value);
+			long highest = Histogram.highestValue(index);
+			long lowest = index == 0 ? 0 : Histogram.highestValue(index - 1) + 1;
+			assertTrue(value + " in " + index, lowest <= value && value <= highest);
+			assertTrue(value + " in " + index, highest - lowest <= Math.max(0, lowest / 16));
+		}
+		assertEquals(Long.MAX_VALUE, Histogram.highestValue(Histogram.index(Long.MAX_VALUE)));
+	}
+
+	@Test
+	public void testPercentiles() {
+		Histogram histogram = new Histogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		assertEquals(1000, histogram.count());
+		assertEquals(500.5, histogram.mean(), 0.000001);
+		assertEquals(1000, histogram.max());
+		assertEquals(500, histogram.percentile(50.0), 500 / 16);
+		assertTrue(histogram.percentile(50.0) >= 500);
+		assertEquals(990, histogram.percentile(99.0), 990 / 16);
+		assertEquals(1000, histogram.percentile(99.9));
+		assertEquals(1, histogram.percentile(0.0));
+	}
+
+	@Test
+	public void testEmptyAndReset() {
+		Histogram histogram = new Histogram();
+		assertEquals(0, histogram.percentile(99.0));
+		assertEquals(0.0, histogram.mean(), 0.0);
+		histogram.record(-5);
+		histogram.record(7);
+		assertEquals(0, histogram.percentile(50.0));
+		assertEquals(7, histogram.max());
+		histogram.reset();
+		assertEquals(0, histogram.count());
+		assertEquals(0, histogram.max());
+	}
+
+	@Test
+	public void testConcurrentRecording() throws InterruptedException {
+		final Histogram histogram = new Histogram();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						histogram.record(i % 100);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(40000, histogram.count());
+		assertEquals(99, histogram.max());
+	}
+}
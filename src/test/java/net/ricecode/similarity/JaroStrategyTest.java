@@ -24,6 +24,12 @@
 package net.ricecode.similarity;
 
 import static org.junit.Assert.*;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
 import org.junit.Test;
 
 public class JaroStrategyTest {
@@ -84,5 +90,89 @@ public class JaroStrategyTest {
 		double actual = s.score(first, second);
 		assertEquals(expected, actual, delta);
 	}
-	
+
+	@Test
+	public void testPreparedScoreMatchesScore() {
+		JaroStrategy s = new JaroStrategy();
+		String[] words = { "Martha", "Marhta", "Dwayne", "Duane", "Dixon", "Dicksonx", "Mississippi", "Oklahoma", "a", "" };
+		for (String first : words) {
+			for (String second : words) {
+				double expected = s.score(first, second);
+				double actual = s.score(s.prepare(first), s.prepare(second));
+				assertEquals(first + " / " + second, expected, actual, 0.000);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPreparedByOtherStrategy() {
+		JaroStrategy s = new JaroStrategy();
+		s.score(s.prepare("Martha"), new DiceCoefficientStrategy().prepare("Marhta"));
+	}
+
+	@Test
+	public void testUpperBound() {
+		JaroStrategy s = new JaroStrategy();
+		String[] words = { "Martha", "Marhta", "Dwayne", "Duane", "Dixon", "Dicksonx", "Mississippi", "Oklahoma", "a", "" };
+		for (String first : words) {
+			for (String second : words) {
+				PreparedString p1 = s.prepare(first);
+				PreparedString p2 = s.prepare(second);
+				assertTrue(first + " / " + second, s.upperBound(p1, p2) >= s.score(p1, p2));
+			}
+		}
+		assertEquals(0.0, s.upperBound(s.prepare(""), s.prepare("Martha")), 0.000);
+		assertEquals((2 / 2.0 + 2 / 8.0 + 1.0) / 3.0, s.upperBound(s.prepare("ab"), s.prepare("abcdefgh")), 0.000);
+	}
+
+	@Test
+	public void testAsterisk() {
+		SimilarityStrategy s = new JaroStrategy();
+		assertEquals(2.0 / 3.0, s.score("a*", "ab"), 0.000);
+		assertEquals(2.0 / 3.0, s.score("**", "*a"), 0.000);
+		assertEquals(1.0, s.score("*ab*", "*AB*"), 0.000);
+	}
+
+	@Test
+	public void testFollowsDefaultLocale() {
+		SimilarityStrategy s = new JaroStrategy();
+		Locale original = Locale.getDefault();
+		try {
+			Locale.setDefault(new Locale("tr"));
+			assertEquals(1.0, s.score("KIR", "kır"), 0.000);
+			Locale.setDefault(Locale.ENGLISH);
+			assertEquals(7.0 / 9.0, s.score("KIR", "kır"), 0.000001);
+		}
+		finally {
+			Locale.setDefault(original);
+		}
+	}
+
+	@Test
+	public void testScoreInto() {
+		JaroStrategy s = new JaroStrategy();
+		List<String> words = Arrays.asList("Martha", "Marhta", "Dwayne", "DUANE", "Dixon", "Dicksonx", "Mississippi", "a", "", "Crème Brûlée");
+		for (String target : words) {
+			double[] scores = new double[words.size()];
+			s.scoreInto(target, words, scores);
+			for (int i = 0; i < words.size(); i++) {
+				assertEquals(words.get(i) + " / " + target, s.score(words.get(i), target), scores[i], 0.000);
+			}
+		}
+	}
+
+	@Test
+	public void testScoreCharSequence() {
+		JaroStrategy s = new JaroStrategy();
+		List<String> words = Arrays.asList("Martha", "Marhta", "Dwayne", "DUANE", "Dixon", "Dicksonx", "Mississippi", "a", "", "Crème Brûlée", "İstanbul");
+		for (String first : words) {
+			char[] buffer = ("<" + first + ">").toCharArray();
+			CharSequence slice = CharBuffer.wrap(buffer, 1, first.length());
+			for (String second : words) {
+				assertEquals(first + " / " + second, s.score(first, second), s.score(slice, new StringBuilder(second)), 0.000);
+				assertEquals(second + " / " + first, s.score(second, first), s.score(new StringBuilder(second), slice), 0.000);
+			}
+		}
+	}
+
 }
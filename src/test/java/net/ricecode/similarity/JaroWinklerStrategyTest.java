@@ -25,6 +25,10 @@ package net.ricecode.similarity;
 
 import static org.junit.Assert.*;
 
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 
 public class JaroWinklerStrategyTest {
@@ -85,4 +89,74 @@ public class JaroWinklerStrategyTest {
 		double actual = s.score(first, second);
 		assertEquals(expected, actual, delta);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testPreparedScoreMatchesScore() {
+		JaroWinklerStrategy s = new JaroWinklerStrategy();
+		String[] words = { "Martha", "Marhta", "Dwayne", "Duane", "Dixon", "Dicksonx", "Mississippi", "Oklahoma", "a", "" };
+		for (String first : words) {
+			for (String second : words) {
+				double expected = s.score(first, second);
+				double actual = s.score(s.prepare(first), s.prepare(second));
+				assertEquals(first + " / " + second, expected, actual, 0.000);
+			}
+		}
+	}
+
+	@Test
+	public void testLowerCaseLongerThanString() {
+		// "İ" lower-cases to two characters, so "Aİ" has the longer lower case form of the two strings.
+		JaroWinklerStrategy s = new JaroWinklerStrategy();
+		double jaro = new JaroStrategy().score("Aİ", "ai");
+		assertEquals(jaro + 0.1 * 2 * (1.0 - jaro), s.score("Aİ", "ai"), 0.000001);
+		assertEquals(s.score("ai", "Aİ"), s.score("Aİ", "ai"), 0.000);
+	}
+
+	@Test
+	public void testUpperBound() {
+		JaroWinklerStrategy s = new JaroWinklerStrategy();
+		String[] words = { "Martha", "Marhta", "Dwayne", "Duane", "Dixon", "Dicksonx", "Mississippi", "Oklahoma", "a", "", "İİ", "iii" };
+		for (String first : words) {
+			for (String second : words) {
+				PreparedString p1 = s.prepare(first);
+				PreparedString p2 = s.prepare(second);
+				assertTrue(first + " / " + second, s.upperBound(p1, p2) >= s.score(p1, p2));
+			}
+		}
+	}
+
+	@Test
+	public void testAsterisk() {
+		SimilarityStrategy s = new JaroWinklerStrategy();
+		assertEquals(0.7, s.score("a*", "ab"), 0.000001);
+		assertEquals(1.0, s.score("*ab*", "*AB*"), 0.000);
+	}
+
+	@Test
+	public void testScoreInto() {
+		JaroWinklerStrategy s = new JaroWinklerStrategy();
+		List<String> words = Arrays.asList("Martha", "Marhta", "Dwayne", "DUANE", "Dixon", "Dicksonx", "Mississippi", "a", "", "Crème Brûlée");
+		for (String target : words) {
+			double[] scores = new double[words.size()];
+			s.scoreInto(target, words, scores);
+			for (int i = 0; i < words.size(); i++) {
+				assertEquals(words.get(i) + " / " + target, s.score(words.get(i), target), scores[i], 0.000);
+			}
+		}
+	}
+
+	@Test
+	public void testScoreCharSequence() {
+		JaroWinklerStrategy s = new JaroWinklerStrategy();
+		List<String> words = Arrays.asList("Martha", "Marhta", "Dwayne", "DUANE", "Dixon", "Dicksonx", "Mississippi", "a", "", "Crème Brûlée", "İstanbul");
+		for (String first : words) {
+			char[] buffer = ("<" + first + ">").toCharArray();
+			CharSequence slice = CharBuffer.wrap(buffer, 1, first.length());
+			for (String second : words) {
+				assertEquals(first + " / " + second, s.score(first, second), s.score(slice, new StringBuilder(second)), 0.000);
+				assertEquals(second + " / " + first, s.score(second, first), s.score(new StringBuilder(second), slice), 0.000);
+			}
+		}
+	}
+
+}
@@ -1,5 +1,10 @@
 package net.ricecode.similarity;
 
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -81,7 +86,165 @@ public class LevenshteinDistanceStrategyTest {
         assertEquals(0.625d, response, 0.0001d);
     }
 
+    @Test
+    public void scoreNonAscii() {
+        LevenshteinDistanceStrategy lds = new LevenshteinDistanceStrategy();
+        double response = lds.score("Crème Brûlée", "CRÈME BRULEE");
+        assertEquals(0.8333d, response, 0.0001d);
+    }
+
+    @Test
+    public void scoreLongerThanOneWord() {
+        LevenshteinDistanceStrategy lds = new LevenshteinDistanceStrategy();
+        StringBuilder first = new StringBuilder();
+        StringBuilder second = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            first.append((char) ('a' + i % 26));
+            second.append(i == 70 ? 'X' : (char) ('a' + i % 26));
+        }
+        double response = lds.score(first.toString(), second.toString());
+        assertEquals(0.99d, response, 0.0001d);
+    }
+
+    @Test
+    public void thresholdScoreAboveMinimum() {
+        LevenshteinDistanceStrategy lds = new LevenshteinDistanceStrategy();
+        double response = lds.score("kitten", "sitting", 0.5d);
+        assertEquals(0.5714d, response, 0.0001d);
+    }
+
+    @Test
+    public void thresholdScoreBelowMinimum() {
+        LevenshteinDistanceStrategy lds = new LevenshteinDistanceStrategy();
+        double response = lds.score("kitten", "sitting", 0.85d);
+        assertEquals(0.0d, response, 0.0d);
+    }
+
+    @Test
+    public void thresholdScoreLengthDifference() {
+        LevenshteinDistanceStrategy lds = new LevenshteinDistanceStrategy();
+        double response = lds.score("he", "headquarters", 0.5d);
+        assertEquals(0.0d, response, 0.0d);
+    }
+
+    @Test
+    public void thresholdScoreExactlyAtMinimum() {
+        LevenshteinDistanceStrategy lds = new LevenshteinDistanceStrategy();
+        double expected = lds.score("Saturday", "Sunday");
+        double response = lds.score("Saturday", "Sunday", expected);
+        assertEquals(expected, response, 0.0d);
+    }
+
+    @Test
+    public void thresholdScoreAgreesWithScore() {
+        LevenshteinDistanceStrategy lds = new LevenshteinDistanceStrategy();
+        Random random = new Random(11);
+        double[] minScores = { 0.0d, 0.5d, 0.8d, 0.85d, 0.95d, 1.0d };
+        for (int i = 0; i < 2000; i++) {
+            String first = TestStrings.randomString(random, "abcAB", 1 + random.nextInt(150));
+            String second = TestStrings.randomString(random, "abcAB", 1 + random.nextInt(150));
+            if (random.nextBoolean()) {
+                second = first.substring(0, first.length() / 2) + second.substring(second.length() / 2);
+            }
+            double expected = lds.score(first, second);
+            for (double minScore : minScores) {
+                double response = lds.score(first, second, minScore);
+                assertEquals(first + " / " + second, expected >= minScore ? expected : 0.0d, response, 0.0d);
+            }
+        }
+    }
+
+    @Test
+    public void preparedScoreMatchesScore() {
+        LevenshteinDistanceStrategy lds = new LevenshteinDistanceStrategy();
+        String[] words = { "kitten", "sitting", "Saturday", "Sunday", "he", "HEAD", "", "Crème Brûlée" };
+        for (String first : words) {
+            for (String second : words) {
+                double expected = lds.score(first, second);
+                assertEquals(first + " / " + second, expected, lds.score(lds.prepare(first), lds.prepare(second)), 0.0d);
+            }
+        }
+    }
+
+    @Test
+    public void preparedScoreReusesCompiledPattern() {
+        LevenshteinDistanceStrategy lds = new LevenshteinDistanceStrategy();
+        PreparedString target = lds.prepare("Saturday");
+        assertEquals(0.625d, lds.score(lds.prepare("Sunday"), target), 0.0001d);
+        assertEquals(0.625d, lds.score(target, lds.prepare("Sunday")), 0.0001d);
+    }
 
+    @Test
+    public void upperBound() {
+        LevenshteinDistanceStrategy lds = new LevenshteinDistanceStrategy();
+        String[] words = { "kitten", "sitting", "Saturday", "Sunday", "he", "HEAD", "", "Crème Brûlée" };
+        for (String first : words) {
+            for (String second : words) {
+                PreparedString p1 = lds.prepare(first);
+                PreparedString p2 = lds.prepare(second);
+                assertTrue(first + " / " + second, lds.upperBound(p1, p2) >= lds.score(p1, p2));
+            }
+        }
+        assertEquals(0.25d, lds.upperBound(lds.prepare("he"), lds.prepare("Saturday")), 0.0d);
+    }
 
+    @Test
+    public void preparedNormalizedKeepsCase() {
+        LevenshteinDistanceStrategy lds = new LevenshteinDistanceStrategy();
+        assertEquals(1.0d, lds.score(lds.prepareNormalized("head"), lds.prepare("HEAD")), 0.0d);
+        assertEquals(0.0d, lds.score(lds.prepareNormalized("HEAD"), lds.prepareNormalized("head")), 0.0d);
+    }
+
+    @Test
+    public void scoreIntoMatchesScore() {
+        LevenshteinDistanceStrategy lds = new LevenshteinDistanceStrategy();
+        List<String> words = Arrays.asList("kitten", "sitting", "Saturday", "Sunday", "he", "HEAD", "", "Crème Brûlée",
+                "a target that is longer than sixty four characters, so it is not compiled up front");
+        for (String target : words) {
+            double[] scores = new double[words.size()];
+            lds.scoreInto(target, words, scores);
+            for (int i = 0; i < words.size(); i++) {
+                assertEquals(words.get(i) + " / " + target, lds.score(words.get(i), target), scores[i], 0.0d);
+            }
+        }
+    }
+
+    @Test
+    public void scoreCharSequenceMatchesScore() {
+        LevenshteinDistanceStrategy lds = new LevenshteinDistanceStrategy();
+        Random random = new Random(17);
+        double[] minScores = { 0.0d, 0.5d, 0.85d, 1.0d };
+        for (int i = 0; i < 500; i++) {
+            String first = i == 0 ? "İstanbul" : TestStrings.randomString(random, "abcAB", random.nextInt(100));
+            String second = TestStrings.randomString(random, "abcAB", random.nextInt(100));
+            char[] buffer = ("<" + first + ">").toCharArray();
+            CharSequence slice = CharBuffer.wrap(buffer, 1, first.length());
+            double expected = lds.score(first, second);
+            assertEquals(first + " / " + second, expected, lds.score(slice, new StringBuilder(second)), 0.0d);
+            for (double minScore : minScores) {
+                assertEquals(first + " / " + second, lds.score(first, second, minScore),
+                        lds.score(slice, new StringBuilder(second), minScore), 0.0d);
+            }
+        }
+    }
+
+    @Test
+    public void testOverriddenEditDistance() {
+        LevenshteinDistanceStrategy lds = new LevenshteinDistanceStrategy() {
+            @Override
+            protected int computeEditDistance(String first, String second) {
+                return 0;
+            }
+
+            @Override
+            protected int computeEditDistance(String first, String second, int maxDistance) {
+                return 0;
+            }
+        };
+        assertEquals(1.0, lds.score("abc", "xyz"), 0.0d);
+        assertEquals(1.0, lds.score("abc", "xyz", 0.5), 0.0d);
+        assertEquals(1.0, lds.score((CharSequence) "abc", (CharSequence) "xyz"), 0.0d);
+        assertEquals(0.0, lds.score(new StringBuilder("abc"), "xyz"), 0.0d);
+    }
 
 }
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedFeatureSourceTest {
+
+	private static final String[] TARGETS = { "McDonalds", "mcdonald", "Crème", "東京", "K", "" };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private static List<String> dictionary() {
+		List<String> lines = new ArrayList<String>(Arrays.asList("MacMahons", "McPherson", "McDonalds", "",
+				"Crème Brûlée", "CRÈME", "東京都", "İstanbul", "ΣΟΦΙΑ", "K", "mcdonalds", "McDonald's"));
+		Random random = new Random(5);
+		String alphabet = "abcdeABCDEéÉ東京 ";
+		for (int i = 0; i < 200; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = random.nextInt(12);
+			for (int j = 0; j < length; j++) {
+				sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			lines.add(sb.toString());
+		}
+		return lines;
+	}
+
+	private Path write(String content, Charset charset) throws IOException {
+		Path file = folder.newFile().toPath();
+		Files.write(file, content.getBytes(charset));
+		return file;
+	}
+
+	private static String join(List<String> lines, String separator) {
+		StringBuilder sb = new StringBuilder();
+		for (String line : lines) {
+			sb.append(line).append(separator);
+		}
+		return sb.toString();
+	}
+
+	private static SimilarityStrategy[] strategies() {
+		return new SimilarityStrategy[] { new JaroStrategy(), new JaroWinklerStrategy(),
+				new LevenshteinDistanceStrategy(), new DiceCoefficientStrategy(),
+				new CachingSimilarityStrategy(new JaroWinklerStrategy(), 100) };
+	}
+
+	private void assertMatchesService(List<String> lines, MappedFeatureSource source) throws IOException {
+		StringSimilarityService service = new StringSimilarityServiceImpl(source.getStrategy());
+		for (String target : TARGETS) {
+			assertEquals(target, service.findTopK(lines, target, 7), source.findTopK(target, 7));
+			assertEquals(target, service.findTop(lines, target), source.findTop(target));
+			assertEquals(target, service.scoreAbove(lines, target, 0.6), source.findAbove(target, 0.6));
+		}
+	}
+
+	@Test
+	public void testMatchesServiceUtf8() throws IOException {
+		List<String> lines = dictionary();
+		Path file = write(join(lines, "\n"), StandardCharsets.UTF_8);
+		for (SimilarityStrategy strategy : strategies()) {
+			assertMatchesService(lines, new MappedFeatureSource(file, StandardCharsets.UTF_8, strategy));
+		}
+	}
+
+	@Test
+	public void testMatchesServiceLatin1() throws IOException {
+		List<String> lines = Arrays.asList("Crème Brûlée", "CRÈME", "creme", "Müller", "MULLER", "McDonalds");
+		Path file = write(join(lines, "\r\n"), StandardCharsets.ISO_8859_1);
+		for (SimilarityStrategy strategy : strategies()) {
+			assertMatchesService(lines, new MappedFeatureSource(file, StandardCharsets.ISO_8859_1, strategy));
+		}
+	}
+
+	@Test
+	public void testMatchesReader() throws IOException {
+		String content = "MacMahons\r\nMcDonalds\n\nMcPherson";
+		Path file = write(content, StandardCharsets.UTF_8);
+		SimilarityStrategy strategy = new LevenshteinDistanceStrategy();
+		MappedFeatureSource source = new MappedFeatureSource(file, StandardCharsets.UTF_8, strategy);
+		assertEquals(new StringSimilarityServiceImpl(strategy).findTopK(new StringReader(content), "McDonalds", 10),
+				source.findTopK("McDonalds", 10));
+		assertEquals(4, source.findTopK("McDonalds", 10).size());
+		assertEquals(source.findTopK("McDonalds", 10), source.findTopK("McDonalds", Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testSegmentsScannedInParallel() throws IOException {
+		List<String> lines = dictionary();
+		Path file = write(join(lines, "\n"), StandardCharsets.UTF_8);
+		for (SimilarityStrategy strategy : strategies()) {
+			MappedFeatureSource source = new MappedFeatureSource(file, StandardCharsets.UTF_8, strategy, executor, 64);
+			assertTrue(source.segments() > 10);
+			assertMatchesService(lines, source);
+		}
+	}
+
+	@Test
+	public void testMalformedInputIsReplaced() throws IOException {
+		Path file = folder.newFile().toPath();
+		Files.write(file, new byte[] { 'a', (byte) 0xC3, '\n', 'b' });
+		MappedFeatureSource source = new MappedFeatureSource(file, StandardCharsets.UTF_8, new DiceCoefficientStrategy());
+		assertEquals(new SimilarityScore("a�", 1.0), source.findTop("a�"));
+	}
+
+	@Test
+	public void testUtf8MatchesDecoder() throws IOException {
+		byte[][] lines = {
+				"Ünïcödé 東京 ㄱ".getBytes(StandardCharsets.UTF_8),
+				"😀 emoji".getBytes(StandardCharsets.UTF_8),
+				{ (byte) 0xC0, (byte) 0x80, 'a' },
+				{ (byte) 0xE0, (byte) 0x80, (byte) 0x80 },
+				{ (byte) 0xED, (byte) 0xA0, (byte) 0x80 },
+				{ 'a', (byte) 0xE6, (byte) 0x9D },
+				{ (byte) 0xC3, 'b' } };
+		List<String> expected = new ArrayList<String>();
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		for (byte[] line : lines) {
+			expected.add(new String(line, StandardCharsets.UTF_8));
+			content.write(line);
+			content.write('\n');
+		}
+		Path file = folder.newFile().toPath();
+		Files.write(file, content.toByteArray());
+		MappedFeatureSource source = new MappedFeatureSource(file, StandardCharsets.UTF_8, new DiceCoefficientStrategy());
+		assertEquals(new StringSimilarityServiceImpl(new DiceCoefficientStrategy()).scoreAbove(expected, "😀 emoji", 0.0),
+				source.findAbove("😀 emoji", 0.0));
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		MappedFeatureSource source = new MappedFeatureSource(write("", StandardCharsets.UTF_8), StandardCharsets.UTF_8, new JaroStrategy());
+		assertNull(source.findTop("McDonalds"));
+		assertEquals(0, source.findAbove("McDonalds", 0.0).size());
+	}
+
+	@Test(expected = IOException.class)
+	public void testLineLongerThanSegment() throws IOException {
+		Path file = write("a line that is too long\nb\n", StandardCharsets.UTF_8);
+		new MappedFeatureSource(file, StandardCharsets.UTF_8, new JaroStrategy(), null, 8);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedCharset() throws IOException {
+		new MappedFeatureSource(write("a\n", StandardCharsets.UTF_16), StandardCharsets.UTF_16, new JaroStrategy());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeK() throws IOException {
+		new MappedFeatureSource(write("a\n", StandardCharsets.UTF_8), StandardCharsets.UTF_8, new JaroStrategy()).findTopK("a", -1);
+	}
+
+	@Test
+	public void testToLowerCaseMatchesString() {
+		char[] chars = new char[1];
+		char[] buffer = new char[1];
+		for (int ch = 0; ch < 0x10000; ch++) {
+			chars[0] = (char) ch;
+			if (MappedFeatureSource.toLowerCase(chars, 1, buffer)) {
+				assertEquals(Integer.toHexString(ch), String.valueOf((char) ch).toLowerCase(), String.valueOf(buffer[0]));
+			}
+		}
+	}
+}
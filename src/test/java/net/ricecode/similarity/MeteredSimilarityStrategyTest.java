@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class MeteredSimilarityStrategyTest {
+
+	@Test
+	public void testCountsEveryComparison() {
+		MeteredSimilarityStrategy s = new MeteredSimilarityStrategy(new LevenshteinDistanceStrategy(), new SimilarityMetrics(1));
+		assertEquals(new LevenshteinDistanceStrategy().score("Dixon", "Dicksonx"), s.score("Dixon", "Dicksonx"), 0.0);
+		s.score("abc", "de");
+		SimilarityMetrics metrics = s.getMetrics();
+		assertEquals(2, metrics.getCallCount());
+		assertEquals(2, metrics.getSampleCount());
+		assertEquals(5 * 8 + 3 * 2, metrics.getMatrixCells());
+		assertEquals(8, metrics.getInputSizeMax());
+		assertTrue(metrics.getLatencyMaxNanos() >= metrics.getLatencyP50Nanos());
+
+		metrics.reset();
+		assertEquals(0, metrics.getCallCount());
+		assertEquals(0, metrics.getSampleCount());
+		assertEquals(1, metrics.getSamplingInterval());
+	}
+
+	@Test
+	public void testSamplingOff() {
+		MeteredSimilarityStrategy s = new MeteredSimilarityStrategy(new JaroStrategy(), new SimilarityMetrics(0));
+		for (int i = 0; i < 100; i++) {
+			s.score("Martha", "Marhta");
+		}
+		assertEquals(100, s.getMetrics().getCallCount());
+		assertEquals(0, s.getMetrics().getSampleCount());
+		assertEquals(0, s.getMetrics().getLatencyP99Nanos());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeSamplingInterval() {
+		new SimilarityMetrics(-1);
+	}
+
+	@Test
+	public void testCountsPrunedPairs() {
+		MeteredSimilarityStrategy s = new MeteredSimilarityStrategy(new LevenshteinDistanceStrategy());
+		assertEquals(0.0, s.score("Mississippi", "Dixon", 0.8), 0.0);
+		assertEquals(1.0, s.score("Dixon", "DIXON", 0.8), 0.0);
+		assertEquals(1, s.getMetrics().getPrunedCount());
+	}
+
+	@Test
+	public void testServiceScoresMatchWrappedStrategy() {
+		SimilarityStrategy[] strategies = { new LevenshteinDistanceStrategy(), new JaroWinklerStrategy(), new DiceCoefficientStrategy() };
+		for (SimilarityStrategy strategy : strategies) {
+			StringSimilarityService plain = new StringSimilarityServiceImpl(strategy);
+			MeteredSimilarityStrategy metered = new MeteredSimilarityStrategy(strategy);
+			StringSimilarityService service = new StringSimilarityServiceImpl(metered);
+			for (String target : TestStrings.NAMES) {
+				assertEquals(plain.scoreAll(TestStrings.NAMES, target), service.scoreAll(TestStrings.NAMES, target));
+				assertEquals(plain.scoreAbove(TestStrings.NAMES, target, 0.5), service.scoreAbove(TestStrings.NAMES, target, 0.5));
+			}
+			assertTrue(metered.getMetrics().getCallCount() > 0);
+		}
+	}
+
+	@Test
+	public void testFallsBackForPlainStrategy() {
+		SimilarityStrategy strategy = mock(SimilarityStrategy.class);
+		when(strategy.score("Martha", "Marhta")).thenReturn(0.9);
+		when(strategy.score("Dixon", "Marhta")).thenReturn(0.2);
+
+		MeteredSimilarityStrategy s = new MeteredSimilarityStrategy(strategy);
+		assertEquals(0.9, s.score(s.prepare("Martha"), s.prepareNormalized("Marhta")), 0.0);
+		assertEquals(1.0, s.upperBound(s.prepare("Martha"), s.prepare("Marhta")), 0.0);
+		assertEquals(0.0, s.score("Dixon", "Marhta", 0.5), 0.0);
+		double[] out = new double[2];
+		s.scoreInto("Marhta", Arrays.asList("Martha", "Dixon"), out);
+		assertArrayEquals(new double[] { 0.9, 0.2 }, out, 0.0);
+		assertEquals(4, s.getMetrics().getCallCount());
+		assertEquals(1, s.getMetrics().getPrunedCount());
+	}
+
+	@Test
+	public void testPublishedOverJmx() throws Exception {
+		MeteredSimilarityStrategy s = new MeteredSimilarityStrategy(new DiceCoefficientStrategy());
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = s.getMetrics().register("test, \"quoted\"");
+		try {
+			s.score("Martha", "Marhta");
+			assertEquals(1L, server.getAttribute(name, "CallCount"));
+			server.setAttribute(name, new Attribute("SamplingInterval", 0));
+			assertEquals(0, s.getMetrics().getSamplingInterval());
+			server.invoke(name, "reset", null, null);
+			assertEquals(0L, server.getAttribute(name, "CallCount"));
+		}
+		finally {
+			s.getMetrics().unregister();
+		}
+		assertFalse(server.isRegistered(name));
+	}
+}
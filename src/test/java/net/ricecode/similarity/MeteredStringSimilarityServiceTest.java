@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+public class MeteredStringSimilarityServiceTest {
+
+	@Test
+	public void testResultsMatchWrappedService() throws Exception {
+		StringSimilarityService plain = new StringSimilarityServiceImpl(new JaroWinklerStrategy());
+		MeteredStringSimilarityService service = new MeteredStringSimilarityService(plain, new SimilarityMetrics(1));
+		FeatureIndex index = new FeatureIndex(TestStrings.NAMES, new JaroWinklerStrategy());
+		assertEquals(plain.scoreAll(TestStrings.NAMES, "Marta"), service.scoreAll(TestStrings.NAMES, "Marta"));
+		assertEquals(plain.findTop(TestStrings.NAMES, "Marta"), service.findTop(TestStrings.NAMES, "Marta"));
+		assertEquals(plain.findTopK(index, "Marta", 3), service.findTopK(index, "Marta", 3));
+		assertEquals(plain.findTopK(new StringReader("Martha\nDixon\n"), "Marta", 1),
+				service.findTopK(new StringReader("Martha\nDixon\n"), "Marta", 1));
+		assertEquals(plain.scoreMatrix(TestStrings.NAMES, TestStrings.NAMES, 0.8), service.scoreMatrix(TestStrings.NAMES, TestStrings.NAMES, 0.8));
+		assertEquals(plain.selfJoin(TestStrings.NAMES, 0.8), service.selfJoin(TestStrings.NAMES, 0.8));
+
+		SimilarityMetrics metrics = service.getMetrics();
+		assertEquals(6, metrics.getCallCount());
+		assertEquals(6, metrics.getSampleCount());
+		assertEquals(TestStrings.NAMES.size() * TestStrings.NAMES.size(), metrics.getInputSizeMax());
+		assertEquals(0, metrics.getMatrixCells());
+	}
+
+	@Test
+	public void testSharedMetrics() {
+		SimilarityMetrics metrics = new SimilarityMetrics(0);
+		StringSimilarityService first = new MeteredStringSimilarityService(new StringSimilarityServiceImpl(new DiceCoefficientStrategy()), metrics);
+		StringSimilarityService second = new MeteredStringSimilarityService(new StringSimilarityServiceImpl(new JaroStrategy()), metrics);
+		first.score("Martha", "Marhta");
+		second.findTopK(TestStrings.NAMES, "Marhta", 2);
+		assertEquals(2, metrics.getCallCount());
+		assertEquals(0, metrics.getSampleCount());
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MyersEditDistanceTest {
+
+	@Test
+	public void testEmptyPattern() {
+		assertEquals(5, MyersEditDistance.distance(new PatternBitVectors(""), "kevin"));
+	}
+
+	@Test
+	public void testEmptyText() {
+		assertEquals(5, MyersEditDistance.distance(new PatternBitVectors("kevin"), ""));
+	}
+
+	@Test
+	public void testKittenSitting() {
+		assertEquals(3, MyersEditDistance.distance(new PatternBitVectors("kitten"), "sitting"));
+	}
+
+	@Test
+	public void testSingleWordMatchesDynamicProgramming() {
+		assertMatchesDynamicProgramming(TestStrings.ASCII, 1, 64);
+		assertMatchesDynamicProgramming(TestStrings.LATIN1, 1, 64);
+		assertMatchesDynamicProgramming(TestStrings.CJK, 1, 64);
+	}
+
+	@Test
+	public void testBlockedMatchesDynamicProgramming() {
+		assertMatchesDynamicProgramming(TestStrings.ASCII, 60, 200);
+		assertMatchesDynamicProgramming(TestStrings.LATIN1, 60, 200);
+		assertMatchesDynamicProgramming(TestStrings.CJK, 60, 200);
+	}
+
+	@Test
+	public void testBlockBoundaries() {
+		Random random = new Random(7);
+		for (int length = 62; length <= 130; length++) {
+			String pattern = TestStrings.randomString(random, TestStrings.ASCII, length);
+			String text = TestStrings.randomString(random, TestStrings.ASCII, length + random.nextInt(5) - 2);
+			assertEquals(referenceDistance(pattern, text),
+					MyersEditDistance.distance(new PatternBitVectors(pattern), text));
+		}
+	}
+
+	private void assertMatchesDynamicProgramming(String alphabet, int minLength, int maxLength) {
+		Random random = new Random(alphabet.hashCode());
+		for (int i = 0; i < 500; i++) {
+			String pattern = TestStrings.randomString(random, alphabet, minLength + random.nextInt(maxLength - minLength + 1));
+			String text = TestStrings.randomString(random, alphabet, random.nextInt(maxLength + 1));
+			assertEquals(pattern + " / " + text, referenceDistance(pattern, text),
+					MyersEditDistance.distance(new PatternBitVectors(pattern), text));
+		}
+	}
+
+	private static int referenceDistance(String first, String second) {
+		int[] previous = new int[second.length() + 1];
+		int[] current = new int[second.length() + 1];
+		for (int j = 0; j <= second.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= first.length(); i++) {
+			current[0] = i;
+			for (int j = 1; j <= second.length(); j++) {
+				int cost = first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1], previous[j]) + 1, previous[j - 1] + cost);
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[second.length()];
+	}
+}
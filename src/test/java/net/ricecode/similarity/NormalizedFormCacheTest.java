@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Test;
+
+public class NormalizedFormCacheTest {
+
+	@Test
+	public void testNormalizesOnce() {
+		StringNormalizer normalizer = spy(new DefaultStringNormalizer());
+		NormalizedFormCache cache = new NormalizedFormCache(normalizer, 10);
+		assertEquals("mcdonalds", cache.normalize("McDonalds"));
+		assertEquals("mcdonalds", cache.normalize("McDonalds"));
+		verify(normalizer, times(1)).normalize("McDonalds");
+	}
+
+	@Test
+	public void testStartsOverWhenFull() {
+		StringNormalizer normalizer = spy(new DefaultStringNormalizer());
+		NormalizedFormCache cache = new NormalizedFormCache(normalizer, 2);
+		cache.normalize("MacMahons");
+		cache.normalize("McPherson");
+		cache.normalize("McDonalds");
+		cache.normalize("MacMahons");
+		verify(normalizer, times(2)).normalize("MacMahons");
+		verify(normalizer, times(1)).normalize("McDonalds");
+	}
+
+	@Test
+	public void testZeroCapacity() {
+		StringNormalizer normalizer = spy(new DefaultStringNormalizer());
+		NormalizedFormCache cache = new NormalizedFormCache(normalizer, 0);
+		assertEquals("mcdonalds", cache.normalize("McDonalds"));
+		assertEquals("mcdonalds", cache.normalize("McDonalds"));
+		verify(normalizer, times(2)).normalize("McDonalds");
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class OsaEditDistanceTest {
+
+	@Test
+	public void testEmpty() {
+		assertEquals(5, OsaEditDistance.distance(new PatternBitVectors(""), "kevin"));
+		assertEquals(5, OsaEditDistance.distance(new PatternBitVectors("kevin"), ""));
+	}
+
+	@Test
+	public void testTranspositionIsOneEdit() {
+		assertEquals(1, OsaEditDistance.distance(new PatternBitVectors("jonh"), "john"));
+		assertEquals(1, OsaEditDistance.distance(new PatternBitVectors("ab"), "ba"));
+		assertEquals(2, OsaEditDistance.distance(new PatternBitVectors("abcd"), "badc"));
+	}
+
+	@Test
+	public void testNoSubstringIsEditedTwice() {
+		// The unrestricted Damerau-Levenshtein distance is 2, by transposing and then inserting.
+		assertEquals(3, OsaEditDistance.distance(new PatternBitVectors("ca"), "abc"));
+		assertEquals(3, OsaEditDistance.distance(new PatternBitVectors("abc"), "ca"));
+	}
+
+	@Test
+	public void testSingleWordMatchesDynamicProgramming() {
+		assertMatchesDynamicProgramming(TestStrings.ASCII, 1, 64);
+		assertMatchesDynamicProgramming(TestStrings.LATIN1, 1, 64);
+		assertMatchesDynamicProgramming(TestStrings.CJK, 1, 64);
+	}
+
+	@Test
+	public void testBlockedMatchesDynamicProgramming() {
+		assertMatchesDynamicProgramming(TestStrings.ASCII, 60, 200);
+		assertMatchesDynamicProgramming(TestStrings.LATIN1, 60, 200);
+		assertMatchesDynamicProgramming(TestStrings.CJK, 60, 200);
+	}
+
+	@Test
+	public void testTranspositionAcrossBlockBoundary() {
+		for (int length = 62; length <= 130; length++) {
+			String pattern = TestStrings.randomString(new Random(length), TestStrings.ASCII, length);
+			for (int i = Math.max(0, length - 70); i + 1 < length; i++) {
+				String text = pattern.substring(0, i) + pattern.charAt(i + 1) + pattern.charAt(i) + pattern.substring(i + 2);
+				assertEquals(referenceDistance(pattern, text), OsaEditDistance.distance(new PatternBitVectors(pattern), text));
+			}
+		}
+	}
+
+	@Test
+	public void testBandedMatchesDynamicProgramming() {
+		Random random = new Random(5);
+		for (int i = 0; i < 2000; i++) {
+			String first = TestStrings.randomString(random, TestStrings.ASCII, random.nextInt(80));
+			String second = random.nextBoolean()
+					? TestStrings.randomString(random, TestStrings.ASCII, random.nextInt(80))
+					: TestStrings.swapSome(random, first, 4);
+			int expected = referenceDistance(first, second);
+			int max = random.nextInt(20);
+			assertEquals(first + " / " + second + " / " + max,
+					expected <= max ? expected : max + 1, OsaEditDistance.banded(first, second, max));
+		}
+	}
+
+	private void assertMatchesDynamicProgramming(String alphabet, int minLength, int maxLength) {
+		Random random = new Random(alphabet.hashCode());
+		for (int i = 0; i < 500; i++) {
+			String pattern = TestStrings.randomString(random, alphabet, minLength + random.nextInt(maxLength - minLength + 1));
+			String text = random.nextBoolean()
+					? TestStrings.randomString(random, alphabet, random.nextInt(maxLength + 1))
+					: TestStrings.swapSome(random, pattern, 4);
+			assertEquals(pattern + " / " + text, referenceDistance(pattern, text),
+					OsaEditDistance.distance(new PatternBitVectors(pattern), text));
+		}
+	}
+
+	private static int referenceDistance(String first, String second) {
+		int n = first.length();
+		int m = second.length();
+		int[][] d = new int[n + 1][m + 1];
+		for (int i = 0; i <= n; i++) {
+			d[i][0] = i;
+		}
+		for (int j = 0; j <= m; j++) {
+			d[0][j] = j;
+		}
+		for (int i = 1; i <= n; i++) {
+			for (int j = 1; j <= m; j++) {
+				int cost = first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1;
+				d[i][j] = Math.min(Math.min(d[i - 1][j], d[i][j - 1]) + 1, d[i - 1][j - 1] + cost);
+				if (i > 1 && j > 1 && first.charAt(i - 1) == second.charAt(j - 2) && first.charAt(i - 2) == second.charAt(j - 1)) {
+					d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+				}
+			}
+		}
+		return d[n][m];
+	}
+}
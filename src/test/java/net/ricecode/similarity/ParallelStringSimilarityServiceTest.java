@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelStringSimilarityServiceTest {
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testScoreAllMatchesSequential() {
+		List<String> features = randomFeatures(1000);
+		SimilarityStrategy strategy = new JaroWinklerStrategy();
+		StringSimilarityService sequential = new StringSimilarityServiceImpl(strategy);
+		StringSimilarityService parallel = new ParallelStringSimilarityService(strategy, executor, 16);
+		assertEquals(sequential.scoreAll(features, "McDonalds"), parallel.scoreAll(features, "McDonalds"));
+		assertEquals(sequential.scoreAbove(features, "McDonalds", 0.7), parallel.scoreAbove(features, "McDonalds", 0.7));
+	}
+
+	@Test
+	public void testScoreArrayMatchesScoreAll() {
+		List<String> features = randomFeatures(1000);
+		for (SimilarityStrategy strategy : new SimilarityStrategy[] { new JaroWinklerStrategy(), new DiceCoefficientStrategy() }) {
+			StringSimilarityService parallel = new ParallelStringSimilarityService(strategy, executor, 16);
+			assertEquals(parallel.scoreAll(features, "McDonalds"), parallel.scoreArray(features, "McDonalds").toList());
+			FeatureIndex index = new FeatureIndex(features, strategy);
+			assertEquals(parallel.scoreAll(index, "McDonalds"), parallel.scoreArray(index, "McDonalds").toList());
+		}
+	}
+
+	@Test
+	public void testScoreAllNonRandomAccessList() {
+		List<String> features = new LinkedList<String>(randomFeatures(500));
+		SimilarityStrategy strategy = new LevenshteinDistanceStrategy();
+		StringSimilarityService sequential = new StringSimilarityServiceImpl(strategy);
+		StringSimilarityService parallel = new ParallelStringSimilarityService(strategy, executor, 16);
+		assertEquals(sequential.scoreAll(features, "McDonalds"), parallel.scoreAll(features, "McDonalds"));
+	}
+
+	@Test
+	public void testFindTopMatchesSequential() {
+		List<String> features = randomFeatures(1000);
+		SimilarityStrategy strategy = new DiceCoefficientStrategy();
+		StringSimilarityService sequential = new StringSimilarityServiceImpl(strategy);
+		StringSimilarityService parallel = new ParallelStringSimilarityService(strategy, executor, 16);
+		AscendingSimilarityScoreComparator ascending = new AscendingSimilarityScoreComparator();
+		for (String target : Arrays.asList("McDonalds", "ab", "Smith")) {
+			assertEquals(sequential.findTop(features, target), parallel.findTop(features, target));
+			assertEquals(sequential.findTop(features, target, ascending), parallel.findTop(features, target, ascending));
+		}
+	}
+
+	@Test
+	public void testFindTopPrefersEarliestOfEqualScores() {
+		SimilarityStrategy strategy = mock(SimilarityStrategy.class);
+		List<String> features = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			features.add("feature" + i);
+		}
+		when(strategy.score(anyString(), eq("target"))).thenReturn(0.5);
+		when(strategy.score("feature30", "target")).thenReturn(0.9);
+		when(strategy.score("feature70", "target")).thenReturn(0.9);
+
+		StringSimilarityService parallel = new ParallelStringSimilarityService(strategy, executor, 10);
+		assertEquals(new SimilarityScore("feature30", 0.9), parallel.findTop(features, "target"));
+		for (String feature : features) {
+			verify(strategy).score(feature, "target");
+		}
+	}
+
+	@Test
+	public void testFindTopKMatchesSequential() {
+		List<String> features = randomFeatures(1000);
+		SimilarityStrategy strategy = new JaroStrategy();
+		StringSimilarityService sequential = new StringSimilarityServiceImpl(strategy);
+		StringSimilarityService parallel = new ParallelStringSimilarityService(strategy, executor, 16);
+		AscendingSimilarityScoreComparator ascending = new AscendingSimilarityScoreComparator();
+		for (int k : new int[] { 0, 1, 10, 1000, 2000, Integer.MAX_VALUE }) {
+			assertEquals(sequential.findTopK(features, "McDonalds", k), parallel.findTopK(features, "McDonalds", k));
+			assertEquals(sequential.findTopK(features, "McDonalds", k, ascending),
+					parallel.findTopK(features, "McDonalds", k, ascending));
+		}
+	}
+
+	@Test
+	public void testIndexMatchesSequential() {
+		List<String> features = randomFeatures(1000);
+		SimilarityStrategy strategy = new LevenshteinDistanceStrategy();
+		FeatureIndex index = new FeatureIndex(features, strategy);
+		StringSimilarityService sequential = new StringSimilarityServiceImpl(strategy);
+		StringSimilarityService parallel = new ParallelStringSimilarityService(strategy, executor, 16);
+		assertEquals(sequential.scoreAll(index, "McDonalds"), parallel.scoreAll(index, "McDonalds"));
+		assertEquals(sequential.findTop(index, "McDonalds"), parallel.findTop(index, "McDonalds"));
+		assertEquals(sequential.findTopK(index, "McDonalds", 25), parallel.findTopK(index, "McDonalds", 25));
+	}
+
+	@Test
+	public void testMatrixMatchesSequential() {
+		List<String> features = randomFeatures(700);
+		List<String> targets = randomFeatures(150);
+		SimilarityStrategy[] strategies = { new JaroWinklerStrategy(), new LevenshteinDistanceStrategy(),
+				new DiceCoefficientStrategy(), new CachingSimilarityStrategy(new JaroStrategy(), 1000) };
+		for (SimilarityStrategy strategy : strategies) {
+			StringSimilarityService sequential = new StringSimilarityServiceImpl(strategy);
+			StringSimilarityService parallel = new ParallelStringSimilarityService(strategy, executor, 16);
+			FeatureIndex index = new FeatureIndex(features, strategy);
+			List<List<SimilarityScore>> top = parallel.findTopPerTarget(features, targets, 7);
+			List<List<SimilarityScore>> above = parallel.scoreMatrix(features, targets, 0.6);
+			assertEquals(top, parallel.findTopPerTarget(index, targets, 7));
+			assertEquals(above, parallel.scoreMatrix(index, targets, 0.6));
+			assertEquals(targets.size(), top.size());
+			for (int t = 0; t < targets.size(); t++) {
+				assertEquals(sequential.findTopK(features, targets.get(t), 7), top.get(t));
+				assertEquals(sequential.scoreAbove(features, targets.get(t), 0.6), above.get(t));
+			}
+		}
+	}
+
+	@Test
+	public void testSmallListStaysOnCallingThread() {
+		Executor failing = new Executor() {
+			public void execute(Runnable command) {
+				fail("A list smaller than two chunks should not use the executor.");
+			}
+		};
+		List<String> features = randomFeatures(100);
+		StringSimilarityService parallel = new ParallelStringSimilarityService(new JaroStrategy(), failing, 64);
+		assertEquals(100, parallel.scoreAll(features, "McDonalds").size());
+		assertNotNull(parallel.findTop(features, "McDonalds"));
+	}
+
+	@Test
+	public void testEmptyList() {
+		StringSimilarityService parallel = new ParallelStringSimilarityService(new JaroStrategy(), executor, 1);
+		assertNull(parallel.findTop(new ArrayList<String>(), "McDonalds"));
+		assertEquals(0, parallel.scoreAll(new ArrayList<String>(), "McDonalds").size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testStrategyFailureIsRethrown() {
+		SimilarityStrategy strategy = mock(SimilarityStrategy.class);
+		when(strategy.score(anyString(), anyString())).thenReturn(0.5);
+		when(strategy.score("feature90", "target")).thenThrow(new IllegalStateException());
+		List<String> features = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			features.add("feature" + i);
+		}
+		new ParallelStringSimilarityService(strategy, executor, 10).scoreAll(features, "target");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidChunkSize() {
+		new ParallelStringSimilarityService(new JaroStrategy(), executor, 0);
+	}
+
+	private static List<String> randomFeatures(int count) {
+		return TestStrings.randomStrings(new Random(5), "abcdeMcDonalsSmith", 2, 13, count);
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PostingsTest {
+
+	@Test
+	public void testReadsBackPositions() {
+		int[] positions = { 0, 1, 127, 128, 300, 16383, 16384, 2000000, Integer.MAX_VALUE - 1 };
+		Postings.Builder builder = new Postings.Builder();
+		for (int position : positions) {
+			builder.add(42, position);
+		}
+		Postings postings = builder.build();
+		int list = postings.find(42);
+		assertEquals(positions.length, postings.count(list));
+		Postings.Cursor cursor = postings.cursor(list);
+		for (int position : positions) {
+			assertEquals(position, cursor.next());
+		}
+		assertEquals(Postings.END, cursor.next());
+		assertEquals(-1, postings.find(7));
+	}
+
+	@Test
+	public void testSeparateLists() {
+		Postings.Builder builder = new Postings.Builder();
+		builder.add(9, 3);
+		builder.add(-5, 1);
+		builder.add(9, 8);
+		builder.add(-5, 4);
+		Postings postings = builder.build();
+		Postings.Cursor first = postings.cursor(postings.find(-5));
+		assertEquals(1, first.next());
+		assertEquals(4, first.next());
+		assertEquals(Postings.END, first.next());
+		Postings.Cursor second = postings.cursor(postings.find(9));
+		assertEquals(3, second.next());
+		assertEquals(8, second.next());
+		assertEquals(Postings.END, second.next());
+	}
+
+	@Test
+	public void testAdvanceMatchesLinearScan() {
+		Random random = new Random(21);
+		int[] positions = new int[5000];
+		Postings.Builder builder = new Postings.Builder();
+		int position = -1;
+		for (int i = 0; i < positions.length; i++) {
+			position += 1 + random.nextInt(random.nextBoolean() ? 3 : 500);
+			positions[i] = position;
+			builder.add(1, position);
+		}
+		Postings postings = builder.build();
+		for (int trial = 0; trial < 20; trial++) {
+			Postings.Cursor cursor = postings.cursor(postings.find(1));
+			int index = 0;
+			int target = 0;
+			while (true) {
+				target += random.nextInt(trial < 10 ? 50 : 20000);
+				while (index < positions.length && positions[index] < target) {
+					index++;
+				}
+				int expected = index < positions.length ? positions[index] : Postings.END;
+				assertEquals(expected, cursor.advance(target));
+				if (expected == Postings.END) {
+					break;
+				}
+				if (random.nextBoolean()) {
+					index++;
+					assertEquals(index < positions.length ? positions[index] : Postings.END, cursor.next());
+					if (index >= positions.length) {
+						break;
+					}
+					target = positions[index];
+				}
+			}
+		}
+	}
+}
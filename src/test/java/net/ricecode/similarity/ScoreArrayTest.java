@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ScoreArrayTest {
+
+	private static ScoreArray scores(double... values) {
+		String[] features = new String[values.length];
+		int[] positions = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			features[i] = "f" + i;
+			positions[i] = i;
+		}
+		return new ScoreArray(features, values, positions);
+	}
+
+	private static int[] positions(ScoreArray array) {
+		int[] result = new int[array.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = array.getPosition(i);
+		}
+		return result;
+	}
+
+	@Test
+	public void testAccessors() {
+		ScoreArray array = scores(0.5, 0.25);
+		assertEquals(2, array.size());
+		assertEquals("f1", array.getFeature(1));
+		assertEquals(0.25, array.getScore(1), 0.000);
+		assertEquals(1, array.getPosition(1));
+		assertArrayEquals(new double[] { 0.5, 0.25 }, array.getScores(), 0.000);
+		assertEquals(Arrays.asList(new SimilarityScore("f0", 0.5), new SimilarityScore("f1", 0.25)), array.toList());
+	}
+
+	@Test
+	public void testAbove() {
+		ScoreArray array = scores(0.5, 0.25, 0.75, 0.5).above(0.5);
+		assertArrayEquals(new int[] { 0, 2, 3 }, positions(array));
+		assertEquals("f2", array.getFeature(1));
+	}
+
+	@Test
+	public void testTop() {
+		ScoreArray array = scores(0.5, 0.25, 0.75, 0.5, 0.1);
+		assertArrayEquals(new int[] { 2, 0, 3 }, positions(array.top(3)));
+		assertArrayEquals(new int[] { 2, 0, 3, 1, 4 }, positions(array.top(10)));
+		assertEquals(0, array.top(0).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTopNegative() {
+		scores(0.5).top(-1);
+	}
+
+	@Test
+	public void testSortIsStable() {
+		ScoreArray array = scores(0.5, 0.25, 0.75, 0.5, 0.25, 1.0, 0.0);
+		assertArrayEquals(new int[] { 5, 2, 0, 3, 1, 4, 6 }, positions(array.sortDescending()));
+		assertArrayEquals(new int[] { 6, 1, 4, 0, 3, 2, 5 }, positions(array.sortAscending()));
+		assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 5, 6 }, positions(array));
+	}
+
+	@Test
+	public void testSortMatchesListSort() {
+		Random random = new Random(3);
+		for (int n = 0; n < 70; n++) {
+			double[] values = new double[n];
+			for (int i = 0; i < n; i++) {
+				values[i] = random.nextInt(8) / 8.0;
+			}
+			ScoreArray array = scores(values);
+			List<SimilarityScore> expected = array.toList();
+			Collections.sort(expected, new DescendingSimilarityScoreComparator());
+			assertEquals(expected, array.sortDescending().toList());
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+public class SelfJoinTest {
+
+	private static final double[] MIN_SCORES = { 0.0, 0.4, 0.7, 0.85, 1.0 };
+
+	@Test
+	public void testMatchesAllPairs() {
+		List<String> features = randomFeatures(new Random(3), 250);
+		for (SimilarityStrategy strategy : strategies()) {
+			for (double minScore : MIN_SCORES) {
+				assertMatchesAllPairs(new StringSimilarityServiceImpl(strategy), features, minScore);
+			}
+		}
+	}
+
+	@Test
+	public void testMatchesAllPairsNormalized() {
+		List<String> features = randomFeatures(new Random(4), 200);
+		StringNormalizer normalizer = new DefaultStringNormalizer(true, true, true);
+		for (SimilarityStrategy strategy : strategies()) {
+			for (double minScore : new double[] { 0.5, 0.8 }) {
+				assertMatchesAllPairs(new StringSimilarityServiceImpl(strategy, normalizer), features, minScore);
+			}
+		}
+	}
+
+	@Test
+	public void testParallelMatchesAllPairs() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<String> features = randomFeatures(new Random(5), 300);
+			for (SimilarityStrategy strategy : strategies()) {
+				assertMatchesAllPairs(new ParallelStringSimilarityService(strategy, executor, 8), features, 0.75);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testExactDuplicates() {
+		List<String> features = new LinkedList<String>(Arrays.asList("Smith", "a", "", "smith", "a", "", "SMITH"));
+		for (SimilarityStrategy strategy : strategies()) {
+			assertMatchesAllPairs(new StringSimilarityServiceImpl(strategy), features, 1.0);
+		}
+	}
+
+	@Test
+	public void testCluster() {
+		List<String> features = Arrays.asList("McDonalds", "Smith", "Mc Donalds", "Smyth", "Jones", "MacDonalds", "Smithe");
+		StringSimilarityService service = new StringSimilarityServiceImpl(new LevenshteinDistanceStrategy());
+		List<List<String>> clusters = service.cluster(features, 0.8);
+		assertEquals(Arrays.asList(
+				Arrays.asList("McDonalds", "Mc Donalds", "MacDonalds"),
+				Arrays.asList("Smith", "Smyth", "Smithe")), clusters);
+	}
+
+	@Test
+	public void testClusterIsTransitive() {
+		// Neighbours score 0.75, but the ends of the chain score no more than 0.5.
+		List<String> features = Arrays.asList("abcd", "xyz", "abce", "xbfe", "abfe");
+		StringSimilarityService service = new StringSimilarityServiceImpl(new LevenshteinDistanceStrategy());
+		assertEquals(Arrays.asList(Arrays.asList("abcd", "abce", "xbfe", "abfe")), service.cluster(features, 0.75));
+	}
+
+	@Test
+	public void testEmpty() {
+		StringSimilarityService service = new StringSimilarityServiceImpl(new DiceCoefficientStrategy());
+		assertTrue(service.selfJoin(new ArrayList<String>(), 0.5).isEmpty());
+		assertTrue(service.cluster(Arrays.asList("alone"), 0.5).isEmpty());
+	}
+
+	private static SimilarityStrategy[] strategies() {
+		return new SimilarityStrategy[] {
+				new LevenshteinDistanceStrategy(),
+				new DiceCoefficientStrategy(),
+				new JaroStrategy(),
+				new JaroWinklerStrategy(),
+				new JaroWinklerStrategy(0.25),
+				new CachingSimilarityStrategy(new JaroWinklerStrategy(), 10000, true) };
+	}
+
+	private static void assertMatchesAllPairs(StringSimilarityService service, List<String> features, double minScore) {
+		List<SimilarityPair> expected = new ArrayList<SimilarityPair>();
+		for (int i = 0; i < features.size(); i++) {
+			for (int j = i + 1; j < features.size(); j++) {
+				double score = service.score(features.get(i), features.get(j));
+				if (score >= minScore) {
+					expected.add(new SimilarityPair(features.get(i), i, features.get(j), j, score));
+				}
+			}
+		}
+		List<SimilarityPair> actual = service.selfJoin(features, minScore);
+		assertEquals(minScore + ": " + expected.size() + " pairs", expected.size(), actual.size());
+		assertEquals(expected, actual);
+	}
+
+	/**
+	 * Generates near-duplicate names, including strings that are empty, a single character,
+	 * or change length when lowercased.
+	 */
+	private static List<String> randomFeatures(Random random, int count) {
+		String[] stems = { "McDonalds", "Smith", "Johnson", "Ab", "İstanbul", "Straße", "Mississippi", "x" };
+		List<String> features = new ArrayList<String>();
+		for (int i = 0; i < count; i++) {
+			StringBuilder sb = new StringBuilder(stems[random.nextInt(stems.length)]);
+			int edits = random.nextInt(4);
+			for (int e = 0; e < edits && sb.length() > 0; e++) {
+				int at = random.nextInt(sb.length());
+				char ch = "abcdeMSsiI é".charAt(random.nextInt(12));
+				switch (random.nextInt(3)) {
+				case 0:
+					sb.setCharAt(at, ch);
+					break;
+				case 1:
+					sb.insert(at, ch);
+					break;
+				default:
+					sb.deleteCharAt(at);
+					break;
+				}
+			}
+			if (random.nextInt(20) == 0) {
+				sb.setLength(random.nextInt(2));
+			}
+			features.add(random.nextBoolean() ? sb.toString() : sb.toString().toUpperCase());
+		}
+		return features;
+	}
+}
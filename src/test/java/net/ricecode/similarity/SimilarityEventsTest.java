@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.Arrays;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+
+public class SimilarityEventsTest {
+
+	@Test
+	public void testEventsWithoutRecording() {
+		// Nothing is recording, so the service runs as it would without Flight Recorder.
+		assertNull(SimilarityEvents.beginQuery());
+		assertNull(SimilarityEvents.beginPair());
+		SimilarityEvents.endQuery(null, "findTop", new JaroWinklerStrategy(), 1, 1, 1, 1);
+		SimilarityEvents.endPair(null, new JaroWinklerStrategy(), 1, 1);
+	}
+
+	@Test
+	public void testRecordedEvents() throws Exception {
+		assumeTrue(SimilarityEvents.AVAILABLE);
+		StringSimilarityService service = new StringSimilarityServiceImpl(new LevenshteinDistanceStrategy());
+		File file = File.createTempFile("similarity", ".jfr");
+		try {
+			Recording recording = new Recording();
+			try {
+				recording.enable("net.ricecode.similarity.Query");
+				recording.enable("net.ricecode.similarity.SlowPair").withThreshold(Duration.ZERO);
+				recording.start();
+				service.findTop(TestStrings.NAMES, "Marta");
+				service.scoreMatrix(TestStrings.NAMES, Arrays.asList("Marta", "Dixon"), 0.5);
+				recording.stop();
+				recording.dump(file.toPath());
+			}
+			finally {
+				recording.close();
+			}
+
+			int queries = 0;
+			int pairs = 0;
+			for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+				String name = event.getEventType().getName();
+				if (name.equals("net.ricecode.similarity.Query")) {
+					queries++;
+					assertEquals(LevenshteinDistanceStrategy.class.getName(), event.getString("strategy"));
+					assertEquals(TestStrings.NAMES.size(), event.getInt("features"));
+					if (event.getString("operation").equals("findTop")) {
+						assertEquals(1, event.getInt("targets"));
+						assertEquals(5, event.getInt("targetLength"));
+						assertEquals(1, event.getInt("results"));
+					}
+					else {
+						assertEquals("scoreMatrix", event.getString("operation"));
+						assertEquals(2, event.getInt("targets"));
+						assertEquals(10, event.getInt("targetLength"));
+					}
+				}
+				else if (name.equals("net.ricecode.similarity.SlowPair")) {
+					pairs++;
+					assertEquals(LevenshteinDistanceStrategy.class.getName(), event.getString("strategy"));
+				}
+			}
+			assertEquals(2, queries);
+			assertTrue(pairs > 0);
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+}
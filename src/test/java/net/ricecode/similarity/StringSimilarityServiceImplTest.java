@@ -26,8 +26,17 @@ package net.ricecode.similarity;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 
@@ -164,4 +173,480 @@ public class StringSimilarityServiceImplTest {
 		assertEquals(expected, top);
 		
 	}
+
+	@Test
+	public void testScoreAll_PreparesTargetOnce() {
+		PreparedSimilarityStrategy strategy = spy(new MeteredSimilarityStrategy(new LevenshteinDistanceStrategy()));
+		String target = "McDonalds";
+		
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		List<String> features = new ArrayList<String>();
+		features.add("MacMahons");
+		features.add("McPherson");
+		features.add("mcdonalds");
+		
+		List<SimilarityScore> scores = service.scoreAll(features, target);
+		verify(strategy, times(1)).prepare(target);
+		verify(strategy, never()).score(anyString(), anyString());
+		assertEquals(3, scores.size());
+		assertEquals(new SimilarityScore("mcdonalds", 1.000), scores.get(2));
+		assertEquals(new LevenshteinDistanceStrategy().score("MacMahons", target), scores.get(0).getScore(), 0.000);
+	}
+
+	@Test
+	public void testScoreAll_Index() {
+		SimilarityStrategy strategy = new JaroWinklerStrategy();
+		List<String> features = Arrays.asList("MacMahons", "McPherson", "McDonalds");
+		String target = "McDonalds";
+		
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		FeatureIndex index = new FeatureIndex(features, strategy);
+		
+		assertEquals(service.scoreAll(features, target), service.scoreAll(index, target));
+	}
+
+	@Test
+	public void testScoreAll_IndexForOtherStrategy() {
+		SimilarityStrategy strategy = mock(SimilarityStrategy.class);
+		String target = "McDonalds";
+		String c1 = "MacMahons";
+		String c2 = "McPherson";
+		
+		when(strategy.score(c1, target)).thenReturn(0.90);
+		when(strategy.score(c2, target)).thenReturn(0.74);
+		
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		FeatureIndex index = new FeatureIndex(Arrays.asList(c1, c2), new DiceCoefficientStrategy());
+		
+		List<SimilarityScore> scores = service.scoreAll(index, target);
+		verify(strategy).score(c1, target);
+		verify(strategy).score(c2, target);
+		assertEquals(new SimilarityScore(c1, 0.90), scores.get(0));
+		assertEquals(new SimilarityScore(c2, 0.74), scores.get(1));
+	}
+
+	@Test
+	public void testFindTop_Index() {
+		SimilarityStrategy strategy = new LevenshteinDistanceStrategy();
+		List<String> features = Arrays.asList("MacMahons", "McPherson", "McDonalds");
+		FeatureIndex index = new FeatureIndex(features, strategy);
+		
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		AscendingSimilarityScoreComparator comparator = new AscendingSimilarityScoreComparator();
+		assertEquals(new SimilarityScore("McDonalds", 1.000), service.findTop(index, "mcdonalds"));
+		assertEquals(service.findTop(features, "mcdonalds", comparator), service.findTop(index, "mcdonalds", comparator));
+	}
+
+	@Test
+	public void testFindTop_EmptyIndex() {
+		SimilarityStrategy strategy = new LevenshteinDistanceStrategy();
+		FeatureIndex index = new FeatureIndex(new ArrayList<String>(), strategy);
+		
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		assertNull(service.findTop(index, "McDonalds"));
+	}
+
+	@Test
+	public void testFindTopK() {
+		SimilarityStrategy strategy = mock(SimilarityStrategy.class);
+		String target = "McDonalds";
+		List<String> features = Arrays.asList("MacMahons", "McPherson", "McDonalds", "McDougal");
+		
+		when(strategy.score("MacMahons", target)).thenReturn(0.90);
+		when(strategy.score("McPherson", target)).thenReturn(0.74);
+		when(strategy.score("McDonalds", target)).thenReturn(1.000);
+		when(strategy.score("McDougal", target)).thenReturn(0.90);
+		
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		List<SimilarityScore> top = service.findTopK(features, target, 3);
+		for (String feature : features) {
+			verify(strategy).score(feature, target);
+		}
+		assertEquals(Arrays.asList(
+				new SimilarityScore("McDonalds", 1.000),
+				new SimilarityScore("MacMahons", 0.90),
+				new SimilarityScore("McDougal", 0.90)), top);
+		
+		List<SimilarityScore> bottom = service.findTopK(features, target, 2, new AscendingSimilarityScoreComparator());
+		assertEquals(Arrays.asList(
+				new SimilarityScore("McPherson", 0.74),
+				new SimilarityScore("MacMahons", 0.90)), bottom);
+	}
+
+	@Test
+	public void testFindTopK_MatchesSort() {
+		SimilarityStrategy strategy = new JaroWinklerStrategy();
+		List<String> features = Arrays.asList("MacMahons", "McPherson", "McDonalds", "Donald", "McDonald's", "Mack", "Dalton");
+		String target = "mcdonalds";
+		Comparator<SimilarityScore> byFeature = new Comparator<SimilarityScore>() {
+			public int compare(SimilarityScore first, SimilarityScore second) {
+				return first.getKey().compareTo(second.getKey());
+			}
+		};
+		
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		List<SimilarityScore> sorted = service.scoreAll(features, target);
+		Collections.sort(sorted, new DescendingSimilarityScoreComparator());
+		for (int k = 0; k <= features.size() + 1; k++) {
+			assertEquals(sorted.subList(0, Math.min(k, sorted.size())), service.findTopK(features, target, k));
+		}
+		
+		List<SimilarityScore> top = service.findTopK(features, target, 3, byFeature);
+		assertEquals(Arrays.asList("Dalton", "Donald", "MacMahons"),
+				Arrays.asList(top.get(0).getKey(), top.get(1).getKey(), top.get(2).getKey()));
+	}
+
+	@Test
+	public void testFindTopK_Index() {
+		SimilarityStrategy strategy = new LevenshteinDistanceStrategy();
+		List<String> features = Arrays.asList("MacMahons", "McPherson", "McDonalds");
+		FeatureIndex index = new FeatureIndex(features, strategy);
+		
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		assertEquals(service.findTopK(features, "mcdonalds", 2), service.findTopK(index, "mcdonalds", 2));
+	}
+
+	@Test
+	public void testFindTopK_HugeK() {
+		StringSimilarityService service = new StringSimilarityServiceImpl(new JaroStrategy());
+		List<String> features = Arrays.asList("MacMahons", "McPherson", "McDonalds");
+		Comparator<SimilarityScore> byFeature = new Comparator<SimilarityScore>() {
+			public int compare(SimilarityScore x, SimilarityScore y) {
+				return x.getKey().compareTo(y.getKey());
+			}
+		};
+		assertEquals(service.findTopK(features, "McDonalds", 3), service.findTopK(features, "McDonalds", Integer.MAX_VALUE));
+		assertEquals(service.findTopK(features, "McDonalds", 3, byFeature),
+				service.findTopK(features, "McDonalds", Integer.MAX_VALUE, byFeature));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFindTopK_NegativeK() {
+		StringSimilarityService service = new StringSimilarityServiceImpl(new JaroStrategy());
+		service.findTopK(Arrays.asList("McDonalds"), "McDonalds", -1);
+	}
+
+	@Test
+	public void testFindTop_CustomComparator() {
+		SimilarityStrategy strategy = new JaroWinklerStrategy();
+		List<String> features = Arrays.asList("McPherson", "MacMahons", "McDonalds");
+		Comparator<SimilarityScore> byFeature = new Comparator<SimilarityScore>() {
+			public int compare(SimilarityScore first, SimilarityScore second) {
+				return first.getKey().compareTo(second.getKey());
+			}
+		};
+		
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		assertEquals("MacMahons", service.findTop(features, "McDonalds", byFeature).getKey());
+	}
+
+	@Test
+	public void testScoreAbove() {
+		SimilarityStrategy strategy = mock(SimilarityStrategy.class);
+		String target = "McDonalds";
+		String c1 = "MacMahons";
+		String c2 = "McPherson";
+		String c3 = "McDonalds";
+		
+		when(strategy.score(c1, target)).thenReturn(0.90);
+		when(strategy.score(c2, target)).thenReturn(0.74);
+		when(strategy.score(c3, target)).thenReturn(1.000);
+		
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		List<SimilarityScore> scores = service.scoreAbove(Arrays.asList(c1, c2, c3), target, 0.8);
+		assertEquals(Arrays.asList(new SimilarityScore(c1, 0.90), new SimilarityScore(c3, 1.000)), scores);
+	}
+
+	@Test
+	public void testScoreAbove_MatchesScoreAll() {
+		List<String> features = Arrays.asList("MacMahons", "McPherson", "McDonalds", "Donald", "McDonald's",
+				"Mack", "Dalton", "M", "", "MCDONALDS INC");
+		SimilarityStrategy[] strategies = { new JaroStrategy(), new JaroWinklerStrategy(),
+				new LevenshteinDistanceStrategy(), new DiceCoefficientStrategy() };
+		for (SimilarityStrategy strategy : strategies) {
+			StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+			FeatureIndex index = new FeatureIndex(features, strategy);
+			for (double minScore : new double[] { 0.0, 0.3, 0.5, 0.75, 0.9, 1.0 }) {
+				List<SimilarityScore> expected = new ArrayList<SimilarityScore>();
+				for (SimilarityScore score : service.scoreAll(features, "McDonalds")) {
+					if (score.getScore() >= minScore) {
+						expected.add(score);
+					}
+				}
+				assertEquals(expected, service.scoreAbove(features, "McDonalds", minScore));
+				assertEquals(expected, service.scoreAbove(index, "McDonalds", minScore));
+			}
+		}
+	}
+
+	@Test
+	public void testScoreAbove_SkipsFeaturesBelowBound() {
+		MeteredSimilarityStrategy strategy = spy(new MeteredSimilarityStrategy(new LevenshteinDistanceStrategy()));
+		String target = "McDonalds";
+		FeatureIndex index = new FeatureIndex(Arrays.asList("McDonald", "Mc", "McDonalds Corporation"), strategy);
+		
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		List<SimilarityScore> scores = service.scoreAbove(index, target, 0.8);
+		verify(strategy, times(1)).score(any(PreparedString.class), any(PreparedString.class));
+		assertEquals(Arrays.asList(new SimilarityScore("McDonald", 8.0 / 9.0)), scores);
+	}
+
+	@Test
+	public void testScore_Normalized() {
+		SimilarityStrategy strategy = new DiceCoefficientStrategy();
+		StringSimilarityService plain = new StringSimilarityServiceImpl(strategy);
+		StringSimilarityService normalized = new StringSimilarityServiceImpl(strategy,
+				new DefaultStringNormalizer(true, true, true));
+		
+		assertTrue(plain.score("Crème  Brûlée", "creme brulee") < 1.0);
+		assertEquals(1.0, normalized.score("Crème  Brûlée", "creme brulee"), 0.000);
+	}
+
+	@Test
+	public void testScoreAll_NormalizedPreparesNormalizedForms() {
+		PreparedSimilarityStrategy strategy = spy(new MeteredSimilarityStrategy(new JaroWinklerStrategy()));
+		List<String> features = Arrays.asList("MacMahons", "McPherson", "McDonalds");
+		
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy, new DefaultStringNormalizer());
+		List<SimilarityScore> scores = service.scoreAll(features, "McDonalds");
+		verify(strategy, times(4)).prepareNormalized(anyString());
+		verify(strategy, never()).prepare(anyString());
+		assertEquals(new StringSimilarityServiceImpl(new JaroWinklerStrategy()).scoreAll(features, "McDonalds"), scores);
+	}
+
+	@Test
+	public void testScoreAll_NormalizedIndex() {
+		SimilarityStrategy strategy = new DiceCoefficientStrategy();
+		StringNormalizer normalizer = new DefaultStringNormalizer(true, true, true);
+		List<String> features = Arrays.asList("Crème Brûlée", "CREME BRULEE", "Crema Catalana");
+		FeatureIndex index = new FeatureIndex(features, strategy, normalizer);
+		
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy, normalizer);
+		assertEquals(service.scoreAll(features, "creme brulee"), service.scoreAll(index, "creme brulee"));
+		assertEquals(new SimilarityScore("Crème Brûlée", 1.0), service.findTop(index, "Creme Brulee"));
+		assertEquals(service.scoreAll(features, "creme brulee"),
+				new StringSimilarityServiceImpl(strategy, new DefaultStringNormalizer(true, true, true)).scoreAll(index, "creme brulee"));
+	}
+
+	@Test
+	public void testScoreArray() {
+		List<String> features = Arrays.asList("MacMahons", "McPherson", "McDonalds", "Mc", "", "Crème Brûlée");
+		SimilarityStrategy[] strategies = { new JaroStrategy(), new JaroWinklerStrategy(),
+				new LevenshteinDistanceStrategy(), new DiceCoefficientStrategy() };
+		for (SimilarityStrategy strategy : strategies) {
+			StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+			ScoreArray scores = service.scoreArray(features, "McDonalds");
+			assertEquals(service.scoreAll(features, "McDonalds"), scores.toList());
+			assertEquals(features.size(), scores.size());
+			assertEquals(2, scores.getPosition(2));
+			assertEquals(service.scoreAll(features, "McDonalds"),
+					service.scoreArray(new FeatureIndex(features, strategy), "McDonalds").toList());
+		}
+	}
+
+	@Test
+	public void testScoreArray_Batch() {
+		MeteredSimilarityStrategy strategy = spy(new MeteredSimilarityStrategy(new LevenshteinDistanceStrategy()));
+		List<String> features = Arrays.asList("MacMahons", "McPherson", "McDonalds");
+		
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		ScoreArray scores = service.scoreArray(features, "McDonalds");
+		verify(strategy, times(1)).scoreInto(eq("McDonalds"), anyListOf(String.class), any(double[].class));
+		verify(strategy, never()).score(anyString(), anyString());
+		assertEquals(1.0, scores.getScore(2), 0.000);
+	}
+
+	@Test
+	public void testScoreArray_PlainStrategy() {
+		SimilarityStrategy strategy = mock(SimilarityStrategy.class);
+		when(strategy.score("MacMahons", "McDonalds")).thenReturn(0.9);
+		when(strategy.score("McPherson", "McDonalds")).thenReturn(0.1);
+		
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		ScoreArray scores = service.scoreArray(new LinkedList<String>(Arrays.asList("MacMahons", "McPherson")), "McDonalds");
+		assertArrayEquals(new double[] { 0.9, 0.1 }, scores.getScores(), 0.000);
+		assertEquals("McPherson", scores.sortAscending().getFeature(0));
+	}
+
+	@Test
+	public void testFindTopK_Streaming() throws IOException {
+		SimilarityStrategy strategy = new JaroWinklerStrategy();
+		List<String> features = Arrays.asList("MacMahons", "McPherson", "McDonalds", "Donald", "McDonald's", "Mack", "McDonalds");
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		
+		for (int k = 0; k <= features.size() + 1; k++) {
+			List<SimilarityScore> expected = service.findTopK(features, "McDonalds", k);
+			assertEquals(expected, service.findTopK((Iterable<String>) new LinkedList<String>(features), "McDonalds", k));
+			assertEquals(expected, service.findTopK(features.stream(), "McDonalds", k));
+			assertEquals(expected, service.findTopK(new StringReader(String.join("\n", features)), "McDonalds", k));
+		}
+	}
+
+	@Test
+	public void testFindTopK_StreamingHugeK() throws IOException {
+		StringSimilarityService service = new StringSimilarityServiceImpl(new JaroStrategy());
+		List<String> features = Arrays.asList("a", "b", "c");
+		assertEquals(service.findTopK(features, "a", 3),
+				service.findTopK((Iterable<String>) features, "a", Integer.MAX_VALUE));
+		assertEquals(2, service.findTopK(new StringReader("a\nb\n"), "a", 200000000).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFindTopK_StreamingNegative() {
+		new StringSimilarityServiceImpl(new JaroStrategy()).findTopK(Stream.of("McDonalds"), "McDonalds", -1);
+	}
+
+	@Test
+	public void testScoreAbove_Streaming() throws IOException {
+		SimilarityStrategy strategy = new LevenshteinDistanceStrategy();
+		List<String> features = Arrays.asList("McDonald", "Mc", "McDonalds Corporation", "mcdonalds");
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		List<SimilarityScore> expected = service.scoreAbove(features, "McDonalds", 0.8);
+		
+		final List<SimilarityScore> hits = new ArrayList<SimilarityScore>();
+		Consumer<SimilarityScore> collect = new Consumer<SimilarityScore>() {
+			public void accept(SimilarityScore score) {
+				hits.add(score);
+			}
+		};
+		service.scoreAbove((Iterable<String>) features, "McDonalds", 0.8, collect);
+		assertEquals(expected, hits);
+		hits.clear();
+		service.scoreAbove(features.stream(), "McDonalds", 0.8, collect);
+		assertEquals(expected, hits);
+		hits.clear();
+		service.scoreAbove(new StringReader("McDonald\r\nMc\nMcDonalds Corporation\nmcdonalds"), "McDonalds", 0.8, collect);
+		assertEquals(expected, hits);
+	}
+
+	@Test(expected = IOException.class)
+	public void testScoreAbove_ReaderFailure() throws IOException {
+		Reader failing = new Reader() {
+			public int read(char[] buffer, int offset, int length) throws IOException {
+				throw new IOException("disk error");
+			}
+			public void close() {
+			}
+		};
+		new StringSimilarityServiceImpl(new JaroStrategy()).findTopK(failing, "McDonalds", 3);
+	}
+
+	@Test
+	public void testFindTopPerTarget() {
+		List<String> features = Arrays.asList("McDonalds", "MacDonald", "Mc Donald's", "Donalds", "", "Smith");
+		List<String> targets = new LinkedList<String>(Arrays.asList("mcdonalds", "SMITH", "", "Mac"));
+		for (SimilarityStrategy strategy : new SimilarityStrategy[] { new JaroWinklerStrategy(), new LevenshteinDistanceStrategy() }) {
+			StringSimilarityService service = new StringSimilarityServiceImpl(strategy, new DefaultStringNormalizer(true, true, true));
+			List<List<SimilarityScore>> top = service.findTopPerTarget(features, targets, 3);
+			List<List<SimilarityScore>> above = service.scoreMatrix(features, targets, 0.5);
+			List<List<SimilarityScore>> all = service.findTopPerTarget(features, targets, Integer.MAX_VALUE);
+			for (int t = 0; t < targets.size(); t++) {
+				assertEquals(service.findTopK(features, targets.get(t), 3), top.get(t));
+				assertEquals(service.findTopK(features, targets.get(t), features.size()), all.get(t));
+				assertEquals(service.scoreAbove(features, targets.get(t), 0.5), above.get(t));
+			}
+		}
+	}
+
+	@Test
+	public void testFindTopPerTarget_Empty() {
+		StringSimilarityService service = new StringSimilarityServiceImpl(new JaroStrategy());
+		List<String> none = Collections.emptyList();
+		assertEquals(0, service.findTopPerTarget(Arrays.asList("a", "b"), none, 3).size());
+		List<List<SimilarityScore>> rows = service.findTopPerTarget(none, Arrays.asList("a", "b"), 3);
+		assertEquals(2, rows.size());
+		assertTrue(rows.get(0).isEmpty());
+		assertTrue(service.findTopPerTarget(Arrays.asList("a", "b"), Arrays.asList("a"), 0).get(0).isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFindTopPerTarget_Negative() {
+		new StringSimilarityServiceImpl(new JaroStrategy()).findTopPerTarget(Arrays.asList("a"), Arrays.asList("a"), -1);
+	}
+
+	@Test
+	public void testSubclassOverridingScore() {
+		SimilarityStrategy strategy = new JaroWinklerStrategy() {
+			@Override
+			public double score(String first, String second) {
+				return 0.42;
+			}
+		};
+		List<String> features = Arrays.asList("McDonalds", "MacDonald");
+		FeatureIndex index = new FeatureIndex(features, strategy);
+		StringSimilarityService service = new StringSimilarityServiceImpl(strategy);
+		
+		assertEquals(0.42, service.score("McDonalds", "McDonald"), 0.000);
+		assertEquals(0.42, service.scoreAll(features, "McDonald").get(0).getScore(), 0.000);
+		assertEquals(0.42, service.findTop(features, "McDonald").getScore(), 0.000);
+		assertEquals(0.42, service.findTopK(features, "McDonald", 1).get(0).getScore(), 0.000);
+		assertEquals(2, service.scoreAbove(features, "McDonald", 0.4).size());
+		assertEquals(0.42, service.scoreArray(features, "McDonald").getScore(0), 0.000);
+		assertEquals(0.42, service.findTop(index, "McDonald").getScore(), 0.000);
+		assertEquals(2, service.scoreAbove(index, "McDonald", 0.4).size());
+		assertEquals(1, service.selfJoin(features, 0.4).size());
+		assertEquals(0.42, new StringSimilarityServiceImpl(new MeteredSimilarityStrategy(strategy))
+				.findTop(features, "McDonald").getScore(), 0.000);
+	}
+
+	@Test
+	public void testDefaultMethodsMatchImplementation() throws IOException {
+		final StringSimilarityService service = new StringSimilarityServiceImpl(new JaroWinklerStrategy());
+		// Implements only the methods the interface started out with.
+		StringSimilarityService minimal = new StringSimilarityService() {
+			public List<SimilarityScore> scoreAll(List<String> features, String target) {
+				return service.scoreAll(features, target);
+			}
+			public double score(String feature, String target) {
+				return service.score(feature, target);
+			}
+			public SimilarityScore findTop(List<String> features, String target) {
+				return service.findTop(features, target);
+			}
+			public SimilarityScore findTop(List<String> features, String target, Comparator<SimilarityScore> comparator) {
+				return service.findTop(features, target, comparator);
+			}
+		};
+		List<String> features = Arrays.asList("McDonalds", "MacMahons", "McPherson", "Donald", "McDonalds", "Smith", "Smyth");
+		List<String> targets = Arrays.asList("McDonald", "Smith");
+		FeatureIndex index = new FeatureIndex(features, new JaroWinklerStrategy());
+		String target = "McDonald";
+		
+		assertArrayEquals(service.scoreArray(features, target).getScores(), minimal.scoreArray(features, target).getScores(), 0.000);
+		assertEquals(service.scoreAbove(features, target, 0.8), minimal.scoreAbove(features, target, 0.8));
+		for (int k : new int[] { 0, 2, Integer.MAX_VALUE }) {
+			assertEquals(service.findTopK(features, target, k), minimal.findTopK(features, target, k));
+			assertEquals(service.findTopK(features, target, k, new AscendingSimilarityScoreComparator()),
+					minimal.findTopK(features, target, k, new AscendingSimilarityScoreComparator()));
+			assertEquals(service.findTopK(features, target, k), minimal.findTopK(index, target, k));
+			assertEquals(service.findTopK(features, target, k), minimal.findTopK((Iterable<String>) features, target, k));
+			assertEquals(service.findTopK(features, target, k), minimal.findTopK(features.stream(), target, k));
+			assertEquals(service.findTopK(features, target, k),
+					minimal.findTopK(new StringReader(String.join("\n", features)), target, k));
+			assertEquals(service.findTopPerTarget(features, targets, k), minimal.findTopPerTarget(features, targets, k));
+			assertEquals(service.findTopPerTarget(features, targets, k), minimal.findTopPerTarget(index, targets, k));
+		}
+		assertEquals(service.scoreAll(features, target), minimal.scoreAll(index, target));
+		assertEquals(service.findTop(features, target), minimal.findTop(index, target));
+		assertEquals(service.scoreAbove(features, target, 0.8), minimal.scoreAbove(index, target, 0.8));
+		assertEquals(service.scoreMatrix(features, targets, 0.8), minimal.scoreMatrix(features, targets, 0.8));
+		assertEquals(service.scoreMatrix(features, targets, 0.8), minimal.scoreMatrix(index, targets, 0.8));
+		assertEquals(service.selfJoin(features, 0.8), minimal.selfJoin(features, 0.8));
+		assertEquals(service.cluster(features, 0.8), minimal.cluster(features, 0.8));
+		
+		final List<SimilarityScore> hits = new ArrayList<SimilarityScore>();
+		Consumer<SimilarityScore> collect = new Consumer<SimilarityScore>() {
+			public void accept(SimilarityScore score) {
+				hits.add(score);
+			}
+		};
+		minimal.scoreAbove((Iterable<String>) features, target, 0.8, collect);
+		minimal.scoreAbove(features.stream(), target, 0.8, collect);
+		minimal.scoreAbove(new StringReader(String.join("\n", features)), target, 0.8, collect);
+		List<SimilarityScore> expected = new ArrayList<SimilarityScore>();
+		for (int i = 0; i < 3; i++) {
+			expected.addAll(service.scoreAbove(features, target, 0.8));
+		}
+		assertEquals(expected, hits);
+	}
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test strings shared by the strategy, index and service tests.
+ */
+final class TestStrings {
+
+	static final String ASCII = "abcde";
+	static final String LATIN1 = "aàáâäeéèëc";
+	static final String CJK = "一二三四五六七八";
+
+	/**
+	 * Names with transpositions, case differences and the empty string, for tests that
+	 * only need a small corpus to pass through a decorator or service unchanged.
+	 */
+	static final List<String> NAMES = Arrays.asList("Martha", "Marhta", "Dwayne", "DUANE", "Dixon", "Dicksonx", "Mississippi", "a", "");
+
+	private TestStrings() {
+	}
+
+	static String randomString(Random random, String alphabet, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns count random strings over the alphabet, each between minLength and maxLength
+	 * characters long inclusive.
+	 */
+	static List<String> randomStrings(Random random, String alphabet, int minLength, int maxLength, int count) {
+		List<String> strings = new ArrayList<String>();
+		for (int i = 0; i < count; i++) {
+			strings.add(randomString(random, alphabet, minLength + random.nextInt(maxLength - minLength + 1)));
+		}
+		return strings;
+	}
+
+	/**
+	 * Swaps each pair of adjacent characters with a probability of one in oneIn, never
+	 * swapping a character twice.
+	 */
+	static String swapSome(Random random, String s, int oneIn) {
+		char[] chars = s.toCharArray();
+		for (int i = 0; i + 1 < chars.length; i++) {
+			if (random.nextInt(oneIn) == 0) {
+				char swap = chars[i];
+				chars[i] = chars[i + 1];
+				chars[i + 1] = swap;
+				i++;
+			}
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TopScoresTest {
+
+	@Test
+	public void testKeepsHighestScores() {
+		TopScores top = new TopScores(3, false);
+		double[] values = { 0.2, 0.9, 0.5, 0.1, 0.7, 0.9 };
+		for (int i = 0; i < values.length; i++) {
+			top.offer(values[i], i);
+		}
+		double[] scores = new double[top.size()];
+		assertArrayEquals(new int[] { 1, 5, 4 }, top.drain(scores));
+		assertArrayEquals(new double[] { 0.9, 0.9, 0.7 }, scores, 0.0);
+		assertEquals(0, top.size());
+	}
+
+	@Test
+	public void testKeepsLowestScoresWhenAscending() {
+		TopScores top = new TopScores(2, true);
+		double[] values = { 0.2, 0.9, 0.1, 0.1 };
+		for (int i = 0; i < values.length; i++) {
+			top.offer(values[i], i);
+		}
+		double[] scores = new double[top.size()];
+		assertArrayEquals(new int[] { 2, 3 }, top.drain(scores));
+		assertArrayEquals(new double[] { 0.1, 0.1 }, scores, 0.0);
+	}
+
+	@Test
+	public void testZeroCapacity() {
+		TopScores top = new TopScores(0, false);
+		top.offer(1.0, 0);
+		assertEquals(0, top.size());
+		assertEquals(0, top.drain(new double[0]).length);
+	}
+
+	@Test
+	public void testOfferAllMatchesSingleHeap() {
+		Random random = new Random(3);
+		TopScores single = new TopScores(10, false);
+		TopScores first = new TopScores(10, false);
+		TopScores second = new TopScores(10, false);
+		for (int i = 0; i < 200; i++) {
+			double score = random.nextInt(20) / 20.0;
+			single.offer(score, i);
+			(i < 100 ? first : second).offer(score, i);
+		}
+		first.offerAll(second);
+		double[] expected = new double[single.size()];
+		double[] actual = new double[first.size()];
+		assertTrue(Arrays.equals(single.drain(expected), first.drain(actual)));
+		assertArrayEquals(expected, actual, 0.0);
+	}
+}
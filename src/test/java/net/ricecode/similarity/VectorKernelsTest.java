@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2010 Ralph Allan Rice <ralph.rice@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+
+package net.ricecode.similarity;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Compares the vector kernels with the scalar code they replace. The kernels are only available
+ * when the tests run on Java 21 against the multi-release layer, with the jdk.incubator.vector module;
+ * elsewhere the tests check that the kernels fall back to the scalar code.
+ */
+public class VectorKernelsTest {
+
+	private static final String ALPHABET = "abcdeé一";
+
+	@Test
+	public void testEditDistancesMatchMyers() {
+		Random random = new Random(11);
+		int lanes = VectorKernels.EDIT_DISTANCE_LANES;
+		for (int round = 0; round < 500; round++) {
+			String pattern = randomString(random, 1 + random.nextInt(64));
+			PatternBitVectors vectors = new PatternBitVectors(pattern);
+			int count = 1 + random.nextInt(lanes);
+			String[] texts = new String[count];
+			long[] lengths = new long[lanes];
+			int columns = 0;
+			for (int l = 0; l < count; l++) {
+				texts[l] = randomString(random, random.nextInt(100));
+				lengths[l] = texts[l].length();
+				columns = Math.max(columns, texts[l].length());
+			}
+			long[] eqs = new long[columns * lanes];
+			for (int l = 0; l < count; l++) {
+				for (int j = 0; j < texts[l].length(); j++) {
+					eqs[j * lanes + l] = vectors.get(texts[l].charAt(j));
+				}
+			}
+			int[] out = new int[lanes];
+			VectorKernels.editDistances(eqs, lengths, columns, pattern.length(), out);
+			for (int l = 0; l < count; l++) {
+				assertEquals(pattern + " / " + texts[l], MyersEditDistance.distance(vectors, texts[l]), out[l]);
+			}
+		}
+	}
+
+	@Test
+	public void testScoreIntoMatchesScore() {
+		Random random = new Random(12);
+		LevenshteinDistanceStrategy s = new LevenshteinDistanceStrategy();
+		List<String> features = new ArrayList<String>();
+		for (int i = 0; i < 37; i++) {
+			features.add(randomString(random, random.nextInt(80)));
+		}
+		features.add("İstanbul");
+		for (int round = 0; round < 20; round++) {
+			String target = randomString(random, 1 + random.nextInt(64));
+			double[] scores = new double[features.size()];
+			s.scoreInto(target, features, scores);
+			for (int i = 0; i < features.size(); i++) {
+				assertEquals(features.get(i) + " / " + target, s.score(features.get(i), target), scores[i], 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testMatchCharactersWithinMatchesScalar() {
+		Random random = new Random(13);
+		for (int round = 0; round < 2000; round++) {
+			char[] first = randomString(random, random.nextInt(120)).toCharArray();
+			char[] second = randomString(random, random.nextInt(120)).toCharArray();
+			int limit = 1 + random.nextInt(60);
+			boolean[] matched = new boolean[first.length];
+			boolean[] used = new boolean[second.length];
+			boolean[] expectedMatched = new boolean[first.length];
+			boolean[] expectedUsed = new boolean[second.length];
+			assertEquals(scalarMatch(first, second, limit, expectedMatched, expectedUsed),
+					VectorKernels.matchCharactersWithin(first, first.length, second, second.length, limit, matched, used));
+			assertArrayEquals(expectedMatched, matched);
+			assertArrayEquals(expectedUsed, used);
+		}
+	}
+
+	@Test
+	public void testIntersectionMatchesMerge() {
+		Random random = new Random(14);
+		for (int round = 0; round < 2000; round++) {
+			int[] first = new int[random.nextInt(100) + 1];
+			int[] second = new int[random.nextInt(100) + 1];
+			int firstSize = Bigrams.distinct(randomString(random, first.length + 1), first);
+			int secondSize = Bigrams.distinct(randomString(random, second.length + 1), second);
+			int expected = 0;
+			for (int i = 0; i < firstSize; i++) {
+				for (int j = 0; j < secondSize; j++) {
+					if (first[i] == second[j]) {
+						expected++;
+					}
+				}
+			}
+			assertEquals(expected, VectorKernels.intersection(first, firstSize, second, secondSize));
+		}
+	}
+
+	private static int scalarMatch(char[] first, char[] second, int limit, boolean[] matched, boolean[] used) {
+		int common = 0;
+		for (int i = 0; i < first.length; i++) {
+			int end = Math.min(i + limit, second.length);
+			for (int j = Math.max(0, i - limit); j < end; j++) {
+				if (second[j] == first[i] && !used[j]) {
+					used[j] = true;
+					matched[i] = true;
+					common++;
+					break;
+				}
+			}
+		}
+		return common;
+	}
+
+	private static String randomString(Random random, int length) {
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+		}
+		return sb.toString();
+	}
+}